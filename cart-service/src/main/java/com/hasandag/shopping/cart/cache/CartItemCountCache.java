@@ -0,0 +1,41 @@
+package com.hasandag.ecommerce.cart.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.function.ToIntFunction;
+
+/**
+ * Local cache of cart line counts for the header badge, which asks on every page view.
+ * Cart changes made through this node invalidate the user's entry; changes made on other
+ * nodes show up once the short TTL has passed. Off unless {@code app.cart.count-cache.enabled}.
+ */
+@Component
+public class CartItemCountCache {
+    
+    private final Cache<String, Integer> counts;
+    
+    public CartItemCountCache(@Value("${app.cart.count-cache.enabled:false}") boolean enabled,
+                              @Value("${app.cart.count-cache.ttl:5s}") Duration ttl,
+                              @Value("${app.cart.count-cache.maximum-size:100000}") long maximumSize) {
+        this.counts = enabled
+                ? Caffeine.newBuilder().expireAfterWrite(ttl).maximumSize(maximumSize).build()
+                : null;
+    }
+    
+    public int get(String userId, ToIntFunction<String> loader) {
+        if (counts == null) {
+            return loader.applyAsInt(userId);
+        }
+        return counts.get(userId, loader::applyAsInt);
+    }
+    
+    public void invalidate(String userId) {
+        if (counts != null) {
+            counts.invalidate(userId);
+        }
+    }
+}
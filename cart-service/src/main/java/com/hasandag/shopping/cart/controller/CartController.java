@@ -1,5 +1,6 @@
 package com.hasandag.ecommerce.cart.controller;
 
+import com.hasandag.ecommerce.cart.dto.CartBatchRequest;
 import com.hasandag.ecommerce.cart.dto.CartItemRequest;
 import com.hasandag.ecommerce.cart.dto.CartResponse;
 import com.hasandag.ecommerce.cart.service.CartService;
@@ -53,6 +54,24 @@ public class CartController {
         return ResponseEntity.ok(updatedCart);
     }
 
+    @PostMapping("/{userId}/items/batch")
+    public ResponseEntity<CartResponse> applyOperations(
+            @PathVariable String userId,
+            @Valid @RequestBody CartBatchRequest batchRequest) {
+        log.info("Applying {} operations to cart for user: {}", batchRequest.getOperations().size(), userId);
+        CartResponse updatedCart = cartService.applyOperations(userId, batchRequest);
+        return ResponseEntity.ok(updatedCart);
+    }
+
+    @PostMapping("/{userId}/merge/{guestId}")
+    public ResponseEntity<CartResponse> mergeGuestCart(
+            @PathVariable String userId,
+            @PathVariable String guestId) {
+        log.info("Merging guest cart {} into cart for user: {}", guestId, userId);
+        CartResponse mergedCart = cartService.mergeGuestCart(userId, guestId);
+        return ResponseEntity.ok(mergedCart);
+    }
+
     @DeleteMapping("/{userId}/clear")
     public ResponseEntity<Void> clearCart(@PathVariable String userId) {
         log.info("Clearing cart for user: {}", userId);
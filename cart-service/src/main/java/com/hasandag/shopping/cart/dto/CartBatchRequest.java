@@ -0,0 +1,22 @@
+package com.hasandag.ecommerce.cart.dto;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class CartBatchRequest {
+    
+    @NotEmpty(message = "At least one operation is required")
+    @Size(max = 500, message = "At most 500 operations per batch")
+    private List<@Valid CartOperationRequest> operations;
+}
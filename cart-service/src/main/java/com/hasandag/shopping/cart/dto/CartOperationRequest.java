@@ -0,0 +1,43 @@
+package com.hasandag.ecommerce.cart.dto;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.hasandag.ecommerce.cart.model.CartOperation;
+import jakarta.validation.constraints.AssertTrue;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class CartOperationRequest {
+    
+    @NotNull(message = "Operation type is required")
+    private CartOperation.Type type;
+    
+    @NotBlank(message = "Product ID is required")
+    private String productId;
+    
+    private String productName;
+    
+    private String productImageUrl;
+    
+    private int quantity;
+    
+    @Min(value = 0, message = "Unit price cannot be negative")
+    private BigDecimal unitPrice;
+    
+    @JsonIgnore
+    @AssertTrue(message = "Adding an item requires a product name, a unit price and a quantity of at least 1")
+    public boolean isValidAdd() {
+        return type != CartOperation.Type.ADD
+                || (productName != null && !productName.isBlank() && unitPrice != null && quantity >= 1);
+    }
+}
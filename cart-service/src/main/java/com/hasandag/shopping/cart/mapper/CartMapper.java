@@ -2,9 +2,11 @@ package com.hasandag.ecommerce.cart.mapper;
 
 import com.hasandag.ecommerce.cart.dto.CartItemRequest;
 import com.hasandag.ecommerce.cart.dto.CartItemResponse;
+import com.hasandag.ecommerce.cart.dto.CartOperationRequest;
 import com.hasandag.ecommerce.cart.dto.CartResponse;
 import com.hasandag.ecommerce.cart.model.Cart;
 import com.hasandag.ecommerce.cart.model.CartItem;
+import com.hasandag.ecommerce.cart.model.CartOperation;
 import org.mapstruct.Mapper;
 import org.mapstruct.Mapping;
 import org.mapstruct.Named;
@@ -20,6 +22,10 @@ public interface CartMapper {
     @Mapping(target = "updatedAt", ignore = true)
     CartItem toCartItem(CartItemRequest request);
     
+    CartOperation toCartOperation(CartOperationRequest request);
+    
+    List<CartOperation> toCartOperations(List<CartOperationRequest> requests);
+    
     @Mapping(target = "subtotal", expression = "java(item.getSubtotal())")
     CartItemResponse toCartItemResponse(CartItem item);
     
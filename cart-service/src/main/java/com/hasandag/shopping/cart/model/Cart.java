@@ -1,17 +1,29 @@
 package com.hasandag.ecommerce.cart.model;
 
+import lombok.AccessLevel;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
 import lombok.NoArgsConstructor;
+import lombok.Setter;
+import lombok.ToString;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.annotation.Transient;
+import org.springframework.data.annotation.Version;
 import org.springframework.data.mongodb.core.index.Indexed;
 import org.springframework.data.mongodb.core.mapping.Document;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
 
 @Document(collection = "carts")
 @Data
@@ -26,9 +38,23 @@ public class Cart {
     @Indexed(unique = true)
     private String userId;
     
+    // Bumped by every write; item updates only apply to the version they were computed from
+    @Version
+    private Long version;
+    
+    // Change counter of a cart kept in Redis; a write-behind flush only lands in Mongo if it
+    // carries a higher revision than the stored one, so flushes can never go back in time
+    private Long revision;
+    
     @Builder.Default
     private List<CartItem> items = new ArrayList<>();
     
+    // Guest carts whose lines were merged into this one, recorded in the same write as the
+    // lines so a retried merge adds nothing twice; the Redis store, which keeps an emptied
+    // record of a merged guest cart, adds the guest's revision to the cart id
+    @Builder.Default
+    private Set<String> mergedFrom = new HashSet<>();
+    
     @Builder.Default
     private BigDecimal totalAmount = BigDecimal.ZERO;
     
@@ -38,57 +64,108 @@ public class Cart {
     @Builder.Default
     private LocalDateTime updatedAt = LocalDateTime.now();
     
+    // Product id -> line of the current items list; rebuilt whenever the list is replaced,
+    // e.g. by the mapping layer or setItems, so it never needs to be persisted
+    @Transient
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
+    private transient Map<String, CartItem> itemIndex;
+    
+    @Transient
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
+    private transient List<CartItem> indexedItems;
+    
+    /**
+     * Recomputes the total from the items; the item methods below keep it up to date by deltas.
+     */
     public void updateTotalAmount() {
         this.totalAmount = items.stream()
                 .map(CartItem::getSubtotal)
                 .reduce(BigDecimal.ZERO, BigDecimal::add);
     }
     
+    public Optional<CartItem> findItem(String productId) {
+        return Optional.ofNullable(index().get(productId));
+    }
+    
+    public boolean containsProduct(String productId) {
+        return index().containsKey(productId);
+    }
+    
     public void addItem(CartItem item) {
-        // Check if product already exists in cart
-        for (int i = 0; i < items.size(); i++) {
-            CartItem existingItem = items.get(i);
-            if (existingItem.getProductId().equals(item.getProductId())) {
-                // If product exists, update quantity
-                existingItem.setQuantity(existingItem.getQuantity() + item.getQuantity());
-                existingItem.setUpdatedAt(LocalDateTime.now());
-                items.set(i, existingItem);
-                updateTotalAmount();
-                return;
-            }
+        CartItem existingItem = index().get(item.getProductId());
+        if (existingItem != null) {
+            // If product exists, update quantity
+            existingItem.setQuantity(existingItem.getQuantity() + item.getQuantity());
+            existingItem.setUpdatedAt(LocalDateTime.now());
+            addToTotal(existingItem.getUnitPrice().multiply(BigDecimal.valueOf(item.getQuantity())));
+            return;
         }
         
         // If product doesn't exist, add new item
         item.setCartId(this.id);
         items.add(item);
-        updateTotalAmount();
+        itemIndex.put(item.getProductId(), item);
+        addToTotal(item.getSubtotal());
     }
     
     public void removeItem(String productId) {
-        items.removeIf(item -> item.getProductId().equals(productId));
-        updateTotalAmount();
+        CartItem item = index().remove(productId);
+        if (item != null) {
+            items.removeIf(line -> line == item);
+            addToTotal(item.getSubtotal().negate());
+        }
     }
     
     public void updateItemQuantity(String productId, int quantity) {
-        for (int i = 0; i < items.size(); i++) {
-            CartItem item = items.get(i);
-            if (item.getProductId().equals(productId)) {
-                if (quantity <= 0) {
-                    removeItem(productId);
-                } else {
-                    item.setQuantity(quantity);
-                    item.setUpdatedAt(LocalDateTime.now());
-                    items.set(i, item);
-                }
-                break;
-            }
+        CartItem item = index().get(productId);
+        if (item == null) {
+            return;
+        }
+        if (quantity <= 0) {
+            removeItem(productId);
+            return;
+        }
+        addToTotal(item.getUnitPrice().multiply(BigDecimal.valueOf(quantity - item.getQuantity())));
+        item.setQuantity(quantity);
+        item.setUpdatedAt(LocalDateTime.now());
+    }
+    
+    public void apply(CartOperation operation) {
+        switch (operation.getType()) {
+            case ADD -> addItem(operation.newItem());
+            case UPDATE -> updateItemQuantity(operation.getProductId(), operation.getQuantity());
+            case REMOVE -> removeItem(operation.getProductId());
         }
-        updateTotalAmount();
     }
     
     public void clear() {
+        index().clear();
         items.clear();
         totalAmount = BigDecimal.ZERO;
         updatedAt = LocalDateTime.now();
     }
+    
+    private Map<String, CartItem> index() {
+        if (items == null) {
+            items = new ArrayList<>();
+        }
+        if (itemIndex == null || indexedItems != items) {
+            itemIndex = new HashMap<>(Math.max(16, items.size() * 2));
+            for (CartItem item : items) {
+                itemIndex.put(item.getProductId(), item);
+            }
+            indexedItems = items;
+        }
+        return itemIndex;
+    }
+    
+    private void addToTotal(BigDecimal delta) {
+        totalAmount = (totalAmount == null ? BigDecimal.ZERO : totalAmount).add(delta);
+    }
 } 
\ No newline at end of file
@@ -0,0 +1,62 @@
+package com.hasandag.ecommerce.cart.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+/**
+ * One step of a batch cart change. {@code ADD} behaves like adding a single item,
+ * {@code UPDATE} sets the quantity (zero or less removes the line) and {@code REMOVE}
+ * drops the line; steps for products that are not in the cart are ignored.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class CartOperation {
+    
+    public enum Type {
+        ADD,
+        UPDATE,
+        REMOVE
+    }
+    
+    private Type type;
+    
+    private String productId;
+    
+    private String productName;
+    
+    private String productImageUrl;
+    
+    private int quantity;
+    
+    private BigDecimal unitPrice;
+    
+    public static CartOperation add(CartItem item) {
+        return CartOperation.builder()
+                .type(Type.ADD)
+                .productId(item.getProductId())
+                .productName(item.getProductName())
+                .productImageUrl(item.getProductImageUrl())
+                .quantity(item.getQuantity())
+                .unitPrice(item.getUnitPrice())
+                .build();
+    }
+    
+    /**
+     * A fresh line for an {@code ADD}, so the operation can be applied again on a retry.
+     */
+    public CartItem newItem() {
+        return CartItem.builder()
+                .productId(productId)
+                .productName(productName)
+                .productImageUrl(productImageUrl)
+                .quantity(quantity)
+                .unitPrice(unitPrice)
+                .build();
+    }
+}
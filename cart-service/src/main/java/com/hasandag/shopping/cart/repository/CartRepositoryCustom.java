@@ -0,0 +1,88 @@
+package com.hasandag.ecommerce.cart.repository;
+
+import com.hasandag.ecommerce.cart.model.Cart;
+import com.hasandag.ecommerce.cart.model.CartItem;
+import com.hasandag.ecommerce.cart.model.CartOperation;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Item-level cart writes. Each one reads only the cart's version, total and the affected
+ * item, then applies a targeted update ({@code $inc}, {@code $push}, {@code $pull}) that
+ * only matches the version it read, retrying on conflict. Concurrent edits of one cart
+ * therefore never overwrite each other, and the total always matches the items.
+ *
+ * <p>The returned carts are the state right after the write.
+ */
+public interface CartRepositoryCustom {
+    
+    /**
+     * The user's cart, created empty if it does not exist yet.
+     */
+    Cart findOrCreate(String userId);
+    
+    /**
+     * Number of lines in the user's cart, read without loading the items; 0 if there is no cart.
+     */
+    int countItems(String userId);
+    
+    /**
+     * Whether the user's cart has a line for the product, answered from the index alone.
+     */
+    boolean containsProduct(String userId, String productId);
+    
+    /**
+     * Adds the item, or raises the quantity of the line already holding the product, which
+     * keeps that line's unit price. Creates the cart if needed.
+     */
+    Cart addItem(String userId, CartItem item);
+    
+    /**
+     * Sets the quantity of the product's line; a quantity of zero or less removes it.
+     *
+     * @return empty if the user has no cart
+     */
+    Optional<Cart> setItemQuantity(String userId, String productId, int quantity);
+    
+    /**
+     * @return empty if the user has no cart
+     */
+    Optional<Cart> removeItem(String userId, String productId);
+    
+    /**
+     * @return empty if the user has no cart
+     */
+    Optional<Cart> clearItems(String userId);
+    
+    /**
+     * Applies all operations in order as one version-checked document update, so the cart
+     * shows either all of them or none. Creates the cart if needed.
+     */
+    Cart applyOperations(String userId, List<CartOperation> operations);
+    
+    /**
+     * Adds the guest cart's lines to the user's cart and records the guest cart id in
+     * {@code mergedFrom}, in one version-checked update; a guest cart already recorded there
+     * adds nothing. Creates the user's cart if needed, and leaves the guest cart as it is.
+     */
+    Cart mergeCart(String userId, Cart guest);
+    
+    /**
+     * Writes the items and totals of carts held elsewhere, matching them by user id and
+     * creating the ones Mongo does not have yet. A snapshot whose revision is not higher than
+     * the stored one is stale (flushed late, or taken before a delete) and is skipped.
+     */
+    void saveSnapshots(Collection<Cart> carts);
+    
+    /**
+     * Atomically empties the user's cart and raises its revision to at least {@code revision},
+     * so only one caller gets its items and no snapshot taken earlier can bring them back.
+     * The emptied record is created if {@code upsert} is set and the cart is not in Mongo yet.
+     * A non-null {@code expectedRevision} takes the cart only while it is still at that revision.
+     *
+     * @return the cart as it was, or empty if Mongo had none (or it had moved past {@code expectedRevision})
+     */
+    Optional<Cart> takeItems(String userId, long revision, Long expectedRevision, boolean upsert);
+}
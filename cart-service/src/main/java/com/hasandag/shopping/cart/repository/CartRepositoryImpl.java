@@ -0,0 +1,263 @@
+package com.hasandag.ecommerce.cart.repository;
+
+import com.hasandag.ecommerce.cart.model.Cart;
+import com.hasandag.ecommerce.cart.model.CartItem;
+import com.hasandag.ecommerce.cart.model.CartOperation;
+import lombok.RequiredArgsConstructor;
+import org.bson.Document;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.ArrayOperators;
+import org.springframework.data.mongodb.core.aggregation.ConditionalOperators;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+
+@RequiredArgsConstructor
+public class CartRepositoryImpl implements CartRepositoryCustom {
+    
+    private static final int MAX_ATTEMPTS = 16;
+    private static final int DUPLICATE_KEY = 11000;
+    
+    private final MongoTemplate mongoTemplate;
+    
+    @Override
+    public Cart findOrCreate(String userId) {
+        LocalDateTime now = LocalDateTime.now();
+        Update update = new Update()
+                .setOnInsert("items", new ArrayList<>())
+                .setOnInsert("totalAmount", BigDecimal.ZERO)
+                .setOnInsert("version", 0L)
+                .setOnInsert("createdAt", now)
+                .setOnInsert("updatedAt", now);
+        try {
+            return mongoTemplate.findAndModify(Query.query(where("userId").is(userId)), update,
+                    FindAndModifyOptions.options().upsert(true).returnNew(true), Cart.class);
+        } catch (DuplicateKeyException e) {
+            // Another request created the cart between our match and insert
+            return mongoTemplate.findOne(Query.query(where("userId").is(userId)), Cart.class);
+        }
+    }
+    
+    @Override
+    public int countItems(String userId) {
+        Aggregation count = Aggregation.newAggregation(
+                Aggregation.match(where("userId").is(userId)),
+                Aggregation.project()
+                        .and(ArrayOperators.Size.lengthOfArray(ConditionalOperators.ifNull("items").then(List.of())))
+                        .as("count"));
+        Document result = mongoTemplate.aggregate(count, Cart.class, Document.class).getUniqueMappedResult();
+        return result == null ? 0 : result.getInteger("count", 0);
+    }
+    
+    @Override
+    public boolean containsProduct(String userId, String productId) {
+        return mongoTemplate.exists(Query.query(where("userId").is(userId).and("items.productId").is(productId)), Cart.class);
+    }
+    
+    @Override
+    public Cart addItem(String userId, CartItem item) {
+        return mutate(userId, item.getProductId(), (cart, existing) -> {
+            if (existing != null) {
+                return new Update()
+                        .inc("items.$.quantity", item.getQuantity())
+                        .set("items.$.updatedAt", LocalDateTime.now())
+                        .set("totalAmount", cart.getTotalAmount().add(existing.getUnitPrice().multiply(BigDecimal.valueOf(item.getQuantity()))));
+            }
+            item.setCartId(cart.getId());
+            return new Update()
+                    .push("items", item)
+                    .set("totalAmount", cart.getTotalAmount().add(item.getSubtotal()));
+        }).orElseGet(() -> {
+            findOrCreate(userId);
+            return addItem(userId, item);
+        });
+    }
+    
+    @Override
+    public Optional<Cart> setItemQuantity(String userId, String productId, int quantity) {
+        if (quantity <= 0) {
+            return removeItem(userId, productId);
+        }
+        return mutate(userId, productId, (cart, existing) -> existing == null ? null : new Update()
+                .set("items.$.quantity", quantity)
+                .set("items.$.updatedAt", LocalDateTime.now())
+                .set("totalAmount", cart.getTotalAmount().add(existing.getUnitPrice().multiply(BigDecimal.valueOf(quantity - existing.getQuantity())))));
+    }
+    
+    @Override
+    public Optional<Cart> removeItem(String userId, String productId) {
+        return mutate(userId, productId, (cart, existing) -> existing == null ? null : new Update()
+                .pull("items", new Document("productId", productId))
+                .set("totalAmount", cart.getTotalAmount().subtract(existing.getSubtotal())));
+    }
+    
+    @Override
+    public Optional<Cart> clearItems(String userId) {
+        return Optional.ofNullable(mongoTemplate.findAndModify(
+                Query.query(where("userId").is(userId)),
+                new Update()
+                        .set("items", new ArrayList<>())
+                        .set("totalAmount", BigDecimal.ZERO)
+                        .set("updatedAt", LocalDateTime.now())
+                        .inc("version", 1),
+                FindAndModifyOptions.options().returnNew(true),
+                Cart.class));
+    }
+    
+    @Override
+    public Cart applyOperations(String userId, List<CartOperation> operations) {
+        return applyOperations(userId, operations, null);
+    }
+    
+    @Override
+    public Cart mergeCart(String userId, Cart guest) {
+        return applyOperations(userId, guest.getItems().stream().map(CartOperation::add).toList(), guest.getId());
+    }
+    
+    private Cart applyOperations(String userId, List<CartOperation> operations, String mergedFrom) {
+        for (int attempt = 0; attempt < MAX_ATTEMPTS; attempt++) {
+            Cart cart = mongoTemplate.findOne(Query.query(where("userId").is(userId)), Cart.class);
+            if (cart == null) {
+                cart = findOrCreate(userId);
+            }
+            if (mergedFrom != null && cart.getMergedFrom() != null && cart.getMergedFrom().contains(mergedFrom)) {
+                return cart;
+            }
+            Long version = cart.getVersion();
+            operations.forEach(cart::apply);
+            
+            // The whole batch lands in one write, and only on the version the batch was computed from
+            Update update = new Update()
+                    .set("items", cart.getItems())
+                    .set("totalAmount", cart.getTotalAmount())
+                    .set("updatedAt", LocalDateTime.now())
+                    .inc("version", 1);
+            if (mergedFrom != null) {
+                update.addToSet("mergedFrom", mergedFrom);
+            }
+            Cart updated = mongoTemplate.findAndModify(
+                    Query.query(where("_id").is(cart.getId()).and("version").is(version)),
+                    update,
+                    FindAndModifyOptions.options().returnNew(true),
+                    Cart.class);
+            if (updated != null) {
+                return updated;
+            }
+        }
+        throw new OptimisticLockingFailureException("Cart of user " + userId + " kept changing, giving up after " + MAX_ATTEMPTS + " attempts");
+    }
+    
+    @Override
+    public void saveSnapshots(Collection<Cart> carts) {
+        if (carts.isEmpty()) {
+            return;
+        }
+        BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Cart.class);
+        for (Cart cart : carts) {
+            long revision = cart.getRevision() == null ? 0 : cart.getRevision();
+            // A stored cart at this revision or later does not match, and the upsert then
+            // fails on the unique user id instead of inserting a second cart
+            Query newer = Query.query(where("userId").is(cart.getUserId())
+                    .orOperator(where("revision").lt(revision), where("revision").exists(false)));
+            bulk.upsert(newer, new Update()
+                    .set("items", cart.getItems())
+                    .set("totalAmount", cart.getTotalAmount())
+                    .set("updatedAt", cart.getUpdatedAt())
+                    .set("revision", revision)
+                    .set("mergedFrom", cart.getMergedFrom())
+                    .setOnInsert("_id", cart.getId())
+                    .setOnInsert("createdAt", cart.getCreatedAt())
+                    .inc("version", 1));
+        }
+        try {
+            bulk.execute();
+        } catch (BulkOperationException e) {
+            // Unordered, so the other carts were written; only stale snapshots were rejected
+            boolean onlyStale = e.getErrors().stream().allMatch(error -> error.getCode() == DUPLICATE_KEY);
+            if (!onlyStale) {
+                throw e;
+            }
+        }
+    }
+    
+    @Override
+    public Optional<Cart> takeItems(String userId, long revision, Long expectedRevision, boolean upsert) {
+        LocalDateTime now = LocalDateTime.now();
+        Update update = new Update()
+                .set("items", new ArrayList<>())
+                .set("totalAmount", BigDecimal.ZERO)
+                .set("updatedAt", now)
+                .max("revision", revision)
+                .setOnInsert("createdAt", now)
+                .inc("version", 1);
+        Criteria target = where("userId").is(userId);
+        if (expectedRevision != null) {
+            target = target.and("revision").is(expectedRevision);
+        }
+        try {
+            return Optional.ofNullable(mongoTemplate.findAndModify(Query.query(target), update,
+                    FindAndModifyOptions.options().upsert(upsert).returnNew(false), Cart.class));
+        } catch (DuplicateKeyException e) {
+            // A flush created the record between our match and insert; it exists now, so retry
+            return takeItems(userId, revision, expectedRevision, upsert);
+        }
+    }
+    
+    /**
+     * Compare-and-set loop over the cart's version. {@code change} sees the cart with only
+     * the product's line loaded (or {@code null} for it) and returns the update to apply,
+     * or {@code null} when there is nothing to change.
+     */
+    private Optional<Cart> mutate(String userId, String productId, CartChange change) {
+        for (int attempt = 0; attempt < MAX_ATTEMPTS; attempt++) {
+            Query read = Query.query(where("userId").is(userId));
+            read.fields().include("version", "totalAmount").elemMatch("items", where("productId").is(productId));
+            Cart current = mongoTemplate.findOne(read, Cart.class);
+            if (current == null) {
+                return Optional.empty();
+            }
+            CartItem existing = current.getItems() == null || current.getItems().isEmpty() ? null : current.getItems().get(0);
+            if (current.getTotalAmount() == null) {
+                current.setTotalAmount(BigDecimal.ZERO);
+            }
+            
+            Update update = change.apply(current, existing);
+            if (update == null) {
+                return Optional.ofNullable(mongoTemplate.findById(current.getId(), Cart.class));
+            }
+            update.set("updatedAt", LocalDateTime.now()).inc("version", 1);
+            
+            Criteria target = where("_id").is(current.getId()).and("version").is(current.getVersion());
+            if (existing != null) {
+                // Anchors the positional operator on the product's line
+                target = target.and("items.productId").is(productId);
+            }
+            Cart updated = mongoTemplate.findAndModify(Query.query(target), update,
+                    FindAndModifyOptions.options().returnNew(true), Cart.class);
+            if (updated != null) {
+                return Optional.of(updated);
+            }
+        }
+        throw new OptimisticLockingFailureException("Cart of user " + userId + " kept changing, giving up after " + MAX_ATTEMPTS + " attempts");
+    }
+    
+    @FunctionalInterface
+    private interface CartChange {
+        Update apply(Cart cart, CartItem existing);
+    }
+}
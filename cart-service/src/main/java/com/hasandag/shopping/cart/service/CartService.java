@@ -1,5 +1,6 @@
 package com.hasandag.ecommerce.cart.service;
 
+import com.hasandag.ecommerce.cart.dto.CartBatchRequest;
 import com.hasandag.ecommerce.cart.dto.CartItemRequest;
 import com.hasandag.ecommerce.cart.dto.CartResponse;
 
@@ -13,6 +14,16 @@ public interface CartService {
     
     CartResponse removeCartItem(String userId, String productId);
     
+    /**
+     * Applies all operations of the batch at once: the cart shows either all of them or none.
+     */
+    CartResponse applyOperations(String userId, CartBatchRequest batchRequest);
+    
+    /**
+     * Moves the guest's cart into the user's cart, e.g. on login, and removes the guest cart.
+     */
+    CartResponse mergeGuestCart(String userId, String guestId);
+    
     void clearCart(String userId);
     
     void deleteCart(String userId);
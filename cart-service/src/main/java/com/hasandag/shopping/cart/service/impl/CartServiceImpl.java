@@ -1,27 +1,28 @@
 package com.hasandag.ecommerce.cart.service.impl;
 
+import com.hasandag.ecommerce.cart.cache.CartItemCountCache;
+import com.hasandag.ecommerce.cart.dto.CartBatchRequest;
 import com.hasandag.ecommerce.cart.dto.CartItemRequest;
 import com.hasandag.ecommerce.cart.dto.CartResponse;
 import com.hasandag.ecommerce.cart.exception.CartNotFoundException;
 import com.hasandag.ecommerce.cart.mapper.CartMapper;
 import com.hasandag.ecommerce.cart.model.Cart;
 import com.hasandag.ecommerce.cart.model.CartItem;
-import com.hasandag.ecommerce.cart.repository.CartRepository;
 import com.hasandag.ecommerce.cart.service.CartService;
+import com.hasandag.ecommerce.cart.store.CartStore;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
-import java.time.LocalDateTime;
-
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class CartServiceImpl implements CartService {
 
-    private final CartRepository cartRepository;
+    private final CartStore cartStore;
     private final CartMapper cartMapper;
+    private final CartItemCountCache cartItemCountCache;
 
     @Override
     public CartResponse getCartByUserId(String userId) {
@@ -32,15 +33,10 @@ public class CartServiceImpl implements CartService {
     @Override
     @Transactional
     public CartResponse addItemToCart(String userId, CartItemRequest cartItemRequest) {
-        Cart cart = getOrCreateCart(userId);
-        
         CartItem cartItem = cartMapper.toCartItem(cartItemRequest);
-        cartItem.setCartId(cart.getId());
         
-        cart.addItem(cartItem);
-        cart.setUpdatedAt(LocalDateTime.now());
-        
-        Cart updatedCart = cartRepository.save(cart);
+        Cart updatedCart = cartStore.addItem(userId, cartItem);
+        cartItemCountCache.invalidate(userId);
         log.info("Added item {} to cart for user {}", cartItemRequest.getProductId(), userId);
         
         return cartMapper.toCartResponse(updatedCart);
@@ -49,12 +45,9 @@ public class CartServiceImpl implements CartService {
     @Override
     @Transactional
     public CartResponse updateCartItemQuantity(String userId, String productId, int quantity) {
-        Cart cart = getCartByUserIdOrThrow(userId);
-        
-        cart.updateItemQuantity(productId, quantity);
-        cart.setUpdatedAt(LocalDateTime.now());
-        
-        Cart updatedCart = cartRepository.save(cart);
+        Cart updatedCart = cartStore.setItemQuantity(userId, productId, quantity)
+                .orElseThrow(() -> cartNotFound(userId));
+        cartItemCountCache.invalidate(userId);
         log.info("Updated item {} quantity to {} in cart for user {}", productId, quantity, userId);
         
         return cartMapper.toCartResponse(updatedCart);
@@ -63,12 +56,9 @@ public class CartServiceImpl implements CartService {
     @Override
     @Transactional
     public CartResponse removeCartItem(String userId, String productId) {
-        Cart cart = getCartByUserIdOrThrow(userId);
-        
-        cart.removeItem(productId);
-        cart.setUpdatedAt(LocalDateTime.now());
-        
-        Cart updatedCart = cartRepository.save(cart);
+        Cart updatedCart = cartStore.removeItem(userId, productId)
+                .orElseThrow(() -> cartNotFound(userId));
+        cartItemCountCache.invalidate(userId);
         log.info("Removed item {} from cart for user {}", productId, userId);
         
         return cartMapper.toCartResponse(updatedCart);
@@ -76,59 +66,70 @@ public class CartServiceImpl implements CartService {
 
     @Override
     @Transactional
-    public void clearCart(String userId) {
-        Cart cart = getCartByUserIdOrThrow(userId);
+    public CartResponse applyOperations(String userId, CartBatchRequest batchRequest) {
+        Cart updatedCart = cartStore.applyOperations(userId, cartMapper.toCartOperations(batchRequest.getOperations()));
+        cartItemCountCache.invalidate(userId);
+        log.info("Applied {} operations to cart for user {}", batchRequest.getOperations().size(), userId);
         
-        cart.clear();
+        return cartMapper.toCartResponse(updatedCart);
+    }
+
+    @Override
+    @Transactional
+    public CartResponse mergeGuestCart(String userId, String guestId) {
+        if (guestId.equals(userId)) {
+            return getCartByUserId(userId);
+        }
         
-        cartRepository.save(cart);
+        Cart mergedCart = cartStore.mergeCart(guestId, userId);
+        cartItemCountCache.invalidate(userId);
+        cartItemCountCache.invalidate(guestId);
+        log.info("Merged guest cart {} into cart for user {}", guestId, userId);
+        
+        return cartMapper.toCartResponse(mergedCart);
+    }
+
+    @Override
+    @Transactional
+    public void clearCart(String userId) {
+        cartStore.clearItems(userId)
+                .orElseThrow(() -> cartNotFound(userId));
+        cartItemCountCache.invalidate(userId);
         log.info("Cleared cart for user {}", userId);
     }
 
     @Override
     @Transactional
     public void deleteCart(String userId) {
-        if (cartRepository.existsByUserId(userId)) {
-            cartRepository.deleteByUserId(userId);
+        boolean deleted = cartStore.delete(userId);
+        cartItemCountCache.invalidate(userId);
+        if (deleted) {
             log.info("Deleted cart for user {}", userId);
         }
     }
 
     @Override
     public int getCartItemCount(String userId) {
-        try {
-            Cart cart = getCartByUserIdOrThrow(userId);
-            return cart.getItems().size();
-        } catch (CartNotFoundException e) {
-            return 0;
-        }
+        // Badge path: a count projection instead of the whole cart, and no cart simply counts 0
+        return cartItemCountCache.get(userId, cartStore::countItems);
     }
 
     @Override
     public boolean checkProductInCart(String userId, String productId) {
-        try {
-            Cart cart = getCartByUserIdOrThrow(userId);
-            return cart.getItems().stream()
-                    .anyMatch(item -> item.getProductId().equals(productId));
-        } catch (CartNotFoundException e) {
-            return false;
-        }
+        return cartStore.containsProduct(userId, productId);
     }
 
     private Cart getOrCreateCart(String userId) {
-        return cartRepository.findByUserId(userId)
+        return cartStore.find(userId)
                 .orElseGet(() -> {
-                    Cart newCart = Cart.builder()
-                            .userId(userId)
-                            .build();
-                    Cart savedCart = cartRepository.save(newCart);
+                    // Idempotent, so concurrent first requests of a user end up with the same cart
+                    Cart savedCart = cartStore.findOrCreate(userId);
                     log.info("Created new cart for user {}", userId);
                     return savedCart;
                 });
     }
 
-    private Cart getCartByUserIdOrThrow(String userId) {
-        return cartRepository.findByUserId(userId)
-                .orElseThrow(() -> new CartNotFoundException("Cart not found for user: " + userId));
+    private static CartNotFoundException cartNotFound(String userId) {
+        return new CartNotFoundException("Cart not found for user: " + userId);
     }
 } 
\ No newline at end of file
@@ -0,0 +1,71 @@
+package com.hasandag.ecommerce.cart.store;
+
+import com.hasandag.ecommerce.cart.model.Cart;
+import com.hasandag.ecommerce.cart.model.CartItem;
+import com.hasandag.ecommerce.cart.model.CartOperation;
+
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Where carts are read and written. {@code app.cart.store=mongo} (the default) writes every
+ * change straight to the {@code carts} collection; {@code redis} keeps active carts in Redis
+ * and persists them to Mongo in the background.
+ *
+ * <p>Item changes are atomic per cart, and the returned carts are the state right after
+ * the change.
+ */
+public interface CartStore {
+    
+    Optional<Cart> find(String userId);
+    
+    Cart findOrCreate(String userId);
+    
+    /**
+     * Number of lines in the user's cart without materializing it; 0 if there is no cart.
+     */
+    int countItems(String userId);
+    
+    boolean containsProduct(String userId, String productId);
+    
+    /**
+     * Adds the item, or raises the quantity of the line already holding the product, which
+     * keeps that line's unit price. Creates the cart if needed.
+     */
+    Cart addItem(String userId, CartItem item);
+    
+    /**
+     * Sets the quantity of the product's line; a quantity of zero or less removes it.
+     *
+     * @return empty if the user has no cart
+     */
+    Optional<Cart> setItemQuantity(String userId, String productId, int quantity);
+    
+    /**
+     * @return empty if the user has no cart
+     */
+    Optional<Cart> removeItem(String userId, String productId);
+    
+    /**
+     * @return empty if the user has no cart
+     */
+    Optional<Cart> clearItems(String userId);
+    
+    /**
+     * Applies all operations in order, atomically. Creates the cart if needed.
+     */
+    Cart applyOperations(String userId, List<CartOperation> operations);
+    
+    /**
+     * Adds the lines of the guest's cart to the user's cart, adding quantities of products the
+     * user already has, and then removes the guest cart. The user's cart records the guest
+     * cart in the same write as its lines, so a guest cart is merged at most once, also when
+     * a merge that failed halfway is retried.
+     */
+    Cart mergeCart(String guestId, String userId);
+    
+    /**
+     * @return whether there was a cart to delete
+     */
+    boolean delete(String userId);
+}
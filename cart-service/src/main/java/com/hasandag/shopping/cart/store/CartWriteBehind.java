@@ -0,0 +1,97 @@
+package com.hasandag.ecommerce.cart.store;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Flushes dirty Redis carts to Mongo in batches and evicts idle ones. Safe to run on every
+ * node, although a cart can be flushed by two of them at once: a flush that outlives its
+ * lease is requeued and taken again, and a change during a flush marks the cart dirty for
+ * another node. Mongo only keeps the snapshot with the highest cart revision, so whichever
+ * write lands last, the older one cannot overwrite the newer.
+ */
+@Component
+@ConditionalOnProperty(name = "app.cart.store", havingValue = "redis")
+@Slf4j
+public class CartWriteBehind {
+    
+    private final RedisCartStore redisCartStore;
+    private final DistributionSummary batchSizes;
+    private final Counter evictedCounter;
+    private final AtomicLong lagMillis = new AtomicLong();
+    
+    @Value("${app.cart.write-behind.batch-size:200}")
+    private int batchSize;
+    
+    @Value("${app.cart.write-behind.flush-lease:60s}")
+    private Duration flushLease;
+    
+    @Value("${app.cart.eviction.idle-after:30m}")
+    private Duration idleAfter;
+    
+    @Value("${app.cart.eviction.batch-size:500}")
+    private int evictionBatchSize;
+    
+    public CartWriteBehind(RedisCartStore redisCartStore, MeterRegistry meterRegistry) {
+        this.redisCartStore = redisCartStore;
+        this.batchSizes = DistributionSummary.builder("cart.store.flush.batch.size")
+                .description("Carts written to Mongo per write-behind batch")
+                .register(meterRegistry);
+        this.evictedCounter = Counter.builder("cart.store.evicted")
+                .description("Idle carts dropped from Redis")
+                .register(meterRegistry);
+        Gauge.builder("cart.store.flush.lag.seconds", lagMillis, millis -> millis.get() / 1000.0)
+                .description("Age of the oldest cart change not yet written to Mongo")
+                .register(meterRegistry);
+    }
+    
+    @Scheduled(initialDelayString = "${app.cart.write-behind.interval-ms:5000}",
+            fixedDelayString = "${app.cart.write-behind.interval-ms:5000}")
+    public void flush() {
+        long requeued = redisCartStore.requeueStalled(flushLease);
+        if (requeued > 0) {
+            log.warn("Requeued {} carts whose flush did not finish within {}", requeued, flushLease);
+        }
+        
+        int taken;
+        do {
+            taken = redisCartStore.flushDirty(batchSize);
+            if (taken > 0) {
+                batchSizes.record(taken);
+                log.debug("Flushed {} carts to Mongo", taken);
+            }
+        } while (taken == batchSize);
+        lagMillis.set(redisCartStore.flushLag().toMillis());
+    }
+    
+    @Scheduled(initialDelayString = "${app.cart.eviction.interval-ms:60000}",
+            fixedDelayString = "${app.cart.eviction.interval-ms:60000}")
+    public void evictIdle() {
+        int evicted = redisCartStore.evictIdle(idleAfter, evictionBatchSize);
+        if (evicted > 0) {
+            evictedCounter.increment(evicted);
+            log.info("Evicted {} idle carts from Redis", evicted);
+        }
+    }
+    
+    // Write what is still pending before the node goes away
+    @PreDestroy
+    public void drain() {
+        try {
+            flush();
+        } catch (RuntimeException e) {
+            log.warn("Could not flush carts on shutdown, they stay dirty in Redis: {}", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package com.hasandag.ecommerce.cart.store;
+
+import com.hasandag.ecommerce.cart.model.Cart;
+import com.hasandag.ecommerce.cart.model.CartItem;
+import com.hasandag.ecommerce.cart.model.CartOperation;
+import com.hasandag.ecommerce.cart.repository.CartRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Optional;
+
+@Component
+@ConditionalOnProperty(name = "app.cart.store", havingValue = "mongo", matchIfMissing = true)
+@RequiredArgsConstructor
+@Slf4j
+public class MongoCartStore implements CartStore {
+    
+    private final CartRepository cartRepository;
+    
+    @Override
+    public Optional<Cart> find(String userId) {
+        return cartRepository.findByUserId(userId);
+    }
+    
+    @Override
+    public Cart findOrCreate(String userId) {
+        return cartRepository.findByUserId(userId)
+                .orElseGet(() -> cartRepository.findOrCreate(userId));
+    }
+    
+    @Override
+    public int countItems(String userId) {
+        return cartRepository.countItems(userId);
+    }
+    
+    @Override
+    public boolean containsProduct(String userId, String productId) {
+        return cartRepository.containsProduct(userId, productId);
+    }
+    
+    @Override
+    public Cart addItem(String userId, CartItem item) {
+        return cartRepository.addItem(userId, item);
+    }
+    
+    @Override
+    public Optional<Cart> setItemQuantity(String userId, String productId, int quantity) {
+        return cartRepository.setItemQuantity(userId, productId, quantity);
+    }
+    
+    @Override
+    public Optional<Cart> removeItem(String userId, String productId) {
+        return cartRepository.removeItem(userId, productId);
+    }
+    
+    @Override
+    public Optional<Cart> clearItems(String userId) {
+        return cartRepository.clearItems(userId);
+    }
+    
+    @Override
+    public Cart applyOperations(String userId, List<CartOperation> operations) {
+        return cartRepository.applyOperations(userId, operations);
+    }
+    
+    @Override
+    public Cart mergeCart(String guestId, String userId) {
+        Optional<Cart> guest = cartRepository.findByUserId(guestId);
+        if (guest.isEmpty()) {
+            return cartRepository.applyOperations(userId, List.of());
+        }
+        
+        // The guest cart goes only once its lines are in the user's cart, which also records
+        // it, so a merge that fails at any point can be retried without adding them twice
+        Cart merged = cartRepository.mergeCart(userId, guest.get());
+        try {
+            cartRepository.delete(guest.get());
+        } catch (OptimisticLockingFailureException e) {
+            // Changed since we read it, so it keeps the lines that were not merged, or a
+            // concurrent merge removed it already
+            log.warn("Guest cart {} changed during its merge into cart of user {}, leaving it in place", guestId, userId);
+        }
+        return merged;
+    }
+    
+    @Override
+    public boolean delete(String userId) {
+        if (!cartRepository.existsByUserId(userId)) {
+            return false;
+        }
+        cartRepository.deleteByUserId(userId);
+        return true;
+    }
+}
@@ -0,0 +1,622 @@
+package com.hasandag.ecommerce.cart.store;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.hasandag.ecommerce.cart.model.Cart;
+import com.hasandag.ecommerce.cart.model.CartItem;
+import com.hasandag.ecommerce.cart.model.CartOperation;
+import com.hasandag.ecommerce.cart.repository.CartRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.types.ObjectId;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ZSetOperations;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Keeps active carts in Redis and writes them to Mongo behind the requests.
+ *
+ * <p>A cart is two hashes: {@code cart:<userId>:meta} (id, timestamps, revision and the
+ * guest carts merged into it) and
+ * {@code cart:<userId>:items}, one field per product id holding the line as JSON. Item
+ * changes are Lua scripts, so each is atomic, and each one also records the user in
+ * {@code cart:dirty} (scored by the first unflushed change) and {@code cart:active}
+ * (scored by the last access).
+ *
+ * <p>{@link CartWriteBehind} drives flushing and eviction. A flush first moves the carts it
+ * takes from {@code cart:dirty} to {@code cart:flushing} and only clears that marker once
+ * Mongo has the data; a change during the flush marks the cart dirty again, and markers
+ * left behind by a crashed node go back to {@code cart:dirty} after the flush lease.
+ * Idle carts leave Redis only when they have nothing left to flush.
+ *
+ * <p>Every change also bumps the {@code revision} in the meta hash, and Mongo only takes a
+ * snapshot with a higher revision than it has, so a slow flush overtaken by a newer one is
+ * dropped. Deleting a cart leaves an emptied record at the cart's last revision in Mongo
+ * rather than removing it, which fences off any flush of the old items still in flight.
+ */
+@Component
+@ConditionalOnProperty(name = "app.cart.store", havingValue = "redis")
+@RequiredArgsConstructor
+@Slf4j
+public class RedisCartStore implements CartStore {
+    
+    static final String DIRTY_KEY = "cart:dirty";
+    static final String FLUSHING_KEY = "cart:flushing";
+    static final String ACTIVE_KEY = "cart:active";
+    
+    private static final int MAX_ATTEMPTS = 3;
+    
+    // Item scripts: KEYS = meta, items, dirty, active; ARGV = userId, now, productId, ...
+    private static final String LOADED = """
+            if redis.call('EXISTS', KEYS[1]) == 0 then return 0 end
+            """;
+    
+    // NX keeps the time of the first unflushed change, which is what flush lag is measured from
+    private static final String TOUCH = """
+            redis.call('HSET', KEYS[1], 'updatedAt', ARGV[2])
+            redis.call('HINCRBY', KEYS[1], 'revision', 1)
+            redis.call('ZADD', KEYS[3], 'NX', ARGV[2], ARGV[1])
+            redis.call('ZADD', KEYS[4], ARGV[2], ARGV[1])
+            return 1
+            """;
+    
+    private static final RedisScript<Long> ADD_ITEM = RedisScript.of(LOADED + """
+            local raw = redis.call('HGET', KEYS[2], ARGV[3])
+            if raw then
+                local line = cjson.decode(raw)
+                line.quantity = line.quantity + tonumber(ARGV[5])
+                line.updatedAt = tonumber(ARGV[2])
+                raw = cjson.encode(line)
+            else
+                raw = ARGV[4]
+            end
+            redis.call('HSET', KEYS[2], ARGV[3], raw)
+            """ + TOUCH, Long.class);
+    
+    private static final RedisScript<Long> SET_QUANTITY = RedisScript.of(LOADED + """
+            local raw = redis.call('HGET', KEYS[2], ARGV[3])
+            if not raw then return 1 end
+            local line = cjson.decode(raw)
+            line.quantity = tonumber(ARGV[4])
+            line.updatedAt = tonumber(ARGV[2])
+            redis.call('HSET', KEYS[2], ARGV[3], cjson.encode(line))
+            """ + TOUCH, Long.class);
+    
+    private static final RedisScript<Long> REMOVE_ITEM = RedisScript.of(LOADED + """
+            if redis.call('HDEL', KEYS[2], ARGV[3]) == 0 then return 1 end
+            """ + TOUCH, Long.class);
+    
+    private static final RedisScript<Long> CLEAR_ITEMS = RedisScript.of(LOADED + """
+            redis.call('DEL', KEYS[2])
+            """ + TOUCH, Long.class);
+    
+    // One (type, productId, argument) triple per operation from the given ARGV index on, where
+    // the argument is the line JSON for ADD and the quantity for UPDATE
+    private static final String APPLY_LINES = """
+            for i = %d, #ARGV, 3 do
+                local op, productId, arg = ARGV[i], ARGV[i + 1], ARGV[i + 2]
+                local raw = redis.call('HGET', KEYS[2], productId)
+                if op == 'ADD' then
+                    if raw then
+                        local line = cjson.decode(raw)
+                        line.quantity = line.quantity + cjson.decode(arg).quantity
+                        line.updatedAt = tonumber(ARGV[2])
+                        raw = cjson.encode(line)
+                    else
+                        raw = arg
+                    end
+                    redis.call('HSET', KEYS[2], productId, raw)
+                elseif op == 'UPDATE' and tonumber(arg) > 0 then
+                    if raw then
+                        local line = cjson.decode(raw)
+                        line.quantity = tonumber(arg)
+                        line.updatedAt = tonumber(ARGV[2])
+                        redis.call('HSET', KEYS[2], productId, cjson.encode(line))
+                    end
+                else
+                    redis.call('HDEL', KEYS[2], productId)
+                end
+            end
+            """;
+    
+    private static final RedisScript<Long> APPLY_OPERATIONS = RedisScript.of(LOADED + APPLY_LINES.formatted(3) + TOUCH, Long.class);
+    
+    // ARGV[3] identifies the guest cart and is recorded with its lines; 2 if it was merged before
+    private static final RedisScript<Long> MERGE = RedisScript.of(LOADED + """
+            local merged = cjson.decode(redis.call('HGET', KEYS[1], 'mergedFrom') or '[]')
+            for _, guest in ipairs(merged) do
+                if guest == ARGV[3] then return 2 end
+            end
+            table.insert(merged, ARGV[3])
+            redis.call('HSET', KEYS[1], 'mergedFrom', cjson.encode(merged))
+            """ + APPLY_LINES.formatted(4) + TOUCH, Long.class);
+    
+    // KEYS = meta, items, dirty, flushing, active; ARGV = userId, then optionally the revision the
+    // cart must still be at. Returns the revision followed by the lines, 'changed' (leaving the
+    // cart in place) if it moved past that revision, or nil if not in Redis
+    @SuppressWarnings("rawtypes")
+    private static final RedisScript<List> TAKE = RedisScript.of("""
+            if ARGV[2] and redis.call('EXISTS', KEYS[1]) == 1
+                    and tonumber(redis.call('HGET', KEYS[1], 'revision') or '0') ~= tonumber(ARGV[2]) then
+                return {'changed'}
+            end
+            local revision = redis.call('HGET', KEYS[1], 'revision') or '0'
+            local lines = redis.call('HVALS', KEYS[2])
+            local existed = redis.call('DEL', KEYS[1], KEYS[2]) > 0
+            redis.call('ZREM', KEYS[3], ARGV[1])
+            redis.call('ZREM', KEYS[4], ARGV[1])
+            redis.call('ZREM', KEYS[5], ARGV[1])
+            if not existed then return nil end
+            table.insert(lines, 1, revision)
+            return lines
+            """, List.class);
+    
+    // KEYS = meta, items, dirty, flushing, active; ARGV = userId, revision
+    private static final RedisScript<Long> DROP_STALE = RedisScript.of("""
+            local revision = redis.call('HGET', KEYS[1], 'revision')
+            if not revision or tonumber(revision) > tonumber(ARGV[2]) then return 0 end
+            redis.call('DEL', KEYS[1], KEYS[2])
+            redis.call('ZREM', KEYS[3], ARGV[1])
+            redis.call('ZREM', KEYS[4], ARGV[1])
+            redis.call('ZREM', KEYS[5], ARGV[1])
+            return 1
+            """, Long.class);
+    
+    // KEYS = meta, items, active; ARGV = userId, now, id, createdAt, updatedAt, revision, mergedFrom,
+    // then productId/line pairs
+    private static final RedisScript<Long> LOAD = RedisScript.of("""
+            if redis.call('EXISTS', KEYS[1]) == 1 then return 0 end
+            redis.call('HSET', KEYS[1], 'id', ARGV[3], 'createdAt', ARGV[4], 'updatedAt', ARGV[5],
+                    'revision', ARGV[6], 'mergedFrom', ARGV[7])
+            for i = 8, #ARGV, 2 do
+                redis.call('HSET', KEYS[2], ARGV[i], ARGV[i + 1])
+            end
+            redis.call('ZADD', KEYS[3], ARGV[2], ARGV[1])
+            return 1
+            """, Long.class);
+    
+    // KEYS = meta, items; ARGV = productId. -1 when the cart is not in Redis, checked in the
+    // same script so an eviction cannot slip in between and make a full cart read as empty
+    private static final RedisScript<Long> COUNT_ITEMS = RedisScript.of("""
+            if redis.call('EXISTS', KEYS[1]) == 0 then return -1 end
+            return redis.call('HLEN', KEYS[2])
+            """, Long.class);
+    
+    private static final RedisScript<Long> CONTAINS_PRODUCT = RedisScript.of("""
+            if redis.call('EXISTS', KEYS[1]) == 0 then return -1 end
+            return redis.call('HEXISTS', KEYS[2], ARGV[1])
+            """, Long.class);
+    
+    // KEYS = dirty, flushing; ARGV = now, limit
+    @SuppressWarnings("rawtypes")
+    private static final RedisScript<List> CLAIM_DIRTY = RedisScript.of("""
+            local userIds = redis.call('ZRANGE', KEYS[1], 0, tonumber(ARGV[2]) - 1)
+            for _, userId in ipairs(userIds) do
+                redis.call('ZREM', KEYS[1], userId)
+                redis.call('ZADD', KEYS[2], ARGV[1], userId)
+            end
+            return userIds
+            """, List.class);
+    
+    // KEYS = dirty, flushing; ARGV = lease cutoff, now
+    private static final RedisScript<Long> REQUEUE_STALLED = RedisScript.of("""
+            local userIds = redis.call('ZRANGEBYSCORE', KEYS[2], '-inf', ARGV[1])
+            for _, userId in ipairs(userIds) do
+                redis.call('ZREM', KEYS[2], userId)
+                redis.call('ZADD', KEYS[1], 'NX', ARGV[2], userId)
+            end
+            return #userIds
+            """, Long.class);
+    
+    // KEYS = meta, items, dirty, flushing, active; ARGV = userId, idle cutoff
+    private static final RedisScript<Long> EVICT = RedisScript.of("""
+            local seen = redis.call('ZSCORE', KEYS[5], ARGV[1])
+            if seen and tonumber(seen) > tonumber(ARGV[2]) then return 0 end
+            if redis.call('ZSCORE', KEYS[3], ARGV[1]) or redis.call('ZSCORE', KEYS[4], ARGV[1]) then return 0 end
+            redis.call('DEL', KEYS[1], KEYS[2])
+            redis.call('ZREM', KEYS[5], ARGV[1])
+            return 1
+            """, Long.class);
+    
+    private final StringRedisTemplate redisTemplate;
+    private final CartRepository cartRepository;
+    private final ObjectMapper objectMapper;
+    
+    @Override
+    public Optional<Cart> find(String userId) {
+        Optional<Cart> cart = snapshot(userId).or(() -> load(userId));
+        cart.ifPresent(found -> redisTemplate.opsForZSet().add(ACTIVE_KEY, userId, System.currentTimeMillis()));
+        return cart;
+    }
+    
+    @Override
+    public Cart findOrCreate(String userId) {
+        return find(userId).orElseGet(() -> {
+            // Not persisted until its first item marks it dirty
+            Cart cart = Cart.builder()
+                    .id(new ObjectId().toHexString())
+                    .userId(userId)
+                    .build();
+            writeToRedis(cart);
+            return snapshot(userId).orElse(cart);
+        });
+    }
+    
+    // Answered from Redis when the cart is there, else from Mongo without loading it into Redis
+    @Override
+    public int countItems(String userId) {
+        Long count = redisTemplate.execute(COUNT_ITEMS, List.of(metaKey(userId), itemsKey(userId)));
+        if (count != null && count >= 0) {
+            return Math.toIntExact(count);
+        }
+        return cartRepository.countItems(userId);
+    }
+    
+    @Override
+    public boolean containsProduct(String userId, String productId) {
+        Long contains = redisTemplate.execute(CONTAINS_PRODUCT, List.of(metaKey(userId), itemsKey(userId)), productId);
+        if (contains != null && contains >= 0) {
+            return contains == 1;
+        }
+        return cartRepository.containsProduct(userId, productId);
+    }
+    
+    @Override
+    public Cart addItem(String userId, CartItem item) {
+        long now = System.currentTimeMillis();
+        String[] args = {item.getProductId(), toJson(item, now), String.valueOf(item.getQuantity())};
+        return change(userId, ADD_ITEM, now, args)
+                .orElseGet(() -> {
+                    findOrCreate(userId);
+                    return change(userId, ADD_ITEM, now, args)
+                            .orElseThrow(() -> new OptimisticLockingFailureException("Cart of user " + userId + " was removed while adding an item"));
+                });
+    }
+    
+    @Override
+    public Optional<Cart> setItemQuantity(String userId, String productId, int quantity) {
+        if (quantity <= 0) {
+            return removeItem(userId, productId);
+        }
+        return change(userId, SET_QUANTITY, System.currentTimeMillis(), productId, String.valueOf(quantity));
+    }
+    
+    @Override
+    public Optional<Cart> removeItem(String userId, String productId) {
+        return change(userId, REMOVE_ITEM, System.currentTimeMillis(), productId);
+    }
+    
+    @Override
+    public Optional<Cart> clearItems(String userId) {
+        return change(userId, CLEAR_ITEMS, System.currentTimeMillis());
+    }
+    
+    @Override
+    public Cart applyOperations(String userId, List<CartOperation> operations) {
+        long now = System.currentTimeMillis();
+        return changeOrCreate(userId, APPLY_OPERATIONS, now, operationArgs(new ArrayList<>(), operations, now));
+    }
+    
+    @Override
+    public Cart mergeCart(String guestId, String userId) {
+        // Also what a retry finds once the guest cart was taken: its emptied record
+        Optional<Cart> guest = find(guestId).filter(cart -> !cart.getItems().isEmpty());
+        if (guest.isEmpty()) {
+            return applyOperations(userId, List.of());
+        }
+        
+        // The guest cart goes only once its lines are in the user's cart, which also records
+        // it, so a merge that fails at any point can be retried without adding them twice.
+        // Taking it can leave an emptied record under the same id, so its revision is recorded
+        // too and lines the guest adds later can still be merged
+        long now = System.currentTimeMillis();
+        List<String> args = new ArrayList<>();
+        args.add(guest.get().getId() + ":" + guest.get().getRevision());
+        Cart merged = changeOrCreate(userId, MERGE, now,
+                operationArgs(args, guest.get().getItems().stream().map(CartOperation::add).toList(), now));
+        try {
+            take(guestId, guest.get().getRevision());
+        } catch (OptimisticLockingFailureException e) {
+            // Changed since we read it, so it keeps the lines that were not merged, or a
+            // concurrent merge took it already
+            log.warn("Guest cart {} changed during its merge into cart of user {}, leaving it in place", guestId, userId);
+        }
+        return merged;
+    }
+    
+    @Override
+    public boolean delete(String userId) {
+        return take(userId).isPresent();
+    }
+    
+    /**
+     * Takes up to {@code limit} dirty carts and writes them to Mongo in one bulk write.
+     *
+     * @return how many carts were taken; fewer than {@code limit} means nothing is left
+     */
+    @SuppressWarnings("unchecked")
+    public int flushDirty(int limit) {
+        List<String> userIds = redisTemplate.execute(CLAIM_DIRTY, List.of(DIRTY_KEY, FLUSHING_KEY),
+                String.valueOf(System.currentTimeMillis()), String.valueOf(limit));
+        if (userIds == null || userIds.isEmpty()) {
+            return 0;
+        }
+        
+        List<Cart> carts = new ArrayList<>(userIds.size());
+        for (String userId : userIds) {
+            // A cart deleted since it was marked has nothing to write
+            snapshot(userId).ifPresent(carts::add);
+        }
+        // On failure the markers stay in cart:flushing and are retried after the lease; a
+        // snapshot older than what Mongo already has is skipped there
+        cartRepository.saveSnapshots(carts);
+        redisTemplate.opsForZSet().remove(FLUSHING_KEY, userIds.toArray());
+        return userIds.size();
+    }
+    
+    /**
+     * Puts carts back in the flush queue whose flush started more than {@code lease} ago
+     * and never finished.
+     */
+    public long requeueStalled(Duration lease) {
+        long now = System.currentTimeMillis();
+        Long requeued = redisTemplate.execute(REQUEUE_STALLED, List.of(DIRTY_KEY, FLUSHING_KEY),
+                String.valueOf(now - lease.toMillis()), String.valueOf(now));
+        return requeued == null ? 0 : requeued;
+    }
+    
+    /**
+     * Drops up to {@code limit} carts from Redis that were not used for {@code idleAfter}
+     * and have been flushed; they are loaded from Mongo again on their next use.
+     */
+    public int evictIdle(Duration idleAfter, int limit) {
+        long cutoff = System.currentTimeMillis() - idleAfter.toMillis();
+        Set<String> idle = redisTemplate.opsForZSet().rangeByScore(ACTIVE_KEY, Double.NEGATIVE_INFINITY, cutoff, 0, limit);
+        if (idle == null) {
+            return 0;
+        }
+        int evicted = 0;
+        for (String userId : idle) {
+            Long removed = redisTemplate.execute(EVICT,
+                    List.of(metaKey(userId), itemsKey(userId), DIRTY_KEY, FLUSHING_KEY, ACTIVE_KEY),
+                    userId, String.valueOf(cutoff));
+            if (removed != null && removed == 1) {
+                evicted++;
+            }
+        }
+        return evicted;
+    }
+    
+    /**
+     * Time since the oldest change that has not reached Mongo yet, or zero.
+     */
+    public Duration flushLag() {
+        Set<ZSetOperations.TypedTuple<String>> oldest = redisTemplate.opsForZSet().rangeWithScores(DIRTY_KEY, 0, 0);
+        if (oldest == null || oldest.isEmpty()) {
+            return Duration.ZERO;
+        }
+        Double since = oldest.iterator().next().getScore();
+        return since == null ? Duration.ZERO : Duration.ofMillis(Math.max(0, System.currentTimeMillis() - since.longValue()));
+    }
+    
+    private Cart changeOrCreate(String userId, RedisScript<Long> script, long now, String... args) {
+        return change(userId, script, now, args)
+                .orElseGet(() -> {
+                    findOrCreate(userId);
+                    return change(userId, script, now, args)
+                            .orElseThrow(() -> new OptimisticLockingFailureException("Cart of user " + userId + " was removed while applying operations"));
+                });
+    }
+    
+    private String[] operationArgs(List<String> args, List<CartOperation> operations, long now) {
+        for (CartOperation operation : operations) {
+            args.add(operation.getType().name());
+            args.add(operation.getProductId());
+            args.add(switch (operation.getType()) {
+                case ADD -> toJson(operation.newItem(), now);
+                case UPDATE -> String.valueOf(operation.getQuantity());
+                case REMOVE -> "";
+            });
+        }
+        return args.toArray(String[]::new);
+    }
+    
+    private Optional<Cart> change(String userId, RedisScript<Long> script, long now, String... args) {
+        List<String> keys = List.of(metaKey(userId), itemsKey(userId), DIRTY_KEY, ACTIVE_KEY);
+        Object[] argv = new Object[args.length + 2];
+        argv[0] = userId;
+        argv[1] = String.valueOf(now);
+        System.arraycopy(args, 0, argv, 2, args.length);
+        
+        for (int attempt = 0; attempt < MAX_ATTEMPTS; attempt++) {
+            Long applied = redisTemplate.execute(script, keys, argv);
+            if (applied != null && applied > 0) {
+                return snapshot(userId);
+            }
+            // Not in Redis (never loaded or evicted meanwhile): bring it in from Mongo and retry
+            if (load(userId).isEmpty()) {
+                return Optional.empty();
+            }
+        }
+        throw new OptimisticLockingFailureException("Cart of user " + userId + " kept being evicted, giving up after " + MAX_ATTEMPTS + " attempts");
+    }
+    
+    private Optional<List<CartItem>> take(String userId) {
+        return take(userId, null);
+    }
+    
+    /**
+     * Removes the cart from Redis and empties it in Mongo at no lower revision than Redis had,
+     * so a flush of the old items still in flight is rejected instead of bringing them back.
+     * With an {@code expectedRevision} the cart is taken only while it is still at that revision.
+     *
+     * @return the items the cart held; Redis holds the newer lines if it has the cart
+     * @throws OptimisticLockingFailureException if the cart moved past {@code expectedRevision}
+     *         or is gone
+     */
+    @SuppressWarnings("unchecked")
+    private Optional<List<CartItem>> take(String userId, Long expectedRevision) {
+        List<String> keys = List.of(metaKey(userId), itemsKey(userId), DIRTY_KEY, FLUSHING_KEY, ACTIVE_KEY);
+        List<String> hot = expectedRevision == null
+                ? redisTemplate.execute(TAKE, keys, userId)
+                : redisTemplate.execute(TAKE, keys, userId, String.valueOf(expectedRevision));
+        if (hot != null && "changed".equals(hot.get(0))) {
+            throw new OptimisticLockingFailureException("Cart of user " + userId + " changed since revision " + expectedRevision);
+        }
+        long revision = hot == null ? 0 : Long.parseLong(hot.get(0));
+        // Redis had the newest lines if it had the cart; if not, Mongo's record is the one to check
+        Optional<Cart> stored = cartRepository.takeItems(userId, revision, hot == null ? expectedRevision : null, hot != null);
+        if (hot == null && expectedRevision != null && stored.isEmpty()) {
+            throw new OptimisticLockingFailureException("Cart of user " + userId + " changed since revision " + expectedRevision);
+        }
+        
+        // A request that read the Mongo record before it was emptied may have loaded it back
+        long fence = Math.max(revision, stored.map(Cart::getRevision).orElse(0L));
+        redisTemplate.execute(DROP_STALE, keys, userId, String.valueOf(fence));
+        
+        if (hot != null) {
+            return Optional.of(hot.subList(1, hot.size()).stream().map(this::fromJson).toList());
+        }
+        return stored.map(Cart::getItems).filter(items -> !items.isEmpty());
+    }
+    
+    private Optional<Cart> load(String userId) {
+        return cartRepository.findByUserId(userId).map(cart -> {
+            writeToRedis(cart);
+            return snapshot(userId).orElse(cart);
+        });
+    }
+    
+    private void writeToRedis(Cart cart) {
+        List<String> argv = new ArrayList<>();
+        argv.add(cart.getUserId());
+        argv.add(String.valueOf(System.currentTimeMillis()));
+        argv.add(cart.getId());
+        argv.add(String.valueOf(toMillis(cart.getCreatedAt())));
+        argv.add(String.valueOf(toMillis(cart.getUpdatedAt())));
+        argv.add(String.valueOf(cart.getRevision() == null ? 0 : cart.getRevision()));
+        argv.add(toJson(cart.getMergedFrom() == null ? Set.of() : cart.getMergedFrom()));
+        for (CartItem item : cart.getItems()) {
+            argv.add(item.getProductId());
+            argv.add(toJson(item, toMillis(item.getUpdatedAt())));
+        }
+        // Loses quietly to a concurrent load, which brought in the same cart
+        redisTemplate.execute(LOAD, List.of(metaKey(cart.getUserId()), itemsKey(cart.getUserId()), ACTIVE_KEY), argv.toArray());
+    }
+    
+    // Meta is read before the items, so the items are never older than the revision they carry
+    private Optional<Cart> snapshot(String userId) {
+        Map<Object, Object> meta = redisTemplate.opsForHash().entries(metaKey(userId));
+        if (meta.isEmpty()) {
+            return Optional.empty();
+        }
+        String cartId = (String) meta.get("id");
+        List<CartItem> items = new ArrayList<>();
+        for (Object json : redisTemplate.opsForHash().values(itemsKey(userId))) {
+            CartItem item = fromJson((String) json);
+            item.setCartId(cartId);
+            items.add(item);
+        }
+        items.sort(Comparator.comparing(CartItem::getCreatedAt).thenComparing(CartItem::getProductId));
+        
+        Cart cart = Cart.builder()
+                .id(cartId)
+                .userId(userId)
+                .items(items)
+                .createdAt(toDateTime(Long.parseLong((String) meta.get("createdAt"))))
+                .updatedAt(toDateTime(Long.parseLong((String) meta.get("updatedAt"))))
+                .revision(Long.parseLong((String) meta.getOrDefault("revision", "0")))
+                .mergedFrom(mergedFrom((String) meta.get("mergedFrom")))
+                .build();
+        cart.updateTotalAmount();
+        return Optional.of(cart);
+    }
+    
+    private String toJson(CartItem item, long updatedAt) {
+        Line line = new Line(item.getProductId(), item.getProductName(), item.getProductImageUrl(), item.getQuantity(),
+                item.getUnitPrice() == null ? "0" : item.getUnitPrice().toPlainString(),
+                item.getCreatedAt() == null ? updatedAt : toMillis(item.getCreatedAt()), updatedAt);
+        try {
+            return objectMapper.writeValueAsString(line);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Cannot serialize cart line " + item.getProductId(), e);
+        }
+    }
+    
+    private String toJson(Set<String> cartIds) {
+        try {
+            return objectMapper.writeValueAsString(cartIds);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Cannot serialize merged cart ids " + cartIds, e);
+        }
+    }
+    
+    // Lua's cjson writes an empty table as an object, so anything but an array means none
+    private Set<String> mergedFrom(String json) {
+        Set<String> cartIds = new HashSet<>();
+        if (json == null || !json.startsWith("[")) {
+            return cartIds;
+        }
+        try {
+            cartIds.addAll(List.of(objectMapper.readValue(json, String[].class)));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Corrupt merged cart ids in Redis: " + json, e);
+        }
+        return cartIds;
+    }
+    
+    private CartItem fromJson(String json) {
+        Line line;
+        try {
+            line = objectMapper.readValue(json, Line.class);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Corrupt cart line in Redis: " + json, e);
+        }
+        return CartItem.builder()
+                .productId(line.productId())
+                .productName(line.productName())
+                .productImageUrl(line.productImageUrl())
+                .quantity(line.quantity())
+                .unitPrice(new BigDecimal(line.unitPrice()))
+                .createdAt(toDateTime(line.createdAt()))
+                .updatedAt(toDateTime(line.updatedAt()))
+                .build();
+    }
+    
+    private static long toMillis(LocalDateTime time) {
+        return time == null ? System.currentTimeMillis() : time.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+    
+    private static LocalDateTime toDateTime(long millis) {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(millis), ZoneId.systemDefault());
+    }
+    
+    private static String metaKey(String userId) {
+        return "cart:" + userId + ":meta";
+    }
+    
+    private static String itemsKey(String userId) {
+        return "cart:" + userId + ":items";
+    }
+    
+    // Unit price travels as a string so Lua's doubles never touch it
+    private record Line(String productId, String productName, String productImageUrl, int quantity,
+                        String unitPrice, long createdAt, long updatedAt) {
+    }
+}
@@ -0,0 +1,43 @@
+package com.hasandag.ecommerce.cart.cache;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CartItemCountCacheTest {
+
+    @Test
+    void get_ShouldLoadOnceUntilInvalidated() {
+        // Arrange
+        CartItemCountCache cache = new CartItemCountCache(true, Duration.ofMinutes(1), 100);
+        AtomicInteger loads = new AtomicInteger();
+
+        // Act
+        int first = cache.get("user-1", userId -> loads.incrementAndGet());
+        int second = cache.get("user-1", userId -> loads.incrementAndGet());
+        cache.invalidate("user-1");
+        int third = cache.get("user-1", userId -> loads.incrementAndGet());
+
+        // Assert
+        assertEquals(1, first);
+        assertEquals(1, second);
+        assertEquals(2, third);
+    }
+
+    @Test
+    void get_ShouldAlwaysLoadWhenDisabled() {
+        // Arrange
+        CartItemCountCache cache = new CartItemCountCache(false, Duration.ofMinutes(1), 100);
+        AtomicInteger loads = new AtomicInteger();
+
+        // Act
+        cache.get("user-1", userId -> loads.incrementAndGet());
+        cache.get("user-1", userId -> loads.incrementAndGet());
+
+        // Assert
+        assertEquals(2, loads.get());
+    }
+}
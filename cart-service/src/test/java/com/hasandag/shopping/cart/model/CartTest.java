@@ -0,0 +1,143 @@
+package com.hasandag.ecommerce.cart.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CartTest {
+
+    @Test
+    void addItem_ShouldMergeLinesOfTheSameProductAndKeepTheirPrice() {
+        // Arrange
+        Cart cart = Cart.builder().id("cart-1").userId("user-1").build();
+
+        // Act
+        cart.addItem(item("a", 2, "10.00"));
+        cart.addItem(item("b", 1, "4.50"));
+        cart.addItem(item("a", 3, "99.00"));
+
+        // Assert
+        assertEquals(2, cart.getItems().size());
+        assertEquals(5, cart.findItem("a").orElseThrow().getQuantity());
+        assertEquals("cart-1", cart.findItem("b").orElseThrow().getCartId());
+        assertTotal("54.50", cart);
+    }
+
+    @Test
+    void updateItemQuantity_ShouldAdjustTotalByTheDifference() {
+        // Arrange
+        Cart cart = Cart.builder().build();
+        cart.addItem(item("a", 2, "10.00"));
+        cart.addItem(item("b", 1, "4.50"));
+
+        // Act
+        cart.updateItemQuantity("a", 1);
+        cart.updateItemQuantity("missing", 7);
+
+        // Assert
+        assertEquals(1, cart.findItem("a").orElseThrow().getQuantity());
+        assertTotal("14.50", cart);
+    }
+
+    @Test
+    void updateItemQuantity_ShouldRemoveLineWhenQuantityIsNotPositive() {
+        // Arrange
+        Cart cart = Cart.builder().build();
+        cart.addItem(item("a", 2, "10.00"));
+        cart.addItem(item("b", 1, "4.50"));
+
+        // Act
+        cart.updateItemQuantity("a", 0);
+
+        // Assert
+        assertFalse(cart.containsProduct("a"));
+        assertEquals(List.of("b"), cart.getItems().stream().map(CartItem::getProductId).toList());
+        assertTotal("4.50", cart);
+    }
+
+    @Test
+    void removeItem_ShouldIgnoreUnknownProducts() {
+        // Arrange
+        Cart cart = Cart.builder().build();
+        cart.addItem(item("a", 1, "3.00"));
+
+        // Act
+        cart.removeItem("missing");
+        cart.removeItem("a");
+
+        // Assert
+        assertTrue(cart.getItems().isEmpty());
+        assertTotal("0", cart);
+    }
+
+    @Test
+    void index_ShouldFollowReplacedItemsList() {
+        // Arrange
+        Cart cart = Cart.builder().build();
+        cart.addItem(item("a", 1, "3.00"));
+        List<CartItem> loaded = new ArrayList<>(List.of(item("b", 2, "5.00")));
+
+        // Act
+        cart.setItems(loaded);
+        cart.updateTotalAmount();
+
+        // Assert
+        assertFalse(cart.containsProduct("a"));
+        assertTrue(cart.containsProduct("b"));
+        cart.addItem(item("b", 1, "5.00"));
+        assertEquals(3, loaded.get(0).getQuantity());
+        assertTotal("15.00", cart);
+    }
+
+    @Test
+    void apply_ShouldRunOperationsInOrder() {
+        // Arrange
+        Cart cart = Cart.builder().build();
+        cart.addItem(item("a", 1, "2.00"));
+        CartOperation addB = CartOperation.add(item("b", 2, "5.00"));
+
+        // Act
+        cart.apply(addB);
+        cart.apply(addB);
+        cart.apply(CartOperation.builder().type(CartOperation.Type.UPDATE).productId("a").quantity(3).build());
+        cart.apply(CartOperation.builder().type(CartOperation.Type.REMOVE).productId("missing").build());
+
+        // Assert
+        assertEquals(4, cart.findItem("b").orElseThrow().getQuantity());
+        assertEquals(2, addB.getQuantity());
+        assertTotal("26.00", cart);
+    }
+
+    @Test
+    void clear_ShouldEmptyItemsIndexAndTotal() {
+        // Arrange
+        Cart cart = Cart.builder().build();
+        cart.addItem(item("a", 1, "3.00"));
+
+        // Act
+        cart.clear();
+
+        // Assert
+        assertFalse(cart.containsProduct("a"));
+        assertTrue(cart.getItems().isEmpty());
+        assertTotal("0", cart);
+    }
+
+    private static void assertTotal(String expected, Cart cart) {
+        assertEquals(0, new BigDecimal(expected).compareTo(cart.getTotalAmount()),
+                () -> "expected total " + expected + " but was " + cart.getTotalAmount());
+    }
+
+    private static CartItem item(String productId, int quantity, String unitPrice) {
+        return CartItem.builder()
+                .productId(productId)
+                .productName("Product " + productId)
+                .quantity(quantity)
+                .unitPrice(new BigDecimal(unitPrice))
+                .build();
+    }
+}
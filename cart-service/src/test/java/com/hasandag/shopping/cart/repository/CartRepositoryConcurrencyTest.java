@@ -0,0 +1,223 @@
+package com.hasandag.ecommerce.cart.repository;
+
+import com.hasandag.ecommerce.cart.model.Cart;
+import com.hasandag.ecommerce.cart.model.CartItem;
+import com.hasandag.ecommerce.cart.model.CartOperation;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.data.mongo.DataMongoTest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.MongoDBContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataMongoTest
+@Testcontainers(disabledWithoutDocker = true)
+public class CartRepositoryConcurrencyTest {
+
+    private static final String USER_ID = "user-1";
+    private static final int THREADS = 16;
+    private static final int ADDS_PER_THREAD = 25;
+
+    @Container
+    static MongoDBContainer mongo = new MongoDBContainer("mongo:7.0");
+
+    @DynamicPropertySource
+    static void mongoProperties(DynamicPropertyRegistry registry) {
+        registry.add("spring.data.mongodb.uri", () -> mongo.getReplicaSetUrl("cart-service-test"));
+    }
+
+    @Autowired
+    private CartRepository cartRepository;
+
+    @BeforeEach
+    void setUp() {
+        cartRepository.deleteAll();
+    }
+
+    @Test
+    void addItem_ShouldNotLoseConcurrentUpdates() throws Exception {
+        // Arrange
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            // Half the threads share one product, the others each add their own
+            String productId = t % 2 == 0 ? "shared" : "product-" + t;
+            futures.add(executor.submit(() -> {
+                start.await();
+                for (int i = 0; i < ADDS_PER_THREAD; i++) {
+                    cartRepository.addItem(USER_ID, item(productId, 1, "2.50"));
+                }
+                return null;
+            }));
+        }
+
+        // Act
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get(60, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        // Assert
+        Cart cart = cartRepository.findByUserId(USER_ID).orElseThrow();
+        assertEquals(THREADS / 2 + 1, cart.getItems().size());
+        int totalQuantity = cart.getItems().stream().mapToInt(CartItem::getQuantity).sum();
+        assertEquals(THREADS * ADDS_PER_THREAD, totalQuantity);
+        assertEquals(0, new BigDecimal("2.50").multiply(BigDecimal.valueOf(totalQuantity)).compareTo(cart.getTotalAmount()));
+        assertEquals(THREADS / 2 * ADDS_PER_THREAD, quantityOf(cart, "shared"));
+    }
+
+    @Test
+    void mixedMutations_ShouldKeepTotalConsistentWithItems() throws Exception {
+        // Arrange
+        cartRepository.addItem(USER_ID, item("a", 1, "10.00"));
+        cartRepository.addItem(USER_ID, item("b", 1, "3.00"));
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            int thread = t;
+            futures.add(executor.submit(() -> {
+                for (int i = 0; i < ADDS_PER_THREAD; i++) {
+                    switch ((thread + i) % 3) {
+                        case 0 -> cartRepository.addItem(USER_ID, item("a", 2, "10.00"));
+                        case 1 -> cartRepository.setItemQuantity(USER_ID, "b", i + 1);
+                        default -> cartRepository.removeItem(USER_ID, "c");
+                    }
+                }
+                return null;
+            }));
+        }
+
+        // Act
+        for (Future<?> future : futures) {
+            future.get(60, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        // Assert
+        Cart cart = cartRepository.findByUserId(USER_ID).orElseThrow();
+        BigDecimal expectedTotal = cart.getItems().stream()
+                .map(CartItem::getSubtotal)
+                .reduce(BigDecimal.ZERO, BigDecimal::add);
+        assertEquals(0, expectedTotal.compareTo(cart.getTotalAmount()));
+        int addsOfA = 0;
+        for (int t = 0; t < THREADS; t++) {
+            for (int i = 0; i < ADDS_PER_THREAD; i++) {
+                if ((t + i) % 3 == 0) {
+                    addsOfA++;
+                }
+            }
+        }
+        assertEquals(1 + 2 * addsOfA, quantityOf(cart, "a"));
+    }
+
+    @Test
+    void setItemQuantity_ShouldRemoveLineWhenQuantityIsZero() {
+        // Arrange
+        cartRepository.addItem(USER_ID, item("a", 3, "1.00"));
+
+        // Act
+        Cart cart = cartRepository.setItemQuantity(USER_ID, "a", 0).orElseThrow();
+
+        // Assert
+        assertTrue(cart.getItems().isEmpty());
+        assertEquals(0, BigDecimal.ZERO.compareTo(cart.getTotalAmount()));
+    }
+
+    @Test
+    void countItemsAndContainsProduct_ShouldAnswerWithoutACart() {
+        // Act & Assert
+        assertEquals(0, cartRepository.countItems(USER_ID));
+        assertFalse(cartRepository.containsProduct(USER_ID, "a"));
+    }
+
+    @Test
+    void countItemsAndContainsProduct_ShouldReflectCartLines() {
+        // Arrange
+        cartRepository.addItem(USER_ID, item("a", 4, "1.00"));
+        cartRepository.addItem(USER_ID, item("b", 1, "1.00"));
+        cartRepository.findOrCreate("empty-user");
+
+        // Act & Assert
+        assertEquals(2, cartRepository.countItems(USER_ID));
+        assertEquals(0, cartRepository.countItems("empty-user"));
+        assertTrue(cartRepository.containsProduct(USER_ID, "b"));
+        assertFalse(cartRepository.containsProduct(USER_ID, "c"));
+    }
+
+    @Test
+    void applyOperations_ShouldApplyConcurrentBatchesWhole() throws Exception {
+        // Arrange
+        List<CartOperation> bundle = List.of(
+                CartOperation.add(item("x", 1, "1.00")),
+                CartOperation.add(item("y", 2, "1.00")));
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            futures.add(executor.submit(() -> cartRepository.applyOperations(USER_ID, bundle)));
+        }
+
+        // Act
+        for (Future<?> future : futures) {
+            future.get(60, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        // Assert
+        Cart cart = cartRepository.findByUserId(USER_ID).orElseThrow();
+        assertEquals(THREADS, quantityOf(cart, "x"));
+        assertEquals(2 * THREADS, quantityOf(cart, "y"));
+        assertEquals(0, BigDecimal.valueOf(3L * THREADS).compareTo(cart.getTotalAmount()));
+    }
+
+    @Test
+    void mergeCart_ShouldAddGuestLinesOnlyOnce() {
+        // Arrange
+        cartRepository.addItem(USER_ID, item("a", 1, "1.00"));
+        cartRepository.addItem("guest-1", item("a", 2, "1.00"));
+        Cart guest = cartRepository.addItem("guest-1", item("b", 1, "1.00"));
+
+        // Act
+        cartRepository.mergeCart(USER_ID, guest);
+        // A retry, e.g. after removing the guest cart failed
+        Cart merged = cartRepository.mergeCart(USER_ID, guest);
+
+        // Assert
+        assertEquals(3, quantityOf(merged, "a"));
+        assertEquals(1, quantityOf(merged, "b"));
+        assertEquals(0, new BigDecimal("4.00").compareTo(merged.getTotalAmount()));
+        assertTrue(merged.getMergedFrom().contains(guest.getId()));
+        assertTrue(cartRepository.existsByUserId("guest-1"));
+    }
+
+    private static int quantityOf(Cart cart, String productId) {
+        return cart.getItems().stream()
+                .filter(item -> item.getProductId().equals(productId))
+                .mapToInt(CartItem::getQuantity)
+                .sum();
+    }
+
+    private static CartItem item(String productId, int quantity, String unitPrice) {
+        return CartItem.builder()
+                .productId(productId)
+                .productName("Product " + productId)
+                .quantity(quantity)
+                .unitPrice(new BigDecimal(unitPrice))
+                .build();
+    }
+}
@@ -0,0 +1,310 @@
+package com.hasandag.ecommerce.cart.store;
+
+import com.hasandag.ecommerce.cart.model.Cart;
+import com.hasandag.ecommerce.cart.model.CartItem;
+import com.hasandag.ecommerce.cart.repository.CartRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.data.redis.RedisAutoConfiguration;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.data.mongo.DataMongoTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.GenericContainer;
+import org.testcontainers.containers.MongoDBContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Runs the Redis cart store, its Lua scripts included, against real Redis and Mongo and
+ * walks carts through the write-behind cycle: change, flush, eviction and reload.
+ */
+@DataMongoTest(properties = "app.cart.store=redis")
+@ImportAutoConfiguration({RedisAutoConfiguration.class, JacksonAutoConfiguration.class})
+@Import(RedisCartStore.class)
+@Testcontainers(disabledWithoutDocker = true)
+public class RedisCartStoreTest {
+
+    private static final String USER_ID = "user-1";
+
+    @Container
+    static MongoDBContainer mongo = new MongoDBContainer("mongo:7.0");
+
+    @Container
+    static GenericContainer<?> redis = new GenericContainer<>("redis:7.2").withExposedPorts(6379);
+
+    @DynamicPropertySource
+    static void containerProperties(DynamicPropertyRegistry registry) {
+        registry.add("spring.data.mongodb.uri", () -> mongo.getReplicaSetUrl("cart-service-test"));
+        registry.add("spring.data.redis.host", redis::getHost);
+        registry.add("spring.data.redis.port", () -> redis.getMappedPort(6379));
+    }
+
+    @Autowired
+    private RedisCartStore cartStore;
+
+    @Autowired
+    private CartRepository cartRepository;
+
+    @Autowired
+    private StringRedisTemplate redisTemplate;
+
+    @BeforeEach
+    void setUp() {
+        cartRepository.deleteAll();
+        redisTemplate.execute((RedisCallback<Void>) connection -> {
+            connection.serverCommands().flushAll();
+            return null;
+        });
+    }
+
+    @Test
+    void addItem_ShouldKeepLineIntactThroughLuaReencoding() {
+        // Arrange
+        CartItem item = item("p1", 1, "19.99");
+        item.setProductName("Çay \"özel\" / 茶");
+        item.setProductImageUrl("/api/products/images/abc.jpg");
+
+        // Act
+        cartStore.addItem(USER_ID, item);
+        // The second add makes the script decode and re-encode the stored line
+        Cart cart = cartStore.addItem(USER_ID, item("p1", 2, "19.99"));
+
+        // Assert
+        CartItem line = cart.getItems().get(0);
+        assertEquals("Çay \"özel\" / 茶", line.getProductName());
+        assertEquals("/api/products/images/abc.jpg", line.getProductImageUrl());
+        assertEquals(3, line.getQuantity());
+        assertEquals("19.99", line.getUnitPrice().toPlainString());
+        assertEquals(0, new BigDecimal("59.97").compareTo(cart.getTotalAmount()));
+    }
+
+    @Test
+    void addItem_ShouldAddQuantityAndKeepFirstUnitPrice() {
+        // Arrange
+        cartStore.addItem(USER_ID, item("p1", 2, "10.00"));
+
+        // Act
+        Cart cart = cartStore.addItem(USER_ID, item("p1", 3, "12.00"));
+
+        // Assert
+        assertEquals(1, cart.getItems().size());
+        assertEquals(5, cart.getItems().get(0).getQuantity());
+        assertEquals(0, new BigDecimal("10.00").compareTo(cart.getItems().get(0).getUnitPrice()));
+        assertEquals(0, new BigDecimal("50.00").compareTo(cart.getTotalAmount()));
+    }
+
+    @Test
+    void flushDirty_ShouldWriteCartToMongoAndClearMarkers() {
+        // Arrange
+        Cart cart = cartStore.addItem(USER_ID, item("p1", 2, "10.00"));
+        assertNotNull(score(RedisCartStore.DIRTY_KEY));
+
+        // Act
+        int flushed = cartStore.flushDirty(10);
+
+        // Assert
+        assertEquals(1, flushed);
+        Cart stored = cartRepository.findByUserId(USER_ID).orElseThrow();
+        assertEquals(cart.getId(), stored.getId());
+        assertEquals(cart.getRevision(), stored.getRevision());
+        assertEquals(2, stored.getItems().get(0).getQuantity());
+        assertNull(score(RedisCartStore.DIRTY_KEY));
+        assertNull(score(RedisCartStore.FLUSHING_KEY));
+    }
+
+    @Test
+    void requeueStalled_ShouldReturnAbandonedFlushesToDirtySet() {
+        // Arrange
+        cartStore.addItem(USER_ID, item("p1", 1, "10.00"));
+        claimAsCrashedFlusher(System.currentTimeMillis() - Duration.ofMinutes(2).toMillis());
+
+        // Act
+        long requeued = cartStore.requeueStalled(Duration.ofMinutes(1));
+
+        // Assert
+        assertEquals(1, requeued);
+        assertNotNull(score(RedisCartStore.DIRTY_KEY));
+        assertNull(score(RedisCartStore.FLUSHING_KEY));
+    }
+
+    @Test
+    void evictIdle_ShouldKeepCartsNotYetInMongo() {
+        // Arrange
+        cartStore.addItem(USER_ID, item("p1", 1, "10.00"));
+        makeIdle();
+
+        // Act & Assert
+        assertEquals(0, cartStore.evictIdle(Duration.ofMinutes(1), 10), "dirty cart was evicted");
+        claimAsCrashedFlusher(System.currentTimeMillis());
+        assertEquals(0, cartStore.evictIdle(Duration.ofMinutes(1), 10), "cart being flushed was evicted");
+
+        cartStore.requeueStalled(Duration.ZERO);
+        cartStore.flushDirty(10);
+        makeIdle();
+        assertEquals(1, cartStore.evictIdle(Duration.ofMinutes(1), 10));
+        assertFalse(Boolean.TRUE.equals(redisTemplate.hasKey("cart:" + USER_ID + ":meta")));
+    }
+
+    @Test
+    void find_ShouldReloadEvictedCartAndContinueItsRevision() {
+        // Arrange
+        cartStore.addItem(USER_ID, item("p1", 1, "10.00"));
+        Cart beforeEviction = cartStore.addItem(USER_ID, item("p2", 2, "5.00"));
+        cartStore.flushDirty(10);
+        makeIdle();
+        cartStore.evictIdle(Duration.ofMinutes(1), 10);
+
+        // Act
+        Cart reloaded = cartStore.find(USER_ID).orElseThrow();
+        cartStore.addItem(USER_ID, item("p3", 1, "1.00"));
+        cartStore.flushDirty(10);
+
+        // Assert
+        assertEquals(beforeEviction.getId(), reloaded.getId());
+        assertEquals(beforeEviction.getRevision(), reloaded.getRevision());
+        assertEquals(2, reloaded.getItems().size());
+        assertEquals(3, cartRepository.findByUserId(USER_ID).orElseThrow().getItems().size());
+    }
+
+    @Test
+    void flushDirty_ShouldNotLetOlderSnapshotOverwriteNewerOne() {
+        // Arrange
+        cartStore.addItem(USER_ID, item("p1", 1, "10.00"));
+        claimAsCrashedFlusher(System.currentTimeMillis());
+        Cart slowFlush = cartStore.find(USER_ID).orElseThrow();
+
+        // Act
+        // Changed while the first flush is still running, so the cart is dirty again
+        cartStore.addItem(USER_ID, item("p2", 1, "10.00"));
+        assertNotNull(score(RedisCartStore.DIRTY_KEY));
+        cartStore.flushDirty(10);
+        cartRepository.saveSnapshots(List.of(slowFlush));
+
+        // Assert
+        Cart stored = cartRepository.findByUserId(USER_ID).orElseThrow();
+        assertEquals(2, stored.getItems().size());
+        assertEquals(slowFlush.getRevision() + 1, stored.getRevision());
+    }
+
+    @Test
+    void delete_ShouldFenceOffFlushStartedBeforeIt() {
+        // Arrange
+        cartStore.addItem(USER_ID, item("p1", 1, "10.00"));
+        cartStore.flushDirty(10);
+        cartStore.addItem(USER_ID, item("p2", 1, "10.00"));
+        Cart inFlight = cartStore.find(USER_ID).orElseThrow();
+
+        // Act
+        boolean deleted = cartStore.delete(USER_ID);
+        cartRepository.saveSnapshots(List.of(inFlight));
+
+        // Assert
+        assertTrue(deleted);
+        assertTrue(cartRepository.findByUserId(USER_ID).orElseThrow().getItems().isEmpty());
+        assertTrue(cartStore.find(USER_ID).map(Cart::getItems).orElse(List.of()).isEmpty());
+    }
+
+    @Test
+    void countItemsAndContainsProduct_ShouldAnswerFromRedisOrFallBackToMongo() {
+        // Arrange
+        cartStore.addItem(USER_ID, item("p1", 1, "10.00"));
+        cartStore.addItem(USER_ID, item("p2", 4, "10.00"));
+
+        // Act & Assert
+        assertEquals(2, cartStore.countItems(USER_ID));
+        assertTrue(cartStore.containsProduct(USER_ID, "p2"));
+        assertFalse(cartStore.containsProduct(USER_ID, "p3"));
+
+        cartStore.flushDirty(10);
+        makeIdle();
+        cartStore.evictIdle(Duration.ofMinutes(1), 10);
+        assertEquals(2, cartStore.countItems(USER_ID));
+        assertTrue(cartStore.containsProduct(USER_ID, "p1"));
+        assertFalse(Boolean.TRUE.equals(redisTemplate.hasKey("cart:" + USER_ID + ":meta")));
+        assertEquals(0, cartStore.countItems("user-without-cart"));
+    }
+
+    @Test
+    void mergeCart_ShouldAddGuestLinesOnceAndStillMergeLaterOnes() {
+        // Arrange
+        cartStore.addItem(USER_ID, item("p1", 1, "10.00"));
+        cartStore.addItem("guest-1", item("p1", 2, "10.00"));
+
+        // Act
+        cartStore.mergeCart("guest-1", USER_ID);
+        Cart retried = cartStore.mergeCart("guest-1", USER_ID);
+        // The guest keeps shopping under the same id and logs in again
+        cartStore.addItem("guest-1", item("p2", 1, "5.00"));
+        Cart mergedAgain = cartStore.mergeCart("guest-1", USER_ID);
+
+        // Assert
+        assertEquals(3, retried.getItems().get(0).getQuantity());
+        assertEquals(2, mergedAgain.getItems().size());
+        assertEquals(3, mergedAgain.getItems().get(0).getQuantity());
+        assertEquals(0, new BigDecimal("35.00").compareTo(mergedAgain.getTotalAmount()));
+        assertEquals(2, mergedAgain.getMergedFrom().size());
+        assertTrue(cartStore.find("guest-1").map(Cart::getItems).orElse(List.of()).isEmpty());
+
+        cartStore.flushDirty(10);
+        assertEquals(mergedAgain.getMergedFrom(), cartRepository.findByUserId(USER_ID).orElseThrow().getMergedFrom());
+    }
+
+    @Test
+    void mergeCart_ShouldLeaveGuestCartInPlaceWhenItChangedDuringTheMerge() {
+        // Arrange
+        cartStore.addItem("guest-1", item("p1", 2, "10.00"));
+        RedisCartStore racingStore = spy(cartStore);
+        doAnswer(invocation -> {
+            Object read = invocation.callRealMethod();
+            // The guest adds a line after the merge read the cart
+            cartStore.addItem("guest-1", item("p2", 1, "5.00"));
+            return read;
+        }).when(racingStore).find("guest-1");
+
+        // Act
+        Cart merged = racingStore.mergeCart("guest-1", USER_ID);
+
+        // Assert
+        assertEquals(1, merged.getItems().size());
+        assertEquals("p1", merged.getItems().get(0).getProductId());
+        List<CartItem> guestItems = cartStore.find("guest-1").map(Cart::getItems).orElse(List.of());
+        assertEquals(2, guestItems.size());
+        assertTrue(guestItems.stream().anyMatch(line -> line.getProductId().equals("p2")));
+    }
+
+    private void claimAsCrashedFlusher(long claimedAt) {
+        redisTemplate.opsForZSet().remove(RedisCartStore.DIRTY_KEY, USER_ID);
+        redisTemplate.opsForZSet().add(RedisCartStore.FLUSHING_KEY, USER_ID, claimedAt);
+    }
+
+    private void makeIdle() {
+        redisTemplate.opsForZSet().add(RedisCartStore.ACTIVE_KEY, USER_ID,
+                System.currentTimeMillis() - Duration.ofHours(1).toMillis());
+    }
+
+    private Double score(String key) {
+        return redisTemplate.opsForZSet().score(key, USER_ID);
+    }
+
+    private static CartItem item(String productId, int quantity, String unitPrice) {
+        return CartItem.builder()
+                .productId(productId)
+                .productName("Product " + productId)
+                .quantity(quantity)
+                .unitPrice(new BigDecimal(unitPrice))
+                .build();
+    }
+}
@@ -0,0 +1,75 @@
+package com.hasandag.ecommerce.product.cache;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * Redis pub/sub channel used to keep the per-node caches in sync. Messages sent by this
+ * node are ignored on receipt, since the local state was already updated by the sender.
+ */
+@Component
+@Slf4j
+public class CacheInvalidationBus {
+    
+    private final String nodeId = UUID.randomUUID().toString();
+    private final List<Consumer<CacheInvalidationMessage>> subscribers = new CopyOnWriteArrayList<>();
+    private final StringRedisTemplate redisTemplate;
+    private final ObjectMapper objectMapper;
+    private final String channel;
+    
+    public CacheInvalidationBus(StringRedisTemplate redisTemplate,
+                                ObjectMapper objectMapper,
+                                RedisMessageListenerContainer listenerContainer,
+                                NearCacheProperties properties) {
+        this.redisTemplate = redisTemplate;
+        this.objectMapper = objectMapper;
+        this.channel = properties.getInvalidationChannel();
+        listenerContainer.addMessageListener(
+                (message, pattern) -> onMessage(new String(message.getBody(), StandardCharsets.UTF_8)),
+                new ChannelTopic(channel));
+    }
+    
+    public void subscribe(Consumer<CacheInvalidationMessage> subscriber) {
+        subscribers.add(subscriber);
+    }
+    
+    public void publishEvict(String cacheName, String key) {
+        publish(new CacheInvalidationMessage(nodeId, cacheName, key));
+    }
+    
+    public void publishClear(String cacheName) {
+        publish(new CacheInvalidationMessage(nodeId, cacheName, null));
+    }
+    
+    private void publish(CacheInvalidationMessage message) {
+        try {
+            redisTemplate.convertAndSend(channel, objectMapper.writeValueAsString(message));
+        } catch (JsonProcessingException | RuntimeException e) {
+            // Other nodes fall back to the near-cache TTL if a message is lost
+            log.warn("Failed to publish cache invalidation for {}: {}", message.cacheName(), e.getMessage());
+        }
+    }
+    
+    private void onMessage(String payload) {
+        try {
+            CacheInvalidationMessage message = objectMapper.readValue(payload, CacheInvalidationMessage.class);
+            if (nodeId.equals(message.origin())) {
+                return;
+            }
+            subscribers.forEach(subscriber -> subscriber.accept(message));
+        } catch (JsonProcessingException e) {
+            log.warn("Ignoring malformed cache invalidation message: {}", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,8 @@
+package com.hasandag.ecommerce.product.cache;
+
+/**
+ * Broadcast to all product-service nodes when a shared cache entry changes.
+ * A {@code null} key means the whole cache was cleared.
+ */
+public record CacheInvalidationMessage(String origin, String cacheName, String key) {
+}
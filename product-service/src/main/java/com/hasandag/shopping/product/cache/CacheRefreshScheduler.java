@@ -0,0 +1,53 @@
+package com.hasandag.ecommerce.product.cache;
+
+import com.hasandag.ecommerce.product.service.ProductService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Refresh-ahead for hot home-page keys: recomputes them on a fixed schedule and writes
+ * the result through the cache, so those keys are replaced before they ever expire.
+ */
+@Component
+@ConditionalOnProperty(name = "app.cache.refresh-ahead.enabled", havingValue = "true")
+@Slf4j
+public class CacheRefreshScheduler {
+    
+    private final Map<String, Runnable> refreshers = new LinkedHashMap<>();
+    
+    public CacheRefreshScheduler(ProductService productService,
+                                 @Value("${app.cache.refresh-ahead.caches:newArrivals,topRatedProducts}") List<String> hotCaches) {
+        Map<String, Runnable> available = Map.of(
+                "newArrivals", productService::refreshNewArrivals,
+                "topRatedProducts", productService::refreshTopRatedProducts);
+        
+        for (String cacheName : hotCaches) {
+            Runnable refresher = available.get(cacheName.trim());
+            if (refresher == null) {
+                log.warn("No refresh-ahead loader for cache '{}', ignoring", cacheName);
+            } else {
+                refreshers.put(cacheName.trim(), refresher);
+            }
+        }
+    }
+    
+    @Scheduled(fixedDelayString = "${app.cache.refresh-ahead.interval-ms:60000}",
+            initialDelayString = "${app.cache.refresh-ahead.interval-ms:60000}")
+    public void refreshHotKeys() {
+        refreshers.forEach((cacheName, refresher) -> {
+            try {
+                refresher.run();
+            } catch (RuntimeException e) {
+                // The cached value stays in place until the next successful refresh
+                log.warn("Refresh-ahead of cache '{}' failed: {}", cacheName, e.getMessage());
+            }
+        });
+    }
+}
@@ -0,0 +1,79 @@
+package com.hasandag.ecommerce.product.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Objects;
+import java.util.stream.Stream;
+
+/**
+ * Per-category generation counters that are part of the category listing cache keys.
+ * Bumping a category's version makes every cached page of it unreachable at once, so
+ * listings can be cached with a long TTL without ever serving a stale page and without
+ * scanning or clearing the cache. Superseded entries simply expire.
+ * <p>
+ * Counters live in Redis and are mirrored locally; other nodes drop their local copy
+ * when they receive the bump over the invalidation bus.
+ */
+@Component
+public class CategoryCacheVersions {
+    
+    static final String BUS_NAME = "categoryVersions";
+    private static final String KEY_PREFIX = "product-service:category-version:";
+    
+    private final StringRedisTemplate redisTemplate;
+    private final CacheInvalidationBus invalidationBus;
+    private final Cache<String, Long> localVersions;
+    
+    public CategoryCacheVersions(StringRedisTemplate redisTemplate,
+                                 CacheInvalidationBus invalidationBus,
+                                 @Value("${app.cache.category-versions.local-ttl:30s}") Duration localTtl) {
+        this.redisTemplate = redisTemplate;
+        this.invalidationBus = invalidationBus;
+        this.localVersions = Caffeine.newBuilder()
+                .expireAfterWrite(localTtl)
+                .build();
+        invalidationBus.subscribe(message -> {
+            if (BUS_NAME.equals(message.cacheName())) {
+                if (message.key() == null) {
+                    localVersions.invalidateAll();
+                } else {
+                    localVersions.invalidate(message.key());
+                }
+            }
+        });
+    }
+    
+    /**
+     * Current version of a category, used from cache key expressions.
+     */
+    public long current(String categoryId) {
+        if (categoryId == null) {
+            return 0L;
+        }
+        return localVersions.get(categoryId, id -> {
+            String version = redisTemplate.opsForValue().get(KEY_PREFIX + id);
+            return version != null ? Long.parseLong(version) : 0L;
+        });
+    }
+    
+    /**
+     * Invalidates all cached listings of the given categories; {@code null}s and duplicates are ignored.
+     */
+    public void bump(String... categoryIds) {
+        Stream.of(categoryIds)
+                .filter(Objects::nonNull)
+                .distinct()
+                .forEach(categoryId -> {
+                    Long version = redisTemplate.opsForValue().increment(KEY_PREFIX + categoryId);
+                    if (version != null) {
+                        localVersions.put(categoryId, version);
+                    }
+                    invalidationBus.publishEvict(BUS_NAME, categoryId);
+                });
+    }
+}
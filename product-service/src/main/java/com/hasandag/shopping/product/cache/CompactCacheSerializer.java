@@ -0,0 +1,207 @@
+package com.hasandag.ecommerce.product.cache;
+
+import com.fasterxml.jackson.annotation.JsonTypeInfo;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.jsontype.BasicPolymorphicTypeValidator;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import lombok.extern.slf4j.Slf4j;
+import net.jpountz.lz4.LZ4Compressor;
+import net.jpountz.lz4.LZ4Factory;
+import net.jpountz.lz4.LZ4FastDecompressor;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.data.redis.serializer.SerializationException;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Binary cache value serializer: Jackson Smile with type information, wrapped in a small
+ * versioned envelope and LZ4-compressed above a size threshold.
+ * <pre>
+ * byte 0     magic (0xC5)
+ * byte 1     envelope version
+ * byte 2     flags (bit 0: LZ4, bit 1: page)
+ * 8 bytes    load time in epoch millis, 0 if unknown (not in version 1)
+ * [4 bytes]  uncompressed length, only if LZ4
+ * ...        Smile payload
+ * </pre>
+ * A {@link LoadedValue} is stored as its value with the load time in the header, and read
+ * back as one. Values without the magic byte are read with the legacy JSON serializer,
+ * version 1 entries are read without a load time, and values with an unknown version are
+ * treated as cache misses, so entries written by other releases never fail a request during
+ * a rolling deploy.
+ */
+@Slf4j
+public class CompactCacheSerializer implements RedisSerializer<Object> {
+    
+    static final byte MAGIC = (byte) 0xC5;
+    static final byte VERSION = 2;
+    
+    private static final byte VERSION_WITHOUT_LOAD_TIME = 1;
+    private static final int HEADER_LENGTH = 3 + Long.BYTES;
+    private static final int HEADER_LENGTH_WITHOUT_LOAD_TIME = 3;
+    private static final byte FLAG_LZ4 = 0x01;
+    private static final byte FLAG_PAGE = 0x02;
+    
+    private final ObjectMapper mapper;
+    private final RedisSerializer<Object> legacySerializer;
+    private final int compressionThreshold;
+    private final LZ4Compressor compressor;
+    private final LZ4FastDecompressor decompressor;
+    
+    /**
+     * @param legacySerializer     reads entries written before this serializer was introduced
+     * @param compressionThreshold payloads of at least this many bytes are LZ4-compressed; 0 disables compression
+     */
+    public CompactCacheSerializer(RedisSerializer<Object> legacySerializer, int compressionThreshold) {
+        this.mapper = createMapper();
+        this.legacySerializer = legacySerializer;
+        this.compressionThreshold = compressionThreshold;
+        LZ4Factory lz4 = LZ4Factory.fastestInstance();
+        this.compressor = lz4.fastCompressor();
+        this.decompressor = lz4.fastDecompressor();
+    }
+    
+    @Override
+    public byte[] serialize(Object value) throws SerializationException {
+        if (value == null) {
+            return new byte[0];
+        }
+        
+        long loadedAt = 0;
+        if (value instanceof LoadedValue loaded) {
+            loadedAt = loaded.loadedAt();
+            value = loaded.value();
+        }
+        
+        try {
+            byte flags = 0;
+            byte[] payload;
+            if (value instanceof Page<?> page) {
+                // PageImpl has no creator Jackson can use, so pages travel as a plain snapshot
+                payload = mapper.writeValueAsBytes(CachedPage.of(page));
+                flags |= FLAG_PAGE;
+            } else {
+                payload = mapper.writeValueAsBytes(value);
+            }
+            
+            if (compressionThreshold > 0 && payload.length >= compressionThreshold) {
+                byte[] compressed = compressor.compress(payload);
+                return ByteBuffer.allocate(HEADER_LENGTH + Integer.BYTES + compressed.length)
+                        .put(MAGIC).put(VERSION).put((byte) (flags | FLAG_LZ4))
+                        .putLong(loadedAt)
+                        .putInt(payload.length)
+                        .put(compressed)
+                        .array();
+            }
+            
+            return ByteBuffer.allocate(HEADER_LENGTH + payload.length)
+                    .put(MAGIC).put(VERSION).put(flags)
+                    .putLong(loadedAt)
+                    .put(payload)
+                    .array();
+        } catch (IOException e) {
+            throw new SerializationException("Could not write cache value: " + e.getMessage(), e);
+        }
+    }
+    
+    @Override
+    public Object deserialize(byte[] bytes) throws SerializationException {
+        if (bytes == null || bytes.length == 0) {
+            return null;
+        }
+        
+        if (bytes[0] != MAGIC) {
+            return deserializeLegacy(bytes);
+        }
+        int headerLength = headerLength(bytes);
+        if (headerLength < 0) {
+            log.debug("Skipping cache entry with unsupported envelope version");
+            return null;
+        }
+        
+        try {
+            byte flags = bytes[2];
+            long loadedAt = headerLength == HEADER_LENGTH ? ByteBuffer.wrap(bytes, 3, Long.BYTES).getLong() : 0;
+            byte[] payload;
+            if ((flags & FLAG_LZ4) != 0) {
+                int length = ByteBuffer.wrap(bytes, headerLength, Integer.BYTES).getInt();
+                payload = decompressor.decompress(bytes, headerLength + Integer.BYTES, length);
+            } else {
+                payload = new byte[bytes.length - headerLength];
+                System.arraycopy(bytes, headerLength, payload, 0, payload.length);
+            }
+            
+            Object value = (flags & FLAG_PAGE) != 0
+                    ? mapper.readValue(payload, CachedPage.class).toPage()
+                    : mapper.readValue(payload, Object.class);
+            return loadedAt > 0 && value != null ? new LoadedValue(value, loadedAt) : value;
+        } catch (IOException | RuntimeException e) {
+            log.warn("Treating unreadable cache entry as a miss: {}", e.getMessage());
+            return null;
+        }
+    }
+    
+    // -1 for an unknown version or a truncated header
+    private static int headerLength(byte[] bytes) {
+        int headerLength = bytes.length < 2 ? -1
+                : bytes[1] == VERSION ? HEADER_LENGTH
+                : bytes[1] == VERSION_WITHOUT_LOAD_TIME ? HEADER_LENGTH_WITHOUT_LOAD_TIME
+                : -1;
+        return bytes.length < headerLength ? -1 : headerLength;
+    }
+    
+    private Object deserializeLegacy(byte[] bytes) {
+        try {
+            return legacySerializer.deserialize(bytes);
+        } catch (SerializationException e) {
+            log.warn("Treating unreadable legacy cache entry as a miss: {}", e.getMessage());
+            return null;
+        }
+    }
+    
+    private static ObjectMapper createMapper() {
+        ObjectMapper mapper = new ObjectMapper(new SmileFactory());
+        mapper.registerModule(new JavaTimeModule());
+        mapper.disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+        // Only types from this code base and the JDK may be instantiated from cached bytes
+        mapper.activateDefaultTyping(
+                BasicPolymorphicTypeValidator.builder()
+                        .allowIfSubType("com.hasandag.ecommerce.")
+                        .allowIfSubType("java.util.")
+                        .allowIfSubType("java.time.")
+                        .allowIfSubType("java.math.")
+                        .build(),
+                ObjectMapper.DefaultTyping.NON_FINAL,
+                JsonTypeInfo.As.PROPERTY);
+        return mapper;
+    }
+    
+    /**
+     * Serializable snapshot of a {@link Page}; the sort order is not retained.
+     */
+    record CachedPage(List<Object> content, int pageNumber, int pageSize, long totalElements) {
+        
+        static CachedPage of(Page<?> page) {
+            Pageable pageable = page.getPageable();
+            return new CachedPage(
+                    new ArrayList<>(page.getContent()),
+                    pageable.isPaged() ? pageable.getPageNumber() : -1,
+                    pageable.isPaged() ? pageable.getPageSize() : -1,
+                    page.getTotalElements());
+        }
+        
+        Page<Object> toPage() {
+            Pageable pageable = pageSize > 0 ? PageRequest.of(pageNumber, pageSize) : Pageable.unpaged();
+            return new PageImpl<>(content, pageable, totalElements);
+        }
+    }
+}
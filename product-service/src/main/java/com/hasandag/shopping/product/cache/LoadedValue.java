@@ -0,0 +1,9 @@
+package com.hasandag.ecommerce.product.cache;
+
+/**
+ * A cached value with the wall-clock time, in epoch millis, it was loaded from the source.
+ * {@link TwoLevelCache} stores it in Redis so every node ages a value from its load rather
+ * than from when the node copied it.
+ */
+public record LoadedValue(Object value, long loadedAt) {
+}
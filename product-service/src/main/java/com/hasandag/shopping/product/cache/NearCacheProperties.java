@@ -0,0 +1,64 @@
+package com.hasandag.ecommerce.product.cache;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Sizing of the in-process (L1) cache that sits in front of Redis, per cache name.
+ */
+@Data
+@ConfigurationProperties(prefix = "app.cache.near")
+public class NearCacheProperties {
+    
+    private boolean enabled = true;
+    
+    private long defaultMaximumSize = 1000;
+    
+    /**
+     * Upper bound on how long a node may serve an entry locally. Invalidation messages
+     * normally evict much sooner; this only limits staleness if one is lost.
+     */
+    private Duration defaultTimeToLive = Duration.ofMinutes(1);
+    
+    private String invalidationChannel = "product-service:cache-invalidation";
+    
+    /**
+     * Threads used for stale-while-revalidate refreshes, shared by all caches.
+     */
+    private int refreshThreads = 2;
+    
+    private Map<String, CacheSpec> caches = new HashMap<>();
+    
+    public long maximumSizeFor(String cacheName) {
+        CacheSpec spec = caches.get(cacheName);
+        return spec != null && spec.getMaximumSize() != null ? spec.getMaximumSize() : defaultMaximumSize;
+    }
+    
+    public Duration timeToLiveFor(String cacheName) {
+        CacheSpec spec = caches.get(cacheName);
+        return spec != null && spec.getTimeToLive() != null ? spec.getTimeToLive() : defaultTimeToLive;
+    }
+    
+    /**
+     * Age after which a local entry is refreshed in the background while still being served;
+     * {@code null} disables stale-while-revalidate for the cache.
+     */
+    public Duration softTimeToLiveFor(String cacheName) {
+        CacheSpec spec = caches.get(cacheName);
+        return spec != null ? spec.getSoftTimeToLive() : null;
+    }
+    
+    @Data
+    public static class CacheSpec {
+        
+        private Long maximumSize;
+        
+        private Duration timeToLive;
+        
+        private Duration softTimeToLive;
+    }
+}
@@ -0,0 +1,288 @@
+package com.hasandag.ecommerce.product.cache;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.cache.Cache;
+import org.springframework.cache.support.SimpleValueWrapper;
+
+import java.time.Duration;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * A cache backed by a bounded in-process Caffeine cache (L1) in front of a shared
+ * Redis cache (L2). Reads are served from L1 when possible; writes and evictions go
+ * to both tiers and are broadcast so other nodes drop their L1 copy. Values loaded on a
+ * miss fill both tiers without a broadcast, since the source did not change.
+ * <p>
+ * Synchronized lookups ({@code @Cacheable(sync = true)}) are coalesced per key, so a
+ * miss triggers a single load no matter how many requests arrive at once. If the cache
+ * has a soft TTL, an entry older than it is still returned while one background
+ * refresh replaces it (stale-while-revalidate). Age is measured from when the value was
+ * loaded, which L2 stores alongside it as a {@link LoadedValue}, so a node copying an old
+ * value from L2 does not treat it as fresh.
+ * <p>
+ * L1 entries are keyed by the string form of the cache key, which is also the form
+ * sent in invalidation messages.
+ */
+@Slf4j
+public class TwoLevelCache implements Cache {
+    
+    private final String name;
+    private final com.github.benmanes.caffeine.cache.Cache<String, LocalEntry> local;
+    private final Cache remote;
+    private final CacheInvalidationBus invalidationBus;
+    private final long softTimeToLiveMillis;
+    private final Executor refreshExecutor;
+    private final ConcurrentMap<String, CompletableFuture<Object>> loads = new ConcurrentHashMap<>();
+    
+    private final Counter localHits;
+    private final Counter localMisses;
+    private final Counter remoteHits;
+    private final Counter remoteMisses;
+    private final Counter staleHits;
+    
+    public TwoLevelCache(String name,
+                         com.github.benmanes.caffeine.cache.Cache<String, LocalEntry> local,
+                         Cache remote,
+                         CacheInvalidationBus invalidationBus,
+                         Duration softTimeToLive,
+                         Executor refreshExecutor,
+                         MeterRegistry meterRegistry) {
+        this.name = name;
+        this.local = local;
+        this.remote = remote;
+        this.invalidationBus = invalidationBus;
+        this.softTimeToLiveMillis = softTimeToLive != null ? softTimeToLive.toMillis() : 0L;
+        this.refreshExecutor = refreshExecutor;
+        this.localHits = requests(meterRegistry, "l1", "hit");
+        this.localMisses = requests(meterRegistry, "l1", "miss");
+        this.remoteHits = requests(meterRegistry, "l2", "hit");
+        this.remoteMisses = requests(meterRegistry, "l2", "miss");
+        this.staleHits = requests(meterRegistry, "l1", "stale");
+        Gauge.builder("cache.tier.size", local, com.github.benmanes.caffeine.cache.Cache::estimatedSize)
+                .description("Number of entries held in the near cache")
+                .tag("cache", name)
+                .tag("tier", "l1")
+                .register(meterRegistry);
+    }
+    
+    @Override
+    public String getName() {
+        return name;
+    }
+    
+    @Override
+    public Object getNativeCache() {
+        return remote.getNativeCache();
+    }
+    
+    @Override
+    public ValueWrapper get(Object key) {
+        String localKey = localKey(key);
+        LocalEntry entry = local.getIfPresent(localKey);
+        if (entry != null) {
+            localHits.increment();
+            return new SimpleValueWrapper(entry.value());
+        }
+        localMisses.increment();
+        LocalEntry remoteEntry = getRemote(key, localKey);
+        return remoteEntry != null ? new SimpleValueWrapper(remoteEntry.value()) : null;
+    }
+    
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T get(Object key, Class<T> type) {
+        ValueWrapper wrapper = get(key);
+        Object value = wrapper != null ? wrapper.get() : null;
+        if (value != null && type != null && !type.isInstance(value)) {
+            throw new IllegalStateException("Cached value is not of required type [" + type.getName() + "]: " + value);
+        }
+        return (T) value;
+    }
+    
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T get(Object key, Callable<T> valueLoader) {
+        String localKey = localKey(key);
+        LocalEntry entry = local.getIfPresent(localKey);
+        if (entry != null) {
+            if (isStale(entry)) {
+                staleHits.increment();
+                refreshInBackground(key, localKey, valueLoader);
+            } else {
+                localHits.increment();
+            }
+            return (T) entry.value();
+        }
+        localMisses.increment();
+        
+        LocalEntry remoteEntry = getRemote(key, localKey);
+        if (remoteEntry != null) {
+            if (isStale(remoteEntry)) {
+                refreshInBackground(key, localKey, valueLoader);
+            }
+            return (T) remoteEntry.value();
+        }
+        return (T) loadOnce(key, localKey, valueLoader);
+    }
+    
+    /**
+     * A write through the cache ({@code @CachePut}), so other nodes drop the copy they hold.
+     * Lookups that should not invalidate other nodes must go through {@link #get(Object, Callable)}.
+     */
+    @Override
+    public void put(Object key, Object value) {
+        store(key, value);
+        invalidationBus.publishEvict(name, localKey(key));
+    }
+    
+    @Override
+    public void evict(Object key) {
+        remote.evict(key);
+        String localKey = localKey(key);
+        local.invalidate(localKey);
+        invalidationBus.publishEvict(name, localKey);
+    }
+    
+    @Override
+    public void clear() {
+        remote.clear();
+        local.invalidateAll();
+        invalidationBus.publishClear(name);
+    }
+    
+    /**
+     * Applies an invalidation received from another node to the local tier only.
+     */
+    void invalidateLocal(String localKey) {
+        if (localKey == null) {
+            local.invalidateAll();
+        } else {
+            local.invalidate(localKey);
+        }
+    }
+    
+    private void store(Object key, Object value) {
+        String localKey = localKey(key);
+        if (value != null) {
+            long loadedAt = System.currentTimeMillis();
+            remote.put(key, new LoadedValue(value, loadedAt));
+            local.put(localKey, new LocalEntry(value, loadedAt));
+        } else {
+            remote.put(key, null);
+            local.invalidate(localKey);
+        }
+    }
+    
+    private LocalEntry getRemote(Object key, String localKey) {
+        ValueWrapper wrapper = remote.get(key);
+        Object value = wrapper != null ? wrapper.get() : null;
+        if (value == null) {
+            remoteMisses.increment();
+            return null;
+        }
+        remoteHits.increment();
+        // Entries written without a load time are of unknown age and count as stale
+        LocalEntry entry = value instanceof LoadedValue loaded
+                ? new LocalEntry(loaded.value(), loaded.loadedAt())
+                : new LocalEntry(value, 0L);
+        local.put(localKey, entry);
+        return entry;
+    }
+    
+    /**
+     * Single-flight load: the first caller for a key runs the loader, concurrent callers
+     * for the same key wait for and share its result.
+     */
+    private Object loadOnce(Object key, String localKey, Callable<?> valueLoader) {
+        CompletableFuture<Object> load = new CompletableFuture<>();
+        CompletableFuture<Object> inFlight = loads.putIfAbsent(localKey, load);
+        if (inFlight != null) {
+            try {
+                return inFlight.join();
+            } catch (CompletionException e) {
+                throw e.getCause() instanceof RuntimeException cause ? cause : e;
+            }
+        }
+        
+        try {
+            Object value = load(key, valueLoader);
+            load.complete(value);
+            return value;
+        } catch (RuntimeException e) {
+            load.completeExceptionally(e);
+            throw e;
+        } finally {
+            loads.remove(localKey, load);
+        }
+    }
+    
+    private void refreshInBackground(Object key, String localKey, Callable<?> valueLoader) {
+        CompletableFuture<Object> refresh = new CompletableFuture<>();
+        if (loads.putIfAbsent(localKey, refresh) != null) {
+            // A load or refresh for this key is already running
+            return;
+        }
+        
+        try {
+            refreshExecutor.execute(() -> {
+                try {
+                    refresh.complete(load(key, valueLoader));
+                } catch (RuntimeException e) {
+                    log.warn("Background refresh of {}::{} failed, keeping stale value: {}", name, localKey, e.getMessage());
+                    refresh.completeExceptionally(e);
+                } finally {
+                    loads.remove(localKey, refresh);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            loads.remove(localKey, refresh);
+            refresh.cancel(false);
+        }
+    }
+    
+    private Object load(Object key, Callable<?> valueLoader) {
+        Object value;
+        try {
+            value = valueLoader.call();
+        } catch (Exception e) {
+            throw new ValueRetrievalException(key, valueLoader, e);
+        }
+        // Other nodes are not told: a load changes nothing they could be holding a stale copy of
+        if (value != null) {
+            store(key, value);
+        }
+        return value;
+    }
+    
+    private boolean isStale(LocalEntry entry) {
+        return softTimeToLiveMillis > 0 && System.currentTimeMillis() - entry.loadedAt() > softTimeToLiveMillis;
+    }
+    
+    private static String localKey(Object key) {
+        return String.valueOf(key);
+    }
+    
+    private Counter requests(MeterRegistry meterRegistry, String tier, String result) {
+        return Counter.builder("cache.tier.requests")
+                .description("Cache lookups per tier of the two-level product cache")
+                .tag("cache", name)
+                .tag("tier", tier)
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+    
+    /**
+     * An L1 entry with the epoch millis its value was loaded from the source.
+     */
+    record LocalEntry(Object value, long loadedAt) {
+    }
+}
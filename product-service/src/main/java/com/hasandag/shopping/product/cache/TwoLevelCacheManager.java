@@ -0,0 +1,82 @@
+package com.hasandag.ecommerce.product.cache;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Wraps every cache of the Redis cache manager in a {@link TwoLevelCache} sized from
+ * {@link NearCacheProperties}, and routes invalidations from other nodes to them.
+ */
+public class TwoLevelCacheManager implements CacheManager, DisposableBean {
+    
+    private final CacheManager remoteCacheManager;
+    private final NearCacheProperties properties;
+    private final CacheInvalidationBus invalidationBus;
+    private final MeterRegistry meterRegistry;
+    private final ConcurrentMap<String, TwoLevelCache> caches = new ConcurrentHashMap<>();
+    private final ExecutorService refreshExecutor;
+    
+    public TwoLevelCacheManager(CacheManager remoteCacheManager,
+                                NearCacheProperties properties,
+                                CacheInvalidationBus invalidationBus,
+                                MeterRegistry meterRegistry) {
+        this.remoteCacheManager = remoteCacheManager;
+        this.properties = properties;
+        this.invalidationBus = invalidationBus;
+        this.meterRegistry = meterRegistry;
+        this.refreshExecutor = Executors.newFixedThreadPool(
+                properties.getRefreshThreads(), new CustomizableThreadFactory("cache-refresh-"));
+        invalidationBus.subscribe(this::onInvalidation);
+    }
+    
+    @Override
+    public Cache getCache(String name) {
+        return caches.computeIfAbsent(name, this::createCache);
+    }
+    
+    @Override
+    public Collection<String> getCacheNames() {
+        Set<String> names = new LinkedHashSet<>(remoteCacheManager.getCacheNames());
+        names.addAll(caches.keySet());
+        return names;
+    }
+    
+    private TwoLevelCache createCache(String name) {
+        Cache remote = remoteCacheManager.getCache(name);
+        if (remote == null) {
+            return null;
+        }
+        
+        com.github.benmanes.caffeine.cache.Cache<String, TwoLevelCache.LocalEntry> local = Caffeine.newBuilder()
+                .maximumSize(properties.maximumSizeFor(name))
+                .expireAfterWrite(properties.timeToLiveFor(name))
+                .build();
+        return new TwoLevelCache(name, local, remote, invalidationBus,
+                properties.softTimeToLiveFor(name), refreshExecutor, meterRegistry);
+    }
+    
+    @Override
+    public void destroy() {
+        refreshExecutor.shutdownNow();
+    }
+    
+    private void onInvalidation(CacheInvalidationMessage message) {
+        // Caches this node has never used hold nothing to invalidate
+        TwoLevelCache cache = caches.get(message.cacheName());
+        if (cache != null) {
+            cache.invalidateLocal(message.key());
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package com.hasandag.ecommerce.product.category;
+
+import com.hasandag.ecommerce.product.model.Category;
+import com.hasandag.ecommerce.product.model.Product;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.AggregationOperation;
+import org.springframework.data.mongodb.core.aggregation.AggregationUpdate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+
+/**
+ * Maintains the materialized paths: {@code Category.ancestorIds} and {@code Product.categoryPath}.
+ * {@code parentId} stays the source of truth; the paths are derived from it so that a whole
+ * subtree can be matched with one equality on an indexed array.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class CategoryPaths {
+    
+    private final MongoTemplate mongoTemplate;
+    private final CategoryTree categoryTree;
+    
+    /**
+     * Ancestor ids for a category placed under {@code parentId}.
+     */
+    public List<String> ancestorsUnder(String parentId) {
+        if (parentId == null || parentId.isEmpty()) {
+            return new ArrayList<>();
+        }
+        Category parent = mongoTemplate.findById(parentId, Category.class);
+        List<String> ancestors = new ArrayList<>();
+        if (parent != null && parent.getAncestorIds() != null) {
+            ancestors.addAll(parent.getAncestorIds());
+        }
+        ancestors.add(parentId);
+        return ancestors;
+    }
+    
+    /**
+     * Path stored on products of the given category: its ancestors followed by the category itself.
+     */
+    public List<String> productPath(String categoryId) {
+        List<String> path = new ArrayList<>(categoryTree.snapshot().breadcrumbs(categoryId).stream()
+                .map(Category::getId)
+                .toList());
+        if (path.isEmpty()) {
+            // Not in this node's tree yet, e.g. created moments ago on another node
+            Category category = mongoTemplate.findById(categoryId, Category.class);
+            if (category != null && category.getAncestorIds() != null) {
+                path.addAll(category.getAncestorIds());
+            }
+            path.add(categoryId);
+        }
+        return path;
+    }
+    
+    /**
+     * Rewrites the paths of every category below a category that now sits below
+     * {@code newAncestors}, and of all their products, including the category's own. Each
+     * path keeps its part from the moved category down, so this is one update per collection
+     * regardless of subtree size. The moved category's own ancestors are set by the caller.
+     */
+    public void moveSubtree(String categoryId, List<String> newAncestors) {
+        long categories = mongoTemplate.updateMulti(Query.query(where("ancestorIds").is(categoryId)),
+                rebase("ancestorIds", categoryId, newAncestors, true), Category.class).getModifiedCount();
+        long products = mongoTemplate.updateMulti(Query.query(where("categoryPath").is(categoryId)),
+                rebase("categoryPath", categoryId, newAncestors, true), Product.class).getModifiedCount();
+        log.info("Moved category {}: {} subcategories and {} products re-pathed", categoryId, categories, products);
+    }
+    
+    /**
+     * Cuts a deleted category and everything above it from the paths below it, turning its
+     * children into roots. Products of the deleted category itself are left as they are.
+     */
+    public void detachSubtree(String categoryId) {
+        mongoTemplate.updateMulti(Query.query(where("ancestorIds").is(categoryId)),
+                rebase("ancestorIds", categoryId, List.of(), false), Category.class);
+        mongoTemplate.updateMulti(Query.query(where("categoryPath").is(categoryId).and("categoryId").ne(categoryId)),
+                rebase("categoryPath", categoryId, List.of(), false), Product.class);
+    }
+    
+    /**
+     * Recomputes every path from the parent links and fixes those that differ. Paths that are
+     * already correct are not rewritten.
+     *
+     * @return number of categories and products that were corrected
+     */
+    public int repairAll() {
+        CategoryTreeSnapshot snapshot = categoryTree.snapshot();
+        List<Category> categories = snapshot.all();
+        if (categories.isEmpty()) {
+            return 0;
+        }
+        
+        BulkOperations categoryOps = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Category.class);
+        BulkOperations productOps = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Product.class);
+        for (Category category : categories) {
+            List<String> path = snapshot.breadcrumbs(category.getId()).stream()
+                    .map(Category::getId)
+                    .toList();
+            List<String> ancestors = path.subList(0, path.size() - 1);
+            
+            categoryOps.updateOne(Query.query(where("_id").is(category.getId()).and("ancestorIds").ne(ancestors)),
+                    new Update().set("ancestorIds", ancestors));
+            productOps.updateMulti(Query.query(where("categoryId").is(category.getId()).and("categoryPath").ne(path)),
+                    new Update().set("categoryPath", path));
+        }
+        
+        int corrected = categoryOps.execute().getModifiedCount() + productOps.execute().getModifiedCount();
+        if (corrected > 0) {
+            categoryTree.categoriesChanged();
+        }
+        return corrected;
+    }
+    
+    /**
+     * Pipeline update replacing everything in {@code field} before {@code categoryId} with
+     * {@code prefix}, and dropping {@code categoryId} itself unless {@code keepCategory}.
+     */
+    private static AggregationUpdate rebase(String field, String categoryId, List<String> prefix, boolean keepCategory) {
+        String array = "$" + field;
+        Document position = new Document("$indexOfArray", List.of(array, categoryId));
+        Document kept = new Document("$slice", List.of(
+                array,
+                keepCategory ? position : new Document("$add", List.of(position, 1)),
+                new Document("$size", array)));
+        Document path = new Document("$concatArrays", List.of(new Document("$literal", prefix), kept));
+        return AggregationUpdate.from(List.<AggregationOperation>of(
+                context -> new Document("$set", new Document(field, path))));
+    }
+}
@@ -0,0 +1,86 @@
+package com.hasandag.ecommerce.product.category;
+
+import com.hasandag.ecommerce.product.cache.CacheInvalidationBus;
+import com.hasandag.ecommerce.product.model.Category;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Holds the current {@link CategoryTreeSnapshot}. Reads never touch Mongo; the snapshot is
+ * replaced as a whole after every category write, and other nodes reload theirs when the
+ * change reaches them over the invalidation bus. A periodic reload bounds how long a node
+ * that missed a bus message keeps serving an old tree. Categories are few and rarely change, so
+ * a full reload is cheaper to reason about than patching the tree in place.
+ */
+@Component
+@Slf4j
+public class CategoryTree {
+    
+    static final String BUS_NAME = "categoryTree";
+    
+    private final MongoTemplate mongoTemplate;
+    private final CacheInvalidationBus invalidationBus;
+    private final AtomicReference<CategoryTreeSnapshot> snapshot = new AtomicReference<>();
+    
+    public CategoryTree(MongoTemplate mongoTemplate,
+                        CacheInvalidationBus invalidationBus,
+                        MeterRegistry meterRegistry) {
+        this.mongoTemplate = mongoTemplate;
+        this.invalidationBus = invalidationBus;
+        Gauge.builder("product.category.tree.size", snapshot, ref -> {
+                    CategoryTreeSnapshot current = ref.get();
+                    return current != null ? current.size() : 0;
+                })
+                .description("Number of categories in the in-memory category tree")
+                .register(meterRegistry);
+        
+        invalidationBus.subscribe(message -> {
+            if (BUS_NAME.equals(message.cacheName())) {
+                reload();
+            }
+        });
+    }
+    
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        reload();
+    }
+    
+    // Safety net for bus messages lost while this node was disconnected from Redis
+    @Scheduled(initialDelayString = "${app.categories.tree.refresh-interval-ms:300000}",
+            fixedDelayString = "${app.categories.tree.refresh-interval-ms:300000}")
+    public void refresh() {
+        reload();
+    }
+    
+    /**
+     * The current snapshot, loading it on first use if startup has not done so yet.
+     */
+    public CategoryTreeSnapshot snapshot() {
+        CategoryTreeSnapshot current = snapshot.get();
+        return current != null ? current : reload();
+    }
+    
+    /**
+     * Reloads the tree after a local category write and tells the other nodes to do the same.
+     */
+    public void categoriesChanged() {
+        reload();
+        invalidationBus.publishClear(BUS_NAME);
+    }
+    
+    private synchronized CategoryTreeSnapshot reload() {
+        CategoryTreeSnapshot loaded = CategoryTreeSnapshot.of(mongoTemplate.findAll(Category.class));
+        snapshot.set(loaded);
+        log.debug("Category tree loaded with {} categories", loaded.size());
+        return loaded;
+    }
+}
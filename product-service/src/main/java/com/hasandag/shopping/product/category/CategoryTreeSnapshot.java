@@ -0,0 +1,205 @@
+package com.hasandag.ecommerce.product.category;
+
+import com.hasandag.ecommerce.product.model.Category;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Immutable view of the whole category hierarchy, built from one read of the categories
+ * collection. The parent links ({@code parentId}) are authoritative; children are ordered
+ * by name. Categories whose parent is missing, or that sit on a cycle, are treated as roots
+ * so that every category stays reachable.
+ * <p>
+ * Categories held here are private copies and must not be modified by callers.
+ */
+public final class CategoryTreeSnapshot {
+    
+    private static final Comparator<Category> BY_NAME =
+            Comparator.comparing(Category::getName, Comparator.nullsLast(String.CASE_INSENSITIVE_ORDER))
+                    .thenComparing(Category::getId);
+    
+    private final Map<String, Node> nodes;
+    private final List<String> rootIds;
+    
+    /**
+     * One category with its resolved position in the tree.
+     */
+    public record Node(Category category, String parentId, List<String> childIds, int depth, Set<String> descendantIds) {
+    }
+    
+    private CategoryTreeSnapshot(Map<String, Node> nodes, List<String> rootIds) {
+        this.nodes = nodes;
+        this.rootIds = rootIds;
+    }
+    
+    public static CategoryTreeSnapshot empty() {
+        return new CategoryTreeSnapshot(Map.of(), List.of());
+    }
+    
+    public static CategoryTreeSnapshot of(Collection<Category> categories) {
+        Map<String, Category> byId = new HashMap<>();
+        for (Category category : categories) {
+            byId.put(category.getId(), copyOf(category));
+        }
+        
+        Map<String, List<Category>> children = new HashMap<>();
+        List<Category> roots = new ArrayList<>();
+        for (Category category : byId.values()) {
+            String parentId = category.getParentId();
+            if (parentId != null && byId.containsKey(parentId) && !parentId.equals(category.getId())) {
+                children.computeIfAbsent(parentId, id -> new ArrayList<>()).add(category);
+            } else {
+                roots.add(category);
+            }
+        }
+        children.values().forEach(list -> list.sort(BY_NAME));
+        roots.sort(BY_NAME);
+        
+        // Walk down from the roots; anything left unvisited is on a parent cycle and is promoted to a root
+        Map<String, Integer> depths = new LinkedHashMap<>();
+        Map<String, String> parents = new HashMap<>();
+        Deque<Category> pending = new ArrayDeque<>(roots);
+        roots.forEach(root -> depths.put(root.getId(), 0));
+        walk(pending, children, depths, parents);
+        if (depths.size() < byId.size()) {
+            List<Category> orphans = byId.values().stream()
+                    .filter(category -> !depths.containsKey(category.getId()))
+                    .sorted(BY_NAME)
+                    .toList();
+            for (Category orphan : orphans) {
+                if (!depths.containsKey(orphan.getId())) {
+                    roots.add(orphan);
+                    depths.put(orphan.getId(), 0);
+                    walk(new ArrayDeque<>(List.of(orphan)), children, depths, parents);
+                }
+            }
+        }
+        
+        // Every category contributes itself to the descendant set of each of its ancestors
+        Map<String, Set<String>> descendants = new HashMap<>();
+        for (String id : depths.keySet()) {
+            for (String current = id; current != null; current = parents.get(current)) {
+                descendants.computeIfAbsent(current, key -> new LinkedHashSet<>()).add(id);
+            }
+        }
+        
+        Map<String, Node> nodes = new HashMap<>();
+        for (Map.Entry<String, Integer> entry : depths.entrySet()) {
+            String id = entry.getKey();
+            List<String> childIds = children.getOrDefault(id, List.of()).stream()
+                    .map(Category::getId)
+                    .filter(childId -> id.equals(parents.get(childId)))
+                    .toList();
+            nodes.put(id, new Node(byId.get(id), parents.get(id), childIds, entry.getValue(),
+                    Set.copyOf(descendants.get(id))));
+        }
+        return new CategoryTreeSnapshot(Map.copyOf(nodes), roots.stream().map(Category::getId).toList());
+    }
+    
+    private static void walk(Deque<Category> pending,
+                             Map<String, List<Category>> children,
+                             Map<String, Integer> depths,
+                             Map<String, String> parents) {
+        while (!pending.isEmpty()) {
+            Category parent = pending.poll();
+            int depth = depths.get(parent.getId()) + 1;
+            for (Category child : children.getOrDefault(parent.getId(), List.of())) {
+                if (depths.putIfAbsent(child.getId(), depth) == null) {
+                    parents.put(child.getId(), parent.getId());
+                    pending.add(child);
+                }
+            }
+        }
+    }
+    
+    private static Category copyOf(Category category) {
+        return Category.builder()
+                .id(category.getId())
+                .name(category.getName())
+                .description(category.getDescription())
+                .parentId(category.getParentId())
+                .ancestorIds(category.getAncestorIds() != null
+                        ? List.copyOf(category.getAncestorIds())
+                        : List.of())
+                .subCategoryIds(category.getSubCategoryIds() != null
+                        ? List.copyOf(category.getSubCategoryIds())
+                        : List.of())
+                .imageUrl(category.getImageUrl())
+                .active(category.isActive())
+                .createdAt(category.getCreatedAt())
+                .updatedAt(category.getUpdatedAt())
+                .build();
+    }
+    
+    public int size() {
+        return nodes.size();
+    }
+    
+    public Optional<Node> node(String id) {
+        return Optional.ofNullable(id != null ? nodes.get(id) : null);
+    }
+    
+    public Optional<Category> find(String id) {
+        return node(id).map(Node::category);
+    }
+    
+    /**
+     * All categories, parents before their children.
+     */
+    public List<Category> all() {
+        List<Category> result = new ArrayList<>(nodes.size());
+        Deque<String> pending = new ArrayDeque<>(rootIds);
+        while (!pending.isEmpty()) {
+            Node node = nodes.get(pending.poll());
+            result.add(node.category());
+            pending.addAll(node.childIds());
+        }
+        return result;
+    }
+    
+    public List<Category> roots() {
+        return rootIds.stream().map(id -> nodes.get(id).category()).toList();
+    }
+    
+    public List<Category> children(String id) {
+        return node(id)
+                .map(node -> node.childIds().stream().map(childId -> nodes.get(childId).category()).toList())
+                .orElse(List.of());
+    }
+    
+    /**
+     * Path from the root down to the given category, both included; empty if it is unknown.
+     */
+    public List<Category> breadcrumbs(String id) {
+        Node node = nodes.get(id);
+        if (node == null) {
+            return List.of();
+        }
+        Category[] path = new Category[node.depth() + 1];
+        for (int i = node.depth(); node != null; i--, node = nodes.get(node.parentId())) {
+            path[i] = node.category();
+            if (node.parentId() == null) {
+                break;
+            }
+        }
+        return List.of(path);
+    }
+    
+    /**
+     * Ids of the category and everything below it; empty if it is unknown.
+     */
+    public Set<String> descendantIds(String id) {
+        return node(id).map(Node::descendantIds).orElse(Set.of());
+    }
+}
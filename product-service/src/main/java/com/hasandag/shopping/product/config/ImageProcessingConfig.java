@@ -0,0 +1,35 @@
+package com.hasandag.ecommerce.product.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+@Configuration
+public class ImageProcessingConfig {
+    
+    @Value("${app.images.variants.threads:2}")
+    private int threads;
+    
+    @Value("${app.images.variants.queue-capacity:200}")
+    private int queueCapacity;
+    
+    // Bounded pool and queue: uploads never wait for resizing, and a burst of uploads
+    // cannot pile up an unbounded backlog of decoded images in memory
+    @Bean(destroyMethod = "shutdown")
+    public ThreadPoolExecutor imageVariantExecutor() {
+        return new ThreadPoolExecutor(
+                threads,
+                threads,
+                0L,
+                TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                new CustomizableThreadFactory("image-variant-"),
+                new ThreadPoolExecutor.AbortPolicy()
+        );
+    }
+}
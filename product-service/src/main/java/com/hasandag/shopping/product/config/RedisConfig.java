@@ -1,32 +1,87 @@
 package com.hasandag.ecommerce.product.config;
 
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.hasandag.ecommerce.product.cache.CacheInvalidationBus;
+import com.hasandag.ecommerce.product.cache.CompactCacheSerializer;
+import com.hasandag.ecommerce.product.cache.NearCacheProperties;
+import com.hasandag.ecommerce.product.cache.TwoLevelCacheManager;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.cache.CacheManager;
 import org.springframework.cache.annotation.EnableCaching;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.data.redis.cache.RedisCacheConfiguration;
 import org.springframework.data.redis.cache.RedisCacheManager;
 import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
 import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
 import org.springframework.data.redis.serializer.RedisSerializationContext;
+import org.springframework.data.redis.serializer.RedisSerializer;
 
 import java.time.Duration;
 
 @Configuration
 @EnableCaching
+@EnableConfigurationProperties(NearCacheProperties.class)
 public class RedisConfig {
 
+    // "smile" (compact binary, default) or "json"
+    @Value("${app.cache.serializer:smile}")
+    private String cacheSerializer;
+
+    @Value("${app.cache.compression-threshold:1024}")
+    private int compressionThreshold;
+
+    @Bean
+    public CacheManager cacheManager(RedisConnectionFactory connectionFactory,
+                                     NearCacheProperties nearCacheProperties,
+                                     CacheInvalidationBus cacheInvalidationBus,
+                                     MeterRegistry meterRegistry) {
+        RedisCacheManager redisCacheManager = redisCacheManager(connectionFactory);
+        if (!nearCacheProperties.isEnabled()) {
+            return redisCacheManager;
+        }
+        // Hot reads are served from an in-process cache and only fall through to Redis on a miss
+        return new TwoLevelCacheManager(redisCacheManager, nearCacheProperties, cacheInvalidationBus, meterRegistry);
+    }
+
     @Bean
-    public RedisCacheManager cacheManager(RedisConnectionFactory connectionFactory) {
+    public RedisMessageListenerContainer redisMessageListenerContainer(RedisConnectionFactory connectionFactory) {
+        RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(connectionFactory);
+        return container;
+    }
+
+    private RedisCacheManager redisCacheManager(RedisConnectionFactory connectionFactory) {
         RedisCacheConfiguration cacheConfig = RedisCacheConfiguration.defaultCacheConfig()
                 .entryTtl(Duration.ofMinutes(10))
-                .serializeValuesWith(RedisSerializationContext.SerializationPair.fromSerializer(new GenericJackson2JsonRedisSerializer()))
+                .serializeValuesWith(RedisSerializationContext.SerializationPair.fromSerializer(cacheValueSerializer()))
                 .disableCachingNullValues();
 
-        return RedisCacheManager.builder(connectionFactory)
+        RedisCacheManager redisCacheManager = RedisCacheManager.builder(connectionFactory)
                 .cacheDefaults(cacheConfig)
-                .withCacheConfiguration("products", RedisCacheConfiguration.defaultCacheConfig().entryTtl(Duration.ofMinutes(5)))
-                .withCacheConfiguration("categories", RedisCacheConfiguration.defaultCacheConfig().entryTtl(Duration.ofMinutes(30)))
-                .withCacheConfiguration("reviews", RedisCacheConfiguration.defaultCacheConfig().entryTtl(Duration.ofMinutes(15)))
+                .withCacheConfiguration("products", cacheConfig.entryTtl(Duration.ofMinutes(5)))
+                // Versioned keys keep category listings correct, so they can live much longer
+                .withCacheConfiguration("productsByCategory", cacheConfig.entryTtl(Duration.ofHours(6)))
+                .withCacheConfiguration("categories", cacheConfig.entryTtl(Duration.ofMinutes(30)))
+                .withCacheConfiguration("reviews", cacheConfig.entryTtl(Duration.ofMinutes(15)))
+                // Evicted on every review change, the TTL only bounds drift from missed evictions
+                .withCacheConfiguration("reviewSummaries", cacheConfig.entryTtl(Duration.ofHours(1)))
                 .build();
+        // Not a bean, so the per-cache configurations have to be loaded explicitly
+        redisCacheManager.afterPropertiesSet();
+        return redisCacheManager;
+    }
+
+    private RedisSerializer<Object> cacheValueSerializer() {
+        GenericJackson2JsonRedisSerializer jsonSerializer = new GenericJackson2JsonRedisSerializer();
+        jsonSerializer.configure(mapper -> mapper.registerModule(new JavaTimeModule()));
+        if ("json".equalsIgnoreCase(cacheSerializer)) {
+            return jsonSerializer;
+        }
+        // JSON entries written by older releases stay readable through the legacy fallback
+        return new CompactCacheSerializer(jsonSerializer, compressionThreshold);
     }
-} 
\ No newline at end of file
+}
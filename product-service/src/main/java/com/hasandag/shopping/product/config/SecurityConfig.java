@@ -21,7 +21,7 @@ public class SecurityConfig {
         http
             .csrf(AbstractHttpConfigurer::disable)
             .authorizeHttpRequests(authorizeRequests -> authorizeRequests
-                .requestMatchers("/api/products/*/view", "/api/products/search/**", "/api/categories/**").permitAll()
+                .requestMatchers("/api/products/*/view", "/api/products/search/**", "/api/products/suggest", "/api/products/*/reviews/summary", "/api/categories/**").permitAll()
                 .requestMatchers("/api/products/*/review").authenticated()
                 .requestMatchers("/api/products/admin/**").hasRole("ADMIN")
                 .requestMatchers("/api/products/seller/**").hasRole("SELLER")
@@ -2,6 +2,7 @@ package com.hasandag.ecommerce.product.controller;
 
 import com.hasandag.ecommerce.product.dto.CategoryRequest;
 import com.hasandag.ecommerce.product.dto.CategoryResponse;
+import com.hasandag.ecommerce.product.dto.CategoryTreeNode;
 import com.hasandag.ecommerce.product.service.CategoryService;
 import com.hasandag.ecommerce.shared.dto.dto.ApiResponse;
 import io.swagger.v3.oas.annotations.Operation;
@@ -81,4 +82,25 @@ public class CategoryController {
         List<CategoryResponse> rootCategories = categoryService.getRootCategories();
         return ResponseEntity.ok(ApiResponse.success(rootCategories));
     }
+
+    @GetMapping("/tree")
+    @Operation(summary = "Get category tree", description = "Retrieves the whole category hierarchy as nested nodes")
+    public ResponseEntity<ApiResponse<List<CategoryTreeNode>>> getCategoryTree() {
+        List<CategoryTreeNode> tree = categoryService.getCategoryTree();
+        return ResponseEntity.ok(ApiResponse.success(tree));
+    }
+
+    @GetMapping("/{id}/tree")
+    @Operation(summary = "Get category subtree", description = "Retrieves a category with all categories below it as nested nodes")
+    public ResponseEntity<ApiResponse<CategoryTreeNode>> getCategorySubtree(@PathVariable String id) {
+        CategoryTreeNode subtree = categoryService.getCategorySubtree(id);
+        return ResponseEntity.ok(ApiResponse.success(subtree));
+    }
+
+    @GetMapping("/{id}/breadcrumbs")
+    @Operation(summary = "Get category breadcrumbs", description = "Retrieves the categories from the root down to the given category")
+    public ResponseEntity<ApiResponse<List<CategoryResponse>>> getBreadcrumbs(@PathVariable String id) {
+        List<CategoryResponse> breadcrumbs = categoryService.getBreadcrumbs(id);
+        return ResponseEntity.ok(ApiResponse.success(breadcrumbs));
+    }
 } 
\ No newline at end of file
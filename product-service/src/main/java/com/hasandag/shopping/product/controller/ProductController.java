@@ -1,17 +1,29 @@
 package com.hasandag.ecommerce.product.controller;
 
+import com.hasandag.ecommerce.product.dto.CursorPage;
 import com.hasandag.ecommerce.product.dto.ProductRequest;
 import com.hasandag.ecommerce.product.dto.ProductResponse;
+import com.hasandag.ecommerce.product.dto.ReviewSummaryResponse;
+import com.hasandag.ecommerce.product.dto.StockReservationRequest;
+import com.hasandag.ecommerce.product.dto.SuggestionResponse;
+import com.hasandag.ecommerce.product.model.ImageVariant;
+import com.hasandag.ecommerce.product.repository.ProductListingFilter;
+import com.hasandag.ecommerce.product.repository.ProductSortKey;
+import com.hasandag.ecommerce.product.search.ProductSearchCriteria;
+import com.hasandag.ecommerce.product.service.ImageStorageService;
 import com.hasandag.ecommerce.product.service.ProductService;
+import com.hasandag.ecommerce.product.service.ReviewService;
 import com.hasandag.ecommerce.shared.dto.dto.ApiResponse;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.security.SecurityRequirement;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import org.springframework.core.io.Resource;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Sort;
+import org.springframework.http.CacheControl;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
@@ -23,10 +35,9 @@ import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
 import java.math.BigDecimal;
-import java.nio.file.Files;
-import java.nio.file.Path;
-import java.nio.file.Paths;
+import java.time.Duration;
 import java.util.List;
+import java.util.Optional;
 
 @RestController
 @RequestMapping("/api/products")
@@ -35,6 +46,8 @@ import java.util.List;
 public class ProductController {
     
     private final ProductService productService;
+    private final ImageStorageService imageStorageService;
+    private final ReviewService reviewService;
     
     @PostMapping
     @PreAuthorize("hasRole('SELLER')")
@@ -80,6 +93,30 @@ public class ProductController {
         return ResponseEntity.ok(ApiResponse.success("Product deleted successfully", null));
     }
     
+    @PostMapping("/stock/reserve")
+    @PreAuthorize("hasRole('ADMIN')")
+    @SecurityRequirement(name = "bearerAuth")
+    @Operation(summary = "Reserve stock", description = "Takes stock for several products at once; either every item is reserved or none is")
+    public ResponseEntity<ApiResponse<List<ProductResponse>>> reserveStock(
+            @Valid @RequestBody StockReservationRequest request) {
+        
+        List<ProductResponse> products = productService.reserveStock(request.getItems());
+        
+        return ResponseEntity.ok(ApiResponse.success("Stock reserved successfully", products));
+    }
+    
+    @PostMapping("/stock/release")
+    @PreAuthorize("hasRole('ADMIN')")
+    @SecurityRequirement(name = "bearerAuth")
+    @Operation(summary = "Release stock", description = "Gives back stock taken by an earlier reservation")
+    public ResponseEntity<ApiResponse<Void>> releaseStock(
+            @Valid @RequestBody StockReservationRequest request) {
+        
+        productService.releaseStock(request.getItems());
+        
+        return ResponseEntity.ok(ApiResponse.success("Stock released successfully", null));
+    }
+    
     @GetMapping("/{id}")
     @Operation(summary = "Get a product by ID", description = "Retrieves a product by its ID")
     public ResponseEntity<ApiResponse<ProductResponse>> getProductById(@PathVariable String id) {
@@ -87,6 +124,13 @@ public class ProductController {
         return ResponseEntity.ok(ApiResponse.success(product));
     }
     
+    @GetMapping("/{id}/reviews/summary")
+    @Operation(summary = "Get a product's review summary", description = "Retrieves the star distribution, average rating, review count and latest approved review ids of a product")
+    public ResponseEntity<ApiResponse<ReviewSummaryResponse>> getReviewSummary(@PathVariable String id) {
+        ReviewSummaryResponse summary = reviewService.getReviewSummary(id);
+        return ResponseEntity.ok(ApiResponse.success(summary));
+    }
+    
     @GetMapping
     @Operation(summary = "Get all products", description = "Retrieves all products with pagination")
     public ResponseEntity<ApiResponse<Page<ProductResponse>>> getAllProducts(
@@ -102,19 +146,60 @@ public class ProductController {
         return ResponseEntity.ok(ApiResponse.success(products));
     }
     
+    @GetMapping("/cursor")
+    @Operation(summary = "Get all products by cursor", description = "Retrieves all products using keyset pagination; pass nextCursor back to get the following slice")
+    public ResponseEntity<ApiResponse<CursorPage<ProductResponse>>> getAllProductsByCursor(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "10") int size,
+            @RequestParam(defaultValue = "createdAt") String sort,
+            @RequestParam(defaultValue = "desc") String direction,
+            @RequestParam(defaultValue = "false") boolean includeTotal) {
+        
+        return cursorPage(ProductListingFilter.none(), cursor, size, sort, direction, includeTotal);
+    }
+    
+    @GetMapping("/available/cursor")
+    @Operation(summary = "Get available products by cursor", description = "Retrieves active, in-stock products using keyset pagination")
+    public ResponseEntity<ApiResponse<CursorPage<ProductResponse>>> getAvailableProductsByCursor(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "10") int size,
+            @RequestParam(defaultValue = "createdAt") String sort,
+            @RequestParam(defaultValue = "desc") String direction,
+            @RequestParam(defaultValue = "false") boolean includeTotal) {
+        
+        ProductListingFilter filter = new ProductListingFilter(null, false, null, null, null, true);
+        return cursorPage(filter, cursor, size, sort, direction, includeTotal);
+    }
+    
     @GetMapping("/category/{categoryId}")
-    @Operation(summary = "Get products by category", description = "Retrieves all products in a specific category")
+    @Operation(summary = "Get products by category", description = "Retrieves all products in a specific category, optionally including its subcategories")
     public ResponseEntity<ApiResponse<Page<ProductResponse>>> getProductsByCategory(
             @PathVariable String categoryId,
             @RequestParam(defaultValue = "0") int page,
-            @RequestParam(defaultValue = "10") int size) {
+            @RequestParam(defaultValue = "10") int size,
+            @RequestParam(defaultValue = "false") boolean includeSubcategories) {
         
         PageRequest pageRequest = PageRequest.of(page, size);
-        Page<ProductResponse> products = productService.getProductsByCategory(categoryId, pageRequest);
+        Page<ProductResponse> products = includeSubcategories
+                ? productService.getProductsByCategoryTree(categoryId, pageRequest)
+                : productService.getProductsByCategory(categoryId, pageRequest);
         
         return ResponseEntity.ok(ApiResponse.success(products));
     }
     
+    @GetMapping("/category/{categoryId}/cursor")
+    @Operation(summary = "Get products by category by cursor", description = "Retrieves products in a specific category using keyset pagination")
+    public ResponseEntity<ApiResponse<CursorPage<ProductResponse>>> getProductsByCategoryByCursor(
+            @PathVariable String categoryId,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "10") int size,
+            @RequestParam(defaultValue = "false") boolean includeSubcategories,
+            @RequestParam(defaultValue = "false") boolean includeTotal) {
+        
+        ProductListingFilter filter = new ProductListingFilter(categoryId, includeSubcategories, null, null, null, false);
+        return cursorPage(filter, cursor, size, "createdAt", "desc", includeTotal);
+    }
+    
     @GetMapping("/seller/{sellerId}")
     @Operation(summary = "Get products by seller", description = "Retrieves all products from a specific seller")
     public ResponseEntity<ApiResponse<Page<ProductResponse>>> getProductsBySeller(
@@ -128,19 +213,47 @@ public class ProductController {
         return ResponseEntity.ok(ApiResponse.success(products));
     }
     
+    @GetMapping("/seller/{sellerId}/cursor")
+    @Operation(summary = "Get products by seller by cursor", description = "Retrieves products from a specific seller using keyset pagination")
+    public ResponseEntity<ApiResponse<CursorPage<ProductResponse>>> getProductsBySellerByCursor(
+            @PathVariable String sellerId,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "10") int size,
+            @RequestParam(defaultValue = "false") boolean includeTotal) {
+        
+        ProductListingFilter filter = new ProductListingFilter(null, false, sellerId, null, null, false);
+        return cursorPage(filter, cursor, size, "createdAt", "desc", includeTotal);
+    }
+    
     @GetMapping("/search")
-    @Operation(summary = "Search products by name", description = "Searches for products containing the given name")
+    @Operation(summary = "Search products", description = "Full-text search over product names and descriptions, tolerant of prefixes and typos, with optional category, price and availability filters")
     public ResponseEntity<ApiResponse<Page<ProductResponse>>> searchProductsByName(
             @RequestParam String name,
+            @RequestParam(required = false) String categoryId,
+            @RequestParam(required = false) BigDecimal minPrice,
+            @RequestParam(required = false) BigDecimal maxPrice,
+            @RequestParam(defaultValue = "false") boolean inStock,
             @RequestParam(defaultValue = "0") int page,
             @RequestParam(defaultValue = "10") int size) {
         
         PageRequest pageRequest = PageRequest.of(page, size);
-        Page<ProductResponse> products = productService.searchProductsByName(name, pageRequest);
+        ProductSearchCriteria criteria = new ProductSearchCriteria(name, categoryId, minPrice, maxPrice, inStock);
+        Page<ProductResponse> products = productService.searchProducts(criteria, pageRequest);
         
         return ResponseEntity.ok(ApiResponse.success(products));
     }
     
+    @GetMapping("/suggest")
+    @Operation(summary = "Autocomplete", description = "Suggests product and category names with a word starting with the given prefix, most popular first")
+    public ResponseEntity<ApiResponse<List<SuggestionResponse>>> suggest(
+            @RequestParam String q,
+            @RequestParam(defaultValue = "10") int limit) {
+        
+        List<SuggestionResponse> suggestions = productService.suggest(q, Math.min(limit, 10));
+        
+        return ResponseEntity.ok(ApiResponse.success(suggestions));
+    }
+    
     @GetMapping("/price-range")
     @Operation(summary = "Get products by price range", description = "Retrieves products within the specified price range")
     public ResponseEntity<ApiResponse<Page<ProductResponse>>> getProductsByPriceRange(
@@ -155,6 +268,19 @@ public class ProductController {
         return ResponseEntity.ok(ApiResponse.success(products));
     }
     
+    @GetMapping("/price-range/cursor")
+    @Operation(summary = "Get products by price range by cursor", description = "Retrieves available products within the specified price range using keyset pagination")
+    public ResponseEntity<ApiResponse<CursorPage<ProductResponse>>> getProductsByPriceRangeByCursor(
+            @RequestParam BigDecimal minPrice,
+            @RequestParam BigDecimal maxPrice,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "10") int size,
+            @RequestParam(defaultValue = "false") boolean includeTotal) {
+        
+        ProductListingFilter filter = new ProductListingFilter(null, false, null, minPrice, maxPrice, true);
+        return cursorPage(filter, cursor, size, "createdAt", "desc", includeTotal);
+    }
+    
     @GetMapping("/category/{categoryId}/price-range")
     @Operation(summary = "Get products by category and price range", description = "Retrieves products in a specific category and within the specified price range")
     public ResponseEntity<ApiResponse<Page<ProductResponse>>> getProductsByCategoryAndPriceRange(
@@ -170,6 +296,21 @@ public class ProductController {
         return ResponseEntity.ok(ApiResponse.success(products));
     }
     
+    @GetMapping("/category/{categoryId}/price-range/cursor")
+    @Operation(summary = "Get products by category and price range by cursor", description = "Retrieves available products in a specific category and price range using keyset pagination")
+    public ResponseEntity<ApiResponse<CursorPage<ProductResponse>>> getProductsByCategoryAndPriceRangeByCursor(
+            @PathVariable String categoryId,
+            @RequestParam BigDecimal minPrice,
+            @RequestParam BigDecimal maxPrice,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "10") int size,
+            @RequestParam(defaultValue = "false") boolean includeSubcategories,
+            @RequestParam(defaultValue = "false") boolean includeTotal) {
+        
+        ProductListingFilter filter = new ProductListingFilter(categoryId, includeSubcategories, null, minPrice, maxPrice, true);
+        return cursorPage(filter, cursor, size, "createdAt", "desc", includeTotal);
+    }
+    
     @GetMapping("/new-arrivals")
     @Operation(summary = "Get new arrivals", description = "Retrieves the 10 most recently added products")
     public ResponseEntity<ApiResponse<List<ProductResponse>>> getNewArrivals() {
@@ -215,23 +356,32 @@ public class ProductController {
     }
     
     @GetMapping("/images/{filename:.+}")
-    @Operation(summary = "Get product image", description = "Retrieves a product image by filename")
-    public ResponseEntity<byte[]> getProductImage(@PathVariable String filename) throws IOException {
-        String uploadDir = System.getProperty("app.upload.dir", "uploads/products");
-        Path imagePath = Paths.get(uploadDir, filename);
+    @Operation(summary = "Get product image", description = "Retrieves a product image by filename, optionally as a resized variant (size=thumbnail|medium)")
+    public ResponseEntity<Resource> getProductImage(
+            @PathVariable String filename,
+            @RequestParam(required = false) String size) throws IOException {
+        
+        Optional<Resource> image = imageStorageService.loadImage(filename, ImageVariant.fromSize(size));
         
-        if (!Files.exists(imagePath)) {
+        if (image.isEmpty()) {
             return ResponseEntity.notFound().build();
         }
         
-        byte[] imageBytes = Files.readAllBytes(imagePath);
+        Resource resource = image.get();
+        long lastModified = resource.lastModified();
+        long contentLength = resource.contentLength();
         
         // Determine content type based on file extension
         String contentType = determineContentType(filename);
         
+        // ETag and Last-Modified let Spring answer If-None-Match / If-Modified-Since with 304,
+        // and returning a Resource body enables Range (206) responses without buffering the file
         return ResponseEntity.ok()
                 .contentType(MediaType.parseMediaType(contentType))
-                .body(imageBytes);
+                .eTag(Long.toHexString(contentLength) + "-" + Long.toHexString(lastModified))
+                .lastModified(lastModified)
+                .cacheControl(CacheControl.maxAge(Duration.ofDays(7)).cachePublic())
+                .body(resource);
     }
     
     private String determineContentType(String filename) {
@@ -250,4 +400,17 @@ public class ProductController {
                 return "application/octet-stream";
         }
     }
-} 
\ No newline at end of file
+    
+    private ResponseEntity<ApiResponse<CursorPage<ProductResponse>>> cursorPage(
+            ProductListingFilter filter, String cursor, int size, String sort, String direction, boolean includeTotal) {
+        
+        if (size < 1 || size > 100) {
+            throw new IllegalArgumentException("Page size must be between 1 and 100");
+        }
+        Sort.Direction sortDirection = direction.equalsIgnoreCase("asc") ? Sort.Direction.ASC : Sort.Direction.DESC;
+        CursorPage<ProductResponse> products = productService.getProductsByCursor(
+                filter, ProductSortKey.fromField(sort), sortDirection, cursor, size, includeTotal);
+        
+        return ResponseEntity.ok(ApiResponse.success(products));
+    }
+}
\ No newline at end of file
@@ -1,5 +1,7 @@
 package com.hasandag.ecommerce.product.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.hasandag.ecommerce.product.dto.CursorPage;
 import com.hasandag.ecommerce.product.dto.ReviewRequest;
 import com.hasandag.ecommerce.product.dto.ReviewResponse;
 import com.hasandag.ecommerce.product.service.ReviewService;
@@ -12,11 +14,16 @@ import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.security.oauth2.jwt.Jwt;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.util.Iterator;
+import java.util.stream.Stream;
 
 @RestController
 @RequestMapping("/api/reviews")
@@ -25,6 +32,7 @@ import org.springframework.web.bind.annotation.*;
 public class ReviewController {
 
     private final ReviewService reviewService;
+    private final ObjectMapper objectMapper;
 
     @PostMapping
     @PreAuthorize("hasRole('CUSTOMER')")
@@ -105,6 +113,38 @@ public class ReviewController {
         return ResponseEntity.ok(ApiResponse.success(reviews));
     }
 
+    @GetMapping("/user/{userId}/cursor")
+    @Operation(summary = "Get reviews by user by cursor", description = "Retrieves a user's reviews newest first, at most 100 per call; pass nextCursor back to get the following slice")
+    public ResponseEntity<ApiResponse<CursorPage<ReviewResponse>>> getReviewsByUserByCursor(
+            @PathVariable String userId,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int size) {
+        
+        CursorPage<ReviewResponse> reviews = reviewService.getReviewsByUserId(userId, cursor, size);
+        
+        return ResponseEntity.ok(ApiResponse.success(reviews));
+    }
+
+    @GetMapping(value = "/user/{userId}/export", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    @Operation(summary = "Export reviews by user", description = "Streams all reviews of a user as newline-delimited JSON, newest first")
+    public ResponseEntity<StreamingResponseBody> exportReviewsByUser(@PathVariable String userId) {
+        // Reviews are read from the database cursor only as fast as the client consumes the response
+        StreamingResponseBody body = outputStream -> {
+            try (Stream<ReviewResponse> reviews = reviewService.streamReviewsByUserId(userId)) {
+                Iterator<ReviewResponse> iterator = reviews.iterator();
+                while (iterator.hasNext()) {
+                    outputStream.write(objectMapper.writeValueAsBytes(iterator.next()));
+                    outputStream.write('\n');
+                }
+                outputStream.flush();
+            }
+        };
+        
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(body);
+    }
+
     @GetMapping("/rating/{rating}")
     @Operation(summary = "Get reviews by rating", description = "Retrieves all reviews with a specific rating")
     public ResponseEntity<ApiResponse<Page<ReviewResponse>>> getReviewsByRating(
@@ -0,0 +1,55 @@
+package com.hasandag.ecommerce.product.controller;
+
+import com.hasandag.ecommerce.product.dto.StockReservationRequest;
+import com.hasandag.ecommerce.product.dto.StockReservationResponse;
+import com.hasandag.ecommerce.product.service.StockReservationService;
+import com.hasandag.ecommerce.shared.dto.dto.ApiResponse;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.security.SecurityRequirement;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+@RestController
+@RequestMapping("/api/stock-reservations")
+@RequiredArgsConstructor
+@PreAuthorize("hasRole('ADMIN')")
+@SecurityRequirement(name = "bearerAuth")
+@Tag(name = "Stock Reservation API", description = "Endpoints for holding product stock for orders")
+public class StockReservationController {
+
+    private final StockReservationService stockReservationService;
+
+    @PutMapping("/{orderId}")
+    @Operation(summary = "Reserve stock for an order", description = "Holds stock for all items until the reservation is confirmed, released or expires; repeating the call returns the existing reservation")
+    public ResponseEntity<ApiResponse<StockReservationResponse>> reserve(
+            @PathVariable String orderId,
+            @Valid @RequestBody StockReservationRequest request) {
+        StockReservationResponse reservation = stockReservationService.reserve(orderId, request.getItems());
+        return ResponseEntity.ok(ApiResponse.success("Stock reserved successfully", reservation));
+    }
+
+    @PostMapping("/{orderId}/confirm")
+    @Operation(summary = "Confirm a stock reservation", description = "Makes the reserved stock permanent so it no longer expires")
+    public ResponseEntity<ApiResponse<StockReservationResponse>> confirm(@PathVariable String orderId) {
+        StockReservationResponse reservation = stockReservationService.confirm(orderId);
+        return ResponseEntity.ok(ApiResponse.success("Stock reservation confirmed", reservation));
+    }
+
+    @DeleteMapping("/{orderId}")
+    @Operation(summary = "Release a stock reservation", description = "Returns the reserved stock; releasing twice has no further effect")
+    public ResponseEntity<ApiResponse<StockReservationResponse>> release(@PathVariable String orderId) {
+        StockReservationResponse reservation = stockReservationService.release(orderId);
+        return ResponseEntity.ok(ApiResponse.success("Stock reservation released", reservation));
+    }
+
+    @GetMapping("/{orderId}")
+    @Operation(summary = "Get a stock reservation", description = "Retrieves the stock reservation of an order")
+    public ResponseEntity<ApiResponse<StockReservationResponse>> getReservation(@PathVariable String orderId) {
+        StockReservationResponse reservation = stockReservationService.getReservation(orderId);
+        return ResponseEntity.ok(ApiResponse.success(reservation));
+    }
+}
@@ -17,6 +17,7 @@ public class CategoryResponse {
     private String name;
     private String description;
     private String parentId;
+    private List<String> ancestorIds;
     private List<String> subCategoryIds;
     private String imageUrl;
     private boolean active;
@@ -0,0 +1,22 @@
+package com.hasandag.ecommerce.product.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class CategoryTreeNode {
+    private String id;
+    private String name;
+    private String imageUrl;
+    private boolean active;
+    @Builder.Default
+    private List<CategoryTreeNode> children = new ArrayList<>();
+}
@@ -0,0 +1,25 @@
+package com.hasandag.ecommerce.product.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * One slice of a keyset-paginated listing. Pass {@code nextCursor} back to fetch the
+ * following slice; it is {@code null} on the last one. {@code totalElements} is only
+ * filled in when requested and may be an estimate for unfiltered listings.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class CursorPage<T> {
+    private List<T> content;
+    private int size;
+    private String nextCursor;
+    private boolean hasNext;
+    private Long totalElements;
+}
@@ -0,0 +1,21 @@
+package com.hasandag.ecommerce.product.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+import java.util.Map;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ReviewSummaryResponse {
+    private String productId;
+    private double averageRating;
+    private long ratingCount;
+    private Map<Integer, Long> histogram;
+    private List<String> latestReviewIds;
+}
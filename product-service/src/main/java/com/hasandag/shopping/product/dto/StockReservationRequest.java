@@ -0,0 +1,20 @@
+package com.hasandag.ecommerce.product.dto;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class StockReservationRequest {
+    
+    @NotEmpty(message = "At least one item is required")
+    private List<@Valid StockItem> items;
+}
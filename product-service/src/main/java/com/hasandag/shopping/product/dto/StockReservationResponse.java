@@ -0,0 +1,21 @@
+package com.hasandag.ecommerce.product.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class StockReservationResponse {
+    private String orderId;
+    private String status;
+    private List<StockItem> items;
+    private LocalDateTime expiresAt;
+    private LocalDateTime createdAt;
+}
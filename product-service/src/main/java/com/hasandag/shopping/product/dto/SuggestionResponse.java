@@ -0,0 +1,16 @@
+package com.hasandag.ecommerce.product.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class SuggestionResponse {
+    private String text;
+    private String type;
+    private String id;
+}
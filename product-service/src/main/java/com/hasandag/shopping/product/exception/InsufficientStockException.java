@@ -0,0 +1,16 @@
+package com.hasandag.ecommerce.product.exception;
+
+import lombok.Getter;
+
+@Getter
+public class InsufficientStockException extends RuntimeException {
+    
+    private final String productId;
+    private final int requested;
+    
+    public InsufficientStockException(String productId, int requested) {
+        super("Insufficient stock for product " + productId + ": " + requested + " requested");
+        this.productId = productId;
+        this.requested = requested;
+    }
+}
@@ -0,0 +1,8 @@
+package com.hasandag.ecommerce.product.exception;
+
+public class StockReservationException extends RuntimeException {
+    
+    public StockReservationException(String message) {
+        super(message);
+    }
+}
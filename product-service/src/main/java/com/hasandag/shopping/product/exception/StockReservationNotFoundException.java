@@ -0,0 +1,8 @@
+package com.hasandag.ecommerce.product.exception;
+
+public class StockReservationNotFoundException extends RuntimeException {
+    
+    public StockReservationNotFoundException(String message) {
+        super(message);
+    }
+}
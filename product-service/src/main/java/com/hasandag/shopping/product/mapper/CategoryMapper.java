@@ -17,6 +17,7 @@ import java.util.List;
 public interface CategoryMapper {
     
     @Mapping(target = "id", ignore = true)
+    @Mapping(target = "ancestorIds", ignore = true)
     @Mapping(target = "subCategoryIds", ignore = true)
     @Mapping(target = "createdAt", ignore = true)
     @Mapping(target = "updatedAt", ignore = true)
@@ -27,6 +28,7 @@ public interface CategoryMapper {
     List<CategoryResponse> toDtoList(List<Category> categories);
     
     @Mapping(target = "id", ignore = true)
+    @Mapping(target = "ancestorIds", ignore = true)
     @Mapping(target = "subCategoryIds", ignore = true)
     @Mapping(target = "createdAt", ignore = true)
     @Mapping(target = "updatedAt", ignore = true)
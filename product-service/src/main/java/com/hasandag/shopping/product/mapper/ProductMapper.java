@@ -19,6 +19,7 @@ public interface ProductMapper {
     
     @Mapping(target = "id", ignore = true)
     @Mapping(target = "sellerId", ignore = true)
+    @Mapping(target = "categoryPath", ignore = true)
     @Mapping(target = "averageRating", ignore = true)
     @Mapping(target = "reviewCount", ignore = true)
     @Mapping(target = "createdAt", ignore = true)
@@ -30,6 +31,7 @@ public interface ProductMapper {
     List<ProductResponse> toResponseList(List<Product> products);
     
     @Mapping(target = "id", ignore = true)
+    @Mapping(target = "categoryPath", ignore = true)
     @Mapping(target = "createdAt", ignore = true)
     @Mapping(target = "updatedAt", ignore = true)
     void updateProductFromRequest(ProductRequest productRequest, @MappingTarget Product product);
@@ -29,13 +29,20 @@ public class Category {
     
     private String description;
     
+    @Indexed
     private String parentId;
     
+    // Ids from the root category down to the parent; empty for root categories
+    @Indexed
+    @Builder.Default
+    private List<String> ancestorIds = new ArrayList<>();
+    
     @Builder.Default
     private List<String> subCategoryIds = new ArrayList<>();
     
     private String imageUrl;
     
+    @Indexed
     @Builder.Default
     private boolean active = true;
     
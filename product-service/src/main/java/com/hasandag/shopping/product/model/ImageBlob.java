@@ -0,0 +1,31 @@
+package com.hasandag.ecommerce.product.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.LocalDateTime;
+
+/**
+ * Reference count of a content-addressed image file. The id is the stored filename,
+ * i.e. the SHA-256 of the content followed by the original extension.
+ */
+@Document(collection = "image_blobs")
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ImageBlob {
+    
+    @Id
+    private String id;
+    
+    private long refCount;
+    
+    private long size;
+    
+    private LocalDateTime createdAt;
+}
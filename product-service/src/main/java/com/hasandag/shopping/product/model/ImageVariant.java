@@ -0,0 +1,46 @@
+package com.hasandag.ecommerce.product.model;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+import java.util.Arrays;
+
+@Getter
+@RequiredArgsConstructor
+public enum ImageVariant {
+    
+    ORIGINAL("original", 0),
+    THUMBNAIL("thumbnail", 240),
+    MEDIUM("medium", 800);
+    
+    private final String suffix;
+    private final int maxWidth;
+    
+    public boolean isResized() {
+        return maxWidth > 0;
+    }
+    
+    /**
+     * Builds the filename of this variant for a stored image, e.g. {@code abc.jpg -> abc_thumbnail.jpg}.
+     */
+    public String filenameFor(String filename) {
+        if (!isResized()) {
+            return filename;
+        }
+        int dot = filename.lastIndexOf('.');
+        if (dot < 0) {
+            return filename + "_" + suffix;
+        }
+        return filename.substring(0, dot) + "_" + suffix + filename.substring(dot);
+    }
+    
+    public static ImageVariant fromSize(String size) {
+        if (size == null || size.isBlank()) {
+            return ORIGINAL;
+        }
+        return Arrays.stream(values())
+                .filter(variant -> variant.suffix.equalsIgnoreCase(size) || variant.name().equalsIgnoreCase(size))
+                .findFirst()
+                .orElseThrow(() -> new IllegalArgumentException("Unknown image size: " + size));
+    }
+}
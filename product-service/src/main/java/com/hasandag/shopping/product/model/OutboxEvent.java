@@ -0,0 +1,46 @@
+package com.hasandag.ecommerce.product.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.LocalDateTime;
+
+/**
+ * A Kafka message waiting to be sent. Rows are written next to the change they describe and
+ * picked up by the relay; a relay node holds a row while {@code claimedUntil} lies in the
+ * future, and published rows are removed by a TTL index once {@code purgeAt} has passed.
+ */
+@Document(collection = "outbox_events")
+@CompoundIndex(name = "publishedAt_createdAt", def = "{'publishedAt': 1, 'createdAt': 1}")
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class OutboxEvent {
+    
+    @Id
+    private String id;
+    
+    private String topic;
+    
+    private String messageKey;
+    
+    private String payload;
+    
+    private LocalDateTime createdAt;
+    
+    private LocalDateTime publishedAt;
+    
+    private String claimToken;
+    
+    private LocalDateTime claimedUntil;
+    
+    @Indexed(expireAfter = "0s")
+    private LocalDateTime purgeAt;
+}
@@ -7,7 +7,8 @@ import lombok.NoArgsConstructor;
 import org.springframework.data.annotation.CreatedDate;
 import org.springframework.data.annotation.Id;
 import org.springframework.data.annotation.LastModifiedDate;
-import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.CompoundIndexes;
 import org.springframework.data.mongodb.core.mapping.Document;
 
 import java.math.BigDecimal;
@@ -16,16 +17,39 @@ import java.util.ArrayList;
 import java.util.List;
 
 @Document(collection = "products")
+// Index plan for ProductRepository: equality fields first, then the sort key with _id as
+// tiebreaker, then range fields. The "available" indexes are partial on the filter every
+// storefront listing shares, so they stay small. Verified by RepositoryQueryPlanTest.
+@CompoundIndexes({
+        @CompoundIndex(name = "createdAt_id", def = "{'createdAt': -1, '_id': -1}"),
+        @CompoundIndex(name = "averageRating_id", def = "{'averageRating': -1, '_id': -1}"),
+        @CompoundIndex(name = "categoryId_createdAt_id", def = "{'categoryId': 1, 'createdAt': -1, '_id': -1}"),
+        @CompoundIndex(name = "categoryPath_createdAt_id", def = "{'categoryPath': 1, 'createdAt': -1, '_id': -1}"),
+        @CompoundIndex(name = "sellerId_createdAt_id", def = "{'sellerId': 1, 'createdAt': -1, '_id': -1}"),
+        @CompoundIndex(name = "available_price", def = "{'price': 1}",
+                partialFilter = Product.AVAILABLE_FILTER),
+        @CompoundIndex(name = "available_categoryId_price", def = "{'categoryId': 1, 'price': 1}",
+                partialFilter = Product.AVAILABLE_FILTER),
+        @CompoundIndex(name = "available_createdAt_id_price", def = "{'createdAt': -1, '_id': -1, 'price': 1}",
+                partialFilter = Product.AVAILABLE_FILTER),
+        @CompoundIndex(name = "available_averageRating_id", def = "{'averageRating': -1, '_id': -1}",
+                partialFilter = Product.AVAILABLE_FILTER),
+        @CompoundIndex(name = "available_categoryId_createdAt_id_price", def = "{'categoryId': 1, 'createdAt': -1, '_id': -1, 'price': 1}",
+                partialFilter = Product.AVAILABLE_FILTER),
+        @CompoundIndex(name = "available_categoryPath_createdAt_id_price", def = "{'categoryPath': 1, 'createdAt': -1, '_id': -1, 'price': 1}",
+                partialFilter = Product.AVAILABLE_FILTER)
+})
 @Data
 @Builder
 @NoArgsConstructor
 @AllArgsConstructor
 public class Product {
     
+    static final String AVAILABLE_FILTER = "{'active': true, 'stockQuantity': {'$gt': 0}}";
+    
     @Id
     private String id;
     
-    @Indexed
     private String name;
     
     private String description;
@@ -34,10 +58,16 @@ public class Product {
     
     private Integer stockQuantity;
     
-    @Indexed
+    // Bumped by every write to the product and carried on stock events to order them;
+    // full replaces are conditional on it
+    private long stockVersion;
+    
     private String categoryId;
     
-    @Indexed
+    // Ancestors of the category from the root down, then the category itself
+    @Builder.Default
+    private List<String> categoryPath = new ArrayList<>();
+    
     private String sellerId;
     
     @Builder.Default
@@ -7,12 +7,21 @@ import lombok.NoArgsConstructor;
 import org.springframework.data.annotation.CreatedDate;
 import org.springframework.data.annotation.Id;
 import org.springframework.data.annotation.LastModifiedDate;
-import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.CompoundIndexes;
 import org.springframework.data.mongodb.core.mapping.Document;
 
 import java.time.LocalDateTime;
 
 @Document(collection = "reviews")
+// Index plan for ReviewRepository, verified by RepositoryQueryPlanTest
+@CompoundIndexes({
+        @CompoundIndex(name = "productId_approved_createdAt", def = "{'productId': 1, 'approved': 1, 'createdAt': -1}"),
+        @CompoundIndex(name = "productId_userId", def = "{'productId': 1, 'userId': 1}"),
+        @CompoundIndex(name = "userId_createdAt_id", def = "{'userId': 1, 'createdAt': -1, '_id': -1}"),
+        @CompoundIndex(name = "approved_createdAt", def = "{'approved': 1, 'createdAt': -1}"),
+        @CompoundIndex(name = "rating_createdAt", def = "{'rating': 1, 'createdAt': -1}")
+})
 @Data
 @Builder
 @NoArgsConstructor
@@ -22,10 +31,8 @@ public class Review {
     @Id
     private String id;
     
-    @Indexed
     private String productId;
     
-    @Indexed
     private String userId;
     
     private String title;
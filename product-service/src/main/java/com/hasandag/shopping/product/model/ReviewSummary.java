@@ -0,0 +1,51 @@
+package com.hasandag.ecommerce.product.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Running totals of a product's approved reviews, keyed by product id. Maintained with
+ * atomic increments on every approval state change; {@code histogram} maps each star
+ * rating ("1".."5") to its number of reviews and {@code latestReviewIds} holds the most
+ * recently approved reviews, newest first.
+ */
+@Document(collection = "review_summaries")
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ReviewSummary {
+    
+    @Id
+    private String productId;
+    
+    private long ratingCount;
+    
+    private long ratingSum;
+    
+    @Builder.Default
+    private Map<String, Long> histogram = new HashMap<>();
+    
+    @Builder.Default
+    private List<String> latestReviewIds = new ArrayList<>();
+    
+    private LocalDateTime updatedAt;
+    
+    public double averageRating() {
+        return ratingCount > 0 ? (double) ratingSum / ratingCount : 0.0;
+    }
+    
+    public static ReviewSummary empty(String productId) {
+        return ReviewSummary.builder().productId(productId).build();
+    }
+}
@@ -0,0 +1,75 @@
+package com.hasandag.ecommerce.product.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Stock held for one order, keyed by order id. A reservation is recorded {@code PENDING}
+ * before any stock is taken, lists each item in {@code takenItems} right after taking its
+ * stock, and becomes {@code RESERVED} once all of it is taken; it then either gets
+ * confirmed by the order, released by it, or expires. A reservation left pending by a crash
+ * is failed by the recovery sweep. The stock of released, expired and failed reservations
+ * goes back to the products and {@code stockReturned} records that it did, so a crash
+ * between the two steps is finished by the recovery sweep. Finished reservations
+ * are kept for {@code purgeAt} and then removed by a TTL index, so retries arriving late
+ * still find them.
+ */
+@Document(collection = "stock_reservations")
+@CompoundIndex(name = "status_expiresAt", def = "{'status': 1, 'expiresAt': 1}")
+@CompoundIndex(name = "status_updatedAt", def = "{'status': 1, 'updatedAt': 1}")
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class StockReservation {
+    
+    public enum Status {
+        PENDING,
+        RESERVED,
+        CONFIRMED,
+        RELEASED,
+        EXPIRED,
+        FAILED
+    }
+    
+    @Id
+    private String orderId;
+    
+    @Builder.Default
+    private List<Item> items = new ArrayList<>();
+    
+    @Builder.Default
+    private List<Item> takenItems = new ArrayList<>();
+    
+    private Status status;
+    
+    private LocalDateTime expiresAt;
+    
+    private boolean stockReturned;
+    
+    @Indexed(expireAfter = "0s")
+    private LocalDateTime purgeAt;
+    
+    private LocalDateTime createdAt;
+    
+    private LocalDateTime updatedAt;
+    
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Item {
+        private String productId;
+        private int quantity;
+    }
+}
@@ -0,0 +1,145 @@
+package com.hasandag.ecommerce.product.outbox;
+
+import com.hasandag.ecommerce.product.model.OutboxEvent;
+import com.hasandag.ecommerce.product.repository.OutboxEventRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Sends outbox rows to Kafka in batches. All sends of a batch are handed to the producer
+ * before waiting on any of them, so they share requests according to the producer's linger
+ * and batch size. Only acknowledged rows are marked published; the rest are retried once
+ * their lease runs out, which makes delivery at-least-once; consumers dedupe on the event id.
+ * <p>
+ * Runs on its own single-thread scheduler rather than the shared {@code @Scheduled} one, so a
+ * broker outage that keeps the producer blocked cannot delay the other periodic jobs.
+ */
+@Component
+@ConditionalOnProperty(name = "app.outbox.relay.enabled", havingValue = "true", matchIfMissing = true)
+@Slf4j
+public class OutboxRelay {
+    
+    private final OutboxEventRepository outboxEventRepository;
+    private final KafkaTemplate<String, String> kafkaTemplate;
+    private final Counter publishedCounter;
+    private final Counter failedCounter;
+    private final AtomicLong lagSeconds = new AtomicLong();
+    private final AtomicLong pending = new AtomicLong();
+    
+    private final ThreadPoolTaskScheduler scheduler = new ThreadPoolTaskScheduler();
+    
+    @Value("${app.outbox.relay.interval-ms:1000}")
+    private long intervalMs;
+    
+    @Value("${app.outbox.relay.batch-size:500}")
+    private int batchSize;
+    
+    @Value("${app.outbox.relay.lease:30s}")
+    private Duration lease;
+    
+    @Value("${app.outbox.retention:1d}")
+    private Duration retention;
+    
+    public OutboxRelay(OutboxEventRepository outboxEventRepository,
+                       KafkaTemplate<String, String> kafkaTemplate,
+                       MeterRegistry meterRegistry) {
+        this.outboxEventRepository = outboxEventRepository;
+        this.kafkaTemplate = kafkaTemplate;
+        this.publishedCounter = Counter.builder("product.outbox.published")
+                .description("Outbox events acknowledged by Kafka")
+                .register(meterRegistry);
+        this.failedCounter = Counter.builder("product.outbox.failed")
+                .description("Outbox events whose send failed and will be retried")
+                .register(meterRegistry);
+        Gauge.builder("product.outbox.lag.seconds", lagSeconds, AtomicLong::get)
+                .description("Age of the oldest outbox event not yet published")
+                .register(meterRegistry);
+        Gauge.builder("product.outbox.pending", pending, AtomicLong::get)
+                .description("Outbox events not yet published")
+                .register(meterRegistry);
+    }
+    
+    @PostConstruct
+    public void start() {
+        Duration interval = Duration.ofMillis(intervalMs);
+        scheduler.setPoolSize(1);
+        scheduler.setThreadNamePrefix("outbox-relay-");
+        scheduler.initialize();
+        scheduler.scheduleWithFixedDelay(this::relay, Instant.now().plus(interval), interval);
+    }
+    
+    @PreDestroy
+    public void stop() {
+        scheduler.shutdown();
+    }
+    
+    public void relay() {
+        String claimToken = UUID.randomUUID().toString();
+        List<OutboxEvent> batch;
+        // Keep draining while batches come back full, so a backlog does not wait for the next tick
+        do {
+            LocalDateTime now = LocalDateTime.now();
+            batch = outboxEventRepository.claimBatch(claimToken, now, now.plus(lease), batchSize);
+            if (!batch.isEmpty() && publish(batch) < batch.size()) {
+                break;
+            }
+        } while (batch.size() == batchSize);
+        updateLag();
+    }
+    
+    private int publish(List<OutboxEvent> batch) {
+        List<CompletableFuture<?>> sends = new ArrayList<>(batch.size());
+        for (OutboxEvent event : batch) {
+            sends.add(kafkaTemplate.send(event.getTopic(), event.getMessageKey(), event.getPayload()));
+        }
+        kafkaTemplate.flush();
+        
+        List<String> published = new ArrayList<>(batch.size());
+        long deadline = System.nanoTime() + lease.toNanos();
+        for (int i = 0; i < batch.size(); i++) {
+            try {
+                sends.get(i).get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+                published.add(batch.get(i).getId());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } catch (ExecutionException | TimeoutException e) {
+                log.warn("Failed to publish outbox event {} to {}: {}", batch.get(i).getId(), batch.get(i).getTopic(), e.getMessage());
+            }
+        }
+        
+        LocalDateTime now = LocalDateTime.now();
+        outboxEventRepository.markPublished(published, now, now.plus(retention));
+        publishedCounter.increment(published.size());
+        failedCounter.increment(batch.size() - published.size());
+        log.debug("Published {} of {} outbox events", published.size(), batch.size());
+        return published.size();
+    }
+    
+    private void updateLag() {
+        OutboxEvent oldest = outboxEventRepository.findFirstByPublishedAtIsNullOrderByCreatedAtAsc();
+        lagSeconds.set(oldest == null ? 0 : Math.max(0, Duration.between(oldest.getCreatedAt(), LocalDateTime.now()).toSeconds()));
+        pending.set(oldest == null ? 0 : outboxEventRepository.countByPublishedAtIsNull());
+    }
+}
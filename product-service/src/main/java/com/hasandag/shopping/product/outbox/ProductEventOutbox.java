@@ -0,0 +1,95 @@
+package com.hasandag.ecommerce.product.outbox;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.hasandag.ecommerce.product.model.OutboxEvent;
+import com.hasandag.ecommerce.product.model.Product;
+import com.hasandag.ecommerce.product.repository.OutboxEventRepository;
+import com.hasandag.ecommerce.shared.dto.event.KafkaTopics;
+import com.hasandag.ecommerce.shared.dto.event.ProductStockChangedEvent;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.MongoDatabaseFactory;
+import org.springframework.data.mongodb.MongoTransactionManager;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+import java.util.function.Supplier;
+
+/**
+ * Records product events in the outbox collection, from where {@link OutboxRelay} sends them
+ * to Kafka. With {@code app.outbox.transactional} the change and its outbox row are written
+ * in one Mongo transaction, which needs a replica set; without it the row is written right
+ * after the change, so a crash in between can lose the event but never send one for a
+ * change that did not happen. Likewise a failed outbox write only loses the event there:
+ * the change is already applied, and failing the caller would hide that it was.
+ */
+@Component
+@Slf4j
+public class ProductEventOutbox {
+    
+    private final OutboxEventRepository outboxEventRepository;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate transactionTemplate;
+    
+    public ProductEventOutbox(OutboxEventRepository outboxEventRepository,
+                              ObjectMapper objectMapper,
+                              MongoDatabaseFactory mongoDatabaseFactory,
+                              @Value("${app.outbox.transactional:false}") boolean transactional) {
+        this.outboxEventRepository = outboxEventRepository;
+        this.objectMapper = objectMapper;
+        // Kept private: registering a transaction manager bean would turn on every @Transactional in the service
+        this.transactionTemplate = transactional
+                ? new TransactionTemplate(new MongoTransactionManager(mongoDatabaseFactory))
+                : null;
+    }
+    
+    /**
+     * Runs a change together with the outbox writes it makes.
+     */
+    public <T> T inTransaction(Supplier<T> change) {
+        return transactionTemplate != null ? transactionTemplate.execute(status -> change.get()) : change.get();
+    }
+    
+    public void stockChanged(Product product) {
+        ProductStockChangedEvent event = ProductStockChangedEvent.builder()
+                .eventId(UUID.randomUUID().toString())
+                .productId(product.getId())
+                .categoryId(product.getCategoryId())
+                .stockQuantity(product.getStockQuantity())
+                .price(product.getPrice())
+                .available(product.isActive() && product.getStockQuantity() != null && product.getStockQuantity() > 0)
+                .stockVersion(product.getStockVersion())
+                .occurredAt(LocalDateTime.now())
+                .build();
+        append(KafkaTopics.PRODUCT_STOCK_CHANGED, product.getId(), event);
+    }
+    
+    private void append(String topic, String key, Object event) {
+        try {
+            outboxEventRepository.insert(OutboxEvent.builder()
+                    .topic(topic)
+                    .messageKey(key)
+                    .payload(toPayload(event))
+                    .createdAt(LocalDateTime.now())
+                    .build());
+            log.debug("Outbox event for {} queued on {}", key, topic);
+        } catch (RuntimeException e) {
+            if (transactionTemplate != null) {
+                // Rolls the change back together with its event
+                throw e;
+            }
+            log.error("Dropping event for {} on {}, the outbox write failed: {}", key, topic, e.getMessage(), e);
+        }
+    }
+    
+    private String toPayload(Object event) {
+        try {
+            return objectMapper.writeValueAsString(event);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Cannot serialize " + event.getClass().getSimpleName(), e);
+        }
+    }
+}
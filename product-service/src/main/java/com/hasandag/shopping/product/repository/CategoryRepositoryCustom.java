@@ -0,0 +1,39 @@
+package com.hasandag.ecommerce.product.repository;
+
+import com.hasandag.ecommerce.product.model.Category;
+
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Single-statement category writes. Each touches only the fields it changes, so concurrent
+ * edits of the same category or of its subcategory list cannot overwrite each other.
+ */
+public interface CategoryRepositoryCustom {
+    
+    /**
+     * Adds a subcategory link unless it is already present.
+     *
+     * @return {@code false} if the parent does not exist
+     */
+    boolean addSubCategoryId(String parentId, String subCategoryId);
+    
+    /**
+     * @return {@code false} if the parent does not exist
+     */
+    boolean removeSubCategoryId(String parentId, String subCategoryId);
+    
+    /**
+     * Turns all direct children of the category into top-level categories.
+     *
+     * @return number of children detached
+     */
+    long detachChildren(String parentId);
+    
+    void setParent(String id, String parentId, List<String> ancestorIds);
+    
+    /**
+     * @return the updated category
+     */
+    Optional<Category> updateDetails(String id, String name, String description, String imageUrl, boolean active);
+}
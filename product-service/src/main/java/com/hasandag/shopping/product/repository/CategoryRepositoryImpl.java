@@ -0,0 +1,68 @@
+package com.hasandag.ecommerce.product.repository;
+
+import com.hasandag.ecommerce.product.model.Category;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+
+@RequiredArgsConstructor
+public class CategoryRepositoryImpl implements CategoryRepositoryCustom {
+    
+    private final MongoTemplate mongoTemplate;
+    
+    @Override
+    public boolean addSubCategoryId(String parentId, String subCategoryId) {
+        return mongoTemplate.updateFirst(
+                Query.query(where("_id").is(parentId)),
+                new Update().addToSet("subCategoryIds", subCategoryId).set("updatedAt", LocalDateTime.now()),
+                Category.class).getMatchedCount() > 0;
+    }
+    
+    @Override
+    public boolean removeSubCategoryId(String parentId, String subCategoryId) {
+        return mongoTemplate.updateFirst(
+                Query.query(where("_id").is(parentId)),
+                new Update().pull("subCategoryIds", subCategoryId).set("updatedAt", LocalDateTime.now()),
+                Category.class).getMatchedCount() > 0;
+    }
+    
+    @Override
+    public long detachChildren(String parentId) {
+        return mongoTemplate.updateMulti(
+                Query.query(where("parentId").is(parentId)),
+                new Update().set("parentId", null).set("updatedAt", LocalDateTime.now()),
+                Category.class).getModifiedCount();
+    }
+    
+    @Override
+    public void setParent(String id, String parentId, List<String> ancestorIds) {
+        mongoTemplate.updateFirst(
+                Query.query(where("_id").is(id)),
+                new Update().set("parentId", parentId).set("ancestorIds", ancestorIds).set("updatedAt", LocalDateTime.now()),
+                Category.class);
+    }
+    
+    @Override
+    public Optional<Category> updateDetails(String id, String name, String description, String imageUrl, boolean active) {
+        Update update = new Update()
+                .set("name", name)
+                .set("description", description)
+                .set("imageUrl", imageUrl)
+                .set("active", active)
+                .set("updatedAt", LocalDateTime.now());
+        
+        return Optional.ofNullable(mongoTemplate.findAndModify(
+                Query.query(where("_id").is(id)),
+                update,
+                FindAndModifyOptions.options().returnNew(true),
+                Category.class));
+    }
+}
@@ -0,0 +1,26 @@
+package com.hasandag.ecommerce.product.repository;
+
+public interface ImageBlobRepositoryCustom {
+    
+    /**
+     * Atomically adds a reference to a blob, creating its record on first use.
+     *
+     * @return the reference count after the increment
+     */
+    long addReference(String blobId, long size);
+    
+    /**
+     * Atomically drops a reference. The record is kept at zero references so the caller
+     * can take the file out of the way before {@link #removeIfUnreferenced} commits the delete.
+     *
+     * @return {@code true} if this call released the last reference
+     */
+    boolean releaseReference(String blobId);
+    
+    /**
+     * Deletes the record unless a new reference was added since the count dropped to zero.
+     *
+     * @return {@code true} if the record was removed
+     */
+    boolean removeIfUnreferenced(String blobId);
+}
@@ -0,0 +1,52 @@
+package com.hasandag.ecommerce.product.repository;
+
+import com.hasandag.ecommerce.product.model.ImageBlob;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.time.LocalDateTime;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+
+@RequiredArgsConstructor
+public class ImageBlobRepositoryImpl implements ImageBlobRepositoryCustom {
+    
+    private final MongoTemplate mongoTemplate;
+    
+    @Override
+    public long addReference(String blobId, long size) {
+        Update update = new Update()
+                .inc("refCount", 1)
+                .setOnInsert("size", size)
+                .setOnInsert("createdAt", LocalDateTime.now());
+        
+        ImageBlob blob = mongoTemplate.findAndModify(
+                Query.query(where("_id").is(blobId)),
+                update,
+                FindAndModifyOptions.options().upsert(true).returnNew(true),
+                ImageBlob.class);
+        return blob != null ? blob.getRefCount() : 1;
+    }
+    
+    @Override
+    public boolean releaseReference(String blobId) {
+        ImageBlob blob = mongoTemplate.findAndModify(
+                Query.query(where("_id").is(blobId).and("refCount").gt(0)),
+                new Update().inc("refCount", -1),
+                FindAndModifyOptions.options().returnNew(true),
+                ImageBlob.class);
+        
+        return blob != null && blob.getRefCount() <= 0;
+    }
+    
+    @Override
+    public boolean removeIfUnreferenced(String blobId) {
+        // Only remove the record if no new reference was added in the meantime
+        return mongoTemplate.remove(
+                Query.query(where("_id").is(blobId).and("refCount").lte(0)),
+                ImageBlob.class).getDeletedCount() > 0;
+    }
+}
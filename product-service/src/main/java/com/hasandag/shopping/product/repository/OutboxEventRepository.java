@@ -0,0 +1,13 @@
+package com.hasandag.ecommerce.product.repository;
+
+import com.hasandag.ecommerce.product.model.OutboxEvent;
+import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface OutboxEventRepository extends MongoRepository<OutboxEvent, String>, OutboxEventRepositoryCustom {
+    
+    long countByPublishedAtIsNull();
+    
+    OutboxEvent findFirstByPublishedAtIsNullOrderByCreatedAtAsc();
+}
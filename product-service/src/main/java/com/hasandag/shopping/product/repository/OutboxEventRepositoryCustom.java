@@ -0,0 +1,27 @@
+package com.hasandag.ecommerce.product.repository;
+
+import com.hasandag.ecommerce.product.model.OutboxEvent;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Lease-based claiming of unpublished outbox rows, so relays on several nodes split the
+ * backlog instead of sending every row once per node.
+ */
+public interface OutboxEventRepositoryCustom {
+    
+    /**
+     * Claims up to {@code limit} of the oldest unpublished rows that nobody holds, or whose
+     * holder's lease ran out, until {@code claimedUntil}.
+     *
+     * @return the claimed rows, oldest first
+     */
+    List<OutboxEvent> claimBatch(String claimToken, LocalDateTime now, LocalDateTime claimedUntil, int limit);
+    
+    /**
+     * Marks the rows as published and schedules their removal.
+     */
+    long markPublished(Collection<String> ids, LocalDateTime publishedAt, LocalDateTime purgeAt);
+}
@@ -0,0 +1,64 @@
+package com.hasandag.ecommerce.product.repository;
+
+import com.hasandag.ecommerce.product.model.OutboxEvent;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+
+@RequiredArgsConstructor
+public class OutboxEventRepositoryImpl implements OutboxEventRepositoryCustom {
+    
+    private static final Sort OLDEST_FIRST = Sort.by(Sort.Direction.ASC, "createdAt");
+    
+    private final MongoTemplate mongoTemplate;
+    
+    @Override
+    public List<OutboxEvent> claimBatch(String claimToken, LocalDateTime now, LocalDateTime claimedUntil, int limit) {
+        Criteria claimable = where("publishedAt").is(null)
+                .orOperator(where("claimedUntil").is(null), where("claimedUntil").lt(now));
+        
+        Query candidates = Query.query(claimable).with(OLDEST_FIRST).limit(limit);
+        candidates.fields().include("_id");
+        List<String> ids = mongoTemplate.find(candidates, OutboxEvent.class).stream()
+                .map(OutboxEvent::getId)
+                .toList();
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        
+        // Re-checking the lease in the update lets only one node win each row
+        mongoTemplate.updateMulti(
+                Query.query(where("_id").in(ids).andOperator(claimable)),
+                new Update().set("claimToken", claimToken).set("claimedUntil", claimedUntil),
+                OutboxEvent.class);
+        return mongoTemplate.find(Query.query(where("_id").in(ids).and("claimToken").is(claimToken)), OutboxEvent.class)
+                .stream()
+                .sorted(Comparator.comparing(OutboxEvent::getCreatedAt))
+                .toList();
+    }
+    
+    @Override
+    public long markPublished(Collection<String> ids, LocalDateTime publishedAt, LocalDateTime purgeAt) {
+        if (ids.isEmpty()) {
+            return 0;
+        }
+        return mongoTemplate.updateMulti(
+                Query.query(where("_id").in(ids)),
+                new Update()
+                        .set("publishedAt", publishedAt)
+                        .set("purgeAt", purgeAt)
+                        .unset("claimToken")
+                        .unset("claimedUntil"),
+                OutboxEvent.class).getModifiedCount();
+    }
+}
@@ -0,0 +1,35 @@
+package com.hasandag.ecommerce.product.repository;
+
+import com.hasandag.ecommerce.product.model.Product;
+import org.springframework.data.domain.Sort;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Position after the last product of a slice. Clients only see it as an opaque token.
+ */
+public record ProductCursor(ProductSortKey sortKey, Sort.Direction direction, Object lastValue, String lastId) {
+    
+    private static final String SEPARATOR = "|";
+    
+    public static ProductCursor after(Product product, ProductSortKey sortKey, Sort.Direction direction) {
+        return new ProductCursor(sortKey, direction, sortKey.extract(product), product.getId());
+    }
+    
+    public String encode() {
+        String raw = sortKey.name() + SEPARATOR + direction.name() + SEPARATOR + lastValue + SEPARATOR + lastId;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+    
+    public static ProductCursor decode(String token) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            String[] parts = raw.split("\\|", 4);
+            ProductSortKey sortKey = ProductSortKey.valueOf(parts[0]);
+            return new ProductCursor(sortKey, Sort.Direction.valueOf(parts[1]), sortKey.parse(parts[2]), parts[3]);
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+    }
+}
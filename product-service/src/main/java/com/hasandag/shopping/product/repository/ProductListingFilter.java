@@ -0,0 +1,25 @@
+package com.hasandag.ecommerce.product.repository;
+
+import java.math.BigDecimal;
+
+/**
+ * Filters of the product listing endpoints; {@code null} fields are not applied. The price
+ * range and {@code availableOnly} match the existing offset-paged queries. With
+ * {@code includeSubcategories} the category matches its whole subtree through the
+ * products' materialized category path.
+ */
+public record ProductListingFilter(String categoryId,
+                                   boolean includeSubcategories,
+                                   String sellerId,
+                                   BigDecimal minPrice,
+                                   BigDecimal maxPrice,
+                                   boolean availableOnly) {
+    
+    public static ProductListingFilter none() {
+        return new ProductListingFilter(null, false, null, null, null, false);
+    }
+    
+    public boolean isEmpty() {
+        return categoryId == null && sellerId == null && minPrice == null && maxPrice == null && !availableOnly;
+    }
+}
@@ -11,10 +11,13 @@ import java.math.BigDecimal;
 import java.util.List;
 
 @Repository
-public interface ProductRepository extends MongoRepository<Product, String> {
+public interface ProductRepository extends MongoRepository<Product, String>, ProductRepositoryCustom {
     
     Page<Product> findByCategoryId(String categoryId, Pageable pageable);
     
+    // Products of the category and of every category below it
+    Page<Product> findByCategoryPath(String categoryId, Pageable pageable);
+    
     Page<Product> findBySellerId(String sellerId, Pageable pageable);
     
     @Query("{'name': {$regex: ?0, $options: 'i'}}")
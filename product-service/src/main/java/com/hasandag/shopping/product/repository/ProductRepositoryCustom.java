@@ -0,0 +1,62 @@
+package com.hasandag.ecommerce.product.repository;
+
+import com.hasandag.ecommerce.product.model.Product;
+import org.springframework.data.domain.Sort;
+
+import java.util.List;
+import java.util.Optional;
+
+public interface ProductRepositoryCustom {
+    
+    /**
+     * Up to {@code limit} products following {@code after} (or from the start if {@code null}),
+     * using an index range on the sort key instead of skipping.
+     */
+    List<Product> findSlice(ProductListingFilter filter, ProductSortKey sortKey, Sort.Direction direction,
+                            ProductCursor after, int limit);
+    
+    /**
+     * Number of products matching the filter; estimated from collection metadata when unfiltered.
+     */
+    long countListing(ProductListingFilter filter);
+    
+    /**
+     * Atomically adds {@code delta} to the stock and bumps the stock version. A negative delta
+     * only applies while at least that much stock is left, so concurrent decrements can never
+     * take it below zero.
+     *
+     * @return the updated product, or empty if it does not exist or has too little stock
+     */
+    Optional<Product> adjustStock(String id, int delta);
+    
+    /**
+     * Replaces the whole product if its stock version is still the one it was read with, and
+     * bumps the version.
+     *
+     * @return the updated product, or empty if it changed since it was read
+     */
+    Optional<Product> replaceIfStockVersion(Product product);
+    
+    /**
+     * Sets the rating totals without touching the rest of the document, bumping the stock version.
+     *
+     * @return the updated product, or empty if it does not exist
+     */
+    Optional<Product> updateRating(String id, double averageRating, int reviewCount);
+    
+    /**
+     * Appends image URLs without touching the rest of the document, bumping the stock version.
+     *
+     * @return the updated product, or empty if it does not exist
+     */
+    Optional<Product> addImageUrls(String id, List<String> imageUrls);
+    
+    /**
+     * Removes one copy of an image URL without touching the rest of the document, bumping the
+     * stock version. Of concurrent calls for the same copy only one succeeds, so only that
+     * caller may release the image's reference.
+     *
+     * @return the updated product, or empty if it does not exist or does not list the URL
+     */
+    Optional<Product> removeImageUrl(String id, String imageUrl);
+}
@@ -0,0 +1,168 @@
+package com.hasandag.ecommerce.product.repository;
+
+import com.hasandag.ecommerce.product.model.Product;
+import lombok.RequiredArgsConstructor;
+import org.bson.Document;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.FindAndReplaceOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.AggregationOperation;
+import org.springframework.data.mongodb.core.aggregation.AggregationUpdate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+
+@RequiredArgsConstructor
+public class ProductRepositoryImpl implements ProductRepositoryCustom {
+    
+    private final MongoTemplate mongoTemplate;
+    
+    @Override
+    public List<Product> findSlice(ProductListingFilter filter, ProductSortKey sortKey, Sort.Direction direction,
+                                   ProductCursor after, int limit) {
+        List<Criteria> criteria = filterCriteria(filter);
+        
+        if (after != null) {
+            // (key, _id) strictly after the last row: a key further along, or the same key and a further _id
+            String field = sortKey.getField();
+            criteria.add(new Criteria().orOperator(
+                    direction.isAscending() ? where(field).gt(after.lastValue()) : where(field).lt(after.lastValue()),
+                    direction.isAscending()
+                            ? where(field).is(after.lastValue()).and("_id").gt(after.lastId())
+                            : where(field).is(after.lastValue()).and("_id").lt(after.lastId())));
+        }
+        
+        Query query = new Query(toCriteria(criteria))
+                .with(Sort.by(direction, sortKey.getField(), "_id"))
+                .limit(limit);
+        return mongoTemplate.find(query, Product.class);
+    }
+    
+    @Override
+    public long countListing(ProductListingFilter filter) {
+        if (filter.isEmpty()) {
+            return mongoTemplate.estimatedCount(Product.class);
+        }
+        return mongoTemplate.count(new Query(toCriteria(filterCriteria(filter))), Product.class);
+    }
+    
+    @Override
+    public Optional<Product> adjustStock(String id, int delta) {
+        Criteria criteria = where("_id").is(id);
+        if (delta < 0) {
+            criteria.and("stockQuantity").gte(-delta);
+        }
+        
+        return Optional.ofNullable(mongoTemplate.findAndModify(
+                Query.query(criteria),
+                new Update()
+                        .inc("stockQuantity", delta)
+                        .inc("stockVersion", 1)
+                        .set("updatedAt", LocalDateTime.now()),
+                FindAndModifyOptions.options().returnNew(true),
+                Product.class));
+    }
+    
+    @Override
+    public Optional<Product> replaceIfStockVersion(Product product) {
+        long readVersion = product.getStockVersion();
+        Criteria criteria = where("_id").is(product.getId());
+        if (readVersion == 0) {
+            // Products written before the version existed have no field at all
+            criteria.orOperator(where("stockVersion").is(0L), where("stockVersion").exists(false));
+        } else {
+            criteria.and("stockVersion").is(readVersion);
+        }
+        
+        product.setStockVersion(readVersion + 1);
+        product.setUpdatedAt(LocalDateTime.now());
+        Product replaced = mongoTemplate.findAndReplace(
+                Query.query(criteria),
+                product,
+                FindAndReplaceOptions.options().returnNew());
+        if (replaced == null) {
+            product.setStockVersion(readVersion);
+        }
+        return Optional.ofNullable(replaced);
+    }
+    
+    @Override
+    public Optional<Product> updateRating(String id, double averageRating, int reviewCount) {
+        return modify(id, new Update()
+                .set("averageRating", averageRating)
+                .set("reviewCount", reviewCount));
+    }
+    
+    @Override
+    public Optional<Product> addImageUrls(String id, List<String> imageUrls) {
+        Update update = new Update();
+        update.push("imageUrls").each(imageUrls.toArray());
+        return modify(id, update);
+    }
+    
+    @Override
+    public Optional<Product> removeImageUrl(String id, String imageUrl) {
+        // Cuts out the first copy only: an image uploaded twice is listed, and referenced, twice
+        Document position = new Document("$indexOfArray", List.of("$imageUrls", imageUrl));
+        Document remaining = new Document("$concatArrays", List.of(
+                new Document("$slice", List.of("$imageUrls", position)),
+                new Document("$slice", List.of("$imageUrls", new Document("$add", List.of(position, 1)),
+                        new Document("$size", "$imageUrls")))));
+        Document stockVersion = new Document("$add", List.of(new Document("$ifNull", List.of("$stockVersion", 0L)), 1L));
+        AggregationUpdate update = AggregationUpdate.from(List.<AggregationOperation>of(
+                context -> new Document("$set", new Document("imageUrls", remaining)
+                        .append("stockVersion", stockVersion)
+                        .append("updatedAt", "$$NOW"))));
+        
+        // Matching on the URL makes a concurrent removal of the same copy find nothing
+        return Optional.ofNullable(mongoTemplate.findAndModify(
+                Query.query(where("_id").is(id).and("imageUrls").is(imageUrl)),
+                update,
+                FindAndModifyOptions.options().returnNew(true),
+                Product.class));
+    }
+    
+    // Bumps the version too, so a concurrent full replace cannot silently undo the change
+    private Optional<Product> modify(String id, Update update) {
+        return Optional.ofNullable(mongoTemplate.findAndModify(
+                Query.query(where("_id").is(id)),
+                update.inc("stockVersion", 1).set("updatedAt", LocalDateTime.now()),
+                FindAndModifyOptions.options().returnNew(true),
+                Product.class));
+    }
+    
+    private static List<Criteria> filterCriteria(ProductListingFilter filter) {
+        List<Criteria> criteria = new ArrayList<>();
+        if (filter.availableOnly()) {
+            criteria.add(where("active").is(true));
+            criteria.add(where("stockQuantity").gt(0));
+        }
+        if (filter.categoryId() != null) {
+            criteria.add(filter.includeSubcategories()
+                    ? where("categoryPath").is(filter.categoryId())
+                    : where("categoryId").is(filter.categoryId()));
+        }
+        if (filter.sellerId() != null) {
+            criteria.add(where("sellerId").is(filter.sellerId()));
+        }
+        if (filter.minPrice() != null) {
+            criteria.add(where("price").gte(filter.minPrice()));
+        }
+        if (filter.maxPrice() != null) {
+            criteria.add(where("price").lte(filter.maxPrice()));
+        }
+        return criteria;
+    }
+    
+    private static Criteria toCriteria(List<Criteria> criteria) {
+        return criteria.isEmpty() ? new Criteria() : new Criteria().andOperator(criteria);
+    }
+}
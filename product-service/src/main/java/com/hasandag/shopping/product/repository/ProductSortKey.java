@@ -0,0 +1,58 @@
+package com.hasandag.ecommerce.product.repository;
+
+import com.hasandag.ecommerce.product.model.Product;
+
+import java.time.LocalDateTime;
+import java.util.Arrays;
+
+/**
+ * Sort keys supported by keyset pagination. Each is paired with {@code _id} as a tiebreaker
+ * and backed by a compound index. Price is not offered: it is stored as a string, so its
+ * stored order is not numeric.
+ */
+public enum ProductSortKey {
+    
+    CREATED_AT("createdAt") {
+        @Override
+        Object extract(Product product) {
+            return product.getCreatedAt();
+        }
+        
+        @Override
+        Object parse(String value) {
+            return LocalDateTime.parse(value);
+        }
+    },
+    AVERAGE_RATING("averageRating") {
+        @Override
+        Object extract(Product product) {
+            return product.getAverageRating();
+        }
+        
+        @Override
+        Object parse(String value) {
+            return Double.parseDouble(value);
+        }
+    };
+    
+    private final String field;
+    
+    ProductSortKey(String field) {
+        this.field = field;
+    }
+    
+    public String getField() {
+        return field;
+    }
+    
+    abstract Object extract(Product product);
+    
+    abstract Object parse(String value);
+    
+    public static ProductSortKey fromField(String field) {
+        return Arrays.stream(values())
+                .filter(key -> key.field.equals(field))
+                .findFirst()
+                .orElseThrow(() -> new IllegalArgumentException("Unsupported cursor sort: " + field));
+    }
+}
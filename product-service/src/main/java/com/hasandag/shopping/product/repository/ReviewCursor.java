@@ -0,0 +1,35 @@
+package com.hasandag.ecommerce.product.repository;
+
+import com.hasandag.ecommerce.product.model.Review;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+
+/**
+ * Position after the last review of a slice, ordered by {@code (createdAt, _id)} descending.
+ * Clients only see it as an opaque token.
+ */
+public record ReviewCursor(LocalDateTime lastCreatedAt, String lastId) {
+    
+    private static final String SEPARATOR = "|";
+    
+    public static ReviewCursor after(Review review) {
+        return new ReviewCursor(review.getCreatedAt(), review.getId());
+    }
+    
+    public String encode() {
+        String raw = lastCreatedAt + SEPARATOR + lastId;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+    
+    public static ReviewCursor decode(String token) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            String[] parts = raw.split("\\|", 2);
+            return new ReviewCursor(LocalDateTime.parse(parts[0]), parts[1]);
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+    }
+}
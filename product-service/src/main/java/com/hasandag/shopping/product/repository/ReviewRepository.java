@@ -3,20 +3,26 @@ package com.hasandag.ecommerce.product.repository;
 import com.hasandag.ecommerce.product.model.Review;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.mongodb.repository.Meta;
 import org.springframework.data.mongodb.repository.MongoRepository;
 import org.springframework.data.mongodb.repository.Query;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
-public interface ReviewRepository extends MongoRepository<Review, String> {
+public interface ReviewRepository extends MongoRepository<Review, String>, ReviewRepositoryCustom {
     
     Page<Review> findByProductId(String productId, Pageable pageable);
     
     Page<Review> findByUserId(String userId, Pageable pageable);
     
+    // Backed by a server cursor; documents are fetched in batches as the stream is consumed
+    @Meta(cursorBatchSize = 200)
+    Stream<Review> streamByUserIdOrderByCreatedAtDesc(String userId);
+    
     Optional<Review> findByProductIdAndUserId(String productId, String userId);
     
     @Query("{'productId': ?0, 'approved': true}")
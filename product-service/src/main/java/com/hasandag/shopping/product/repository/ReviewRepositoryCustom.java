@@ -0,0 +1,38 @@
+package com.hasandag.ecommerce.product.repository;
+
+import com.hasandag.ecommerce.product.model.Review;
+
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Atomic review state changes. Each returns the document as it was matched, so callers
+ * can tell exactly which approval transition happened even under concurrent writes.
+ */
+public interface ReviewRepositoryCustom {
+    
+    /**
+     * Approves a pending review.
+     *
+     * @return the approved review, or empty if it does not exist or was already approved
+     */
+    Optional<Review> approveIfPending(String id);
+    
+    /**
+     * Replaces the content of a review and sends it back for approval.
+     *
+     * @return the review as it was before the change
+     */
+    Optional<Review> replaceContent(String id, String title, String comment, int rating);
+    
+    /**
+     * @return the removed review
+     */
+    Optional<Review> removeById(String id);
+    
+    /**
+     * Up to {@code limit} of a user's reviews, newest first, following {@code after}
+     * (or from the newest if {@code null}).
+     */
+    List<Review> findByUserIdAfter(String userId, ReviewCursor after, int limit);
+}
@@ -0,0 +1,67 @@
+package com.hasandag.ecommerce.product.repository;
+
+import com.hasandag.ecommerce.product.model.Review;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+
+@RequiredArgsConstructor
+public class ReviewRepositoryImpl implements ReviewRepositoryCustom {
+    
+    private final MongoTemplate mongoTemplate;
+    
+    @Override
+    public Optional<Review> approveIfPending(String id) {
+        return Optional.ofNullable(mongoTemplate.findAndModify(
+                Query.query(where("_id").is(id).and("approved").is(false)),
+                new Update().set("approved", true).set("updatedAt", LocalDateTime.now()),
+                FindAndModifyOptions.options().returnNew(true),
+                Review.class));
+    }
+    
+    @Override
+    public Optional<Review> replaceContent(String id, String title, String comment, int rating) {
+        Update update = new Update()
+                .set("title", title)
+                .set("comment", comment)
+                .set("rating", rating)
+                .set("approved", false)
+                .set("updatedAt", LocalDateTime.now());
+        
+        return Optional.ofNullable(mongoTemplate.findAndModify(
+                Query.query(where("_id").is(id)),
+                update,
+                FindAndModifyOptions.options().returnNew(false),
+                Review.class));
+    }
+    
+    @Override
+    public Optional<Review> removeById(String id) {
+        return Optional.ofNullable(mongoTemplate.findAndRemove(Query.query(where("_id").is(id)), Review.class));
+    }
+    
+    @Override
+    public List<Review> findByUserIdAfter(String userId, ReviewCursor after, int limit) {
+        Criteria criteria = where("userId").is(userId);
+        if (after != null) {
+            criteria.orOperator(
+                    where("createdAt").lt(after.lastCreatedAt()),
+                    where("createdAt").is(after.lastCreatedAt()).and("_id").lt(after.lastId()));
+        }
+        
+        Query query = Query.query(criteria)
+                .with(Sort.by(Sort.Direction.DESC, "createdAt", "_id"))
+                .limit(limit);
+        return mongoTemplate.find(query, Review.class);
+    }
+}
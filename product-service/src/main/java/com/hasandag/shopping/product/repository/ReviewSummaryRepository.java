@@ -0,0 +1,15 @@
+package com.hasandag.ecommerce.product.repository;
+
+import com.hasandag.ecommerce.product.model.ReviewSummary;
+import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.data.mongodb.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.util.stream.Stream;
+
+@Repository
+public interface ReviewSummaryRepository extends MongoRepository<ReviewSummary, String>, ReviewSummaryRepositoryCustom {
+    
+    @Query(value = "{'ratingCount': {$gt: 0}}", fields = "{'_id': 1}")
+    Stream<ReviewSummary> streamNonEmpty();
+}
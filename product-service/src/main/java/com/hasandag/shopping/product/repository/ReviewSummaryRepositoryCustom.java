@@ -0,0 +1,41 @@
+package com.hasandag.ecommerce.product.repository;
+
+import com.hasandag.ecommerce.product.model.ReviewSummary;
+
+import java.time.LocalDateTime;
+import java.util.stream.Stream;
+
+public interface ReviewSummaryRepositoryCustom {
+    
+    /**
+     * Atomically takes an approved review out of a product's totals. A missing summary is
+     * first seeded from the product's approved reviews, keeping at most {@code latestLimit}
+     * latest ones, and counters never go below zero.
+     *
+     * @return the summary after the change
+     */
+    ReviewSummary removeReview(String productId, String reviewId, int rating, int latestLimit);
+    
+    /**
+     * Atomically adds a newly approved review to a product's totals and to the front of its
+     * latest reviews, keeping at most {@code latestLimit} of them. A missing summary is first
+     * seeded from the product's other approved reviews.
+     *
+     * @return the summary after the change
+     */
+    ReviewSummary addReview(String productId, String reviewId, int rating, int latestLimit);
+    
+    /**
+     * Totals recomputed from the approved reviews by an aggregation pipeline, one per
+     * product that has any. The caller must close the stream.
+     */
+    Stream<ReviewSummary> recomputeFromReviews(int latestLimit);
+    
+    /**
+     * Replaces a product's totals unless its summary was changed at or after {@code cutoff},
+     * so a review counted while the totals were being recomputed is not overwritten.
+     *
+     * @return {@code true} if the summary was written
+     */
+    boolean replaceIfNotUpdatedSince(ReviewSummary summary, LocalDateTime cutoff);
+}
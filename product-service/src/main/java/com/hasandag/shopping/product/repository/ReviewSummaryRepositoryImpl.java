@@ -0,0 +1,160 @@
+package com.hasandag.ecommerce.product.repository;
+
+import com.hasandag.ecommerce.product.model.Review;
+import com.hasandag.ecommerce.product.model.ReviewSummary;
+import lombok.RequiredArgsConstructor;
+import org.bson.Document;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.AggregationOperation;
+import org.springframework.data.mongodb.core.aggregation.AggregationUpdate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+
+@RequiredArgsConstructor
+public class ReviewSummaryRepositoryImpl implements ReviewSummaryRepositoryCustom {
+    
+    private final MongoTemplate mongoTemplate;
+    
+    @Override
+    public ReviewSummary removeReview(String productId, String reviewId, int rating, int latestLimit) {
+        ReviewSummary seed = seedIfMissing(productId, reviewId, latestLimit);
+        if (seed != null) {
+            // Before this change the review was still counted
+            seed.setRatingCount(seed.getRatingCount() + 1);
+            seed.setRatingSum(seed.getRatingSum() + rating);
+            seed.getHistogram().merge(String.valueOf(rating), 1L, Long::sum);
+        }
+        Document latestReviewIds = new Document("$filter", new Document("input", latestReviewIdsOrEmpty())
+                .append("cond", new Document("$ne", List.of("$$this", reviewId))));
+        return applyChange(productId, seed, rating, -1, latestReviewIds);
+    }
+    
+    @Override
+    public ReviewSummary addReview(String productId, String reviewId, int rating, int latestLimit) {
+        ReviewSummary seed = seedIfMissing(productId, reviewId, latestLimit);
+        Document latestReviewIds = new Document("$slice", List.of(
+                new Document("$concatArrays", List.of(List.of(reviewId), latestReviewIdsOrEmpty())), latestLimit));
+        return applyChange(productId, seed, rating, 1, latestReviewIds);
+    }
+    
+    @Override
+    public Stream<ReviewSummary> recomputeFromReviews(int latestLimit) {
+        return recompute(where("approved").is(true), latestLimit);
+    }
+    
+    private Stream<ReviewSummary> recompute(Criteria approvedReviews, int latestLimit) {
+        Document histogram = new Document();
+        Document group = new Document("_id", "$productId")
+                .append("ratingCount", new Document("$sum", 1L))
+                .append("ratingSum", new Document("$sum", "$rating"))
+                .append("latestReviewIds", new Document("$topN", new Document("n", latestLimit)
+                        .append("sortBy", new Document("updatedAt", -1).append("_id", -1))
+                        .append("output", new Document("$toString", "$_id"))));
+        // Ratings are validated to 1..5, so the histogram has a fixed set of buckets
+        for (int rating = 1; rating <= 5; rating++) {
+            group.append("h" + rating, new Document("$sum",
+                    new Document("$cond", List.of(new Document("$eq", List.of("$rating", rating)), 1L, 0L))));
+            histogram.append(String.valueOf(rating), "$h" + rating);
+        }
+        
+        List<AggregationOperation> pipeline = List.of(
+                Aggregation.match(approvedReviews),
+                context -> new Document("$group", group),
+                context -> new Document("$project", new Document("ratingCount", 1)
+                        .append("ratingSum", 1)
+                        .append("latestReviewIds", 1)
+                        .append("histogram", histogram)));
+        
+        return mongoTemplate.aggregateStream(Aggregation.newAggregation(pipeline), Review.class, ReviewSummary.class);
+    }
+    
+    @Override
+    public boolean replaceIfNotUpdatedSince(ReviewSummary summary, LocalDateTime cutoff) {
+        Query query = Query.query(where("_id").is(summary.getProductId())
+                .orOperator(where("updatedAt").lt(cutoff), where("updatedAt").exists(false)));
+        Update update = new Update()
+                .set("ratingCount", summary.getRatingCount())
+                .set("ratingSum", summary.getRatingSum())
+                .set("histogram", summary.getHistogram())
+                .set("latestReviewIds", summary.getLatestReviewIds())
+                .set("updatedAt", summary.getUpdatedAt());
+        try {
+            mongoTemplate.upsert(query, update, ReviewSummary.class);
+            return true;
+        } catch (DuplicateKeyException e) {
+            // The summary exists and was updated after the cutoff
+            return false;
+        }
+    }
+    
+    /**
+     * The product's totals before a change to {@code reviewId}, recomputed from its other
+     * approved reviews, or {@code null} if the summary already exists. Products reviewed
+     * before summaries were kept have none, and starting their counters from zero would
+     * let the first unapproval or deletion drive them negative.
+     */
+    private ReviewSummary seedIfMissing(String productId, String reviewId, int latestLimit) {
+        if (mongoTemplate.exists(Query.query(where("_id").is(productId)), ReviewSummary.class)) {
+            return null;
+        }
+        Criteria otherApprovedReviews = where("productId").is(productId).and("approved").is(true).and("_id").ne(reviewId);
+        try (Stream<ReviewSummary> totals = recompute(otherApprovedReviews, latestLimit)) {
+            return totals.findFirst().orElseGet(() -> ReviewSummary.empty(productId));
+        }
+    }
+    
+    /**
+     * Applies one review's change as a single pipeline upsert. A seed only fills fields that are
+     * still missing, so a summary created concurrently keeps its own totals; the counters never
+     * go below zero, and any drift is corrected by the repair job.
+     */
+    private ReviewSummary applyChange(String productId, ReviewSummary seed, int rating, int delta, Document latestReviewIds) {
+        List<AggregationOperation> pipeline = new ArrayList<>();
+        if (seed != null) {
+            Document histogram = new Document();
+            histogram.putAll(seed.getHistogram());
+            pipeline.add(context -> new Document("$set", new Document()
+                    .append("ratingCount", ifNull("$ratingCount", seed.getRatingCount()))
+                    .append("ratingSum", ifNull("$ratingSum", seed.getRatingSum()))
+                    .append("histogram", ifNull("$histogram", histogram))
+                    .append("latestReviewIds", ifNull("$latestReviewIds", seed.getLatestReviewIds()))));
+        }
+        String bucket = "histogram." + rating;
+        pipeline.add(context -> new Document("$set", new Document()
+                .append("ratingCount", addAtLeastZero("$ratingCount", delta))
+                .append("ratingSum", addAtLeastZero("$ratingSum", (long) delta * rating))
+                .append(bucket, addAtLeastZero("$" + bucket, delta))
+                .append("latestReviewIds", latestReviewIds)
+                .append("updatedAt", new Date())));
+        
+        return mongoTemplate.findAndModify(
+                Query.query(where("_id").is(productId)),
+                AggregationUpdate.from(pipeline),
+                FindAndModifyOptions.options().upsert(true).returnNew(true),
+                ReviewSummary.class);
+    }
+    
+    private static Document ifNull(String field, Object fallback) {
+        return new Document("$ifNull", List.of(field, fallback));
+    }
+    
+    private static Document addAtLeastZero(String field, long delta) {
+        return new Document("$max", List.of(0L, new Document("$add", List.of(ifNull(field, 0L), delta))));
+    }
+    
+    private static Document latestReviewIdsOrEmpty() {
+        return ifNull("$latestReviewIds", List.of());
+    }
+}
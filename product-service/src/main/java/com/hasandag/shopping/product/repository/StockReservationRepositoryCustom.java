@@ -0,0 +1,92 @@
+package com.hasandag.ecommerce.product.repository;
+
+import com.hasandag.ecommerce.product.model.StockReservation;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Atomic reservation state changes. Only the caller whose transition matched gets the
+ * reservation back, so the stock of a reservation is returned at most once even when
+ * retries, releases and sweepers on several nodes race.
+ */
+public interface StockReservationRepositoryCustom {
+    
+    /**
+     * Moves the reservation to {@code to} if it is currently in one of {@code from}.
+     *
+     * @return the reservation before the change, or empty if it was not in an expected state
+     */
+    Optional<StockReservation> transition(String orderId, Set<StockReservation.Status> from,
+                                          StockReservation.Status to, LocalDateTime purgeAt);
+    
+    /**
+     * Order ids of up to {@code limit} reservations still held after {@code now}'s expiry time.
+     */
+    List<String> findExpiredOrderIds(LocalDateTime now, int limit);
+    
+    /**
+     * Expires the reservation if it is still held and past its expiry time.
+     *
+     * @return the reservation before the change, or empty if another caller got there first
+     */
+    Optional<StockReservation> claimExpired(String orderId, LocalDateTime now, LocalDateTime purgeAt);
+    
+    /**
+     * Records that the stock of one item of a {@code PENDING} reservation has been taken.
+     *
+     * @return {@code false} if the reservation was no longer pending
+     */
+    boolean addTakenItem(String orderId, StockReservation.Item item);
+    
+    /**
+     * Empties the taken items of a {@code PENDING} reservation whose stock could not all be
+     * taken, handing the return of what was taken to the caller.
+     *
+     * @return the reservation before the change, or empty if it was no longer pending
+     */
+    Optional<StockReservation> clearTakenItems(String orderId);
+    
+    /**
+     * Moves a {@code PENDING} reservation to {@code RESERVED} once its stock has been taken.
+     *
+     * @return {@code false} if the reservation was no longer pending
+     */
+    boolean markReserved(String orderId);
+    
+    /**
+     * Deletes a {@code PENDING} reservation whose stock could not be taken, so the order
+     * can try again.
+     */
+    void deletePending(String orderId);
+    
+    /**
+     * Records that the stock of a released, expired or failed reservation is back on the products.
+     */
+    void markStockReturned(String orderId);
+    
+    /**
+     * Order ids of up to {@code limit} reservations left behind by a crash: pending ones, and
+     * released, expired or failed ones whose stock was not returned, last touched before
+     * {@code before}.
+     */
+    List<String> findStalledOrderIds(LocalDateTime before, int limit);
+    
+    /**
+     * Fails a reservation that stayed {@code PENDING} since before {@code before}; the stock of
+     * its taken items is then owed back.
+     *
+     * @return the reservation before the change, or empty if it was no longer stalled
+     */
+    Optional<StockReservation> failPending(String orderId, LocalDateTime before, LocalDateTime purgeAt);
+    
+    /**
+     * Takes over returning the stock of a released, expired or failed reservation untouched since
+     * before {@code before}, by renewing its {@code updatedAt} so other sweepers skip it.
+     *
+     * @return the reservation, or empty if it was returned or taken over in the meantime
+     */
+    Optional<StockReservation> claimUnreturned(String orderId, LocalDateTime before);
+}
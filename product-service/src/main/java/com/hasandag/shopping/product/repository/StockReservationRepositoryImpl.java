@@ -0,0 +1,149 @@
+package com.hasandag.ecommerce.product.repository;
+
+import com.hasandag.ecommerce.product.model.StockReservation;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.time.LocalDateTime;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+
+@RequiredArgsConstructor
+public class StockReservationRepositoryImpl implements StockReservationRepositoryCustom {
+    
+    private static final Set<StockReservation.Status> RETURNING =
+            EnumSet.of(StockReservation.Status.RELEASED, StockReservation.Status.EXPIRED, StockReservation.Status.FAILED);
+    
+    private final MongoTemplate mongoTemplate;
+    
+    @Override
+    public Optional<StockReservation> transition(String orderId, Set<StockReservation.Status> from,
+                                                 StockReservation.Status to, LocalDateTime purgeAt) {
+        return Optional.ofNullable(mongoTemplate.findAndModify(
+                Query.query(where("_id").is(orderId).and("status").in(from)),
+                finish(to, purgeAt),
+                FindAndModifyOptions.options().returnNew(false),
+                StockReservation.class));
+    }
+    
+    @Override
+    public List<String> findExpiredOrderIds(LocalDateTime now, int limit) {
+        Query query = Query.query(where("status").is(StockReservation.Status.RESERVED).and("expiresAt").lt(now))
+                .with(Sort.by(Sort.Direction.ASC, "expiresAt"))
+                .limit(limit);
+        query.fields().include("_id");
+        return mongoTemplate.find(query, StockReservation.class).stream()
+                .map(StockReservation::getOrderId)
+                .toList();
+    }
+    
+    @Override
+    public Optional<StockReservation> claimExpired(String orderId, LocalDateTime now, LocalDateTime purgeAt) {
+        return Optional.ofNullable(mongoTemplate.findAndModify(
+                Query.query(where("_id").is(orderId)
+                        .and("status").is(StockReservation.Status.RESERVED)
+                        .and("expiresAt").lt(now)),
+                finish(StockReservation.Status.EXPIRED, purgeAt),
+                FindAndModifyOptions.options().returnNew(false),
+                StockReservation.class));
+    }
+    
+    @Override
+    public boolean addTakenItem(String orderId, StockReservation.Item item) {
+        return mongoTemplate.updateFirst(
+                Query.query(where("_id").is(orderId).and("status").is(StockReservation.Status.PENDING)),
+                new Update()
+                        .push("takenItems", item)
+                        .set("updatedAt", LocalDateTime.now()),
+                StockReservation.class).getModifiedCount() > 0;
+    }
+    
+    @Override
+    public Optional<StockReservation> clearTakenItems(String orderId) {
+        return Optional.ofNullable(mongoTemplate.findAndModify(
+                Query.query(where("_id").is(orderId).and("status").is(StockReservation.Status.PENDING)),
+                new Update()
+                        .set("takenItems", List.of())
+                        .set("updatedAt", LocalDateTime.now()),
+                FindAndModifyOptions.options().returnNew(false),
+                StockReservation.class));
+    }
+    
+    @Override
+    public boolean markReserved(String orderId) {
+        return mongoTemplate.updateFirst(
+                Query.query(where("_id").is(orderId).and("status").is(StockReservation.Status.PENDING)),
+                new Update()
+                        .set("status", StockReservation.Status.RESERVED)
+                        .set("updatedAt", LocalDateTime.now()),
+                StockReservation.class).getModifiedCount() > 0;
+    }
+    
+    @Override
+    public void deletePending(String orderId) {
+        mongoTemplate.remove(
+                Query.query(where("_id").is(orderId).and("status").is(StockReservation.Status.PENDING)),
+                StockReservation.class);
+    }
+    
+    @Override
+    public void markStockReturned(String orderId) {
+        mongoTemplate.updateFirst(
+                Query.query(where("_id").is(orderId).and("status").in(RETURNING)),
+                new Update().set("stockReturned", true),
+                StockReservation.class);
+    }
+    
+    @Override
+    public List<String> findStalledOrderIds(LocalDateTime before, int limit) {
+        Query query = Query.query(new Criteria().orOperator(
+                        where("status").is(StockReservation.Status.PENDING).and("updatedAt").lt(before),
+                        where("status").in(RETURNING).and("updatedAt").lt(before).and("stockReturned").is(false)))
+                .limit(limit);
+        query.fields().include("_id");
+        return mongoTemplate.find(query, StockReservation.class).stream()
+                .map(StockReservation::getOrderId)
+                .toList();
+    }
+    
+    @Override
+    public Optional<StockReservation> failPending(String orderId, LocalDateTime before, LocalDateTime purgeAt) {
+        return Optional.ofNullable(mongoTemplate.findAndModify(
+                Query.query(where("_id").is(orderId)
+                        .and("status").is(StockReservation.Status.PENDING)
+                        .and("updatedAt").lt(before)),
+                finish(StockReservation.Status.FAILED, purgeAt),
+                FindAndModifyOptions.options().returnNew(false),
+                StockReservation.class));
+    }
+    
+    @Override
+    public Optional<StockReservation> claimUnreturned(String orderId, LocalDateTime before) {
+        return Optional.ofNullable(mongoTemplate.findAndModify(
+                Query.query(where("_id").is(orderId)
+                        .and("status").in(RETURNING)
+                        .and("stockReturned").is(false)
+                        .and("updatedAt").lt(before)),
+                new Update().set("updatedAt", LocalDateTime.now()),
+                FindAndModifyOptions.options().returnNew(true),
+                StockReservation.class));
+    }
+    
+    // Released, expired and failed reservations owe their stock back until it is marked returned
+    private static Update finish(StockReservation.Status to, LocalDateTime purgeAt) {
+        return new Update()
+                .set("status", to)
+                .set("stockReturned", false)
+                .set("purgeAt", purgeAt)
+                .set("updatedAt", LocalDateTime.now());
+    }
+}
@@ -0,0 +1,17 @@
+package com.hasandag.ecommerce.product.search;
+
+import java.math.BigDecimal;
+
+/**
+ * Free-text query plus optional filters; {@code null} filters are not applied.
+ */
+public record ProductSearchCriteria(String text,
+                                    String categoryId,
+                                    BigDecimal minPrice,
+                                    BigDecimal maxPrice,
+                                    boolean inStockOnly) {
+    
+    public static ProductSearchCriteria ofText(String text) {
+        return new ProductSearchCriteria(text, null, null, null, false);
+    }
+}
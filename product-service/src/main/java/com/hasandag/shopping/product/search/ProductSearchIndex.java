@@ -0,0 +1,392 @@
+package com.hasandag.ecommerce.product.search;
+
+import com.hasandag.ecommerce.product.cache.CacheInvalidationBus;
+import com.hasandag.ecommerce.product.model.Product;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.LowerCaseFilter;
+import org.apache.lucene.analysis.TokenStream;
+import org.apache.lucene.analysis.miscellaneous.ASCIIFoldingFilter;
+import org.apache.lucene.analysis.standard.StandardTokenizer;
+import org.apache.lucene.analysis.tokenattributes.CharTermAttribute;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.DoublePoint;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.LongPoint;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.document.TextField;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.BoostQuery;
+import org.apache.lucene.search.FuzzyQuery;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.PrefixQuery;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.SearcherManager;
+import org.apache.lucene.search.StoredFields;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.search.TopDocs;
+import org.apache.lucene.search.TotalHits;
+import org.apache.lucene.store.ByteBuffersDirectory;
+import org.apache.lucene.store.Directory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Stream;
+
+/**
+ * In-memory inverted index over the product catalogue, used instead of regex scans for
+ * {@code /api/products/search}. Names and descriptions are tokenized, lower-cased and
+ * ASCII-folded; each query term matches exactly, as a prefix or within a small edit
+ * distance, and results are ranked by relevance.
+ * <p>
+ * The index is rebuilt from Mongo when the application starts, retried until it succeeds,
+ * and kept current by the product write paths. Every node holds its own copy, so writes are
+ * announced on the invalidation bus and other nodes re-read the product from Mongo.
+ * <p>
+ * A rebuild upserts the products it streams and then drops documents left over from earlier
+ * builds. Live writes keep applying meanwhile; products they touch are re-read from Mongo
+ * once the stream is done, since the stream may have overwritten them with an older copy.
+ */
+@Component
+@Slf4j
+public class ProductSearchIndex implements DisposableBean {
+    
+    static final String BUS_NAME = "productSearch";
+    
+    private static final String ID = "id";
+    private static final String NAME = "name";
+    private static final String DESCRIPTION = "description";
+    private static final String CATEGORY_ID = "categoryId";
+    private static final String PRICE = "price";
+    private static final String AVAILABLE = "available";
+    private static final String GENERATION = "generation";
+    
+    // Deepest result window served; deeper pages should narrow the query instead
+    private static final int MAX_WINDOW = 10_000;
+    
+    private final MongoTemplate mongoTemplate;
+    private final CacheInvalidationBus invalidationBus;
+    private final Analyzer analyzer = new ProductAnalyzer();
+    private final Directory directory = new ByteBuffersDirectory();
+    private final IndexWriter writer;
+    private final SearcherManager searcherManager;
+    private final Timer queryTimer;
+    private volatile boolean ready;
+    
+    // Guarded by changedDuringRebuild
+    private final Set<String> changedDuringRebuild = new HashSet<>();
+    private boolean rebuilding;
+    private long generation;
+    
+    public ProductSearchIndex(MongoTemplate mongoTemplate,
+                              CacheInvalidationBus invalidationBus,
+                              MeterRegistry meterRegistry) throws IOException {
+        this.mongoTemplate = mongoTemplate;
+        this.invalidationBus = invalidationBus;
+        this.writer = new IndexWriter(directory, new IndexWriterConfig(analyzer));
+        this.searcherManager = new SearcherManager(writer, null);
+        this.queryTimer = Timer.builder("product.search.query")
+                .description("Time spent executing product search queries")
+                .register(meterRegistry);
+        Gauge.builder("product.search.documents", writer, w -> w.getDocStats().numDocs)
+                .description("Products currently held in the search index")
+                .register(meterRegistry);
+        
+        invalidationBus.subscribe(message -> {
+            if (BUS_NAME.equals(message.cacheName()) && message.key() != null) {
+                reindexFromStore(message.key());
+            }
+        });
+    }
+    
+    public boolean isReady() {
+        return ready;
+    }
+    
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        long buildGeneration;
+        synchronized (changedDuringRebuild) {
+            if (rebuilding) {
+                return;
+            }
+            rebuilding = true;
+            changedDuringRebuild.clear();
+            buildGeneration = ++generation;
+        }
+        
+        long started = System.nanoTime();
+        long count = 0;
+        try (Stream<Product> products = mongoTemplate.stream(new org.springframework.data.mongodb.core.query.Query(), Product.class)) {
+            for (Product product : (Iterable<Product>) products::iterator) {
+                writer.updateDocument(new Term(ID, product.getId()), toDocument(product, buildGeneration));
+                count++;
+            }
+            // Whatever this build did not see was deleted before it started
+            writer.deleteDocuments(LongPoint.newRangeQuery(GENERATION, Long.MIN_VALUE, buildGeneration - 1));
+            replayChangesDuringRebuild();
+            writer.commit();
+            searcherManager.maybeRefreshBlocking();
+            ready = true;
+            log.info("Product search index built with {} documents in {} ms",
+                    count, (System.nanoTime() - started) / 1_000_000);
+        } catch (IOException | RuntimeException e) {
+            // Searches keep using the Mongo fallback until a retry succeeds
+            log.error("Failed to build product search index", e);
+        } finally {
+            synchronized (changedDuringRebuild) {
+                rebuilding = false;
+                changedDuringRebuild.clear();
+            }
+        }
+    }
+    
+    // Retries a startup build that failed, e.g. because Mongo was not reachable yet
+    @Scheduled(initialDelayString = "${app.search.index.rebuild-retry-interval-ms:30000}",
+            fixedDelayString = "${app.search.index.rebuild-retry-interval-ms:30000}")
+    public void retryRebuild() {
+        if (!ready) {
+            rebuild();
+        }
+    }
+    
+    /**
+     * Adds or replaces a product after it was written to Mongo.
+     */
+    public void index(Product product) {
+        applyLocally(product.getId(), product);
+        invalidationBus.publishEvict(BUS_NAME, product.getId());
+    }
+    
+    /**
+     * Drops a product after it was deleted from Mongo.
+     */
+    public void remove(String productId) {
+        applyLocally(productId, null);
+        invalidationBus.publishEvict(BUS_NAME, productId);
+    }
+    
+    /**
+     * Returns the ids of matching products, best match first.
+     */
+    public Page<String> search(ProductSearchCriteria criteria, Pageable pageable) {
+        List<String> terms = analyze(criteria.text());
+        if (terms.isEmpty()) {
+            return Page.empty(pageable);
+        }
+        int window = (int) Math.min(pageable.getOffset() + pageable.getPageSize(), Integer.MAX_VALUE);
+        if (window > MAX_WINDOW) {
+            throw new IllegalArgumentException("Search results are limited to the first " + MAX_WINDOW + " matches");
+        }
+        
+        Query query = buildQuery(terms, criteria);
+        return queryTimer.record(() -> {
+            IndexSearcher searcher = acquire();
+            try {
+                TopDocs topDocs = searcher.search(query, window);
+                long total = topDocs.totalHits.relation == TotalHits.Relation.EQUAL_TO
+                        ? topDocs.totalHits.value
+                        : searcher.count(query);
+                
+                StoredFields storedFields = searcher.storedFields();
+                List<String> ids = new ArrayList<>();
+                ScoreDoc[] hits = topDocs.scoreDocs;
+                for (int i = (int) pageable.getOffset(); i < hits.length; i++) {
+                    ids.add(storedFields.document(hits[i].doc).get(ID));
+                }
+                return new PageImpl<>(ids, pageable, total);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            } finally {
+                release(searcher);
+            }
+        });
+    }
+    
+    @Override
+    public void destroy() throws IOException {
+        searcherManager.close();
+        writer.close();
+        directory.close();
+    }
+    
+    private void reindexFromStore(String productId) {
+        applyLocally(productId, mongoTemplate.findById(productId, Product.class));
+    }
+    
+    private void applyLocally(String productId, Product product) {
+        try {
+            synchronized (changedDuringRebuild) {
+                if (rebuilding) {
+                    changedDuringRebuild.add(productId);
+                }
+                write(productId, product, generation);
+            }
+            // Blocks until the write is searchable, so a caller can read its own write
+            searcherManager.maybeRefreshBlocking();
+        } catch (IOException | RuntimeException e) {
+            // The product stays stale in search until it is written again or the index is rebuilt
+            log.warn("Failed to update search index for product {}: {}", productId, e.getMessage());
+        }
+    }
+    
+    /**
+     * Re-reads the products written while a rebuild streamed the catalogue, until a pass sees
+     * no further writes; a write landing during a pass is recorded again and re-read next time.
+     */
+    private void replayChangesDuringRebuild() throws IOException {
+        while (true) {
+            List<String> changed;
+            long buildGeneration;
+            synchronized (changedDuringRebuild) {
+                if (changedDuringRebuild.isEmpty()) {
+                    return;
+                }
+                changed = new ArrayList<>(changedDuringRebuild);
+                changedDuringRebuild.clear();
+                buildGeneration = generation;
+            }
+            for (String productId : changed) {
+                write(productId, mongoTemplate.findById(productId, Product.class), buildGeneration);
+            }
+        }
+    }
+    
+    private void write(String productId, Product product, long documentGeneration) throws IOException {
+        if (product == null) {
+            writer.deleteDocuments(new Term(ID, productId));
+        } else {
+            writer.updateDocument(new Term(ID, productId), toDocument(product, documentGeneration));
+        }
+    }
+    
+    private Query buildQuery(List<String> terms, ProductSearchCriteria criteria) {
+        BooleanQuery.Builder query = new BooleanQuery.Builder();
+        
+        // Every term has to match somewhere; exact name matches rank above prefixes and typos
+        for (String term : terms) {
+            BooleanQuery.Builder termQuery = new BooleanQuery.Builder()
+                    .add(new BoostQuery(new TermQuery(new Term(NAME, term)), 4f), BooleanClause.Occur.SHOULD)
+                    .add(new TermQuery(new Term(DESCRIPTION, term)), BooleanClause.Occur.SHOULD)
+                    .add(new BoostQuery(new PrefixQuery(new Term(NAME, term)), 2f), BooleanClause.Occur.SHOULD);
+            int maxEdits = maxEditsFor(term);
+            if (maxEdits > 0) {
+                termQuery.add(new FuzzyQuery(new Term(NAME, term), maxEdits, 1), BooleanClause.Occur.SHOULD);
+            }
+            query.add(termQuery.build(), BooleanClause.Occur.MUST);
+        }
+        
+        if (criteria.categoryId() != null) {
+            query.add(new TermQuery(new Term(CATEGORY_ID, criteria.categoryId())), BooleanClause.Occur.FILTER);
+        }
+        if (criteria.minPrice() != null || criteria.maxPrice() != null) {
+            double min = criteria.minPrice() != null ? criteria.minPrice().doubleValue() : Double.NEGATIVE_INFINITY;
+            double max = criteria.maxPrice() != null ? criteria.maxPrice().doubleValue() : Double.POSITIVE_INFINITY;
+            query.add(DoublePoint.newRangeQuery(PRICE, min, max), BooleanClause.Occur.FILTER);
+        }
+        if (criteria.inStockOnly()) {
+            query.add(new TermQuery(new Term(AVAILABLE, "true")), BooleanClause.Occur.FILTER);
+        }
+        return query.build();
+    }
+    
+    private static int maxEditsFor(String term) {
+        if (term.length() < 4) {
+            return 0;
+        }
+        return term.length() < 8 ? 1 : 2;
+    }
+    
+    private List<String> analyze(String text) {
+        if (text == null || text.isBlank()) {
+            return Collections.emptyList();
+        }
+        List<String> terms = new ArrayList<>();
+        try (TokenStream stream = analyzer.tokenStream(NAME, text)) {
+            CharTermAttribute term = stream.addAttribute(CharTermAttribute.class);
+            stream.reset();
+            while (stream.incrementToken()) {
+                terms.add(term.toString());
+            }
+            stream.end();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return terms.stream().distinct().toList();
+    }
+    
+    private static Document toDocument(Product product, long documentGeneration) {
+        Document document = new Document();
+        document.add(new StringField(ID, product.getId(), Field.Store.YES));
+        document.add(new LongPoint(GENERATION, documentGeneration));
+        if (product.getName() != null) {
+            document.add(new TextField(NAME, product.getName(), Field.Store.NO));
+        }
+        if (product.getDescription() != null) {
+            document.add(new TextField(DESCRIPTION, product.getDescription(), Field.Store.NO));
+        }
+        if (product.getCategoryId() != null) {
+            document.add(new StringField(CATEGORY_ID, product.getCategoryId(), Field.Store.NO));
+        }
+        if (product.getPrice() != null) {
+            document.add(new DoublePoint(PRICE, product.getPrice().doubleValue()));
+        }
+        boolean available = product.isActive()
+                && product.getStockQuantity() != null && product.getStockQuantity() > 0;
+        document.add(new StringField(AVAILABLE, Boolean.toString(available), Field.Store.NO));
+        return document;
+    }
+    
+    private IndexSearcher acquire() {
+        try {
+            return searcherManager.acquire();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+    
+    private void release(IndexSearcher searcher) {
+        try {
+            searcherManager.release(searcher);
+        } catch (IOException e) {
+            log.warn("Failed to release index searcher: {}", e.getMessage());
+        }
+    }
+    
+    private static final class ProductAnalyzer extends Analyzer {
+        
+        @Override
+        protected TokenStreamComponents createComponents(String fieldName) {
+            StandardTokenizer tokenizer = new StandardTokenizer();
+            TokenStream stream = new ASCIIFoldingFilter(new LowerCaseFilter(tokenizer));
+            return new TokenStreamComponents(tokenizer, stream);
+        }
+        
+        @Override
+        protected TokenStream normalize(String fieldName, TokenStream in) {
+            return new ASCIIFoldingFilter(new LowerCaseFilter(in));
+        }
+    }
+}
@@ -0,0 +1,134 @@
+package com.hasandag.ecommerce.product.search;
+
+import com.hasandag.ecommerce.product.cache.CacheInvalidationBus;
+import com.hasandag.ecommerce.product.model.Category;
+import com.hasandag.ecommerce.product.model.Product;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Keeps the autocomplete trie in sync with products and categories. Lookups never touch
+ * Mongo; the trie is loaded once at startup and then updated by the write paths. Like the
+ * search index, each node holds its own copy and follows other nodes' writes over the
+ * invalidation bus.
+ */
+@Component
+@Slf4j
+public class ProductSuggester {
+    
+    static final String BUS_NAME = "suggestions";
+    
+    private final MongoTemplate mongoTemplate;
+    private final CacheInvalidationBus invalidationBus;
+    private final SuggestionTrie trie;
+    private final double categoryWeight;
+    private final Timer lookupTimer;
+    
+    public ProductSuggester(MongoTemplate mongoTemplate,
+                            CacheInvalidationBus invalidationBus,
+                            MeterRegistry meterRegistry,
+                            @Value("${app.search.suggest.top-k:10}") int topK,
+                            @Value("${app.search.suggest.category-weight:10}") double categoryWeight) {
+        this.mongoTemplate = mongoTemplate;
+        this.invalidationBus = invalidationBus;
+        this.trie = new SuggestionTrie(topK);
+        this.categoryWeight = categoryWeight;
+        this.lookupTimer = Timer.builder("product.search.suggest")
+                .description("Time spent answering autocomplete lookups")
+                .publishPercentiles(0.99)
+                .register(meterRegistry);
+        
+        invalidationBus.subscribe(message -> {
+            if (BUS_NAME.equals(message.cacheName()) && message.key() != null) {
+                reloadFromStore(message.key());
+            }
+        });
+    }
+    
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        List<Suggestion> suggestions = new ArrayList<>();
+        try (Stream<Product> products = mongoTemplate.stream(new Query(), Product.class)) {
+            products.filter(Product::isActive).map(this::toSuggestion).forEach(suggestions::add);
+        }
+        mongoTemplate.findAll(Category.class).stream()
+                .filter(Category::isActive)
+                .map(this::toSuggestion)
+                .forEach(suggestions::add);
+        trie.replaceAll(suggestions);
+        log.info("Autocomplete loaded with {} entries", trie.size());
+    }
+    
+    public List<Suggestion> suggest(String prefix, int limit) {
+        return lookupTimer.record(() -> trie.suggest(prefix, limit));
+    }
+    
+    public void productChanged(Product product) {
+        applyProduct(product.getId(), product);
+        invalidationBus.publishEvict(BUS_NAME, Suggestion.Type.PRODUCT + ":" + product.getId());
+    }
+    
+    public void productRemoved(String productId) {
+        applyProduct(productId, null);
+        invalidationBus.publishEvict(BUS_NAME, Suggestion.Type.PRODUCT + ":" + productId);
+    }
+    
+    public void categoryChanged(Category category) {
+        applyCategory(category.getId(), category);
+        invalidationBus.publishEvict(BUS_NAME, Suggestion.Type.CATEGORY + ":" + category.getId());
+    }
+    
+    public void categoryRemoved(String categoryId) {
+        applyCategory(categoryId, null);
+        invalidationBus.publishEvict(BUS_NAME, Suggestion.Type.CATEGORY + ":" + categoryId);
+    }
+    
+    private void reloadFromStore(String key) {
+        String[] parts = key.split(":", 2);
+        if (parts.length != 2) {
+            return;
+        }
+        if (Suggestion.Type.PRODUCT.name().equals(parts[0])) {
+            applyProduct(parts[1], mongoTemplate.findById(parts[1], Product.class));
+        } else if (Suggestion.Type.CATEGORY.name().equals(parts[0])) {
+            applyCategory(parts[1], mongoTemplate.findById(parts[1], Category.class));
+        }
+    }
+    
+    private void applyProduct(String productId, Product product) {
+        if (product == null || !product.isActive()) {
+            trie.remove(Suggestion.Type.PRODUCT, productId);
+        } else {
+            trie.put(toSuggestion(product));
+        }
+    }
+    
+    private void applyCategory(String categoryId, Category category) {
+        if (category == null || !category.isActive()) {
+            trie.remove(Suggestion.Type.CATEGORY, categoryId);
+        } else {
+            trie.put(toSuggestion(category));
+        }
+    }
+    
+    private Suggestion toSuggestion(Product product) {
+        // Well-reviewed products first; unreviewed ones still get a base weight of 1
+        double popularity = 1 + product.getAverageRating() * Math.log1p(product.getReviewCount());
+        return new Suggestion(Suggestion.Type.PRODUCT, product.getId(), product.getName(), popularity);
+    }
+    
+    private Suggestion toSuggestion(Category category) {
+        return new Suggestion(Suggestion.Type.CATEGORY, category.getId(), category.getName(), categoryWeight);
+    }
+}
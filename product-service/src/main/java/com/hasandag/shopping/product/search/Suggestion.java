@@ -0,0 +1,16 @@
+package com.hasandag.ecommerce.product.search;
+
+/**
+ * An autocomplete entry. {@code weight} orders suggestions sharing a prefix, highest first.
+ */
+public record Suggestion(Type type, String id, String text, double weight) {
+    
+    public enum Type {
+        PRODUCT,
+        CATEGORY
+    }
+    
+    String uniqueKey() {
+        return type + ":" + id;
+    }
+}
@@ -0,0 +1,292 @@
+package com.hasandag.ecommerce.product.search;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Pattern;
+
+/**
+ * Prefix tree for search-as-you-type. Every node keeps its best {@code topK} suggestions
+ * precomputed, so a lookup is a walk down the prefix and a copy of at most {@code topK}
+ * references, regardless of how many entries share the prefix.
+ * <p>
+ * Each suggestion is reachable from the start of every word of its text, so "iph" finds
+ * "Apple iPhone 15". To keep the tree small, it is only {@value #MAX_DEPTH} characters deep
+ * and children live in sorted arrays instead of maps; longer prefixes are answered by
+ * filtering the bucket at the deepest node. Writers take an exclusive lock and recompute
+ * the top lists along the touched paths only.
+ */
+public class SuggestionTrie {
+    
+    static final int MAX_DEPTH = 10;
+    // Bounds the number of keys a single long name adds to the tree
+    private static final int MAX_WORD_STARTS = 4;
+    private static final Pattern DIACRITICS = Pattern.compile("\\p{M}+");
+    private static final Pattern NON_ALPHANUMERIC = Pattern.compile("[^\\p{Alnum}]+");
+    private static final Comparator<Suggestion> BY_WEIGHT = Comparator.comparingDouble(Suggestion::weight).reversed()
+            .thenComparing(Suggestion::text);
+    
+    private final int topK;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private Node root = new Node();
+    private Map<String, Indexed> entries = new HashMap<>();
+    
+    public SuggestionTrie(int topK) {
+        this.topK = topK;
+    }
+    
+    /**
+     * Replaces the whole content, computing the top lists once instead of per entry.
+     */
+    public void replaceAll(Collection<Suggestion> suggestions) {
+        Node newRoot = new Node();
+        Map<String, Indexed> newEntries = new HashMap<>();
+        for (Suggestion suggestion : suggestions) {
+            List<String> keys = keysFor(suggestion.text());
+            if (!keys.isEmpty() && newEntries.putIfAbsent(suggestion.uniqueKey(), new Indexed(suggestion, keys)) == null) {
+                keys.forEach(key -> newRoot.insert(key, 0, suggestion));
+            }
+        }
+        newRoot.recomputeAll(topK);
+        
+        lock.writeLock().lock();
+        try {
+            root = newRoot;
+            entries = newEntries;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+    
+    /**
+     * Adds a suggestion or replaces the one with the same type and id.
+     */
+    public void put(Suggestion suggestion) {
+        List<String> keys = keysFor(suggestion.text());
+        lock.writeLock().lock();
+        try {
+            removeLocked(suggestion.uniqueKey());
+            if (keys.isEmpty()) {
+                return;
+            }
+            for (String key : keys) {
+                root.insert(key, 0, suggestion);
+                root.recomputePath(key, 0, topK);
+            }
+            entries.put(suggestion.uniqueKey(), new Indexed(suggestion, keys));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+    
+    public void remove(Suggestion.Type type, String id) {
+        lock.writeLock().lock();
+        try {
+            removeLocked(type + ":" + id);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+    
+    /**
+     * Best suggestions with a word starting with {@code prefix}, highest weight first.
+     */
+    public List<Suggestion> suggest(String prefix, int limit) {
+        String key = normalize(prefix);
+        if (key.isEmpty() || limit <= 0) {
+            return Collections.emptyList();
+        }
+        lock.readLock().lock();
+        try {
+            Node node = root;
+            int depth = Math.min(key.length(), MAX_DEPTH);
+            for (int i = 0; i < depth && node != null; i++) {
+                node = node.child(key.charAt(i));
+            }
+            if (node == null) {
+                return Collections.emptyList();
+            }
+            if (key.length() <= MAX_DEPTH) {
+                return List.of(Arrays.copyOf(node.top, Math.min(limit, node.top.length)));
+            }
+            return node.bucket.stream()
+                    .filter(keyed -> keyed.key().startsWith(key))
+                    .map(Keyed::suggestion)
+                    .distinct()
+                    .sorted(BY_WEIGHT)
+                    .limit(limit)
+                    .toList();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+    
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return entries.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+    
+    static String normalize(String text) {
+        if (text == null) {
+            return "";
+        }
+        String folded = DIACRITICS.matcher(Normalizer.normalize(text, Normalizer.Form.NFD)).replaceAll("");
+        return NON_ALPHANUMERIC.matcher(folded.toLowerCase(Locale.ROOT)).replaceAll(" ").trim();
+    }
+    
+    private static List<String> keysFor(String text) {
+        String normalized = normalize(text);
+        if (normalized.isEmpty()) {
+            return Collections.emptyList();
+        }
+        List<String> keys = new ArrayList<>();
+        keys.add(normalized);
+        int space = normalized.indexOf(' ');
+        while (space >= 0 && keys.size() < MAX_WORD_STARTS) {
+            keys.add(normalized.substring(space + 1));
+            space = normalized.indexOf(' ', space + 1);
+        }
+        return keys;
+    }
+    
+    private void removeLocked(String uniqueKey) {
+        Indexed existing = entries.remove(uniqueKey);
+        if (existing != null) {
+            for (String key : existing.keys()) {
+                root.delete(key, 0, existing.suggestion(), topK);
+            }
+        }
+    }
+    
+    private record Indexed(Suggestion suggestion, List<String> keys) {
+    }
+    
+    private record Keyed(String key, Suggestion suggestion) {
+    }
+    
+    private static final class Node {
+        
+        private static final char[] NO_LABELS = new char[0];
+        private static final Node[] NO_CHILDREN = new Node[0];
+        private static final Suggestion[] NO_SUGGESTIONS = new Suggestion[0];
+        
+        private char[] labels = NO_LABELS;
+        private Node[] children = NO_CHILDREN;
+        // Entries whose key ends here, or continues past the maximum depth
+        private List<Keyed> bucket = Collections.emptyList();
+        private Suggestion[] top = NO_SUGGESTIONS;
+        
+        void insert(String key, int depth, Suggestion suggestion) {
+            if (depth == Math.min(key.length(), MAX_DEPTH)) {
+                if (bucket.isEmpty()) {
+                    bucket = new ArrayList<>(1);
+                }
+                bucket.add(new Keyed(key, suggestion));
+            } else {
+                childOrCreate(key.charAt(depth)).insert(key, depth + 1, suggestion);
+            }
+        }
+        
+        void delete(String key, int depth, Suggestion suggestion, int topK) {
+            if (depth == Math.min(key.length(), MAX_DEPTH)) {
+                bucket.remove(new Keyed(key, suggestion));
+            } else {
+                char label = key.charAt(depth);
+                Node child = child(label);
+                if (child == null) {
+                    return;
+                }
+                child.delete(key, depth + 1, suggestion, topK);
+                if (child.isEmpty()) {
+                    removeChild(label);
+                }
+            }
+            recomputeTop(topK);
+        }
+        
+        void recomputePath(String key, int depth, int topK) {
+            if (depth < Math.min(key.length(), MAX_DEPTH)) {
+                child(key.charAt(depth)).recomputePath(key, depth + 1, topK);
+            }
+            recomputeTop(topK);
+        }
+        
+        void recomputeAll(int topK) {
+            for (Node child : children) {
+                child.recomputeAll(topK);
+            }
+            recomputeTop(topK);
+        }
+        
+        private void recomputeTop(int topK) {
+            // A suggestion can reach this node through several of its word starts
+            Set<Suggestion> candidates = new LinkedHashSet<>();
+            bucket.forEach(keyed -> candidates.add(keyed.suggestion()));
+            for (Node child : children) {
+                Collections.addAll(candidates, child.top);
+            }
+            top = candidates.stream()
+                    .sorted(BY_WEIGHT)
+                    .limit(topK)
+                    .toArray(Suggestion[]::new);
+        }
+        
+        Node child(char label) {
+            int index = Arrays.binarySearch(labels, label);
+            return index >= 0 ? children[index] : null;
+        }
+        
+        private Node childOrCreate(char label) {
+            int index = Arrays.binarySearch(labels, label);
+            if (index >= 0) {
+                return children[index];
+            }
+            int insertAt = -index - 1;
+            char[] newLabels = new char[labels.length + 1];
+            Node[] newChildren = new Node[children.length + 1];
+            System.arraycopy(labels, 0, newLabels, 0, insertAt);
+            System.arraycopy(children, 0, newChildren, 0, insertAt);
+            newLabels[insertAt] = label;
+            newChildren[insertAt] = new Node();
+            System.arraycopy(labels, insertAt, newLabels, insertAt + 1, labels.length - insertAt);
+            System.arraycopy(children, insertAt, newChildren, insertAt + 1, children.length - insertAt);
+            labels = newLabels;
+            children = newChildren;
+            return newChildren[insertAt];
+        }
+        
+        private void removeChild(char label) {
+            int index = Arrays.binarySearch(labels, label);
+            if (index < 0) {
+                return;
+            }
+            char[] newLabels = new char[labels.length - 1];
+            Node[] newChildren = new Node[children.length - 1];
+            System.arraycopy(labels, 0, newLabels, 0, index);
+            System.arraycopy(children, 0, newChildren, 0, index);
+            System.arraycopy(labels, index + 1, newLabels, index, labels.length - index - 1);
+            System.arraycopy(children, index + 1, newChildren, index, children.length - index - 1);
+            labels = newLabels;
+            children = newChildren;
+        }
+        
+        private boolean isEmpty() {
+            return bucket.isEmpty() && children.length == 0;
+        }
+    }
+}
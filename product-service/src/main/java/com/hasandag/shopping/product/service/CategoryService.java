@@ -2,10 +2,12 @@ package com.hasandag.ecommerce.product.service;
 
 import com.hasandag.ecommerce.product.dto.CategoryRequest;
 import com.hasandag.ecommerce.product.dto.CategoryResponse;
+import com.hasandag.ecommerce.product.dto.CategoryTreeNode;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 
 import java.util.List;
+import java.util.Set;
 
 public interface CategoryService {
     
@@ -30,4 +32,18 @@ public interface CategoryService {
     List<CategoryResponse> getSubcategories(String parentId);
     
     List<CategoryResponse> getRootCategories();
+    
+    List<CategoryTreeNode> getCategoryTree();
+    
+    CategoryTreeNode getCategorySubtree(String id);
+    
+    /**
+     * Categories from the root down to the given one, both included.
+     */
+    List<CategoryResponse> getBreadcrumbs(String id);
+    
+    /**
+     * Ids of the category and all categories below it.
+     */
+    Set<String> getDescendantIds(String id);
 } 
\ No newline at end of file
@@ -0,0 +1,28 @@
+package com.hasandag.ecommerce.product.service;
+
+import com.hasandag.ecommerce.product.model.ImageVariant;
+import org.springframework.core.io.Resource;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.util.Optional;
+
+public interface ImageStorageService {
+    
+    String storeImage(MultipartFile image) throws IOException;
+    
+    Optional<Resource> loadImage(String filename);
+    
+    Optional<Resource> loadImage(String filename, ImageVariant variant);
+    
+    void deleteImage(String filename);
+    
+    /**
+     * Copies a legacy flat-directory image into the content-addressed store. The legacy
+     * file is left in place; delete it with {@link #deleteImage} once the new filename
+     * has been persisted.
+     *
+     * @return the new filename, or empty if the legacy file does not exist
+     */
+    Optional<String> migrateLegacyImage(String filename) throws IOException;
+}
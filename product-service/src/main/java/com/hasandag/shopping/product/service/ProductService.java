@@ -1,7 +1,14 @@
 package com.hasandag.ecommerce.product.service;
 
+import com.hasandag.ecommerce.product.dto.CursorPage;
 import com.hasandag.ecommerce.product.dto.ProductRequest;
 import com.hasandag.ecommerce.product.dto.ProductResponse;
+import com.hasandag.ecommerce.product.dto.StockItem;
+import com.hasandag.ecommerce.product.dto.SuggestionResponse;
+import com.hasandag.ecommerce.product.repository.ProductListingFilter;
+import com.hasandag.ecommerce.product.repository.ProductSortKey;
+import com.hasandag.ecommerce.product.search.ProductSearchCriteria;
+import org.springframework.data.domain.Sort;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.web.multipart.MultipartFile;
@@ -22,10 +29,22 @@ public interface ProductService {
     
     Page<ProductResponse> getProductsByCategory(String categoryId, Pageable pageable);
     
+    /**
+     * Products of the category and of all categories below it.
+     */
+    Page<ProductResponse> getProductsByCategoryTree(String categoryId, Pageable pageable);
+    
     Page<ProductResponse> getProductsBySeller(String sellerId, Pageable pageable);
     
+    CursorPage<ProductResponse> getProductsByCursor(ProductListingFilter filter, ProductSortKey sortKey, Sort.Direction direction,
+                                                    String cursor, int size, boolean includeTotal);
+    
     Page<ProductResponse> searchProductsByName(String name, Pageable pageable);
     
+    Page<ProductResponse> searchProducts(ProductSearchCriteria criteria, Pageable pageable);
+    
+    List<SuggestionResponse> suggest(String prefix, int limit);
+    
     Page<ProductResponse> getProductsByPriceRange(BigDecimal minPrice, BigDecimal maxPrice, Pageable pageable);
     
     Page<ProductResponse> getProductsByCategoryAndPriceRange(String categoryId, BigDecimal minPrice, BigDecimal maxPrice, Pageable pageable);
@@ -36,12 +55,24 @@ public interface ProductService {
     
     ProductResponse updateProductStock(String id, Integer quantity);
     
+    /**
+     * Takes the stock of all items or none: if any item is short, what was already taken
+     * is given back and an {@code InsufficientStockException} is thrown.
+     */
+    List<ProductResponse> reserveStock(List<StockItem> items);
+    
+    void releaseStock(List<StockItem> items);
+    
     void updateProductRating(String productId, double averageRating, int reviewCount);
     
     List<ProductResponse> getNewArrivals();
     
     List<ProductResponse> getTopRatedProducts();
     
+    List<ProductResponse> refreshNewArrivals();
+    
+    List<ProductResponse> refreshTopRatedProducts();
+    
     ProductResponse uploadProductImages(String productId, List<MultipartFile> images, String sellerId) throws IOException;
     
     ProductResponse deleteProductImage(String productId, String imageUrl, String sellerId);
@@ -1,12 +1,15 @@
 package com.hasandag.ecommerce.product.service;
 
+import com.hasandag.ecommerce.product.dto.CursorPage;
 import com.hasandag.ecommerce.product.dto.ReviewRequest;
 import com.hasandag.ecommerce.product.dto.ReviewResponse;
+import com.hasandag.ecommerce.product.dto.ReviewSummaryResponse;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 
 import java.util.List;
+import java.util.stream.Stream;
 
 public interface ReviewService {
     
@@ -18,7 +21,12 @@ public interface ReviewService {
     
     List<ReviewResponse> getReviewsByProductId(String productId);
     
-    List<ReviewResponse> getReviewsByUserId(String userId);
+    CursorPage<ReviewResponse> getReviewsByUserId(String userId, String cursor, int limit);
+    
+    /**
+     * All reviews of a user, newest first, read lazily from a database cursor. The caller must close the stream.
+     */
+    Stream<ReviewResponse> streamReviewsByUserId(String userId);
     
     ReviewResponse updateReview(String id, ReviewRequest reviewRequest, String userId);
     
@@ -28,6 +36,8 @@ public interface ReviewService {
     
     double calculateAverageRating(String productId);
     
+    ReviewSummaryResponse getReviewSummary(String productId);
+    
     Page<ReviewResponse> getReviewsByProduct(String productId, PageRequest pageRequest);
     
     Page<ReviewResponse> getReviewsByUser(String userId, PageRequest pageRequest);
@@ -0,0 +1,46 @@
+package com.hasandag.ecommerce.product.service;
+
+import com.hasandag.ecommerce.product.dto.StockItem;
+import com.hasandag.ecommerce.product.dto.StockReservationResponse;
+
+import java.util.List;
+
+/**
+ * Time-bounded stock holds for orders. Every operation is idempotent per order id, so
+ * order-service can safely retry any call.
+ */
+public interface StockReservationService {
+    
+    /**
+     * Holds the stock of all items for the order until it is confirmed, released or expires.
+     * Repeating the call for an order that already holds a reservation returns that one.
+     */
+    StockReservationResponse reserve(String orderId, List<StockItem> items);
+    
+    /**
+     * Makes the reservation permanent; the stock is no longer returned on expiry.
+     */
+    StockReservationResponse confirm(String orderId);
+    
+    /**
+     * Returns the reserved stock; a no-op if it was already released or has expired.
+     */
+    StockReservationResponse release(String orderId);
+    
+    StockReservationResponse getReservation(String orderId);
+    
+    /**
+     * Returns the stock of reservations past their expiry time.
+     *
+     * @return number of reservations expired
+     */
+    int expireOverdue();
+    
+    /**
+     * Finishes reservations a crash left half done: fails those still pending and returns
+     * the stock of released or expired ones that never got it back.
+     *
+     * @return number of reservations recovered
+     */
+    int recoverStalled();
+}
@@ -0,0 +1,31 @@
+package com.hasandag.ecommerce.product.service.impl;
+
+import com.hasandag.ecommerce.product.category.CategoryPaths;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+/**
+ * Backfills category ancestor ids and product category paths on startup, and repairs any
+ * that drifted from the parent links. Only documents whose path is wrong are written, so
+ * it is cheap to leave enabled.
+ */
+@Component
+@ConditionalOnProperty(name = "app.categories.path-repair.enabled", havingValue = "true", matchIfMissing = true)
+@RequiredArgsConstructor
+@Slf4j
+public class CategoryPathRepairRunner implements ApplicationRunner {
+    
+    private final CategoryPaths categoryPaths;
+    
+    @Override
+    public void run(ApplicationArguments args) {
+        int corrected = categoryPaths.repairAll();
+        if (corrected > 0) {
+            log.info("Category path repair corrected {} categories and products", corrected);
+        }
+    }
+}
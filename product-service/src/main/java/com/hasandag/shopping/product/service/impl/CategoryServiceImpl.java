@@ -1,11 +1,16 @@
 package com.hasandag.ecommerce.product.service.impl;
 
+import com.hasandag.ecommerce.product.category.CategoryPaths;
+import com.hasandag.ecommerce.product.category.CategoryTree;
+import com.hasandag.ecommerce.product.category.CategoryTreeSnapshot;
 import com.hasandag.ecommerce.product.dto.CategoryRequest;
 import com.hasandag.ecommerce.product.dto.CategoryResponse;
+import com.hasandag.ecommerce.product.dto.CategoryTreeNode;
 import com.hasandag.ecommerce.product.exception.CategoryNotFoundException;
 import com.hasandag.ecommerce.product.mapper.CategoryMapper;
 import com.hasandag.ecommerce.product.model.Category;
 import com.hasandag.ecommerce.product.repository.CategoryRepository;
+import com.hasandag.ecommerce.product.search.ProductSuggester;
 import com.hasandag.ecommerce.product.service.CategoryService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -13,8 +18,8 @@ import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 
-import java.util.ArrayList;
 import java.util.List;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 @Service
@@ -24,86 +29,85 @@ public class CategoryServiceImpl implements CategoryService {
 
     private final CategoryRepository categoryRepository;
     private final CategoryMapper categoryMapper;
+    private final ProductSuggester productSuggester;
+    private final CategoryTree categoryTree;
+    private final CategoryPaths categoryPaths;
 
     @Override
     public CategoryResponse createCategory(CategoryRequest categoryRequest) {
         Category category = categoryMapper.toEntity(categoryRequest);
+        category.setAncestorIds(categoryPaths.ancestorsUnder(category.getParentId()));
         Category savedCategory = categoryRepository.save(category);
+        productSuggester.categoryChanged(savedCategory);
         log.info("Category created with ID: {}", savedCategory.getId());
         
         // If this category has a parent, update the parent's subcategory list
         if (category.getParentId() != null && !category.getParentId().isEmpty()) {
-            addSubCategory(category.getParentId(), savedCategory.getId());
+            linkSubCategory(category.getParentId(), savedCategory.getId());
         }
         
+        categoryTree.categoriesChanged();
         return categoryMapper.toDto(savedCategory);
     }
 
     @Override
     public CategoryResponse getCategoryById(String id) {
-        Category category = findCategoryById(id);
+        // A category created on another node may not have reached this node's tree yet
+        Category category = categoryTree.snapshot().find(id)
+                .orElseGet(() -> findCategoryById(id));
         return categoryMapper.toDto(category);
     }
 
     @Override
     public List<CategoryResponse> getAllCategories() {
-        List<Category> categories = categoryRepository.findAll();
-        return categories.stream()
-                .map(categoryMapper::toDto)
-                .collect(Collectors.toList());
+        return categoryMapper.toDtoList(categoryTree.snapshot().all());
     }
 
     @Override
     public List<CategoryResponse> getMainCategories() {
-        List<Category> mainCategories = categoryRepository.findByParentIdIsNull();
-        return mainCategories.stream()
-                .map(categoryMapper::toDto)
-                .collect(Collectors.toList());
+        return categoryMapper.toDtoList(categoryTree.snapshot().roots());
     }
 
     @Override
     public List<CategoryResponse> getSubCategories(String parentId) {
-        Category parentCategory = findCategoryById(parentId);
-        List<Category> subCategories = new ArrayList<>();
-        
-        for (String subCategoryId : parentCategory.getSubCategoryIds()) {
-            categoryRepository.findById(subCategoryId)
-                    .ifPresent(subCategories::add);
-        }
-        
-        return subCategories.stream()
-                .map(categoryMapper::toDto)
-                .collect(Collectors.toList());
+        CategoryTreeSnapshot snapshot = requireInTree(parentId);
+        return categoryMapper.toDtoList(snapshot.children(parentId));
     }
 
     @Override
     public CategoryResponse updateCategory(String id, CategoryRequest categoryRequest) {
         Category existingCategory = findCategoryById(id);
         
-        existingCategory.setName(categoryRequest.getName());
-        existingCategory.setDescription(categoryRequest.getDescription());
-        existingCategory.setImageUrl(categoryRequest.getImageUrl());
-        existingCategory.setActive(categoryRequest.isActive());
-        
         // Handle parent category change if needed
-        if (categoryRequest.getParentId() != null && 
-                !categoryRequest.getParentId().equals(existingCategory.getParentId())) {
-            
-            // If previously had a parent, remove from that parent's subcategories
-            if (existingCategory.getParentId() != null) {
-                removeSubCategory(existingCategory.getParentId(), id);
+        String newParentId = categoryRequest.getParentId();
+        if (newParentId != null && !newParentId.equals(existingCategory.getParentId())) {
+            if (categoryTree.snapshot().descendantIds(id).contains(newParentId)) {
+                throw new IllegalArgumentException("A category cannot be moved under itself or one of its subcategories");
             }
             
-            // Set new parent ID
-            existingCategory.setParentId(categoryRequest.getParentId());
-            
-            // Add to new parent's subcategories
-            if (!categoryRequest.getParentId().isEmpty()) {
-                addSubCategory(categoryRequest.getParentId(), id);
+            // Link to the new parent first, so a missing parent leaves the category where it was
+            if (!newParentId.isEmpty()) {
+                linkSubCategory(newParentId, id);
+            }
+            if (existingCategory.getParentId() != null && !existingCategory.getParentId().isEmpty()) {
+                categoryRepository.removeSubCategoryId(existingCategory.getParentId(), id);
             }
+            
+            List<String> ancestorIds = categoryPaths.ancestorsUnder(newParentId);
+            categoryRepository.setParent(id, newParentId, ancestorIds);
+            // The whole subtree and its products now hang below the new parent
+            categoryPaths.moveSubtree(id, ancestorIds);
         }
         
-        Category updatedCategory = categoryRepository.save(existingCategory);
+        // Only the edited fields are written, so concurrent subcategory link changes are kept
+        Category updatedCategory = categoryRepository.updateDetails(id,
+                        categoryRequest.getName(),
+                        categoryRequest.getDescription(),
+                        categoryRequest.getImageUrl(),
+                        categoryRequest.isActive())
+                .orElseThrow(() -> new CategoryNotFoundException("Category not found with id: " + id));
+        categoryTree.categoriesChanged();
+        productSuggester.categoryChanged(updatedCategory);
         log.info("Category updated with ID: {}", updatedCategory.getId());
         return categoryMapper.toDto(updatedCategory);
     }
@@ -114,43 +118,47 @@ public class CategoryServiceImpl implements CategoryService {
         
         // If this category has a parent, update the parent's subcategory list
         if (category.getParentId() != null && !category.getParentId().isEmpty()) {
-            removeSubCategory(category.getParentId(), id);
+            categoryRepository.removeSubCategoryId(category.getParentId(), id);
         }
         
         // If this category has subcategories, make them top-level categories
-        if (!category.getSubCategoryIds().isEmpty()) {
-            for (String subCategoryId : category.getSubCategoryIds()) {
-                categoryRepository.findById(subCategoryId).ifPresent(subCategory -> {
-                    subCategory.setParentId(null);
-                    categoryRepository.save(subCategory);
-                });
-            }
+        long detached = categoryRepository.detachChildren(id);
+        if (detached > 0) {
+            categoryPaths.detachSubtree(id);
         }
         
         categoryRepository.delete(category);
+        categoryTree.categoriesChanged();
+        productSuggester.categoryRemoved(id);
         log.info("Category deleted with ID: {}", id);
     }
 
     @Override
     public void addSubCategory(String parentId, String subCategoryId) {
-        Category parentCategory = findCategoryById(parentId);
-        if (!parentCategory.getSubCategoryIds().contains(subCategoryId)) {
-            parentCategory.getSubCategoryIds().add(subCategoryId);
-            categoryRepository.save(parentCategory);
-            log.info("Subcategory {} added to parent category {}", subCategoryId, parentId);
-        }
+        linkSubCategory(parentId, subCategoryId);
+        categoryTree.categoriesChanged();
     }
 
     @Override
     public void removeSubCategory(String parentId, String subCategoryId) {
-        Category parentCategory = findCategoryById(parentId);
-        if (parentCategory.getSubCategoryIds().contains(subCategoryId)) {
-            parentCategory.getSubCategoryIds().remove(subCategoryId);
-            categoryRepository.save(parentCategory);
-            log.info("Subcategory {} removed from parent category {}", subCategoryId, parentId);
+        unlinkSubCategory(parentId, subCategoryId);
+        categoryTree.categoriesChanged();
+    }
+
+    private void linkSubCategory(String parentId, String subCategoryId) {
+        if (!categoryRepository.addSubCategoryId(parentId, subCategoryId)) {
+            throw new CategoryNotFoundException("Category not found with id: " + parentId);
         }
+        log.info("Subcategory {} added to parent category {}", subCategoryId, parentId);
     }
-    
+
+    private void unlinkSubCategory(String parentId, String subCategoryId) {
+        if (!categoryRepository.removeSubCategoryId(parentId, subCategoryId)) {
+            throw new CategoryNotFoundException("Category not found with id: " + parentId);
+        }
+        log.info("Subcategory {} removed from parent category {}", subCategoryId, parentId);
+    }
+
     @Override
     public List<CategoryResponse> getSubcategories(String parentId) {
         return getSubCategories(parentId);
@@ -160,7 +168,51 @@ public class CategoryServiceImpl implements CategoryService {
     public List<CategoryResponse> getRootCategories() {
         return getMainCategories();
     }
-
+    
+    @Override
+    public List<CategoryTreeNode> getCategoryTree() {
+        CategoryTreeSnapshot snapshot = categoryTree.snapshot();
+        return snapshot.roots().stream()
+                .map(root -> toTreeNode(snapshot, root))
+                .collect(Collectors.toList());
+    }
+    
+    @Override
+    public CategoryTreeNode getCategorySubtree(String id) {
+        CategoryTreeSnapshot snapshot = requireInTree(id);
+        return toTreeNode(snapshot, snapshot.find(id).orElseThrow());
+    }
+    
+    @Override
+    public List<CategoryResponse> getBreadcrumbs(String id) {
+        return categoryMapper.toDtoList(requireInTree(id).breadcrumbs(id));
+    }
+    
+    @Override
+    public Set<String> getDescendantIds(String id) {
+        return requireInTree(id).descendantIds(id);
+    }
+    
+    private CategoryTreeNode toTreeNode(CategoryTreeSnapshot snapshot, Category category) {
+        return CategoryTreeNode.builder()
+                .id(category.getId())
+                .name(category.getName())
+                .imageUrl(category.getImageUrl())
+                .active(category.isActive())
+                .children(snapshot.children(category.getId()).stream()
+                        .map(child -> toTreeNode(snapshot, child))
+                        .collect(Collectors.toList()))
+                .build();
+    }
+    
+    private CategoryTreeSnapshot requireInTree(String id) {
+        CategoryTreeSnapshot snapshot = categoryTree.snapshot();
+        if (snapshot.find(id).isEmpty()) {
+            throw new CategoryNotFoundException("Category not found with id: " + id);
+        }
+        return snapshot;
+    }
+    
     private Category findCategoryById(String id) {
         return categoryRepository.findById(id)
                 .orElseThrow(() -> new CategoryNotFoundException("Category not found with id: " + id));
@@ -0,0 +1,261 @@
+package com.hasandag.ecommerce.product.service.impl;
+
+import com.hasandag.ecommerce.product.model.ImageVariant;
+import com.hasandag.ecommerce.product.repository.ImageBlobRepository;
+import com.hasandag.ecommerce.product.service.ImageStorageService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.regex.Pattern;
+
+/**
+ * Content-addressed image store. Files are named after the SHA-256 of their content and
+ * laid out in a two-level sharded tree ({@code ab/cd/abcd...jpg}), so identical uploads
+ * share one file and no single directory grows unbounded. Shared files are reference
+ * counted in the {@code image_blobs} collection and removed with their last reference.
+ * A delete moves the file aside before committing the record removal and puts it back if
+ * the same content was uploaded again in between.
+ * <p>
+ * Filenames that are not content hashes are legacy flat-directory uploads; they are still
+ * served and deleted from the root directory until {@link #migrateLegacyImage} moves them.
+ */
+@Service
+@Slf4j
+public class FileSystemImageStorageService implements ImageStorageService {
+    
+    private static final Pattern BLOB_NAME = Pattern.compile("[0-9a-f]{64}(\\.[a-z0-9]+)?");
+    private static final Pattern EXTENSION = Pattern.compile("[a-z0-9]{1,10}");
+    
+    private final Path rootDir;
+    private final ImageVariantGenerator variantGenerator;
+    private final ImageBlobRepository imageBlobRepository;
+    
+    public FileSystemImageStorageService(@Value("${app.upload.dir:uploads/products}") String uploadDir,
+                                         ImageVariantGenerator variantGenerator,
+                                         ImageBlobRepository imageBlobRepository) {
+        this.rootDir = Paths.get(uploadDir).toAbsolutePath().normalize();
+        this.variantGenerator = variantGenerator;
+        this.imageBlobRepository = imageBlobRepository;
+    }
+    
+    @Override
+    public String storeImage(MultipartFile image) throws IOException {
+        // Anything else would make a blob name that is later taken for a legacy one
+        String extension = extensionOf(image.getOriginalFilename())
+                .orElseThrow(() -> new IllegalArgumentException("Unsupported image file name: " + image.getOriginalFilename()));
+        
+        try (InputStream input = image.getInputStream()) {
+            return store(input, extension);
+        }
+    }
+    
+    @Override
+    public Optional<Resource> loadImage(String filename) {
+        return resolve(filename)
+                .filter(path -> Files.isRegularFile(path) && Files.isReadable(path))
+                // FileSystemResource is backed by a FileChannel, so the body is streamed
+                // in small chunks (or as ranges) instead of being loaded onto the heap
+                .map(FileSystemResource::new);
+    }
+    
+    @Override
+    public Optional<Resource> loadImage(String filename, ImageVariant variant) {
+        if (variant.isResized()) {
+            Optional<Resource> resized = loadImage(variant.filenameFor(filename));
+            if (resized.isPresent()) {
+                return resized;
+            }
+        }
+        // Fall back to the original while the variant is pending or was not needed
+        return loadImage(filename);
+    }
+    
+    @Override
+    public void deleteImage(String filename) {
+        if (!isBlobName(filename)) {
+            resolve(filename).ifPresent(this::deleteWithVariants);
+            return;
+        }
+        
+        // Shared blobs stay on disk until their last reference goes away
+        if (!imageBlobRepository.releaseReference(filename)) {
+            log.debug("Image {} is still referenced, keeping file", filename);
+            return;
+        }
+        resolve(filename).ifPresent(path -> deleteUnreferencedBlob(filename, path));
+    }
+    
+    @Override
+    public Optional<String> migrateLegacyImage(String filename) throws IOException {
+        if (isBlobName(filename)) {
+            return Optional.of(filename);
+        }
+        
+        Optional<Path> legacyPath = resolve(filename).filter(Files::isRegularFile);
+        if (legacyPath.isEmpty()) {
+            return Optional.empty();
+        }
+        
+        // A legacy name with an unusable extension is stored without one and served as octet-stream
+        String extension = extensionOf(filename).orElse("");
+        // The legacy file stays until the caller has persisted the new URL
+        try (InputStream input = Files.newInputStream(legacyPath.get())) {
+            return Optional.of(store(input, extension));
+        }
+    }
+    
+    /**
+     * The lower-cased extension with its dot, {@code ""} if the name has none, or empty if
+     * it is not 1 to 10 letters and digits.
+     */
+    static Optional<String> extensionOf(String filename) {
+        if (filename == null) {
+            return Optional.of("");
+        }
+        int dot = filename.lastIndexOf('.');
+        if (dot < 0) {
+            return Optional.of("");
+        }
+        String extension = filename.substring(dot + 1).toLowerCase(Locale.ROOT);
+        return EXTENSION.matcher(extension).matches() ? Optional.of("." + extension) : Optional.empty();
+    }
+    
+    private String store(InputStream input, String extension) throws IOException {
+        Path tempDir = rootDir.resolve(".tmp");
+        Files.createDirectories(tempDir);
+        Path temp = Files.createTempFile(tempDir, "upload-", extension);
+        
+        try {
+            // Hash while streaming to disk so the upload is read exactly once
+            MessageDigest digest = sha256();
+            long size;
+            try (DigestInputStream digestInput = new DigestInputStream(input, digest);
+                 OutputStream output = Files.newOutputStream(temp)) {
+                size = digestInput.transferTo(output);
+            }
+            
+            String blobName = HexFormat.of().formatHex(digest.digest()) + extension;
+            Path target = blobPath(blobName);
+            
+            // Take the reference before the file check. A concurrent delete of the same
+            // content moves the file aside before dropping the record, so either we see the
+            // record and the delete puts the file back, or we see the file missing and
+            // move ours into place
+            long references = imageBlobRepository.addReference(blobName, size);
+            
+            if (Files.exists(target)) {
+                log.info("Deduplicated image upload {} ({} references)", blobName, references);
+            } else {
+                Files.createDirectories(target.getParent());
+                Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+                // Resized variants are produced off the request thread
+                variantGenerator.submit(target);
+            }
+            return blobName;
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+    
+    private void deleteUnreferencedBlob(String blobName, Path path) {
+        Path aside = path.resolveSibling(path.getFileName() + ".deleting-" + UUID.randomUUID());
+        try {
+            Files.move(path, aside, StandardCopyOption.ATOMIC_MOVE);
+        } catch (NoSuchFileException e) {
+            aside = null;
+        } catch (IOException e) {
+            log.error("Failed to delete image file: {}", e.getMessage());
+            return;
+        }
+        
+        if (imageBlobRepository.removeIfUnreferenced(blobName)) {
+            try {
+                if (aside != null) {
+                    Files.deleteIfExists(aside);
+                }
+            } catch (IOException e) {
+                log.error("Failed to delete image file: {}", e.getMessage());
+            }
+            variantGenerator.deleteVariants(path);
+            return;
+        }
+        
+        // The content was uploaded again while we were deleting it
+        log.debug("Image {} was referenced again, keeping file", blobName);
+        if (aside != null) {
+            try {
+                Files.move(aside, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (IOException e) {
+                log.error("Failed to restore image file {}: {}", blobName, e.getMessage());
+            }
+        }
+    }
+    
+    private void deleteWithVariants(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            log.error("Failed to delete image file: {}", e.getMessage());
+        }
+        variantGenerator.deleteVariants(path);
+    }
+    
+    private Optional<Path> resolve(String filename) {
+        Path path;
+        try {
+            String baseName = filename.contains("_") ? filename.substring(0, filename.indexOf('_')) : filename;
+            path = isBlobName(baseName) || isBlobName(filename)
+                    ? blobPath(filename)
+                    : rootDir.resolve(filename).normalize();
+        } catch (InvalidPathException e) {
+            log.warn("Rejected invalid image filename: {}", filename);
+            return Optional.empty();
+        }
+        
+        // Never touch anything outside of the upload directory
+        if (!path.startsWith(rootDir) || path.equals(rootDir)) {
+            log.warn("Rejected image path outside of upload directory: {}", filename);
+            return Optional.empty();
+        }
+        return Optional.of(path);
+    }
+    
+    private Path blobPath(String blobName) {
+        return rootDir.resolve(blobName.substring(0, 2))
+                .resolve(blobName.substring(2, 4))
+                .resolve(blobName)
+                .normalize();
+    }
+    
+    private boolean isBlobName(String filename) {
+        return BLOB_NAME.matcher(filename).matches();
+    }
+    
+    private MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+}
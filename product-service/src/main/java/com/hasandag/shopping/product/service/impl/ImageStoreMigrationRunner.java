@@ -0,0 +1,115 @@
+package com.hasandag.ecommerce.product.service.impl;
+
+import com.hasandag.ecommerce.product.cache.CategoryCacheVersions;
+import com.hasandag.ecommerce.product.model.Product;
+import com.hasandag.ecommerce.product.service.ImageStorageService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+
+/**
+ * One-off migration of legacy flat-directory uploads into the content-addressed store.
+ * Enable with {@code app.images.migrate-legacy=true}; it is safe to run repeatedly since
+ * already migrated URLs are left untouched.
+ */
+@Component
+@ConditionalOnProperty(name = "app.images.migrate-legacy", havingValue = "true")
+@RequiredArgsConstructor
+@Slf4j
+public class ImageStoreMigrationRunner implements ApplicationRunner {
+    
+    private static final String IMAGE_URL_PREFIX = "/api/products/images/";
+    
+    private final MongoTemplate mongoTemplate;
+    private final ImageStorageService imageStorageService;
+    private final CacheManager cacheManager;
+    private final CategoryCacheVersions categoryCacheVersions;
+    
+    @Override
+    public void run(ApplicationArguments args) {
+        log.info("Migrating product images to the content-addressed store");
+        int migratedProducts = 0;
+        int migratedImages = 0;
+        
+        Query query = Query.query(where("imageUrls").regex("^" + IMAGE_URL_PREFIX));
+        try (Stream<Product> products = mongoTemplate.stream(query, Product.class)) {
+            for (Product product : (Iterable<Product>) products::iterator) {
+                List<String> imageUrls = new ArrayList<>(product.getImageUrls());
+                List<String> legacyFilenames = new ArrayList<>();
+                List<String> blobNames = new ArrayList<>();
+                
+                for (int i = 0; i < imageUrls.size(); i++) {
+                    String imageUrl = imageUrls.get(i);
+                    if (!imageUrl.startsWith(IMAGE_URL_PREFIX)) {
+                        continue;
+                    }
+                    String filename = imageUrl.substring(IMAGE_URL_PREFIX.length());
+                    Optional<String> blobName = migrate(product.getId(), filename);
+                    if (blobName.isPresent() && !blobName.get().equals(filename)) {
+                        imageUrls.set(i, IMAGE_URL_PREFIX + blobName.get());
+                        legacyFilenames.add(filename);
+                        blobNames.add(blobName.get());
+                    }
+                }
+                
+                if (!legacyFilenames.isEmpty()) {
+                    try {
+                        mongoTemplate.updateFirst(
+                                Query.query(where("_id").is(product.getId())),
+                                new Update().set("imageUrls", imageUrls),
+                                Product.class);
+                    } catch (RuntimeException e) {
+                        // Drop the references we took so a rerun does not count them twice
+                        blobNames.forEach(imageStorageService::deleteImage);
+                        throw e;
+                    }
+                    // Only now that the product points at the blobs can the old files go
+                    legacyFilenames.forEach(imageStorageService::deleteImage);
+                    migratedImages += legacyFilenames.size();
+                    evictProduct(product.getId());
+                    categoryCacheVersions.bump(product.getCategoryId());
+                    migratedProducts++;
+                }
+            }
+        }
+        
+        log.info("Image migration finished: {} images in {} products moved to the content-addressed store",
+                migratedImages, migratedProducts);
+    }
+    
+    private Optional<String> migrate(String productId, String filename) {
+        try {
+            Optional<String> blobName = imageStorageService.migrateLegacyImage(filename);
+            if (blobName.isEmpty()) {
+                log.warn("Legacy image {} of product {} is missing on disk, leaving URL unchanged", filename, productId);
+            }
+            return blobName;
+        } catch (IOException e) {
+            log.error("Failed to migrate image {} of product {}: {}", filename, productId, e.getMessage());
+            return Optional.empty();
+        }
+    }
+    
+    private void evictProduct(String productId) {
+        Cache cache = cacheManager.getCache("products");
+        if (cache != null) {
+            cache.evict(productId);
+        }
+    }
+}
@@ -0,0 +1,179 @@
+package com.hasandag.ecommerce.product.service.impl;
+
+import com.hasandag.ecommerce.product.model.ImageVariant;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+
+/**
+ * Creates the resized variants of an uploaded image on a bounded background pool.
+ * Variants are written next to the original and are optional: until a variant exists
+ * the original is served in its place.
+ */
+@Component
+@Slf4j
+public class ImageVariantGenerator {
+    
+    private final ThreadPoolExecutor executor;
+    private final Timer generationTimer;
+    private final Counter rejectedCounter;
+    private final Counter failedCounter;
+    
+    @Value("${app.images.variants.jpeg-quality:0.8}")
+    private float jpegQuality;
+    
+    public ImageVariantGenerator(@Qualifier("imageVariantExecutor") ThreadPoolExecutor executor,
+                                 MeterRegistry meterRegistry) {
+        this.executor = executor;
+        this.generationTimer = Timer.builder("product.image.variants.generation")
+                .description("Time spent generating all variants of one uploaded image")
+                .register(meterRegistry);
+        this.rejectedCounter = Counter.builder("product.image.variants.rejected")
+                .description("Images skipped because the variant queue was full")
+                .register(meterRegistry);
+        this.failedCounter = Counter.builder("product.image.variants.failed")
+                .description("Images whose variants could not be generated")
+                .register(meterRegistry);
+        Gauge.builder("product.image.variants.queue.depth", executor, e -> e.getQueue().size())
+                .description("Images waiting for variant generation")
+                .register(meterRegistry);
+        Gauge.builder("product.image.variants.active", executor, ThreadPoolExecutor::getActiveCount)
+                .description("Images currently being processed")
+                .register(meterRegistry);
+    }
+    
+    public void submit(Path original) {
+        if (!isSupported(original)) {
+            return;
+        }
+        try {
+            executor.execute(() -> generationTimer.record(() -> generate(original)));
+        } catch (RejectedExecutionException e) {
+            rejectedCounter.increment();
+            log.warn("Variant queue is full, serving original only for: {}", original.getFileName());
+        }
+    }
+    
+    public void deleteVariants(Path original) {
+        for (ImageVariant variant : ImageVariant.values()) {
+            if (!variant.isResized()) {
+                continue;
+            }
+            Path variantPath = original.resolveSibling(variant.filenameFor(original.getFileName().toString()));
+            try {
+                Files.deleteIfExists(variantPath);
+            } catch (IOException e) {
+                log.error("Failed to delete image variant {}: {}", variantPath.getFileName(), e.getMessage());
+            }
+        }
+    }
+    
+    private void generate(Path original) {
+        try {
+            BufferedImage source = ImageIO.read(original.toFile());
+            if (source == null) {
+                log.warn("Unsupported image format, no variants generated for: {}", original.getFileName());
+                return;
+            }
+            
+            for (ImageVariant variant : ImageVariant.values()) {
+                // Never upscale; the original is served when it is already small enough
+                if (!variant.isResized() || source.getWidth() <= variant.getMaxWidth()) {
+                    continue;
+                }
+                writeVariant(source, original, variant);
+            }
+            log.debug("Generated image variants for: {}", original.getFileName());
+        } catch (IOException | RuntimeException e) {
+            failedCounter.increment();
+            log.error("Failed to generate variants for {}: {}", original.getFileName(), e.getMessage());
+        }
+    }
+    
+    private void writeVariant(BufferedImage source, Path original, ImageVariant variant) throws IOException {
+        String format = formatOf(original);
+        boolean png = "png".equals(format);
+        
+        int width = variant.getMaxWidth();
+        int height = Math.max(1, Math.round(source.getHeight() * (width / (float) source.getWidth())));
+        
+        BufferedImage scaled = new BufferedImage(width, height, png ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = scaled.createGraphics();
+        try {
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            graphics.drawImage(source, 0, 0, width, height, null);
+        } finally {
+            graphics.dispose();
+        }
+        
+        // Write to a temp file first so readers never observe a half-written variant
+        Path target = original.resolveSibling(variant.filenameFor(original.getFileName().toString()));
+        Path temp = Files.createTempFile(original.getParent(), ".variant-", ".tmp");
+        try {
+            if (png) {
+                ImageIO.write(scaled, "png", temp.toFile());
+            } else {
+                writeJpeg(scaled, temp);
+            }
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+    
+    private void writeJpeg(BufferedImage image, Path target) throws IOException {
+        Iterator<ImageWriter> writers = ImageIO.getImageWritersByFormatName("jpeg");
+        if (!writers.hasNext()) {
+            throw new IOException("No JPEG writer available");
+        }
+        ImageWriter writer = writers.next();
+        ImageWriteParam param = writer.getDefaultWriteParam();
+        param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+        param.setCompressionQuality(jpegQuality);
+        
+        try (ImageOutputStream output = ImageIO.createImageOutputStream(target.toFile())) {
+            writer.setOutput(output);
+            writer.write(null, new IIOImage(image, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+    }
+    
+    private boolean isSupported(Path path) {
+        String format = formatOf(path);
+        return "jpeg".equals(format) || "png".equals(format);
+    }
+    
+    private String formatOf(Path path) {
+        String filename = path.getFileName().toString();
+        String extension = filename.substring(filename.lastIndexOf('.') + 1).toLowerCase(Locale.ROOT);
+        return switch (extension) {
+            case "jpg", "jpeg" -> "jpeg";
+            case "png" -> "png";
+            default -> extension;
+        };
+    }
+}
@@ -1,47 +1,73 @@
 package com.hasandag.ecommerce.product.service.impl;
 
+import com.hasandag.ecommerce.product.cache.CategoryCacheVersions;
+import com.hasandag.ecommerce.product.category.CategoryPaths;
+import com.hasandag.ecommerce.product.dto.CursorPage;
 import com.hasandag.ecommerce.product.dto.ProductRequest;
 import com.hasandag.ecommerce.product.dto.ProductResponse;
+import com.hasandag.ecommerce.product.dto.StockItem;
+import com.hasandag.ecommerce.product.dto.SuggestionResponse;
+import com.hasandag.ecommerce.product.exception.InsufficientStockException;
 import com.hasandag.ecommerce.product.exception.ProductNotFoundException;
 import com.hasandag.ecommerce.product.exception.UnauthorizedAccessException;
 import com.hasandag.ecommerce.product.mapper.ProductMapper;
 import com.hasandag.ecommerce.product.model.Product;
+import com.hasandag.ecommerce.product.outbox.ProductEventOutbox;
 import com.hasandag.ecommerce.product.repository.CategoryRepository;
+import com.hasandag.ecommerce.product.repository.ProductCursor;
+import com.hasandag.ecommerce.product.repository.ProductListingFilter;
 import com.hasandag.ecommerce.product.repository.ProductRepository;
+import com.hasandag.ecommerce.product.repository.ProductSortKey;
+import com.hasandag.ecommerce.product.search.ProductSearchCriteria;
+import com.hasandag.ecommerce.product.search.ProductSearchIndex;
+import com.hasandag.ecommerce.product.search.ProductSuggester;
+import com.hasandag.ecommerce.product.service.ImageStorageService;
 import com.hasandag.ecommerce.product.service.ProductService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
 import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.CachePut;
 import org.springframework.cache.annotation.Cacheable;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
-import org.springframework.beans.factory.annotation.Value;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.math.BigDecimal;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.UUID;
-import java.io.File;
-import java.io.IOException;
-import java.nio.file.Files;
-import java.nio.file.Path;
-import java.nio.file.Paths;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.function.Function;
+import java.util.regex.Pattern;
 import java.util.stream.Collectors;
+import java.util.stream.StreamSupport;
+import java.io.IOException;
 
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class ProductServiceImpl implements ProductService {
     
+    private static final int MAX_UPDATE_ATTEMPTS = 5;
+    
     private final ProductRepository productRepository;
     private final CategoryRepository categoryRepository;
     private final ProductMapper productMapper;
-    
-    @Value("${app.upload.dir:uploads/products}")
-    private String uploadDir;
+    private final ImageStorageService imageStorageService;
+    private final CategoryCacheVersions categoryCacheVersions;
+    private final ProductSearchIndex productSearchIndex;
+    private final ProductSuggester productSuggester;
+    private final CategoryPaths categoryPaths;
+    private final CacheManager cacheManager;
+    private final ProductEventOutbox productEventOutbox;
     
     @Override
     @Transactional
@@ -54,8 +80,12 @@ public class ProductServiceImpl implements ProductService {
         
         Product product = productMapper.toEntity(productRequest);
         product.setSellerId(sellerId);
+        product.setCategoryPath(categoryPaths.productPath(product.getCategoryId()));
         
         Product savedProduct = productRepository.save(product);
+        categoryCacheVersions.bump(savedProduct.getCategoryId());
+        productSearchIndex.index(savedProduct);
+        productSuggester.productChanged(savedProduct);
         log.info("Product created successfully with id: {}", savedProduct.getId());
         
         return productMapper.toResponse(savedProduct);
@@ -67,24 +97,54 @@ public class ProductServiceImpl implements ProductService {
     public ProductResponse updateProduct(String id, ProductRequest productRequest, String sellerId) {
         log.info("Updating product with id: {}, sellerId: {}", id, sellerId);
         
-        Product product = getProductEntityById(id);
-        
-        // Verify seller ownership
-        if (!product.getSellerId().equals(sellerId)) {
-            throw new UnauthorizedAccessException("You don't have permission to update this product");
-        }
-        
-        // Verify if new category exists (if changed)
-        if (!product.getCategoryId().equals(productRequest.getCategoryId())) {
-            categoryRepository.findById(productRequest.getCategoryId())
-                    .orElseThrow(() -> new IllegalArgumentException("Category not found"));
+        // Retry on a concurrent change, so the stock version only ever moves forward
+        for (int attempt = 1; ; attempt++) {
+            Product product = getProductEntityById(id);
+            
+            // Verify seller ownership
+            if (!product.getSellerId().equals(sellerId)) {
+                throw new UnauthorizedAccessException("You don't have permission to update this product");
+            }
+            
+            // Verify if new category exists (if changed)
+            if (!product.getCategoryId().equals(productRequest.getCategoryId())) {
+                categoryRepository.findById(productRequest.getCategoryId())
+                        .orElseThrow(() -> new IllegalArgumentException("Category not found"));
+            }
+            
+            String previousCategoryId = product.getCategoryId();
+            BigDecimal previousPrice = product.getPrice();
+            Integer previousStock = product.getStockQuantity();
+            productMapper.updateProductFromRequest(productRequest, product);
+            if (!previousCategoryId.equals(product.getCategoryId())) {
+                product.setCategoryPath(categoryPaths.productPath(product.getCategoryId()));
+            }
+            boolean stockOrPriceChanged = !Objects.equals(previousStock, product.getStockQuantity())
+                    || previousPrice == null || product.getPrice() == null
+                    || previousPrice.compareTo(product.getPrice()) != 0;
+            Optional<Product> replaced = productEventOutbox.inTransaction(() -> {
+                Optional<Product> saved = productRepository.replaceIfStockVersion(product);
+                if (saved.isPresent() && stockOrPriceChanged) {
+                    productEventOutbox.stockChanged(saved.get());
+                }
+                return saved;
+            });
+            if (replaced.isEmpty()) {
+                if (attempt == MAX_UPDATE_ATTEMPTS) {
+                    throw new IllegalStateException("Product " + id + " kept changing during the update, please retry");
+                }
+                continue;
+            }
+            Product updatedProduct = replaced.get();
+            
+            // A moved product leaves its old category's listings and joins the new one's
+            categoryCacheVersions.bump(previousCategoryId, updatedProduct.getCategoryId());
+            productSearchIndex.index(updatedProduct);
+            productSuggester.productChanged(updatedProduct);
+            
+            log.info("Product updated successfully with id: {}", updatedProduct.getId());
+            return productMapper.toResponse(updatedProduct);
         }
-        
-        productMapper.updateProductFromRequest(productRequest, product);
-        Product updatedProduct = productRepository.save(product);
-        
-        log.info("Product updated successfully with id: {}", updatedProduct.getId());
-        return productMapper.toResponse(updatedProduct);
     }
     
     @Override
@@ -101,11 +161,23 @@ public class ProductServiceImpl implements ProductService {
         }
         
         productRepository.deleteById(id);
+        categoryCacheVersions.bump(product.getCategoryId());
+        productSearchIndex.remove(id);
+        productSuggester.productRemoved(id);
+        
+        // Release the product's image references, shared blobs stay while others use them
+        if (product.getImageUrls() != null) {
+            for (String imageUrl : product.getImageUrls()) {
+                if (imageUrl.startsWith("/api/products/images/")) {
+                    imageStorageService.deleteImage(imageUrl.substring("/api/products/images/".length()));
+                }
+            }
+        }
         log.info("Product deleted successfully with id: {}", id);
     }
     
     @Override
-    @Cacheable(value = "products", key = "#id")
+    @Cacheable(value = "products", key = "#id", sync = true)
     public ProductResponse getProductById(String id) {
         log.info("Getting product with id: {}", id);
         return productMapper.toResponse(getProductEntityById(id));
@@ -126,13 +198,20 @@ public class ProductServiceImpl implements ProductService {
     }
     
     @Override
-    @Cacheable(value = "productsByCategory", key = "{#categoryId, #pageable.pageNumber, #pageable.pageSize}")
+    @Cacheable(value = "productsByCategory", key = "{#categoryId, @categoryCacheVersions.current(#categoryId), #pageable.pageNumber, #pageable.pageSize}", sync = true)
     public Page<ProductResponse> getProductsByCategory(String categoryId, Pageable pageable) {
         log.info("Getting products by category id: {}", categoryId);
         Page<Product> products = productRepository.findByCategoryId(categoryId, pageable);
         return products.map(productMapper::toResponse);
     }
     
+    @Override
+    public Page<ProductResponse> getProductsByCategoryTree(String categoryId, Pageable pageable) {
+        log.info("Getting products by category id: {} including subcategories", categoryId);
+        Page<Product> products = productRepository.findByCategoryPath(categoryId, pageable);
+        return products.map(productMapper::toResponse);
+    }
+    
     @Override
     public Page<ProductResponse> getProductsBySeller(String sellerId, Pageable pageable) {
         log.info("Getting products by seller id: {}", sellerId);
@@ -140,11 +219,73 @@ public class ProductServiceImpl implements ProductService {
         return products.map(productMapper::toResponse);
     }
     
+    @Override
+    public CursorPage<ProductResponse> getProductsByCursor(ProductListingFilter filter, ProductSortKey sortKey, Sort.Direction direction,
+                                                           String cursor, int size, boolean includeTotal) {
+        log.info("Getting products by cursor with filter: {}, sort: {} {}, size: {}", filter, sortKey, direction, size);
+        
+        ProductCursor after = null;
+        if (cursor != null && !cursor.isBlank()) {
+            after = ProductCursor.decode(cursor);
+            if (after.sortKey() != sortKey || after.direction() != direction) {
+                throw new IllegalArgumentException("Cursor does not match the requested sort");
+            }
+        }
+        
+        // One extra row tells whether another slice follows, without a count query
+        List<Product> products = productRepository.findSlice(filter, sortKey, direction, after, size + 1);
+        boolean hasNext = products.size() > size;
+        if (hasNext) {
+            products = products.subList(0, size);
+        }
+        
+        return CursorPage.<ProductResponse>builder()
+                .content(productMapper.toResponseList(products))
+                .size(size)
+                .hasNext(hasNext)
+                .nextCursor(hasNext ? ProductCursor.after(products.get(size - 1), sortKey, direction).encode() : null)
+                .totalElements(includeTotal ? productRepository.countListing(filter) : null)
+                .build();
+    }
+    
     @Override
     public Page<ProductResponse> searchProductsByName(String name, Pageable pageable) {
-        log.info("Searching products by name: {}", name);
-        Page<Product> products = productRepository.findByNameContainingIgnoreCase(name, pageable);
-        return products.map(productMapper::toResponse);
+        return searchProducts(ProductSearchCriteria.ofText(name), pageable);
+    }
+    
+    @Override
+    public Page<ProductResponse> searchProducts(ProductSearchCriteria criteria, Pageable pageable) {
+        log.info("Searching products: {}", criteria);
+        
+        if (!productSearchIndex.isReady()) {
+            // Only while the index is still being built at startup; filters are not applied here
+            log.warn("Search index not ready, falling back to name scan");
+            Page<Product> products = productRepository.findByNameContainingIgnoreCase(Pattern.quote(criteria.text()), pageable);
+            return products.map(productMapper::toResponse);
+        }
+        
+        Page<String> ids = productSearchIndex.search(criteria, pageable);
+        Map<String, Product> productsById = StreamSupport.stream(productRepository.findAllById(ids.getContent()).spliterator(), false)
+                .collect(Collectors.toMap(Product::getId, Function.identity()));
+        
+        // Keep the relevance order of the index; ids deleted in the meantime are skipped
+        List<ProductResponse> content = ids.getContent().stream()
+                .map(productsById::get)
+                .filter(Objects::nonNull)
+                .map(productMapper::toResponse)
+                .toList();
+        return new PageImpl<>(content, pageable, ids.getTotalElements());
+    }
+    
+    @Override
+    public List<SuggestionResponse> suggest(String prefix, int limit) {
+        return productSuggester.suggest(prefix, limit).stream()
+                .map(suggestion -> SuggestionResponse.builder()
+                        .text(suggestion.text())
+                        .type(suggestion.type().name())
+                        .id(suggestion.id())
+                        .build())
+                .toList();
     }
     
     @Override
@@ -162,7 +303,7 @@ public class ProductServiceImpl implements ProductService {
     }
     
     @Override
-    @Cacheable(value = "newArrivals")
+    @Cacheable(value = "newArrivals", sync = true)
     public List<ProductResponse> getNewArrivals() {
         log.info("Getting new arrivals");
         List<Product> products = productRepository.findTop10ByOrderByCreatedAtDesc();
@@ -170,32 +311,112 @@ public class ProductServiceImpl implements ProductService {
     }
     
     @Override
-    @Cacheable(value = "topRatedProducts")
+    @Cacheable(value = "topRatedProducts", sync = true)
     public List<ProductResponse> getTopRatedProducts() {
         log.info("Getting top rated products");
         List<Product> products = productRepository.findTop10ByOrderByAverageRatingDesc();
         return productMapper.toResponseList(products);
     }
     
+    @Override
+    @CachePut(value = "newArrivals")
+    public List<ProductResponse> refreshNewArrivals() {
+        log.debug("Refreshing new arrivals cache");
+        return productMapper.toResponseList(productRepository.findTop10ByOrderByCreatedAtDesc());
+    }
+    
+    @Override
+    @CachePut(value = "topRatedProducts")
+    public List<ProductResponse> refreshTopRatedProducts() {
+        log.debug("Refreshing top rated products cache");
+        return productMapper.toResponseList(productRepository.findTop10ByOrderByAverageRatingDesc());
+    }
+    
     @Override
     @Transactional
     @CacheEvict(value = "products", key = "#id")
     public ProductResponse updateProductStock(String id, Integer quantity) {
         log.info("Updating product stock with id: {}, quantity: {}", id, quantity);
         
-        Product product = getProductEntityById(id);
+        // Check and update happen in one conditional write, so concurrent calls cannot oversell
+        Product updatedProduct = adjustStock(id, quantity);
+        categoryCacheVersions.bump(updatedProduct.getCategoryId());
+        // Availability is a search filter
+        productSearchIndex.index(updatedProduct);
         
-        // Update stock
-        int newStock = product.getStockQuantity() + quantity;
-        if (newStock < 0) {
-            throw new IllegalArgumentException("Insufficient stock");
+        log.info("Product stock updated successfully with id: {}, new stock: {}", id, updatedProduct.getStockQuantity());
+        return productMapper.toResponse(updatedProduct);
+    }
+    
+    @Override
+    public List<ProductResponse> reserveStock(List<StockItem> items) {
+        Map<String, Integer> quantities = mergeQuantities(items);
+        log.info("Reserving stock for {} products", quantities.size());
+        
+        List<Product> reserved = new ArrayList<>();
+        try {
+            quantities.forEach((productId, quantity) -> reserved.add(adjustStock(productId, -quantity)));
+        } catch (RuntimeException e) {
+            // Give back what was already taken so a failed reservation holds no stock
+            reserved.forEach(product -> applyStockDelta(product.getId(), quantities.get(product.getId())));
+            log.info("Stock reservation rolled back after {} of {} products: {}", reserved.size(), quantities.size(), e.getMessage());
+            throw e;
         }
         
-        product.setStockQuantity(newStock);
-        Product updatedProduct = productRepository.save(product);
-        
-        log.info("Product stock updated successfully with id: {}, new stock: {}", id, newStock);
-        return productMapper.toResponse(updatedProduct);
+        stockChanged(reserved);
+        return reserved.stream()
+                .map(productMapper::toResponse)
+                .collect(Collectors.toList());
+    }
+    
+    @Override
+    public void releaseStock(List<StockItem> items) {
+        Map<String, Integer> quantities = mergeQuantities(items);
+        log.info("Releasing stock for {} products", quantities.size());
+        
+        List<Product> released = new ArrayList<>();
+        quantities.forEach((productId, quantity) -> applyStockDelta(productId, quantity)
+                .ifPresentOrElse(released::add,
+                        () -> log.warn("Cannot release stock of missing product {}", productId)));
+        stockChanged(released);
+    }
+    
+    private Product adjustStock(String id, int delta) {
+        return applyStockDelta(id, delta)
+                .orElseThrow(() -> productRepository.existsById(id)
+                        ? new InsufficientStockException(id, -delta)
+                        : new ProductNotFoundException("Product not found with id: " + id));
+    }
+    
+    // Every applied stock change queues its product-stock-changed event, compensations included
+    private Optional<Product> applyStockDelta(String id, int delta) {
+        return productEventOutbox.inTransaction(() -> {
+            Optional<Product> product = productRepository.adjustStock(id, delta);
+            product.ifPresent(productEventOutbox::stockChanged);
+            return product;
+        });
+    }
+    
+    private static Map<String, Integer> mergeQuantities(List<StockItem> items) {
+        Map<String, Integer> quantities = new LinkedHashMap<>();
+        for (StockItem item : items) {
+            if (item.getQuantity() < 1) {
+                throw new IllegalArgumentException("Quantity must be at least 1");
+            }
+            quantities.merge(item.getProductId(), item.getQuantity(), Integer::sum);
+        }
+        return quantities;
+    }
+    
+    private void stockChanged(List<Product> products) {
+        Cache cache = cacheManager.getCache("products");
+        for (Product product : products) {
+            if (cache != null) {
+                cache.evict(product.getId());
+            }
+            productSearchIndex.index(product);
+        }
+        categoryCacheVersions.bump(products.stream().map(Product::getCategoryId).toArray(String[]::new));
     }
     
     @Override
@@ -204,11 +425,11 @@ public class ProductServiceImpl implements ProductService {
     public void updateProductRating(String productId, double averageRating, int reviewCount) {
         log.info("Updating product rating with id: {}, rating: {}, reviewCount: {}", productId, averageRating, reviewCount);
         
-        Product product = getProductEntityById(productId);
-        
-        product.setAverageRating(averageRating);
-        product.setReviewCount(reviewCount);
-        productRepository.save(product);
+        Product product = productRepository.updateRating(productId, averageRating, reviewCount)
+                .orElseThrow(() -> new ProductNotFoundException("Product not found with id: " + productId));
+        categoryCacheVersions.bump(product.getCategoryId());
+        // Ratings drive autocomplete ranking
+        productSuggester.productChanged(product);
         
         log.info("Product rating updated successfully with id: {}", productId);
     }
@@ -228,22 +449,10 @@ public class ProductServiceImpl implements ProductService {
         
         List<String> imageUrls = new ArrayList<>();
         
-        // Create upload directory if it doesn't exist
-        File directory = new File(uploadDir);
-        if (!directory.exists()) {
-            directory.mkdirs();
-        }
-        
         // Process each image
         for (MultipartFile image : images) {
-            // Generate unique filename
-            String originalFilename = image.getOriginalFilename();
-            String extension = originalFilename.substring(originalFilename.lastIndexOf("."));
-            String newFilename = UUID.randomUUID().toString() + extension;
-            
-            // Save to filesystem
-            Path targetPath = Paths.get(uploadDir, newFilename);
-            Files.copy(image.getInputStream(), targetPath);
+            // Save to storage; resized variants are generated asynchronously
+            String newFilename = imageStorageService.storeImage(image);
             
             // Add to image URLs
             String imageUrl = "/api/products/images/" + newFilename;
@@ -251,12 +460,9 @@ public class ProductServiceImpl implements ProductService {
         }
         
         // Update product with new image URLs
-        if (product.getImageUrls() == null) {
-            product.setImageUrls(new ArrayList<>());
-        }
-        product.getImageUrls().addAll(imageUrls);
-        
-        Product updatedProduct = productRepository.save(product);
+        Product updatedProduct = productRepository.addImageUrls(productId, imageUrls)
+                .orElseThrow(() -> new ProductNotFoundException("Product not found with id: " + productId));
+        categoryCacheVersions.bump(updatedProduct.getCategoryId());
         log.info("Images uploaded successfully for product with id: {}", productId);
         
         return productMapper.toResponse(updatedProduct);
@@ -280,20 +486,17 @@ public class ProductServiceImpl implements ProductService {
             throw new IllegalArgumentException("Image not found for this product");
         }
         
-        // Remove image from database
-        product.getImageUrls().remove(imageUrl);
-        Product updatedProduct = productRepository.save(product);
+        // Remove image from database; a concurrent delete of the same copy gets nothing back
+        // here, so each copy releases its image reference exactly once
+        Product updatedProduct = productRepository.removeImageUrl(productId, imageUrl)
+                .orElseThrow(() -> new IllegalArgumentException("Image not found for this product"));
+        categoryCacheVersions.bump(updatedProduct.getCategoryId());
         
         // Try to remove file from filesystem if it's a local file
         if (imageUrl.startsWith("/api/products/images/")) {
             String filename = imageUrl.substring("/api/products/images/".length());
-            try {
-                Path filePath = Paths.get(uploadDir, filename);
-                Files.deleteIfExists(filePath);
-            } catch (IOException e) {
-                log.error("Failed to delete image file: {}", e.getMessage());
-                // Continue execution even if file deletion fails
-            }
+            // Continue execution even if file deletion fails
+            imageStorageService.deleteImage(filename);
         }
         
         log.info("Image deleted successfully for product with id: {}", productId);
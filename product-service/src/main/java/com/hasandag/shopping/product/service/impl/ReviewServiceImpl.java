@@ -1,33 +1,55 @@
 package com.hasandag.ecommerce.product.service.impl;
 
+import com.hasandag.ecommerce.product.dto.CursorPage;
 import com.hasandag.ecommerce.product.dto.ReviewRequest;
 import com.hasandag.ecommerce.product.dto.ReviewResponse;
+import com.hasandag.ecommerce.product.dto.ReviewSummaryResponse;
 import com.hasandag.ecommerce.product.exception.ReviewNotFoundException;
 import com.hasandag.ecommerce.product.exception.UnauthorizedAccessException;
 import com.hasandag.ecommerce.product.mapper.ReviewMapper;
 import com.hasandag.ecommerce.product.model.Review;
+import com.hasandag.ecommerce.product.model.ReviewSummary;
+import com.hasandag.ecommerce.product.repository.ReviewCursor;
 import com.hasandag.ecommerce.product.repository.ReviewRepository;
+import com.hasandag.ecommerce.product.repository.ReviewSummaryRepository;
 import com.hasandag.ecommerce.product.service.ProductService;
 import com.hasandag.ecommerce.product.service.ReviewService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.Cacheable;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class ReviewServiceImpl implements ReviewService {
+    
+    // Hard cap for one slice of a user's reviews; use the export for everything
+    static final int MAX_USER_REVIEWS_PAGE = 100;
 
     private final ReviewRepository reviewRepository;
+    private final ReviewSummaryRepository reviewSummaryRepository;
     private final ReviewMapper reviewMapper;
     private final ProductService productService;
+    private final CacheManager cacheManager;
+    
+    @Value("${app.reviews.summary.latest-size:5}")
+    private int latestReviewsSize;
 
     @Override
     @Transactional
@@ -39,9 +61,7 @@ public class ReviewServiceImpl implements ReviewService {
         Review savedReview = reviewRepository.save(review);
         log.info("Review created with ID: {} for product: {}", savedReview.getId(), review.getProductId());
         
-        // Update product rating
-        updateProductRating(review.getProductId());
-        
+        // Pending reviews do not count towards the rating until approved
         return reviewMapper.toDto(savedReview);
     }
 
@@ -66,13 +86,29 @@ public class ReviewServiceImpl implements ReviewService {
     }
 
     @Override
-    public List<ReviewResponse> getReviewsByUserId(String userId) {
-        // Create a pageable with large size to get all results
-        Pageable allResults = PageRequest.of(0, Integer.MAX_VALUE);
-        List<Review> reviews = reviewRepository.findByUserId(userId, allResults).getContent();
-        return reviews.stream()
-                .map(reviewMapper::toDto)
-                .collect(Collectors.toList());
+    public CursorPage<ReviewResponse> getReviewsByUserId(String userId, String cursor, int limit) {
+        int size = Math.max(1, Math.min(limit, MAX_USER_REVIEWS_PAGE));
+        ReviewCursor after = cursor != null && !cursor.isBlank() ? ReviewCursor.decode(cursor) : null;
+        
+        // One extra row tells whether another slice follows, without a count query
+        List<Review> reviews = reviewRepository.findByUserIdAfter(userId, after, size + 1);
+        boolean hasNext = reviews.size() > size;
+        if (hasNext) {
+            reviews = reviews.subList(0, size);
+        }
+        
+        return CursorPage.<ReviewResponse>builder()
+                .content(reviewMapper.toDtoList(reviews))
+                .size(size)
+                .hasNext(hasNext)
+                .nextCursor(hasNext ? ReviewCursor.after(reviews.get(size - 1)).encode() : null)
+                .build();
+    }
+    
+    @Override
+    public Stream<ReviewResponse> streamReviewsByUserId(String userId) {
+        return reviewRepository.streamByUserIdOrderByCreatedAtDesc(userId)
+                .map(reviewMapper::toDto);
     }
 
     @Override
@@ -85,18 +121,23 @@ public class ReviewServiceImpl implements ReviewService {
             throw new UnauthorizedAccessException("You are not authorized to update this review");
         }
         
+        // Require re-approval after update
+        Review previousReview = reviewRepository.replaceContent(id, reviewRequest.getTitle(),
+                        reviewRequest.getComment(), reviewRequest.getRating())
+                .orElseThrow(() -> new ReviewNotFoundException("Review not found with id: " + id));
+        log.info("Review updated with ID: {}", id);
+        
+        // The old rating stops counting if the review had been approved
+        if (previousReview.isApproved()) {
+            applySummary(reviewSummaryRepository.removeReview(
+                    previousReview.getProductId(), previousReview.getId(), previousReview.getRating(), latestReviewsSize));
+        }
+        
         existingReview.setTitle(reviewRequest.getTitle());
         existingReview.setComment(reviewRequest.getComment());
         existingReview.setRating(reviewRequest.getRating());
-        existingReview.setApproved(false);  // Require re-approval after update
-        
-        Review updatedReview = reviewRepository.save(existingReview);
-        log.info("Review updated with ID: {}", updatedReview.getId());
-        
-        // Update product rating
-        updateProductRating(updatedReview.getProductId());
-        
-        return reviewMapper.toDto(updatedReview);
+        existingReview.setApproved(false);
+        return reviewMapper.toDto(existingReview);
     }
 
     @Override
@@ -109,41 +150,45 @@ public class ReviewServiceImpl implements ReviewService {
             throw new UnauthorizedAccessException("You are not authorized to delete this review");
         }
         
-        String productId = review.getProductId();
-        reviewRepository.delete(review);
-        log.info("Review deleted with ID: {}", id);
-        
-        // Update product rating
-        updateProductRating(productId);
+        reviewRepository.removeById(id).ifPresent(removedReview -> {
+            log.info("Review deleted with ID: {}", id);
+            if (removedReview.isApproved()) {
+                applySummary(reviewSummaryRepository.removeReview(
+                        removedReview.getProductId(), removedReview.getId(), removedReview.getRating(), latestReviewsSize));
+            }
+        });
     }
 
     @Override
     @Transactional
     public ReviewResponse approveReview(String id) {
-        Review review = findReviewById(id);
-        review.setApproved(true);
-        Review approvedReview = reviewRepository.save(review);
-        log.info("Review approved with ID: {}", id);
+        // Only the call that actually flips the flag counts the rating, so repeated approvals are harmless
+        Optional<Review> approvedReview = reviewRepository.approveIfPending(id);
+        if (approvedReview.isEmpty()) {
+            return reviewMapper.toDto(findReviewById(id));
+        }
         
-        // Update product rating
-        updateProductRating(review.getProductId());
+        Review review = approvedReview.get();
+        log.info("Review approved with ID: {}", id);
+        applySummary(reviewSummaryRepository.addReview(
+                review.getProductId(), review.getId(), review.getRating(), latestReviewsSize));
         
-        return reviewMapper.toDto(approvedReview);
+        return reviewMapper.toDto(review);
     }
 
     @Override
     public double calculateAverageRating(String productId) {
-        List<Review> reviews = reviewRepository.findByProductIdAndApprovedTrue(productId);
-        
-        if (reviews.isEmpty()) {
-            return 0.0;
-        }
-        
-        double totalRating = reviews.stream()
-                .mapToInt(Review::getRating)
-                .sum();
-        
-        return totalRating / reviews.size();
+        return reviewSummaryRepository.findById(productId)
+                .map(ReviewSummary::averageRating)
+                .orElse(0.0);
+    }
+    
+    @Override
+    @Cacheable(value = "reviewSummaries", key = "#productId", sync = true)
+    public ReviewSummaryResponse getReviewSummary(String productId) {
+        ReviewSummary summary = reviewSummaryRepository.findById(productId)
+                .orElseGet(() -> ReviewSummary.empty(productId));
+        return toSummaryResponse(summary);
     }
     
     @Override
@@ -169,11 +214,32 @@ public class ReviewServiceImpl implements ReviewService {
                 .orElseThrow(() -> new ReviewNotFoundException("Review not found with id: " + id));
     }
     
-    private void updateProductRating(String productId) {
-        double averageRating = calculateAverageRating(productId);
-        int reviewCount = reviewRepository.findByProductIdAndApprovedTrue(productId).size();
-        productService.updateProductRating(productId, averageRating, reviewCount);
+    private void applySummary(ReviewSummary summary) {
+        String productId = summary.getProductId();
+        productService.updateProductRating(productId, summary.averageRating(), (int) summary.getRatingCount());
         log.info("Product rating updated for product ID: {}, new average: {}, count: {}", 
-                productId, averageRating, reviewCount);
+                productId, summary.averageRating(), summary.getRatingCount());
+        
+        // Evict rather than write through: two concurrent changes can finish in either
+        // order, and putting the older result last would pin a stale summary in the cache
+        Cache cache = cacheManager.getCache("reviewSummaries");
+        if (cache != null) {
+            cache.evict(productId);
+        }
+    }
+    
+    static ReviewSummaryResponse toSummaryResponse(ReviewSummary summary) {
+        Map<String, Long> counts = summary.getHistogram() != null ? summary.getHistogram() : Map.of();
+        Map<Integer, Long> histogram = new LinkedHashMap<>();
+        for (int rating = 5; rating >= 1; rating--) {
+            histogram.put(rating, counts.getOrDefault(String.valueOf(rating), 0L));
+        }
+        return ReviewSummaryResponse.builder()
+                .productId(summary.getProductId())
+                .averageRating(summary.averageRating())
+                .ratingCount(summary.getRatingCount())
+                .histogram(histogram)
+                .latestReviewIds(summary.getLatestReviewIds() != null ? new ArrayList<>(summary.getLatestReviewIds()) : new ArrayList<>())
+                .build();
     }
 } 
\ No newline at end of file
@@ -0,0 +1,140 @@
+package com.hasandag.ecommerce.product.service.impl;
+
+import com.hasandag.ecommerce.product.exception.ProductNotFoundException;
+import com.hasandag.ecommerce.product.model.ReviewSummary;
+import com.hasandag.ecommerce.product.repository.ReviewSummaryRepository;
+import com.hasandag.ecommerce.product.service.ProductService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Recomputes the review summaries from the reviews themselves and fixes any that drifted,
+ * e.g. after a crash between a review write and its summary increment. The first run
+ * after deployment also backfills summaries for existing reviews.
+ */
+@Component
+@ConditionalOnProperty(name = "app.reviews.summary-repair.enabled", havingValue = "true", matchIfMissing = true)
+@RequiredArgsConstructor
+@Slf4j
+public class ReviewSummaryRepairJob {
+    
+    private static final int BATCH_SIZE = 500;
+    private static final Duration CLOCK_SKEW = Duration.ofMinutes(1);
+    
+    private final ReviewSummaryRepository reviewSummaryRepository;
+    private final ProductService productService;
+    private final CacheManager cacheManager;
+    
+    @Value("${app.reviews.summary.latest-size:5}")
+    private int latestReviewsSize;
+    
+    @Scheduled(initialDelayString = "${app.reviews.summary-repair.initial-delay-ms:60000}",
+            fixedDelayString = "${app.reviews.summary-repair.interval-ms:86400000}")
+    public void repair() {
+        log.info("Verifying review summaries");
+        // Summaries touched after this point may count reviews the recomputation missed
+        LocalDateTime startedAt = LocalDateTime.now().minus(CLOCK_SKEW);
+        Set<String> productsWithReviews = new HashSet<>();
+        int repaired = 0;
+        
+        try (Stream<ReviewSummary> recomputed = reviewSummaryRepository.recomputeFromReviews(latestReviewsSize)) {
+            List<ReviewSummary> batch = new ArrayList<>(BATCH_SIZE);
+            for (ReviewSummary summary : (Iterable<ReviewSummary>) recomputed::iterator) {
+                productsWithReviews.add(summary.getProductId());
+                batch.add(summary);
+                if (batch.size() == BATCH_SIZE) {
+                    repaired += repairBatch(batch, startedAt);
+                    batch.clear();
+                }
+            }
+            repaired += repairBatch(batch, startedAt);
+        }
+        
+        // Summaries whose approved reviews are all gone
+        List<ReviewSummary> orphaned;
+        try (Stream<ReviewSummary> nonEmpty = reviewSummaryRepository.streamNonEmpty()) {
+            orphaned = nonEmpty
+                    .filter(summary -> !productsWithReviews.contains(summary.getProductId()))
+                    .map(summary -> ReviewSummary.empty(summary.getProductId()))
+                    .toList();
+        }
+        for (ReviewSummary summary : orphaned) {
+            if (save(summary, startedAt)) {
+                repaired++;
+            }
+        }
+        
+        log.info("Review summaries verified for {} products, {} repaired", productsWithReviews.size(), repaired);
+    }
+    
+    private int repairBatch(List<ReviewSummary> recomputed, LocalDateTime startedAt) {
+        Map<String, ReviewSummary> stored = reviewSummaryRepository
+                .findAllById(recomputed.stream().map(ReviewSummary::getProductId).toList())
+                .stream()
+                .collect(Collectors.toMap(ReviewSummary::getProductId, Function.identity()));
+        
+        int repaired = 0;
+        for (ReviewSummary summary : recomputed) {
+            if (!sameTotals(summary, stored.get(summary.getProductId())) && save(summary, startedAt)) {
+                repaired++;
+            }
+        }
+        return repaired;
+    }
+    
+    private boolean save(ReviewSummary summary, LocalDateTime startedAt) {
+        summary.setUpdatedAt(LocalDateTime.now());
+        if (!reviewSummaryRepository.replaceIfNotUpdatedSince(summary, startedAt)) {
+            log.debug("Summary of product {} changed during verification, leaving it to the next run", summary.getProductId());
+            return false;
+        }
+        Cache cache = cacheManager.getCache("reviewSummaries");
+        if (cache != null) {
+            cache.evict(summary.getProductId());
+        }
+        try {
+            productService.updateProductRating(summary.getProductId(), summary.averageRating(), (int) summary.getRatingCount());
+        } catch (ProductNotFoundException e) {
+            log.debug("Skipping rating of deleted product {}", summary.getProductId());
+        }
+        return true;
+    }
+    
+    private static boolean sameTotals(ReviewSummary recomputed, ReviewSummary stored) {
+        if (stored == null) {
+            return false;
+        }
+        // Increments can leave zero-count buckets behind; they are equivalent to missing ones
+        return recomputed.getRatingCount() == stored.getRatingCount()
+                && recomputed.getRatingSum() == stored.getRatingSum()
+                && Objects.equals(nonZero(recomputed.getHistogram()), nonZero(stored.getHistogram()))
+                && Objects.equals(recomputed.getLatestReviewIds(), stored.getLatestReviewIds());
+    }
+    
+    private static Map<String, Long> nonZero(Map<String, Long> histogram) {
+        if (histogram == null) {
+            return Map.of();
+        }
+        return histogram.entrySet().stream()
+                .filter(entry -> entry.getValue() != null && entry.getValue() != 0)
+                .collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue));
+    }
+}
@@ -0,0 +1,272 @@
+package com.hasandag.ecommerce.product.service.impl;
+
+import com.hasandag.ecommerce.product.dto.StockItem;
+import com.hasandag.ecommerce.product.dto.StockReservationResponse;
+import com.hasandag.ecommerce.product.exception.StockReservationException;
+import com.hasandag.ecommerce.product.exception.StockReservationNotFoundException;
+import com.hasandag.ecommerce.product.model.StockReservation;
+import com.hasandag.ecommerce.product.repository.StockReservationRepository;
+import com.hasandag.ecommerce.product.service.ProductService;
+import com.hasandag.ecommerce.product.service.StockReservationService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class StockReservationServiceImpl implements StockReservationService {
+    
+    private final StockReservationRepository reservationRepository;
+    private final ProductService productService;
+    
+    @Value("${app.stock.reservations.ttl:15m}")
+    private Duration ttl;
+    
+    @Value("${app.stock.reservations.retention:7d}")
+    private Duration retention;
+    
+    @Value("${app.stock.reservations.stall-timeout:2m}")
+    private Duration stallTimeout;
+    
+    @Value("${app.stock.reservations.sweep-batch-size:200}")
+    private int sweepBatchSize;
+    
+    @Override
+    public StockReservationResponse reserve(String orderId, List<StockItem> items) {
+        Optional<StockReservation> existing = reservationRepository.findById(orderId);
+        if (existing.isPresent()) {
+            return existingReservation(existing.get());
+        }
+        
+        // Record the reservation before taking stock, so a crash in between leaves a trace
+        // the recovery sweep can find instead of stock held for nobody
+        LocalDateTime now = LocalDateTime.now();
+        StockReservation reservation = StockReservation.builder()
+                .orderId(orderId)
+                .items(items.stream()
+                        .map(item -> new StockReservation.Item(item.getProductId(), item.getQuantity()))
+                        .collect(Collectors.toList()))
+                .status(StockReservation.Status.PENDING)
+                .expiresAt(now.plus(ttl))
+                .createdAt(now)
+                .updatedAt(now)
+                .build();
+        
+        try {
+            reservationRepository.insert(reservation);
+        } catch (DuplicateKeyException e) {
+            // A concurrent retry for the same order got there first
+            return existingReservation(findReservation(orderId));
+        }
+        
+        takeStock(reservation);
+        if (!reservationRepository.markReserved(orderId)) {
+            // The recovery sweep failed this reservation meanwhile and returns the stock it took
+            throw abandoned(orderId);
+        }
+        
+        log.info("Stock reserved for order {} until {}", orderId, reservation.getExpiresAt());
+        return toResponse(withStatus(reservation, StockReservation.Status.RESERVED));
+    }
+    
+    @Override
+    public StockReservationResponse confirm(String orderId) {
+        Optional<StockReservation> previous = reservationRepository.transition(orderId,
+                EnumSet.of(StockReservation.Status.RESERVED), StockReservation.Status.CONFIRMED, purgeAt());
+        if (previous.isPresent()) {
+            log.info("Stock reservation confirmed for order {}", orderId);
+            return toResponse(withStatus(previous.get(), StockReservation.Status.CONFIRMED));
+        }
+        
+        StockReservation current = findReservation(orderId);
+        if (current.getStatus() != StockReservation.Status.CONFIRMED) {
+            throw new StockReservationException("Stock reservation for order " + orderId + " is " + statusName(current));
+        }
+        return toResponse(current);
+    }
+    
+    @Override
+    public StockReservationResponse release(String orderId) {
+        Optional<StockReservation> previous = reservationRepository.transition(orderId,
+                EnumSet.of(StockReservation.Status.RESERVED, StockReservation.Status.CONFIRMED),
+                StockReservation.Status.RELEASED, purgeAt());
+        if (previous.isPresent()) {
+            // Only the call that made the transition returns the stock
+            returnStock(previous.get());
+            log.info("Stock reservation released for order {}", orderId);
+            return toResponse(withStatus(previous.get(), StockReservation.Status.RELEASED));
+        }
+        
+        // Already released or expired: the stock is back already
+        return toResponse(findReservation(orderId));
+    }
+    
+    @Override
+    public StockReservationResponse getReservation(String orderId) {
+        return toResponse(findReservation(orderId));
+    }
+    
+    @Override
+    public int expireOverdue() {
+        int expired = 0;
+        List<String> orderIds;
+        do {
+            LocalDateTime now = LocalDateTime.now();
+            orderIds = reservationRepository.findExpiredOrderIds(now, sweepBatchSize);
+            
+            for (String orderId : orderIds) {
+                Optional<StockReservation> claimed = reservationRepository.claimExpired(orderId, now, now.plus(retention));
+                if (claimed.isPresent()) {
+                    returnStock(claimed.get());
+                    expired++;
+                }
+            }
+        } while (orderIds.size() == sweepBatchSize);
+        
+        return expired;
+    }
+    
+    @Override
+    public int recoverStalled() {
+        int recovered = 0;
+        List<String> orderIds;
+        do {
+            LocalDateTime before = LocalDateTime.now().minus(stallTimeout);
+            orderIds = reservationRepository.findStalledOrderIds(before, sweepBatchSize);
+            
+            for (String orderId : orderIds) {
+                // A pending reservation holds the stock of its taken items, which goes back with the failure
+                Optional<StockReservation> failed = reservationRepository.failPending(orderId, before, purgeAt());
+                if (failed.isPresent()) {
+                    log.warn("Stock reservation for order {} stayed pending since {}, marked failed; returning {}",
+                            orderId, failed.get().getUpdatedAt(), toStockItems(failed.get().getTakenItems()));
+                    returnStock(failed.get());
+                    recovered++;
+                    continue;
+                }
+                
+                Optional<StockReservation> unreturned = reservationRepository.claimUnreturned(orderId, before);
+                if (unreturned.isPresent()) {
+                    log.warn("Returning stock of {} reservation for order {} left behind by a crash",
+                            statusName(unreturned.get()), orderId);
+                    returnStock(unreturned.get());
+                    recovered++;
+                }
+            }
+        } while (orderIds.size() == sweepBatchSize);
+        
+        return recovered;
+    }
+    
+    /**
+     * Takes the stock item by item, recording each item right after its stock is taken: a
+     * crash in between can leave that item's stock held, but recovery never returns stock
+     * that was not taken. If an item cannot be taken, what was taken goes back and the
+     * pending reservation is deleted so the order can try again.
+     */
+    private void takeStock(StockReservation reservation) {
+        String orderId = reservation.getOrderId();
+        try {
+            for (StockReservation.Item item : reservation.getItems()) {
+                List<StockItem> stock = List.of(new StockItem(item.getProductId(), item.getQuantity()));
+                productService.reserveStock(stock);
+                if (!reservationRepository.addTakenItem(orderId, item)) {
+                    // Failed by the recovery sweep, which only returns the items recorded before
+                    productService.releaseStock(stock);
+                    throw abandoned(orderId);
+                }
+            }
+        } catch (StockReservationException e) {
+            throw e;
+        } catch (RuntimeException e) {
+            // Unless the recovery sweep failed the reservation first and returns the stock itself
+            reservationRepository.clearTakenItems(orderId).ifPresent(pending -> {
+                productService.releaseStock(toStockItems(pending.getTakenItems()));
+                reservationRepository.deletePending(orderId);
+            });
+            throw e;
+        }
+    }
+    
+    private void returnStock(StockReservation reservation) {
+        List<StockItem> held = heldStock(reservation);
+        if (!held.isEmpty()) {
+            productService.releaseStock(held);
+        }
+        reservationRepository.markStockReturned(reservation.getOrderId());
+    }
+    
+    // Pending and failed reservations hold only the items taken so far, all others hold every item
+    private static List<StockItem> heldStock(StockReservation reservation) {
+        return reservation.getStatus() == StockReservation.Status.PENDING
+                || reservation.getStatus() == StockReservation.Status.FAILED
+                ? toStockItems(reservation.getTakenItems())
+                : toStockItems(reservation);
+    }
+    
+    private static StockReservationException abandoned(String orderId) {
+        return new StockReservationException("Stock reservation for order " + orderId + " was abandoned, please retry");
+    }
+    
+    private StockReservationResponse existingReservation(StockReservation reservation) {
+        if (reservation.getStatus() == StockReservation.Status.PENDING) {
+            throw new StockReservationException("Stock reservation for order " + reservation.getOrderId()
+                    + " is still in progress, please retry");
+        }
+        if (reservation.getStatus() == StockReservation.Status.RELEASED
+                || reservation.getStatus() == StockReservation.Status.EXPIRED
+                || reservation.getStatus() == StockReservation.Status.FAILED) {
+            throw new StockReservationException("Stock reservation for order " + reservation.getOrderId()
+                    + " is already " + statusName(reservation));
+        }
+        return toResponse(reservation);
+    }
+    
+    private StockReservation findReservation(String orderId) {
+        return reservationRepository.findById(orderId)
+                .orElseThrow(() -> new StockReservationNotFoundException("Stock reservation not found for order: " + orderId));
+    }
+    
+    private LocalDateTime purgeAt() {
+        return LocalDateTime.now().plus(retention);
+    }
+    
+    private static StockReservation withStatus(StockReservation reservation, StockReservation.Status status) {
+        reservation.setStatus(status);
+        return reservation;
+    }
+    
+    private static String statusName(StockReservation reservation) {
+        return reservation.getStatus().name().toLowerCase();
+    }
+    
+    private static List<StockItem> toStockItems(StockReservation reservation) {
+        return toStockItems(reservation.getItems());
+    }
+    
+    private static List<StockItem> toStockItems(List<StockReservation.Item> items) {
+        return items.stream()
+                .map(item -> new StockItem(item.getProductId(), item.getQuantity()))
+                .collect(Collectors.toList());
+    }
+    
+    private static StockReservationResponse toResponse(StockReservation reservation) {
+        return StockReservationResponse.builder()
+                .orderId(reservation.getOrderId())
+                .status(reservation.getStatus().name())
+                .items(toStockItems(reservation))
+                .expiresAt(reservation.getExpiresAt())
+                .createdAt(reservation.getCreatedAt())
+                .build();
+    }
+}
@@ -0,0 +1,50 @@
+package com.hasandag.ecommerce.product.service.impl;
+
+import com.hasandag.ecommerce.product.service.StockReservationService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Periodically returns the stock of reservations whose order neither confirmed nor released
+ * them in time, and recovers reservations a crash left half done. Safe to run on every node:
+ * each reservation is claimed atomically before its stock is returned.
+ */
+@Component
+@ConditionalOnProperty(name = "app.stock.reservations.sweeper.enabled", havingValue = "true", matchIfMissing = true)
+@Slf4j
+public class StockReservationSweeper {
+    
+    private final StockReservationService stockReservationService;
+    private final Counter expiredCounter;
+    private final Counter recoveredCounter;
+    
+    public StockReservationSweeper(StockReservationService stockReservationService, MeterRegistry meterRegistry) {
+        this.stockReservationService = stockReservationService;
+        this.expiredCounter = Counter.builder("product.stock.reservations.expired")
+                .description("Stock reservations returned by the expiry sweeper")
+                .register(meterRegistry);
+        this.recoveredCounter = Counter.builder("product.stock.reservations.recovered")
+                .description("Stock reservations finished by the recovery sweep after a crash")
+                .register(meterRegistry);
+    }
+    
+    @Scheduled(initialDelayString = "${app.stock.reservations.sweeper.interval-ms:30000}",
+            fixedDelayString = "${app.stock.reservations.sweeper.interval-ms:30000}")
+    public void sweep() {
+        int expired = stockReservationService.expireOverdue();
+        if (expired > 0) {
+            expiredCounter.increment(expired);
+            log.info("Expired {} stock reservations", expired);
+        }
+        
+        int recovered = stockReservationService.recoverStalled();
+        if (recovered > 0) {
+            recoveredCounter.increment(recovered);
+            log.warn("Recovered {} stalled stock reservations", recovered);
+        }
+    }
+}
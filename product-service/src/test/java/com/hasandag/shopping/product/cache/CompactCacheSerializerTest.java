@@ -0,0 +1,148 @@
+package com.hasandag.ecommerce.product.cache;
+
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.hasandag.ecommerce.product.dto.ProductResponse;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CompactCacheSerializerTest {
+
+    private GenericJackson2JsonRedisSerializer jsonSerializer;
+    private CompactCacheSerializer serializer;
+    private ProductResponse product;
+
+    @BeforeEach
+    void setUp() {
+        jsonSerializer = new GenericJackson2JsonRedisSerializer();
+        jsonSerializer.configure(mapper -> mapper.registerModule(new JavaTimeModule()));
+        serializer = new CompactCacheSerializer(jsonSerializer, 1024);
+
+        product = ProductResponse.builder()
+                .id("p1")
+                .name("Test Product")
+                .description("A product used to test cache serialization")
+                .price(new BigDecimal("19.99"))
+                .stockQuantity(5)
+                .categoryId("c1")
+                .sellerId("s1")
+                .imageUrls(new ArrayList<>(List.of("/api/products/images/a.jpg")))
+                .averageRating(4.5)
+                .reviewCount(12)
+                .active(true)
+                .createdAt(LocalDateTime.of(2024, 1, 2, 3, 4, 5))
+                .build();
+    }
+
+    @Test
+    void roundTrip_ShouldRestoreProductResponse() {
+        // Act
+        byte[] bytes = serializer.serialize(product);
+        Object result = serializer.deserialize(bytes);
+
+        // Assert
+        assertEquals(CompactCacheSerializer.MAGIC, bytes[0]);
+        assertEquals(product, result);
+    }
+
+    @Test
+    void roundTrip_ShouldRestorePageOfProducts() {
+        // Arrange
+        Page<ProductResponse> page = new PageImpl<>(List.of(product), PageRequest.of(2, 10), 31);
+
+        // Act
+        Object result = serializer.deserialize(serializer.serialize(page));
+
+        // Assert
+        Page<?> restored = assertInstanceOf(Page.class, result);
+        assertEquals(List.of(product), restored.getContent());
+        assertEquals(2, restored.getNumber());
+        assertEquals(10, restored.getSize());
+        assertEquals(31, restored.getTotalElements());
+    }
+
+    @Test
+    void serialize_ShouldCompressLargeValuesAndStaySmallerThanJson() {
+        // Arrange
+        List<ProductResponse> products = new ArrayList<>();
+        IntStream.range(0, 50).forEach(i -> products.add(product));
+
+        // Act
+        byte[] compact = serializer.serialize(products);
+        byte[] json = jsonSerializer.serialize(products);
+
+        // Assert
+        assertEquals(products, serializer.deserialize(compact));
+        assertTrue(compact.length < json.length / 4,
+                "compact " + compact.length + " bytes vs json " + json.length + " bytes");
+    }
+
+    @Test
+    void roundTrip_ShouldKeepLoadTimeOfLoadedValues() {
+        // Arrange
+        List<ProductResponse> products = new ArrayList<>();
+        IntStream.range(0, 50).forEach(i -> products.add(product));
+        Page<ProductResponse> page = new PageImpl<>(List.of(product), PageRequest.of(0, 10), 1);
+
+        // Act
+        Object small = serializer.deserialize(serializer.serialize(new LoadedValue(product, 1_700_000_000_000L)));
+        Object compressed = serializer.deserialize(serializer.serialize(new LoadedValue(products, 1_700_000_000_001L)));
+        Object restoredPage = serializer.deserialize(serializer.serialize(new LoadedValue(page, 1_700_000_000_002L)));
+
+        // Assert
+        assertEquals(new LoadedValue(product, 1_700_000_000_000L), small);
+        assertEquals(new LoadedValue(products, 1_700_000_000_001L), compressed);
+        LoadedValue loadedPage = assertInstanceOf(LoadedValue.class, restoredPage);
+        assertEquals(1_700_000_000_002L, loadedPage.loadedAt());
+        assertEquals(List.of(product), assertInstanceOf(Page.class, loadedPage.value()).getContent());
+    }
+
+    @Test
+    void deserialize_ShouldReadVersionOneEntriesWithoutLoadTime() {
+        // Arrange
+        byte[] current = serializer.serialize(product);
+        byte[] versionOne = new byte[current.length - Long.BYTES];
+        System.arraycopy(current, 0, versionOne, 0, 3);
+        System.arraycopy(current, 3 + Long.BYTES, versionOne, 3, versionOne.length - 3);
+        versionOne[1] = 1;
+
+        // Act
+        Object result = serializer.deserialize(versionOne);
+
+        // Assert
+        assertEquals(product, result);
+    }
+
+    @Test
+    void deserialize_ShouldReadLegacyJsonEntries() {
+        // Arrange
+        byte[] legacy = jsonSerializer.serialize(product);
+
+        // Act
+        Object result = serializer.deserialize(legacy);
+
+        // Assert
+        assertEquals(product, result);
+    }
+
+    @Test
+    void deserialize_ShouldTreatUnknownEnvelopeVersionAsMiss() {
+        // Arrange
+        byte[] bytes = serializer.serialize(product);
+        bytes[1] = (byte) (CompactCacheSerializer.VERSION + 1);
+
+        // Act & Assert
+        assertNull(serializer.deserialize(bytes));
+    }
+}
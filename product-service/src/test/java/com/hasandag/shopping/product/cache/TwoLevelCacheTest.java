@@ -0,0 +1,191 @@
+package com.hasandag.ecommerce.product.cache;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.concurrent.ConcurrentMapCache;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+public class TwoLevelCacheTest {
+
+    private static final String CACHE = "products";
+    private static final int THREADS = 16;
+
+    private ConcurrentMapCache remote;
+    private CacheInvalidationBus invalidationBus;
+    private TwoLevelCache cache;
+
+    @BeforeEach
+    void setUp() {
+        remote = new ConcurrentMapCache(CACHE);
+        invalidationBus = mock(CacheInvalidationBus.class);
+        cache = twoLevelCache(null, Runnable::run);
+    }
+
+    @Test
+    void get_ShouldLoadOnMissIntoBothTiersWithoutInvalidatingOtherNodes() {
+        // Arrange
+        AtomicInteger loads = new AtomicInteger();
+
+        // Act
+        String first = cache.get("p1", () -> "value-" + loads.incrementAndGet());
+        String second = cache.get("p1", () -> "value-" + loads.incrementAndGet());
+
+        // Assert
+        assertEquals("value-1", first);
+        assertEquals("value-1", second);
+        assertEquals(1, loads.get());
+        assertNotNull(remote.get("p1"));
+        verifyNoInteractions(invalidationBus);
+    }
+
+    @Test
+    void get_ShouldRefillLocalTierFromRemoteWithoutLoading() {
+        // Arrange
+        cache.get("p1", () -> "value");
+        cache.invalidateLocal("p1");
+
+        // Act
+        String value = cache.get("p1", () -> fail("Remote copy should have been used"));
+
+        // Assert
+        assertEquals("value", value);
+        assertEquals("value", cache.get("p1").get());
+        verifyNoInteractions(invalidationBus);
+    }
+
+    @Test
+    void get_ShouldRunOneLoadForConcurrentMisses() throws Exception {
+        // Arrange
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch loaderStarted = new CountDownLatch(1);
+        CountDownLatch releaseLoader = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        List<Future<String>> futures = new ArrayList<>();
+
+        // Act
+        try {
+            for (int t = 0; t < THREADS; t++) {
+                futures.add(executor.submit(() -> cache.get("p1", () -> {
+                    loads.incrementAndGet();
+                    loaderStarted.countDown();
+                    releaseLoader.await();
+                    return "value";
+                })));
+            }
+            assertTrue(loaderStarted.await(10, TimeUnit.SECONDS));
+            // Give the other callers time to queue up behind the running load
+            Thread.sleep(200);
+            releaseLoader.countDown();
+
+            // Assert
+            for (Future<String> future : futures) {
+                assertEquals("value", future.get(10, TimeUnit.SECONDS));
+            }
+            assertEquals(1, loads.get());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void get_ShouldServeStaleValueWhileRefreshingItOnce() {
+        // Arrange
+        List<Runnable> refreshes = new ArrayList<>();
+        cache = twoLevelCache(Duration.ofMinutes(1), refreshes::add);
+        remote.put("p1", new LoadedValue("old", System.currentTimeMillis() - Duration.ofMinutes(5).toMillis()));
+
+        // Act
+        String first = cache.get("p1", () -> "new");
+        String second = cache.get("p1", () -> "new");
+
+        // Assert
+        assertEquals("old", first);
+        assertEquals("old", second);
+        assertEquals(1, refreshes.size());
+
+        // Act
+        refreshes.get(0).run();
+
+        // Assert
+        assertEquals("new", cache.get("p1", () -> fail("Refreshed value should be fresh")));
+        assertEquals("new", assertInstanceOf(LoadedValue.class, remote.get("p1").get()).value());
+        verifyNoInteractions(invalidationBus);
+    }
+
+    @Test
+    void get_ShouldAgeRemoteValuesFromTheirLoadNotFromTheLocalFill() {
+        // Arrange
+        List<Runnable> refreshes = new ArrayList<>();
+        cache = twoLevelCache(Duration.ofMinutes(1), refreshes::add);
+        remote.put("fresh", new LoadedValue("value", System.currentTimeMillis()));
+        remote.put("old", new LoadedValue("value", System.currentTimeMillis() - Duration.ofMinutes(5).toMillis()));
+
+        // Act
+        cache.get("fresh", () -> fail("Fresh remote copy should have been used"));
+        cache.get("old", () -> "reloaded");
+        cache.get("old", () -> "reloaded");
+
+        // Assert
+        assertEquals(1, refreshes.size());
+    }
+
+    @Test
+    void put_ShouldWriteBothTiersAndInvalidateOtherNodes() {
+        // Act
+        cache.put("p1", "value");
+
+        // Assert
+        assertEquals("value", cache.get("p1").get());
+        assertNotNull(remote.get("p1"));
+        verify(invalidationBus).publishEvict(CACHE, "p1");
+    }
+
+    @Test
+    void evict_ShouldDropBothTiersAndInvalidateOtherNodes() {
+        // Arrange
+        cache.get("p1", () -> "value");
+
+        // Act
+        cache.evict("p1");
+
+        // Assert
+        assertNull(cache.get("p1"));
+        assertNull(remote.get("p1"));
+        verify(invalidationBus).publishEvict(CACHE, "p1");
+    }
+
+    @Test
+    void clear_ShouldDropBothTiersAndInvalidateOtherNodes() {
+        // Arrange
+        cache.get("p1", () -> "value");
+
+        // Act
+        cache.clear();
+
+        // Assert
+        assertNull(cache.get("p1"));
+        verify(invalidationBus).publishClear(CACHE);
+        verify(invalidationBus, never()).publishEvict(anyString(), anyString());
+    }
+
+    private TwoLevelCache twoLevelCache(Duration softTimeToLive, Executor refreshExecutor) {
+        return new TwoLevelCache(CACHE, Caffeine.newBuilder().<String, TwoLevelCache.LocalEntry>build(), remote,
+                invalidationBus, softTimeToLive, refreshExecutor, new SimpleMeterRegistry());
+    }
+}
@@ -0,0 +1,103 @@
+package com.hasandag.ecommerce.product.category;
+
+import com.hasandag.ecommerce.product.model.Category;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CategoryTreeSnapshotTest {
+
+    private CategoryTreeSnapshot snapshot;
+
+    @BeforeEach
+    void setUp() {
+        snapshot = CategoryTreeSnapshot.of(List.of(
+                category("electronics", "Electronics", null),
+                category("phones", "Phones", "electronics"),
+                category("laptops", "Laptops", "electronics"),
+                category("android", "Android", "phones"),
+                category("books", "Books", null)));
+    }
+
+    @Test
+    void roots_ShouldReturnTopLevelCategoriesByName() {
+        // Act
+        List<String> roots = ids(snapshot.roots());
+
+        // Assert
+        assertEquals(List.of("books", "electronics"), roots);
+    }
+
+    @Test
+    void children_ShouldReturnDirectChildrenByName() {
+        // Act & Assert
+        assertEquals(List.of("laptops", "phones"), ids(snapshot.children("electronics")));
+        assertTrue(snapshot.children("android").isEmpty());
+        assertTrue(snapshot.children("missing").isEmpty());
+    }
+
+    @Test
+    void all_ShouldListParentsBeforeChildren() {
+        // Act
+        List<String> all = ids(snapshot.all());
+
+        // Assert
+        assertEquals(5, all.size());
+        assertTrue(all.indexOf("electronics") < all.indexOf("phones"));
+        assertTrue(all.indexOf("phones") < all.indexOf("android"));
+    }
+
+    @Test
+    void breadcrumbs_ShouldReturnPathFromRoot() {
+        // Act & Assert
+        assertEquals(List.of("electronics", "phones", "android"), ids(snapshot.breadcrumbs("android")));
+        assertEquals(List.of("books"), ids(snapshot.breadcrumbs("books")));
+        assertTrue(snapshot.breadcrumbs("missing").isEmpty());
+    }
+
+    @Test
+    void descendantIds_ShouldIncludeCategoryAndEverythingBelow() {
+        // Act & Assert
+        assertEquals(Set.of("electronics", "phones", "laptops", "android"), snapshot.descendantIds("electronics"));
+        assertEquals(Set.of("android"), snapshot.descendantIds("android"));
+    }
+
+    @Test
+    void of_ShouldPromoteCategoriesWithMissingParentOrCycleToRoots() {
+        // Arrange
+        CategoryTreeSnapshot broken = CategoryTreeSnapshot.of(List.of(
+                category("orphan", "Orphan", "deleted"),
+                category("a", "A", "b"),
+                category("b", "B", "a")));
+
+        // Act & Assert
+        assertEquals(3, broken.all().size());
+        assertTrue(ids(broken.roots()).containsAll(List.of("orphan", "a")));
+        assertEquals(List.of("a", "b"), ids(broken.breadcrumbs("b")));
+    }
+
+    @Test
+    void of_ShouldNotShareStateWithSourceCategories() {
+        // Arrange
+        Category source = category("toys", "Toys", null);
+        CategoryTreeSnapshot copy = CategoryTreeSnapshot.of(List.of(source));
+
+        // Act
+        source.setName("Games");
+
+        // Assert
+        assertEquals("Toys", copy.find("toys").orElseThrow().getName());
+    }
+
+    private static Category category(String id, String name, String parentId) {
+        return Category.builder().id(id).name(name).parentId(parentId).build();
+    }
+
+    private static List<String> ids(List<Category> categories) {
+        return categories.stream().map(Category::getId).toList();
+    }
+}
@@ -0,0 +1,160 @@
+package com.hasandag.ecommerce.product.controller;
+
+import com.hasandag.ecommerce.product.cache.CategoryCacheVersions;
+import com.hasandag.ecommerce.product.category.CategoryPaths;
+import com.hasandag.ecommerce.product.dto.CursorPage;
+import com.hasandag.ecommerce.product.dto.ProductResponse;
+import com.hasandag.ecommerce.product.mapper.ProductMapper;
+import com.hasandag.ecommerce.product.model.Product;
+import com.hasandag.ecommerce.product.outbox.ProductEventOutbox;
+import com.hasandag.ecommerce.product.repository.CategoryRepository;
+import com.hasandag.ecommerce.product.repository.ProductRepository;
+import com.hasandag.ecommerce.product.search.ProductSearchIndex;
+import com.hasandag.ecommerce.product.search.ProductSuggester;
+import com.hasandag.ecommerce.product.service.ImageStorageService;
+import com.hasandag.ecommerce.product.service.ReviewService;
+import com.hasandag.ecommerce.product.service.impl.ProductServiceImpl;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mapstruct.factory.Mappers;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.data.mongo.DataMongoTest;
+import org.springframework.cache.CacheManager;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.MongoDBContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Keyset pagination through the cursor endpoints, with many products sharing a sort value so
+ * that slice boundaries fall inside a run of ties.
+ */
+@DataMongoTest
+@Testcontainers(disabledWithoutDocker = true)
+public class ProductCursorPaginationTest {
+
+    private static final int PRODUCTS = 13;
+    private static final int PAGE_SIZE = 5;
+    private static final LocalDateTime[] CREATED_AT = {
+            LocalDateTime.of(2024, 1, 1, 10, 0),
+            LocalDateTime.of(2024, 1, 2, 10, 0),
+            LocalDateTime.of(2024, 1, 3, 10, 0)
+    };
+    private static final double[] RATINGS = {4.5, 3.0};
+
+    @Container
+    static MongoDBContainer mongo = new MongoDBContainer("mongo:7.0");
+
+    @DynamicPropertySource
+    static void mongoProperties(DynamicPropertyRegistry registry) {
+        registry.add("spring.data.mongodb.uri", () -> mongo.getReplicaSetUrl("product-service-test"));
+    }
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    private ProductController productController;
+
+    @BeforeEach
+    void setUp() {
+        productRepository.deleteAll();
+        ProductServiceImpl productService = new ProductServiceImpl(productRepository, mock(CategoryRepository.class),
+                Mappers.getMapper(ProductMapper.class), mock(ImageStorageService.class), mock(CategoryCacheVersions.class),
+                mock(ProductSearchIndex.class), mock(ProductSuggester.class), mock(CategoryPaths.class),
+                mock(CacheManager.class), mock(ProductEventOutbox.class));
+        productController = new ProductController(productService, mock(ImageStorageService.class), mock(ReviewService.class));
+
+        for (int i = 0; i < PRODUCTS; i++) {
+            String id = productRepository.save(Product.builder()
+                    .name("Product " + i)
+                    .price(BigDecimal.TEN)
+                    .stockQuantity(1)
+                    .categoryId(i % 2 == 0 ? "c1" : "c2")
+                    .build()).getId();
+            // Auditing stamps createdAt on insert, so the tied values are written afterwards
+            mongoTemplate.updateFirst(Query.query(Criteria.where("_id").is(id)),
+                    Update.update("createdAt", CREATED_AT[i % CREATED_AT.length])
+                            .set("averageRating", RATINGS[i % RATINGS.length]),
+                    Product.class);
+        }
+    }
+
+    @Test
+    void getAllProductsByCursor_ShouldPageThroughTiedCreatedAtInBothDirections() {
+        for (Sort.Direction direction : Sort.Direction.values()) {
+            // Act
+            List<String> ids = pageThrough(cursor -> productController.getAllProductsByCursor(
+                    cursor, PAGE_SIZE, "createdAt", direction.name().toLowerCase(), false).getBody().getData());
+
+            // Assert
+            assertEquals(PRODUCTS, new HashSet<>(ids).size(), "Duplicates or gaps paging " + direction);
+            assertEquals(expectedOrder(Comparator.comparing(Product::getCreatedAt), direction, null), ids);
+        }
+    }
+
+    @Test
+    void getAllProductsByCursor_ShouldPageThroughTiedAverageRatingInBothDirections() {
+        for (Sort.Direction direction : Sort.Direction.values()) {
+            // Act
+            List<String> ids = pageThrough(cursor -> productController.getAllProductsByCursor(
+                    cursor, PAGE_SIZE, "averageRating", direction.name().toLowerCase(), false).getBody().getData());
+
+            // Assert
+            assertEquals(PRODUCTS, new HashSet<>(ids).size(), "Duplicates or gaps paging " + direction);
+            assertEquals(expectedOrder(Comparator.comparingDouble(Product::getAverageRating), direction, null), ids);
+        }
+    }
+
+    @Test
+    void getProductsByCategoryByCursor_ShouldPageThroughTiesWithinTheFilter() {
+        // Act
+        List<String> ids = pageThrough(cursor -> productController.getProductsByCategoryByCursor(
+                "c1", cursor, 2, false, false).getBody().getData());
+
+        // Assert
+        assertEquals(expectedOrder(Comparator.comparing(Product::getCreatedAt), Sort.Direction.DESC, "c1"), ids);
+    }
+
+    private List<String> pageThrough(Function<String, CursorPage<ProductResponse>> fetch) {
+        List<String> ids = new ArrayList<>();
+        String cursor = null;
+        int pages = 0;
+        do {
+            CursorPage<ProductResponse> page = fetch.apply(cursor);
+            page.getContent().forEach(product -> ids.add(product.getId()));
+            assertEquals(page.isHasNext(), page.getNextCursor() != null);
+            cursor = page.getNextCursor();
+            assertTrue(++pages <= PRODUCTS, "Pagination did not terminate");
+        } while (cursor != null);
+        return ids;
+    }
+
+    private List<String> expectedOrder(Comparator<Product> key, Sort.Direction direction, String categoryId) {
+        Comparator<Product> order = key.thenComparing(Product::getId);
+        return productRepository.findAll().stream()
+                .filter(product -> categoryId == null || categoryId.equals(product.getCategoryId()))
+                .sorted(direction.isAscending() ? order : order.reversed())
+                .map(Product::getId)
+                .toList();
+    }
+}
@@ -0,0 +1,123 @@
+package com.hasandag.ecommerce.product.repository;
+
+import com.hasandag.ecommerce.product.model.Category;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.data.mongo.DataMongoTest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.MongoDBContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Fires parallel subcategory link changes and detail edits at the same parent and checks
+ * that no link is lost, which a read-modify-write of the parent document would do.
+ */
+@DataMongoTest
+@Testcontainers(disabledWithoutDocker = true)
+public class CategoryRepositoryConcurrencyTest {
+
+    private static final int THREADS = 16;
+
+    @Container
+    static MongoDBContainer mongo = new MongoDBContainer("mongo:7.0");
+
+    @DynamicPropertySource
+    static void mongoProperties(DynamicPropertyRegistry registry) {
+        registry.add("spring.data.mongodb.uri", () -> mongo.getReplicaSetUrl("product-service-test"));
+    }
+
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    private String parentId;
+
+    @BeforeEach
+    void setUp() {
+        categoryRepository.deleteAll();
+        List<String> existing = IntStream.range(0, 50).mapToObj(i -> "existing-" + i).collect(Collectors.toCollection(ArrayList::new));
+        parentId = categoryRepository.save(Category.builder().name("Parent").subCategoryIds(existing).build()).getId();
+    }
+
+    @Test
+    void parallelLinkChanges_ShouldNotLoseSubCategoryIds() throws Exception {
+        // Arrange
+        List<Runnable> edits = new ArrayList<>();
+        Set<String> expected = new HashSet<>();
+        for (int i = 0; i < 50; i++) {
+            String added = "added-" + i;
+            String existing = "existing-" + i;
+            edits.add(() -> categoryRepository.addSubCategoryId(parentId, added));
+            expected.add(added);
+            if (i % 2 == 0) {
+                edits.add(() -> categoryRepository.removeSubCategoryId(parentId, existing));
+            } else {
+                expected.add(existing);
+            }
+            // Detail edits and duplicate links must not disturb the list either
+            int revision = i;
+            edits.add(() -> categoryRepository.updateDetails(parentId, "Parent " + revision, null, null, true));
+            edits.add(() -> categoryRepository.addSubCategoryId(parentId, added));
+        }
+
+        // Act
+        runConcurrently(edits);
+
+        // Assert
+        List<String> subCategoryIds = categoryRepository.findById(parentId).orElseThrow().getSubCategoryIds();
+        assertEquals(expected, new HashSet<>(subCategoryIds));
+        assertEquals(expected.size(), subCategoryIds.size(), "duplicate links");
+    }
+
+    @Test
+    void detachChildren_ShouldClearParentOfEveryChildInOneUpdate() {
+        // Arrange
+        IntStream.range(0, 5).forEach(i -> categoryRepository.save(Category.builder().name("Child " + i).parentId(parentId).build()));
+        categoryRepository.save(Category.builder().name("Other").parentId("other").build());
+
+        // Act
+        long detached = categoryRepository.detachChildren(parentId);
+
+        // Assert
+        assertEquals(5, detached);
+        assertTrue(categoryRepository.findByParentId(parentId).isEmpty());
+        assertEquals(1, categoryRepository.findByParentId("other").size());
+    }
+
+    private static void runConcurrently(List<Runnable> tasks) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<?>> futures = new ArrayList<>();
+            for (Runnable task : tasks) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    task.run();
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package com.hasandag.ecommerce.product.repository;
+
+import com.hasandag.ecommerce.product.model.OutboxEvent;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.data.mongo.DataMongoTest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.MongoDBContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.time.LocalDateTime;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataMongoTest
+@Testcontainers(disabledWithoutDocker = true)
+public class OutboxEventRepositoryTest {
+
+    @Container
+    static MongoDBContainer mongo = new MongoDBContainer("mongo:7.0");
+
+    @DynamicPropertySource
+    static void mongoProperties(DynamicPropertyRegistry registry) {
+        registry.add("spring.data.mongodb.uri", () -> mongo.getReplicaSetUrl("product-service-test"));
+    }
+
+    @Autowired
+    private OutboxEventRepository outboxEventRepository;
+
+    private LocalDateTime now;
+
+    @BeforeEach
+    void setUp() {
+        outboxEventRepository.deleteAll();
+        now = LocalDateTime.now();
+        for (int i = 0; i < 10; i++) {
+            outboxEventRepository.insert(OutboxEvent.builder()
+                    .topic("product-stock-changed")
+                    .messageKey("product-" + i)
+                    .payload("{}")
+                    .createdAt(now.minusSeconds(10 - i))
+                    .build());
+        }
+    }
+
+    @Test
+    void claimBatch_ShouldNotHandTheSameEventToTwoRelays() {
+        // Act
+        List<OutboxEvent> first = outboxEventRepository.claimBatch("relay-a", now, now.plusSeconds(30), 6);
+        List<OutboxEvent> second = outboxEventRepository.claimBatch("relay-b", now, now.plusSeconds(30), 6);
+
+        // Assert
+        assertEquals(6, first.size());
+        assertEquals(4, second.size());
+        Set<String> ids = new HashSet<>();
+        first.forEach(event -> ids.add(event.getId()));
+        second.forEach(event -> assertTrue(ids.add(event.getId())));
+        assertEquals("product-0", first.get(0).getMessageKey());
+    }
+
+    @Test
+    void claimBatch_ShouldReclaimEventsWhoseLeaseRanOut() {
+        // Arrange
+        outboxEventRepository.claimBatch("relay-a", now, now.plusSeconds(30), 10);
+
+        // Act
+        List<OutboxEvent> reclaimed = outboxEventRepository.claimBatch("relay-b", now.plusSeconds(31), now.plusSeconds(61), 10);
+
+        // Assert
+        assertEquals(10, reclaimed.size());
+    }
+
+    @Test
+    void markPublished_ShouldTakeEventsOutOfTheBacklog() {
+        // Arrange
+        List<String> ids = outboxEventRepository.claimBatch("relay-a", now, now.plusSeconds(30), 4).stream()
+                .map(OutboxEvent::getId)
+                .toList();
+
+        // Act
+        long marked = outboxEventRepository.markPublished(ids, now, now.plusDays(1));
+
+        // Assert
+        assertEquals(4, marked);
+        assertEquals(6, outboxEventRepository.countByPublishedAtIsNull());
+        assertEquals("product-4", outboxEventRepository.findFirstByPublishedAtIsNullOrderByCreatedAtAsc().getMessageKey());
+        assertTrue(outboxEventRepository.claimBatch("relay-b", now.plusMinutes(5), now.plusMinutes(6), 10).stream()
+                .noneMatch(event -> ids.contains(event.getId())));
+    }
+}
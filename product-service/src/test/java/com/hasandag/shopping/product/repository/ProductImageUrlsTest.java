@@ -0,0 +1,110 @@
+package com.hasandag.ecommerce.product.repository;
+
+import com.hasandag.ecommerce.product.model.Product;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.data.mongo.DataMongoTest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.MongoDBContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Image URLs map to reference-counted blobs, so each removed copy of a URL must be handed to
+ * exactly one caller: that caller releases the blob's reference.
+ */
+@DataMongoTest
+@Testcontainers(disabledWithoutDocker = true)
+public class ProductImageUrlsTest {
+
+    private static final String IMAGE = "/api/products/images/" + "ab".repeat(32) + ".jpg";
+    private static final String OTHER_IMAGE = "/api/products/images/" + "ef".repeat(32) + ".png";
+    private static final int THREADS = 16;
+
+    @Container
+    static MongoDBContainer mongo = new MongoDBContainer("mongo:7.0");
+
+    @DynamicPropertySource
+    static void mongoProperties(DynamicPropertyRegistry registry) {
+        registry.add("spring.data.mongodb.uri", () -> mongo.getReplicaSetUrl("product-service-test"));
+    }
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    private String productId;
+
+    @BeforeEach
+    void setUp() {
+        productRepository.deleteAll();
+        productId = productRepository.save(Product.builder()
+                .name("Pictured product")
+                .price(BigDecimal.TEN)
+                .stockQuantity(1)
+                .categoryId("c1")
+                .build()).getId();
+    }
+
+    @Test
+    void removeImageUrl_ShouldRemoveOneCopyOfAnImageUploadedTwice() {
+        // Arrange
+        productRepository.addImageUrls(productId, List.of(IMAGE, OTHER_IMAGE, IMAGE));
+
+        // Act
+        Optional<Product> first = productRepository.removeImageUrl(productId, IMAGE);
+        Optional<Product> second = productRepository.removeImageUrl(productId, IMAGE);
+        Optional<Product> third = productRepository.removeImageUrl(productId, IMAGE);
+
+        // Assert
+        assertEquals(List.of(OTHER_IMAGE, IMAGE), first.orElseThrow().getImageUrls());
+        assertEquals(List.of(OTHER_IMAGE), second.orElseThrow().getImageUrls());
+        assertTrue(third.isEmpty());
+        assertEquals(first.get().getStockVersion() + 1, second.get().getStockVersion());
+    }
+
+    @Test
+    void removeImageUrl_ShouldLetOneOfConcurrentRemovalsOfTheSameCopySucceed() throws Exception {
+        // Arrange
+        productRepository.addImageUrls(productId, List.of(IMAGE, OTHER_IMAGE));
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Boolean>> futures = new ArrayList<>();
+
+        // Act
+        try {
+            for (int t = 0; t < THREADS; t++) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    return productRepository.removeImageUrl(productId, IMAGE).isPresent();
+                }));
+            }
+            start.countDown();
+            int removed = 0;
+            for (Future<Boolean> future : futures) {
+                if (future.get(60, TimeUnit.SECONDS)) {
+                    removed++;
+                }
+            }
+
+            // Assert
+            assertEquals(1, removed);
+            assertEquals(List.of(OTHER_IMAGE), productRepository.findById(productId).orElseThrow().getImageUrls());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,132 @@
+package com.hasandag.ecommerce.product.repository;
+
+import com.hasandag.ecommerce.product.model.Product;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.data.mongo.DataMongoTest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.MongoDBContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Hammers one product with far more concurrent decrements than it has stock and checks that
+ * every unit is handed out exactly once and the stock never goes below zero.
+ */
+@DataMongoTest
+@Testcontainers(disabledWithoutDocker = true)
+public class ProductStockConcurrencyTest {
+
+    private static final int INITIAL_STOCK = 200;
+    private static final int THREADS = 32;
+    private static final int ATTEMPTS_PER_THREAD = 25;
+
+    @Container
+    static MongoDBContainer mongo = new MongoDBContainer("mongo:7.0");
+
+    @DynamicPropertySource
+    static void mongoProperties(DynamicPropertyRegistry registry) {
+        registry.add("spring.data.mongodb.uri", () -> mongo.getReplicaSetUrl("product-service-test"));
+    }
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    private String productId;
+
+    @BeforeEach
+    void setUp() {
+        productRepository.deleteAll();
+        productId = productRepository.save(Product.builder()
+                .name("Limited edition")
+                .price(BigDecimal.TEN)
+                .stockQuantity(INITIAL_STOCK)
+                .categoryId("c1")
+                .build()).getId();
+    }
+
+    @Test
+    void adjustStock_ShouldNeverOversellUnderConcurrentDecrements() throws Exception {
+        // Arrange
+        AtomicInteger sold = new AtomicInteger();
+        AtomicInteger rejected = new AtomicInteger();
+        AtomicInteger lowestSeen = new AtomicInteger(INITIAL_STOCK);
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+
+        // Act
+        try {
+            for (int t = 0; t < THREADS; t++) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    for (int i = 0; i < ATTEMPTS_PER_THREAD; i++) {
+                        int quantity = ThreadLocalRandom.current().nextInt(1, 4);
+                        productRepository.adjustStock(productId, -quantity).ifPresentOrElse(product -> {
+                            sold.addAndGet(quantity);
+                            lowestSeen.accumulateAndGet(product.getStockQuantity(), Math::min);
+                        }, rejected::incrementAndGet);
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get(60, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        // Assert
+        int remaining = productRepository.findById(productId).orElseThrow().getStockQuantity();
+        assertTrue(remaining >= 0, "stock went negative: " + remaining);
+        assertTrue(lowestSeen.get() >= 0, "a decrement observed negative stock: " + lowestSeen.get());
+        assertEquals(INITIAL_STOCK, sold.get() + remaining, "units sold plus units left must equal the initial stock");
+        assertTrue(rejected.get() > 0, "demand should exceed stock so that some decrements are rejected");
+        assertTrue(remaining < 3, "stock should be drained down to less than the largest request");
+    }
+
+    @Test
+    void adjustStock_ShouldRejectDecrementLargerThanStockAndLeaveItUnchanged() {
+        // Act & Assert
+        assertTrue(productRepository.adjustStock(productId, -(INITIAL_STOCK + 1)).isEmpty());
+        assertEquals(INITIAL_STOCK, productRepository.findById(productId).orElseThrow().getStockQuantity());
+        assertEquals(INITIAL_STOCK + 5, productRepository.adjustStock(productId, 5).orElseThrow().getStockQuantity());
+        assertTrue(productRepository.adjustStock("000000000000000000000000", 1).isEmpty());
+    }
+
+    @Test
+    void replaceIfStockVersion_ShouldRejectCopyReadBeforeAStockChange() {
+        // Arrange
+        Product stale = productRepository.findById(productId).orElseThrow();
+        long versionAfterDecrement = productRepository.adjustStock(productId, -1).orElseThrow().getStockVersion();
+        stale.setStockQuantity(INITIAL_STOCK + 100);
+
+        // Act
+        boolean replaced = productRepository.replaceIfStockVersion(stale).isPresent();
+
+        // Assert
+        assertFalse(replaced);
+        assertEquals(stale.getStockVersion() + 1, versionAfterDecrement);
+        Product current = productRepository.findById(productId).orElseThrow();
+        assertEquals(INITIAL_STOCK - 1, current.getStockQuantity());
+        current.setStockQuantity(INITIAL_STOCK);
+        assertEquals(versionAfterDecrement + 1, productRepository.replaceIfStockVersion(current).orElseThrow().getStockVersion());
+    }
+}
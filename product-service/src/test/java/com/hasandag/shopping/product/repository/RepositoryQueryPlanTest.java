@@ -0,0 +1,230 @@
+package com.hasandag.ecommerce.product.repository;
+
+import com.hasandag.ecommerce.product.model.Category;
+import com.hasandag.ecommerce.product.model.Product;
+import com.hasandag.ecommerce.product.model.Review;
+import com.mongodb.event.CommandListener;
+import com.mongodb.event.CommandStartedEvent;
+import org.bson.BsonDocument;
+import org.bson.BsonString;
+import org.bson.Document;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.function.Executable;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.mongo.MongoClientSettingsBuilderCustomizer;
+import org.springframework.boot.test.autoconfigure.data.mongo.DataMongoTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.MongoDBContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+
+/**
+ * Runs every hot repository query against a real Mongo, captures the commands the driver
+ * sends and explains them. Fails if a winning plan contains a collection scan or a
+ * blocking in-memory sort, i.e. if the index plan on the documents no longer covers a query.
+ * The total count of an unfiltered {@code findAll} page is a full scan by nature, so only its
+ * find is checked; the regex name search fallback is intentionally not covered.
+ */
+@DataMongoTest(properties = "spring.data.mongodb.auto-index-creation=true")
+@Import(RepositoryQueryPlanTest.CommandCaptureConfig.class)
+@Testcontainers(disabledWithoutDocker = true)
+public class RepositoryQueryPlanTest {
+
+    private static final Set<String> EXPLAINABLE_COMMANDS = Set.of("find", "aggregate", "count");
+    private static final Set<String> FORBIDDEN_STAGES = Set.of("COLLSCAN", "SORT");
+    private static final List<BsonDocument> capturedCommands = new CopyOnWriteArrayList<>();
+
+    @Container
+    static MongoDBContainer mongo = new MongoDBContainer("mongo:7.0");
+
+    @DynamicPropertySource
+    static void mongoProperties(DynamicPropertyRegistry registry) {
+        registry.add("spring.data.mongodb.uri", () -> mongo.getReplicaSetUrl("product-service-test"));
+    }
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private ReviewRepository reviewRepository;
+
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @BeforeEach
+    void setUp() {
+        productRepository.deleteAll();
+        reviewRepository.deleteAll();
+        categoryRepository.deleteAll();
+
+        IntStream.range(0, 5).forEach(i -> productRepository.save(Product.builder()
+                .name("Product " + i)
+                .price(new BigDecimal(10 + i))
+                .stockQuantity(i)
+                .categoryId("c1")
+                .categoryPath(new ArrayList<>(List.of("root", "c1")))
+                .sellerId("s1")
+                .averageRating(i)
+                .build()));
+        IntStream.range(0, 5).forEach(i -> reviewRepository.save(Review.builder()
+                .productId("p1")
+                .userId("u" + i)
+                .rating(i % 5 + 1)
+                .approved(i % 2 == 0)
+                .build()));
+        categoryRepository.save(Category.builder().name("Root").build());
+        categoryRepository.save(Category.builder().name("Child").parentId("root").ancestorIds(new ArrayList<>(List.of("root"))).build());
+    }
+
+    @Test
+    void productQueries_ShouldUseIndexes() {
+        PageRequest page = PageRequest.of(0, 2);
+        Product first = productRepository.findTop10ByOrderByCreatedAtDesc().get(0);
+        ProductCursor after = ProductCursor.after(first, ProductSortKey.CREATED_AT, Sort.Direction.DESC);
+        ProductListingFilter available = new ProductListingFilter(null, false, null, null, null, true);
+        ProductListingFilter categoryPrice = new ProductListingFilter("c1", false, null, BigDecimal.ONE, BigDecimal.TEN, true);
+
+        assertAll(
+                indexedFind("findAll sorted by createdAt", () -> productRepository.findAll(PageRequest.of(0, 2, Sort.by(Sort.Direction.DESC, "createdAt")))),
+                indexed("findByCategoryId", () -> productRepository.findByCategoryId("c1", page)),
+                indexed("findBySellerId", () -> productRepository.findBySellerId("s1", page)),
+                indexed("findAllAvailableProducts", () -> productRepository.findAllAvailableProducts(PageRequest.of(0, 2, Sort.by(Sort.Direction.DESC, "createdAt")))),
+                indexed("findByPriceRange", () -> productRepository.findByPriceRange(BigDecimal.ONE, BigDecimal.TEN, page)),
+                indexed("findByCategoryPath", () -> productRepository.findByCategoryPath("root", page)),
+                indexed("findByCategoryIdAndPriceRange", () -> productRepository.findByCategoryIdAndPriceRange("c1", BigDecimal.ONE, BigDecimal.TEN, page)),
+                indexed("findTop10ByOrderByCreatedAtDesc", () -> productRepository.findTop10ByOrderByCreatedAtDesc()),
+                indexed("findTop10ByOrderByAverageRatingDesc", () -> productRepository.findTop10ByOrderByAverageRatingDesc()),
+                indexed("findSlice unfiltered", () -> productRepository.findSlice(ProductListingFilter.none(), ProductSortKey.CREATED_AT, Sort.Direction.DESC, after, 3)),
+                indexed("findSlice available by rating", () -> productRepository.findSlice(available, ProductSortKey.AVERAGE_RATING, Sort.Direction.DESC, null, 3)),
+                indexed("findSlice category", () -> productRepository.findSlice(new ProductListingFilter("c1", false, null, null, null, false), ProductSortKey.CREATED_AT, Sort.Direction.DESC, after, 3)),
+                indexed("findSlice seller", () -> productRepository.findSlice(new ProductListingFilter(null, false, "s1", null, null, false), ProductSortKey.CREATED_AT, Sort.Direction.DESC, null, 3)),
+                indexed("findSlice category and price", () -> productRepository.findSlice(categoryPrice, ProductSortKey.CREATED_AT, Sort.Direction.DESC, null, 3)),
+                indexed("findSlice category subtree", () -> productRepository.findSlice(new ProductListingFilter("root", true, null, null, null, false), ProductSortKey.CREATED_AT, Sort.Direction.DESC, after, 3)),
+                indexed("findSlice category subtree and price", () -> productRepository.findSlice(new ProductListingFilter("root", true, null, BigDecimal.ONE, BigDecimal.TEN, true), ProductSortKey.CREATED_AT, Sort.Direction.DESC, null, 3)),
+                indexed("countListing", () -> productRepository.countListing(categoryPrice))
+        );
+    }
+
+    @Test
+    void reviewQueries_ShouldUseIndexes() {
+        PageRequest page = PageRequest.of(0, 2);
+
+        assertAll(
+                indexed("findByProductId", () -> reviewRepository.findByProductId("p1", page)),
+                indexed("findByUserId", () -> reviewRepository.findByUserId("u1", page)),
+                indexed("findByProductIdAndUserId", () -> reviewRepository.findByProductIdAndUserId("p1", "u1")),
+                indexed("findApprovedReviewsByProductId", () -> reviewRepository.findApprovedReviewsByProductId("p1", page)),
+                indexed("findPendingReviews", () -> reviewRepository.findPendingReviews(page)),
+                indexed("findByProductIdAndApprovedTrue", () -> reviewRepository.findByProductIdAndApprovedTrue("p1")),
+                indexed("findByProductIdAndApprovedTrue paged", () -> reviewRepository.findByProductIdAndApprovedTrue("p1", page)),
+                indexed("findByRating", () -> reviewRepository.findByRating(5, page)),
+                indexed("findByUserIdAfter", () -> reviewRepository.findByUserIdAfter("u1", null, 10)),
+                indexed("findByUserIdAfter cursor", () -> reviewRepository.findByUserIdAfter(
+                        "u1", new ReviewCursor(LocalDateTime.now(), "ffffffffffffffffffffffff"), 10)),
+                indexed("streamByUserIdOrderByCreatedAtDesc", () -> {
+                    try (var reviews = reviewRepository.streamByUserIdOrderByCreatedAtDesc("u1")) {
+                        reviews.forEach(review -> { });
+                    }
+                })
+        );
+    }
+
+    @Test
+    void categoryQueries_ShouldUseIndexes() {
+        assertAll(
+                indexed("findByName", () -> categoryRepository.findByName("Root")),
+                indexed("findByParentId", () -> categoryRepository.findByParentId("root")),
+                indexed("findAllRootCategories", () -> categoryRepository.findAllRootCategories()),
+                indexed("findAllActiveCategories", () -> categoryRepository.findAllActiveCategories()),
+                indexed("findByParentIdIsNull", () -> categoryRepository.findByParentIdIsNull()),
+                indexed("descendants by ancestorIds", () -> mongoTemplate.find(Query.query(where("ancestorIds").is("root")), Category.class))
+        );
+    }
+
+    private Executable indexed(String description, Runnable query) {
+        return explained(description, query, EXPLAINABLE_COMMANDS);
+    }
+
+    // For queries whose page count has no filter to use an index for
+    private Executable indexedFind(String description, Runnable query) {
+        return explained(description, query, Set.of("find"));
+    }
+
+    private Executable explained(String description, Runnable query, Set<String> commandNames) {
+        capturedCommands.clear();
+        query.run();
+        List<BsonDocument> commands = capturedCommands.stream()
+                .filter(command -> commandNames.contains(command.getFirstKey()))
+                .toList();
+
+        return () -> {
+            assertFalse(commands.isEmpty(), description + " sent no query");
+            for (BsonDocument command : commands) {
+                Document explain = mongoTemplate.getDb().runCommand(new BsonDocument("explain", command)
+                        .append("verbosity", new BsonString("queryPlanner")));
+                List<String> stages = new ArrayList<>();
+                collectStages(explain, stages);
+                stages.retainAll(FORBIDDEN_STAGES);
+                assertTrue(stages.isEmpty(), description + " uses " + stages + ": " + command.toJson());
+            }
+        };
+    }
+
+    private static void collectStages(Object node, List<String> stages) {
+        if (node instanceof Document document) {
+            if (document.get("stage") instanceof String stage) {
+                stages.add(stage);
+            }
+            // Rejected plans are alternatives the planner did not pick
+            document.forEach((key, value) -> {
+                if (!"rejectedPlans".equals(key)) {
+                    collectStages(value, stages);
+                }
+            });
+        } else if (node instanceof List<?> list) {
+            list.forEach(item -> collectStages(item, stages));
+        }
+    }
+
+    @TestConfiguration
+    static class CommandCaptureConfig {
+
+        @Bean
+        MongoClientSettingsBuilderCustomizer commandCapture() {
+            return settings -> settings.addCommandListener(new CommandListener() {
+                @Override
+                public void commandStarted(CommandStartedEvent event) {
+                    if (EXPLAINABLE_COMMANDS.contains(event.getCommandName())) {
+                        BsonDocument command = event.getCommand().clone();
+                        // Session and routing fields are not accepted inside explain
+                        command.keySet().removeIf(key -> key.startsWith("$") || key.equals("lsid") || key.equals("txnNumber"));
+                        capturedCommands.add(command);
+                    }
+                }
+            });
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package com.hasandag.ecommerce.product.repository;
+
+import com.hasandag.ecommerce.product.model.Review;
+import com.hasandag.ecommerce.product.model.ReviewSummary;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.data.mongo.DataMongoTest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.MongoDBContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataMongoTest
+@Testcontainers(disabledWithoutDocker = true)
+public class ReviewSummaryRepositoryTest {
+
+    private static final String PRODUCT_ID = "p1";
+    private static final int LATEST_LIMIT = 5;
+
+    @Container
+    static MongoDBContainer mongo = new MongoDBContainer("mongo:7.0");
+
+    @DynamicPropertySource
+    static void mongoProperties(DynamicPropertyRegistry registry) {
+        registry.add("spring.data.mongodb.uri", () -> mongo.getReplicaSetUrl("product-service-test"));
+    }
+
+    @Autowired
+    private ReviewSummaryRepository reviewSummaryRepository;
+
+    @Autowired
+    private ReviewRepository reviewRepository;
+
+    @BeforeEach
+    void setUp() {
+        reviewSummaryRepository.deleteAll();
+        reviewRepository.deleteAll();
+    }
+
+    @Test
+    void removeReview_ShouldSeedMissingSummaryFromRemainingApprovedReviews() {
+        // Arrange
+        Review five = approvedReview(5);
+        Review four = approvedReview(4);
+        // Already unapproved by the caller; the summary never counted it either
+        Review removed = reviewRepository.save(Review.builder().productId(PRODUCT_ID).userId("u").rating(2).build());
+
+        // Act
+        ReviewSummary summary = reviewSummaryRepository.removeReview(PRODUCT_ID, removed.getId(), 2, LATEST_LIMIT);
+
+        // Assert
+        assertEquals(2, summary.getRatingCount());
+        assertEquals(9, summary.getRatingSum());
+        assertEquals(1L, summary.getHistogram().get("5"));
+        assertEquals(1L, summary.getHistogram().get("4"));
+        assertEquals(0L, summary.getHistogram().get("2"));
+        assertEquals(2, summary.getLatestReviewIds().size());
+        assertTrue(summary.getLatestReviewIds().containsAll(List.of(five.getId(), four.getId())));
+    }
+
+    @Test
+    void addReview_ShouldSeedMissingSummaryWithoutCountingTheReviewTwice() {
+        // Arrange
+        Review existing = approvedReview(3);
+        Review added = approvedReview(5);
+
+        // Act
+        ReviewSummary summary = reviewSummaryRepository.addReview(PRODUCT_ID, added.getId(), 5, LATEST_LIMIT);
+
+        // Assert
+        assertEquals(2, summary.getRatingCount());
+        assertEquals(8, summary.getRatingSum());
+        assertEquals(1L, summary.getHistogram().get("5"));
+        assertEquals(List.of(added.getId(), existing.getId()), summary.getLatestReviewIds());
+    }
+
+    @Test
+    void removeReview_ShouldNotDriveCountersBelowZero() {
+        // Arrange
+        reviewSummaryRepository.save(ReviewSummary.builder()
+                .productId(PRODUCT_ID)
+                .histogram(Map.of("4", 0L))
+                .build());
+
+        // Act
+        ReviewSummary summary = reviewSummaryRepository.removeReview(PRODUCT_ID, "r1", 4, LATEST_LIMIT);
+
+        // Assert
+        assertEquals(0, summary.getRatingCount());
+        assertEquals(0, summary.getRatingSum());
+        assertEquals(0L, summary.getHistogram().get("4"));
+    }
+
+    @Test
+    void addAndRemoveReview_ShouldKeepExistingSummaryIncremental() {
+        // Arrange
+        Review first = approvedReview(4);
+        reviewSummaryRepository.addReview(PRODUCT_ID, first.getId(), 4, LATEST_LIMIT);
+        Review second = approvedReview(2);
+        reviewSummaryRepository.addReview(PRODUCT_ID, second.getId(), 2, LATEST_LIMIT);
+
+        // Act
+        ReviewSummary summary = reviewSummaryRepository.removeReview(PRODUCT_ID, first.getId(), 4, LATEST_LIMIT);
+
+        // Assert
+        assertEquals(1, summary.getRatingCount());
+        assertEquals(2, summary.getRatingSum());
+        assertEquals(0L, summary.getHistogram().get("4"));
+        assertEquals(1L, summary.getHistogram().get("2"));
+        assertEquals(List.of(second.getId()), summary.getLatestReviewIds());
+    }
+
+    private Review approvedReview(int rating) {
+        return reviewRepository.save(Review.builder()
+                .productId(PRODUCT_ID)
+                .userId("u")
+                .rating(rating)
+                .approved(true)
+                .build());
+    }
+}
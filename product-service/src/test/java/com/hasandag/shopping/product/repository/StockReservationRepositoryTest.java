@@ -0,0 +1,152 @@
+package com.hasandag.ecommerce.product.repository;
+
+import com.hasandag.ecommerce.product.model.StockReservation;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.data.mongo.DataMongoTest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.MongoDBContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataMongoTest
+@Testcontainers(disabledWithoutDocker = true)
+public class StockReservationRepositoryTest {
+
+    @Container
+    static MongoDBContainer mongo = new MongoDBContainer("mongo:7.0");
+
+    @DynamicPropertySource
+    static void mongoProperties(DynamicPropertyRegistry registry) {
+        registry.add("spring.data.mongodb.uri", () -> mongo.getReplicaSetUrl("product-service-test"));
+    }
+
+    @Autowired
+    private StockReservationRepository reservationRepository;
+
+    private LocalDateTime now;
+
+    @BeforeEach
+    void setUp() {
+        reservationRepository.deleteAll();
+        now = LocalDateTime.now();
+        reservationRepository.insert(reservation("expired", now.minusMinutes(1)));
+        reservationRepository.insert(reservation("active", now.plusMinutes(10)));
+    }
+
+    @Test
+    void findExpiredOrderIds_ShouldReturnOnlyHeldReservationsPastExpiry() {
+        // Act
+        List<String> expired = reservationRepository.findExpiredOrderIds(now, 10);
+
+        // Assert
+        assertEquals(List.of("expired"), expired);
+    }
+
+    @Test
+    void claimExpired_ShouldSucceedForExactlyOneConcurrentCaller() throws Exception {
+        // Arrange
+        AtomicInteger claims = new AtomicInteger();
+        Callable<Void> claim = () -> {
+            reservationRepository.claimExpired("expired", now, now.plusDays(7))
+                    .ifPresent(reservation -> claims.incrementAndGet());
+            return null;
+        };
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+
+        // Act
+        try {
+            for (Future<Void> future : executor.invokeAll(Collections.nCopies(8, claim))) {
+                future.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        // Assert
+        assertEquals(1, claims.get());
+        assertEquals(StockReservation.Status.EXPIRED, reservationRepository.findById("expired").orElseThrow().getStatus());
+    }
+
+    @Test
+    void transition_ShouldOnlyApplyFromExpectedStates() {
+        // Act & Assert
+        assertTrue(reservationRepository.transition("active", EnumSet.of(StockReservation.Status.RESERVED),
+                StockReservation.Status.RELEASED, now.plusDays(7)).isPresent());
+        assertTrue(reservationRepository.transition("active", EnumSet.of(StockReservation.Status.RESERVED),
+                StockReservation.Status.RELEASED, now.plusDays(7)).isEmpty());
+        assertTrue(reservationRepository.claimExpired("active", now.plusHours(1), now.plusDays(7)).isEmpty());
+    }
+
+    @Test
+    void findStalledOrderIds_ShouldReturnPendingAndUnreturnedReservations() {
+        // Arrange
+        reservationRepository.insert(stalled("pending", StockReservation.Status.PENDING, false));
+        reservationRepository.insert(stalled("unreturned", StockReservation.Status.RELEASED, false));
+        reservationRepository.insert(stalled("returned", StockReservation.Status.RELEASED, true));
+
+        // Act
+        List<String> stalled = reservationRepository.findStalledOrderIds(now.minusMinutes(2), 10);
+
+        // Assert
+        assertEquals(Set.of("pending", "unreturned"), Set.copyOf(stalled));
+    }
+
+    @Test
+    void claimUnreturned_ShouldSucceedOnceUntilStockIsMarkedReturned() {
+        // Arrange
+        reservationRepository.insert(stalled("unreturned", StockReservation.Status.EXPIRED, false));
+        LocalDateTime before = now.minusMinutes(2);
+
+        // Act & Assert
+        assertTrue(reservationRepository.claimUnreturned("unreturned", before).isPresent());
+        assertTrue(reservationRepository.claimUnreturned("unreturned", before).isEmpty());
+        reservationRepository.markStockReturned("unreturned");
+        assertTrue(reservationRepository.findById("unreturned").orElseThrow().isStockReturned());
+    }
+
+    @Test
+    void failPending_ShouldOnlyFailReservationsThatStayedPending() {
+        // Arrange
+        reservationRepository.insert(stalled("pending", StockReservation.Status.PENDING, false));
+
+        // Act & Assert
+        assertTrue(reservationRepository.markReserved("pending"));
+        assertTrue(reservationRepository.failPending("pending", now.minusMinutes(2), now.plusDays(7)).isEmpty());
+        assertEquals(StockReservation.Status.RESERVED, reservationRepository.findById("pending").orElseThrow().getStatus());
+    }
+
+    private static StockReservation stalled(String orderId, StockReservation.Status status, boolean stockReturned) {
+        StockReservation reservation = reservation(orderId, LocalDateTime.now().plusMinutes(10));
+        reservation.setStatus(status);
+        reservation.setStockReturned(stockReturned);
+        reservation.setUpdatedAt(LocalDateTime.now().minusMinutes(5));
+        return reservation;
+    }
+
+    private static StockReservation reservation(String orderId, LocalDateTime expiresAt) {
+        return StockReservation.builder()
+                .orderId(orderId)
+                .items(new ArrayList<>(List.of(new StockReservation.Item("p1", 2))))
+                .status(StockReservation.Status.RESERVED)
+                .expiresAt(expiresAt)
+                .build();
+    }
+}
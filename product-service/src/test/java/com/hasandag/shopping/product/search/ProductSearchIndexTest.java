@@ -0,0 +1,167 @@
+package com.hasandag.ecommerce.product.search;
+
+import com.hasandag.ecommerce.product.cache.CacheInvalidationBus;
+import com.hasandag.ecommerce.product.model.Product;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.data.mongo.DataMongoTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.MongoDBContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@DataMongoTest
+@Testcontainers(disabledWithoutDocker = true)
+public class ProductSearchIndexTest {
+
+    @Container
+    static MongoDBContainer mongo = new MongoDBContainer("mongo:7.0");
+
+    @DynamicPropertySource
+    static void mongoProperties(DynamicPropertyRegistry registry) {
+        registry.add("spring.data.mongodb.uri", () -> mongo.getReplicaSetUrl("product-service-test"));
+    }
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    private ProductSearchIndex searchIndex;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        mongoTemplate.remove(new Query(), Product.class);
+        searchIndex = newIndex(mongoTemplate);
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        searchIndex.destroy();
+    }
+
+    @Test
+    void search_ShouldMatchExactPrefixAndMisspelledTermsBestMatchFirst() {
+        // Arrange
+        Product headphones = save("Wireless Headphones", "Over-ear", "c1", "99.00", 5);
+        Product lamp = save("Desk Lamp", "Pairs well with headphones", "c1", "25.00", 5);
+        searchIndex.rebuild();
+
+        // Act & Assert
+        assertTrue(searchIndex.isReady());
+        assertEquals(List.of(headphones.getId(), lamp.getId()), ids(ProductSearchCriteria.ofText("headphones")));
+        assertEquals(List.of(headphones.getId()), ids(ProductSearchCriteria.ofText("headph")));
+        assertEquals(List.of(headphones.getId()), ids(ProductSearchCriteria.ofText("hedphones")));
+        assertEquals(List.of(), ids(ProductSearchCriteria.ofText("keyboard")));
+    }
+
+    @Test
+    void search_ShouldApplyCategoryPriceAndStockFilters() {
+        // Arrange
+        Product cheap = save("Reading Lamp", null, "c1", "10.00", 5);
+        Product expensive = save("Floor Lamp", null, "c1", "150.00", 5);
+        Product otherCategory = save("Garden Lamp", null, "c2", "20.00", 5);
+        Product soldOut = save("Desk Lamp", null, "c1", "30.00", 0);
+        searchIndex.rebuild();
+
+        // Act
+        List<String> inCategory = ids(new ProductSearchCriteria("lamp", "c1", null, null, false));
+        List<String> inPriceRange = ids(new ProductSearchCriteria("lamp", null, new BigDecimal("15"), new BigDecimal("100"), false));
+        List<String> inStock = ids(new ProductSearchCriteria("lamp", "c1", null, null, true));
+
+        // Assert
+        assertEquals(3, inCategory.size());
+        assertFalse(inCategory.contains(otherCategory.getId()));
+        assertEquals(2, inPriceRange.size());
+        assertTrue(inPriceRange.containsAll(List.of(otherCategory.getId(), soldOut.getId())));
+        assertEquals(2, inStock.size());
+        assertTrue(inStock.containsAll(List.of(cheap.getId(), expensive.getId())));
+    }
+
+    @Test
+    void indexAndRemove_ShouldBeSearchableAsSoonAsTheyReturn() {
+        // Arrange
+        searchIndex.rebuild();
+        Product lamp = save("Desk Lamp", null, "c1", "25.00", 5);
+
+        // Act & Assert
+        searchIndex.index(lamp);
+        assertEquals(List.of(lamp.getId()), ids(ProductSearchCriteria.ofText("lamp")));
+
+        searchIndex.remove(lamp.getId());
+        assertEquals(List.of(), ids(ProductSearchCriteria.ofText("lamp")));
+    }
+
+    @Test
+    void rebuild_ShouldDropProductsDeletedSinceThePreviousBuild() {
+        // Arrange
+        Product kept = save("Desk Lamp", null, "c1", "25.00", 5);
+        Product deleted = save("Floor Lamp", null, "c1", "150.00", 5);
+        searchIndex.rebuild();
+        // Deleted on another node whose invalidation message never arrived
+        mongoTemplate.remove(deleted);
+
+        // Act
+        searchIndex.rebuild();
+
+        // Assert
+        assertEquals(List.of(kept.getId()), ids(ProductSearchCriteria.ofText("lamp")));
+    }
+
+    @Test
+    void rebuild_ShouldKeepLiveWritesTheStreamOverwroteWithAnOlderCopy() throws IOException {
+        // Arrange
+        Product renamed = save("Desk Lamp", null, "c1", "25.00", 5);
+        Product deleted = save("Floor Lamp", null, "c1", "150.00", 5);
+        MongoTemplate streamingTemplate = spy(mongoTemplate);
+        searchIndex.destroy();
+        searchIndex = newIndex(streamingTemplate);
+        doAnswer(invocation -> {
+            // Snapshot read by the stream before the live writes below
+            List<Product> snapshot = mongoTemplate.findAll(Product.class);
+            renamed.setName("Study Light");
+            searchIndex.index(mongoTemplate.save(renamed));
+            mongoTemplate.remove(deleted);
+            searchIndex.remove(deleted.getId());
+            return snapshot.stream();
+        }).when(streamingTemplate).stream(any(Query.class), eq(Product.class));
+
+        // Act
+        searchIndex.rebuild();
+
+        // Assert
+        assertEquals(List.of(renamed.getId()), ids(ProductSearchCriteria.ofText("light")));
+        assertEquals(List.of(), ids(ProductSearchCriteria.ofText("lamp")));
+    }
+
+    private ProductSearchIndex newIndex(MongoTemplate template) throws IOException {
+        return new ProductSearchIndex(template, mock(CacheInvalidationBus.class), new SimpleMeterRegistry());
+    }
+
+    private Product save(String name, String description, String categoryId, String price, int stock) {
+        return mongoTemplate.save(Product.builder()
+                .name(name)
+                .description(description)
+                .categoryId(categoryId)
+                .price(new BigDecimal(price))
+                .stockQuantity(stock)
+                .build());
+    }
+
+    private List<String> ids(ProductSearchCriteria criteria) {
+        return searchIndex.search(criteria, PageRequest.of(0, 10)).getContent();
+    }
+}
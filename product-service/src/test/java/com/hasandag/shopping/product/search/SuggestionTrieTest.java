@@ -0,0 +1,84 @@
+package com.hasandag.ecommerce.product.search;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SuggestionTrieTest {
+
+    private SuggestionTrie trie;
+    private Suggestion iphone;
+    private Suggestion watch;
+    private Suggestion electronics;
+
+    @BeforeEach
+    void setUp() {
+        trie = new SuggestionTrie(3);
+        iphone = new Suggestion(Suggestion.Type.PRODUCT, "p1", "Apple iPhone 15 Pro Max", 5);
+        watch = new Suggestion(Suggestion.Type.PRODUCT, "p2", "Apple Watch", 9);
+        electronics = new Suggestion(Suggestion.Type.CATEGORY, "c1", "Électronique", 3);
+        trie.replaceAll(List.of(iphone, watch, electronics));
+    }
+
+    @Test
+    void suggest_ShouldReturnMatchesByWeight() {
+        // Act
+        List<Suggestion> result = trie.suggest("APP", 10);
+
+        // Assert
+        assertEquals(List.of(watch, iphone), result);
+    }
+
+    @Test
+    void suggest_ShouldMatchAnyWordStartAndIgnoreAccents() {
+        // Act & Assert
+        assertEquals(List.of(iphone), trie.suggest("iph", 10));
+        assertEquals(List.of(electronics), trie.suggest("elec", 10));
+    }
+
+    @Test
+    void suggest_ShouldMatchPrefixesLongerThanTrieDepth() {
+        // Act
+        List<Suggestion> result = trie.suggest("apple iphone 15 pro", 10);
+
+        // Assert
+        assertEquals(List.of(iphone), result);
+        assertTrue(trie.suggest("apple iphone 16", 10).isEmpty());
+    }
+
+    @Test
+    void suggest_ShouldRespectLimit() {
+        // Act
+        List<Suggestion> result = trie.suggest("a", 1);
+
+        // Assert
+        assertEquals(List.of(watch), result);
+    }
+
+    @Test
+    void put_ShouldReplaceExistingEntryAndReorder() {
+        // Arrange
+        Suggestion demoted = new Suggestion(Suggestion.Type.PRODUCT, "p2", "Apple Watch", 1);
+
+        // Act
+        trie.put(demoted);
+
+        // Assert
+        assertEquals(List.of(iphone, demoted), trie.suggest("apple", 10));
+        assertEquals(3, trie.size());
+    }
+
+    @Test
+    void remove_ShouldDropEntryFromAllPrefixes() {
+        // Act
+        trie.remove(Suggestion.Type.PRODUCT, "p1");
+
+        // Assert
+        assertEquals(List.of(watch), trie.suggest("a", 10));
+        assertTrue(trie.suggest("iph", 10).isEmpty());
+        assertEquals(2, trie.size());
+    }
+}
@@ -0,0 +1,136 @@
+package com.hasandag.ecommerce.product.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.hasandag.ecommerce.product.cache.CategoryCacheVersions;
+import com.hasandag.ecommerce.product.category.CategoryPaths;
+import com.hasandag.ecommerce.product.dto.StockItem;
+import com.hasandag.ecommerce.product.mapper.ProductMapper;
+import com.hasandag.ecommerce.product.model.OutboxEvent;
+import com.hasandag.ecommerce.product.model.Product;
+import com.hasandag.ecommerce.product.outbox.ProductEventOutbox;
+import com.hasandag.ecommerce.product.repository.CategoryRepository;
+import com.hasandag.ecommerce.product.repository.OutboxEventRepository;
+import com.hasandag.ecommerce.product.repository.ProductRepository;
+import com.hasandag.ecommerce.product.search.ProductSearchIndex;
+import com.hasandag.ecommerce.product.search.ProductSuggester;
+import com.hasandag.ecommerce.product.service.impl.ProductServiceImpl;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.cache.CacheManager;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.data.mongodb.MongoDatabaseFactory;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class ProductServiceImplTest {
+
+    private static final String SELLER_ID = "seller-1";
+    private static final String BLOB = "ab".repeat(32) + ".jpg";
+    private static final String IMAGE = "/api/products/images/" + BLOB;
+
+    @Mock
+    private ProductRepository productRepository;
+
+    @Mock
+    private CategoryRepository categoryRepository;
+
+    @Mock
+    private ProductMapper productMapper;
+
+    @Mock
+    private ImageStorageService imageStorageService;
+
+    @Mock
+    private CategoryCacheVersions categoryCacheVersions;
+
+    @Mock
+    private ProductSearchIndex productSearchIndex;
+
+    @Mock
+    private ProductSuggester productSuggester;
+
+    @Mock
+    private CategoryPaths categoryPaths;
+
+    @Mock
+    private CacheManager cacheManager;
+
+    @Mock
+    private ProductEventOutbox productEventOutbox;
+
+    @InjectMocks
+    private ProductServiceImpl productService;
+
+    private Product product;
+
+    @BeforeEach
+    void setUp() {
+        product = Product.builder()
+                .id("p1")
+                .name("Pictured product")
+                .price(BigDecimal.TEN)
+                .stockQuantity(5)
+                .categoryId("c1")
+                .sellerId(SELLER_ID)
+                .imageUrls(new ArrayList<>(List.of(IMAGE)))
+                .build();
+    }
+
+    @Test
+    void deleteProductImage_ShouldReleaseImageWhenItRemovedTheUrl() {
+        // Arrange
+        when(productRepository.findById("p1")).thenReturn(Optional.of(product));
+        when(productRepository.removeImageUrl("p1", IMAGE)).thenReturn(Optional.of(product));
+
+        // Act
+        productService.deleteProductImage("p1", IMAGE, SELLER_ID);
+
+        // Assert
+        verify(imageStorageService, times(1)).deleteImage(BLOB);
+    }
+
+    @Test
+    void deleteProductImage_ShouldNotReleaseImageWhenAConcurrentDeleteRemovedTheUrl() {
+        // Arrange
+        when(productRepository.findById("p1")).thenReturn(Optional.of(product));
+        when(productRepository.removeImageUrl("p1", IMAGE)).thenReturn(Optional.empty());
+
+        // Act & Assert
+        assertThrows(IllegalArgumentException.class, () -> productService.deleteProductImage("p1", IMAGE, SELLER_ID));
+        verify(imageStorageService, never()).deleteImage(anyString());
+    }
+
+    @Test
+    void reserveStock_ShouldKeepTheStockTakenWhenTheOutboxWriteFails() {
+        // Arrange
+        OutboxEventRepository outboxEventRepository = mock(OutboxEventRepository.class);
+        when(outboxEventRepository.insert(any(OutboxEvent.class)))
+                .thenThrow(new DataAccessResourceFailureException("Outbox unavailable"));
+        ProductEventOutbox nonTransactionalOutbox = new ProductEventOutbox(outboxEventRepository,
+                new ObjectMapper().findAndRegisterModules(), mock(MongoDatabaseFactory.class), false);
+        ProductServiceImpl service = new ProductServiceImpl(productRepository, categoryRepository, productMapper,
+                imageStorageService, categoryCacheVersions, productSearchIndex, productSuggester, categoryPaths,
+                cacheManager, nonTransactionalOutbox);
+        when(productRepository.adjustStock("p1", -2)).thenReturn(Optional.of(product));
+
+        // Act
+        assertDoesNotThrow(() -> service.reserveStock(List.of(new StockItem("p1", 2))));
+
+        // Assert
+        verify(outboxEventRepository).insert(any(OutboxEvent.class));
+        verify(productRepository, times(1)).adjustStock(anyString(), anyInt());
+        verify(productSearchIndex).index(product);
+    }
+}
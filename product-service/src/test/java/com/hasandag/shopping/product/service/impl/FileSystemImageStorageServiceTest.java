@@ -0,0 +1,47 @@
+package com.hasandag.ecommerce.product.service.impl;
+
+import com.hasandag.ecommerce.product.repository.ImageBlobRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.mock.web.MockMultipartFile;
+
+import java.nio.file.Path;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+public class FileSystemImageStorageServiceTest {
+
+    @TempDir
+    Path uploadDir;
+
+    @Test
+    void extensionOf_ShouldNormalizeUsableExtensions() {
+        assertEquals(Optional.of(".jpg"), FileSystemImageStorageService.extensionOf("photo.JPG"));
+        assertEquals(Optional.of(".webp"), FileSystemImageStorageService.extensionOf("my.holiday.webp"));
+        assertEquals(Optional.of(""), FileSystemImageStorageService.extensionOf("photo"));
+        assertEquals(Optional.of(""), FileSystemImageStorageService.extensionOf(null));
+    }
+
+    @Test
+    void extensionOf_ShouldRejectExtensionsABlobNameCannotCarry() {
+        assertTrue(FileSystemImageStorageService.extensionOf("photo.jp-g").isEmpty());
+        assertTrue(FileSystemImageStorageService.extensionOf("photo.").isEmpty());
+        assertTrue(FileSystemImageStorageService.extensionOf("photo.averyverylongext").isEmpty());
+        assertTrue(FileSystemImageStorageService.extensionOf("../../etc/passwd.x/y").isEmpty());
+    }
+
+    @Test
+    void storeImage_ShouldRejectUnusableExtensionBeforeStoringAnything() {
+        // Arrange
+        ImageBlobRepository imageBlobRepository = mock(ImageBlobRepository.class);
+        FileSystemImageStorageService storageService = new FileSystemImageStorageService(
+                uploadDir.toString(), mock(ImageVariantGenerator.class), imageBlobRepository);
+        MockMultipartFile image = new MockMultipartFile("images", "photo.jp-g", "image/jpeg", new byte[]{1, 2, 3});
+
+        // Act & Assert
+        assertThrows(IllegalArgumentException.class, () -> storageService.storeImage(image));
+        verifyNoInteractions(imageBlobRepository);
+    }
+}
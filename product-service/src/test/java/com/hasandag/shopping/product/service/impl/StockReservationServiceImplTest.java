@@ -0,0 +1,142 @@
+package com.hasandag.ecommerce.product.service.impl;
+
+import com.hasandag.ecommerce.product.dto.StockItem;
+import com.hasandag.ecommerce.product.exception.InsufficientStockException;
+import com.hasandag.ecommerce.product.model.StockReservation;
+import com.hasandag.ecommerce.product.repository.StockReservationRepository;
+import com.hasandag.ecommerce.product.service.ProductService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.data.mongo.DataMongoTest;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.testcontainers.containers.MongoDBContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Reservations interrupted part way, with the crash simulated by an {@link Error} thrown
+ * while stock is being taken, and the recovery sweep that cleans up after them.
+ */
+@DataMongoTest
+@Testcontainers(disabledWithoutDocker = true)
+public class StockReservationServiceImplTest {
+
+    private static final String ORDER_ID = "order-1";
+    private static final StockItem FIRST = new StockItem("p1", 2);
+    private static final StockItem SECOND = new StockItem("p2", 1);
+
+    @Container
+    static MongoDBContainer mongo = new MongoDBContainer("mongo:7.0");
+
+    @DynamicPropertySource
+    static void mongoProperties(DynamicPropertyRegistry registry) {
+        registry.add("spring.data.mongodb.uri", () -> mongo.getReplicaSetUrl("product-service-test"));
+    }
+
+    @Autowired
+    private StockReservationRepository reservationRepository;
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    private ProductService productService;
+    private StockReservationServiceImpl reservationService;
+
+    @BeforeEach
+    void setUp() {
+        reservationRepository.deleteAll();
+        productService = mock(ProductService.class);
+        reservationService = new StockReservationServiceImpl(reservationRepository, productService);
+        ReflectionTestUtils.setField(reservationService, "ttl", Duration.ofMinutes(15));
+        ReflectionTestUtils.setField(reservationService, "retention", Duration.ofDays(7));
+        ReflectionTestUtils.setField(reservationService, "stallTimeout", Duration.ofMinutes(2));
+        ReflectionTestUtils.setField(reservationService, "sweepBatchSize", 200);
+    }
+
+    @Test
+    void recoverStalled_ShouldReturnStockTakenBeforeACrash() {
+        // Arrange
+        when(productService.reserveStock(List.of(SECOND))).thenThrow(new Crash());
+        assertThrows(Crash.class, () -> reservationService.reserve(ORDER_ID, List.of(FIRST, SECOND)));
+        stallPastTimeout();
+
+        // Act
+        int recovered = reservationService.recoverStalled();
+
+        // Assert
+        assertEquals(1, recovered);
+        verify(productService, times(1)).releaseStock(anyList());
+        verify(productService).releaseStock(List.of(FIRST));
+        StockReservation reservation = reservationRepository.findById(ORDER_ID).orElseThrow();
+        assertEquals(StockReservation.Status.FAILED, reservation.getStatus());
+        assertTrue(reservation.isStockReturned());
+
+        // Act & Assert
+        assertEquals(0, reservationService.recoverStalled());
+        verify(productService, times(1)).releaseStock(anyList());
+    }
+
+    @Test
+    void recoverStalled_ShouldReturnNothingWhenTheCrashCameBeforeAnyStockWasTaken() {
+        // Arrange
+        when(productService.reserveStock(List.of(FIRST))).thenThrow(new Crash());
+        assertThrows(Crash.class, () -> reservationService.reserve(ORDER_ID, List.of(FIRST, SECOND)));
+        stallPastTimeout();
+
+        // Act
+        int recovered = reservationService.recoverStalled();
+
+        // Assert
+        assertEquals(1, recovered);
+        verify(productService, never()).releaseStock(anyList());
+        assertTrue(reservationRepository.findById(ORDER_ID).orElseThrow().isStockReturned());
+    }
+
+    @Test
+    void reserve_ShouldReturnTakenStockAndAllowARetryWhenAnItemIsShort() {
+        // Arrange
+        when(productService.reserveStock(List.of(SECOND))).thenThrow(new InsufficientStockException("p2", 1));
+
+        // Act & Assert
+        assertThrows(InsufficientStockException.class, () -> reservationService.reserve(ORDER_ID, List.of(FIRST, SECOND)));
+        verify(productService).releaseStock(List.of(FIRST));
+        assertTrue(reservationRepository.findById(ORDER_ID).isEmpty());
+    }
+
+    @Test
+    void reserve_ShouldRecordEveryTakenItemBeforeMarkingReserved() {
+        // Act
+        reservationService.reserve(ORDER_ID, List.of(FIRST, SECOND));
+
+        // Assert
+        StockReservation reservation = reservationRepository.findById(ORDER_ID).orElseThrow();
+        assertEquals(StockReservation.Status.RESERVED, reservation.getStatus());
+        assertEquals(reservation.getItems(), reservation.getTakenItems());
+        verify(productService, never()).releaseStock(anyList());
+    }
+
+    private void stallPastTimeout() {
+        mongoTemplate.updateFirst(Query.query(Criteria.where("_id").is(ORDER_ID)),
+                Update.update("updatedAt", LocalDateTime.now().minusMinutes(10)),
+                StockReservation.class);
+    }
+
+    // Stands in for the process dying: not a RuntimeException, so no cleanup code runs
+    private static class Crash extends Error {
+    }
+}
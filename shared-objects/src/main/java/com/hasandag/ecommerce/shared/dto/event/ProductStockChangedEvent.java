@@ -0,0 +1,31 @@
+package com.hasandag.ecommerce.shared.dto.event;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Published on {@link KafkaTopics#PRODUCT_STOCK_CHANGED}, keyed by product id. Carries the
+ * resulting stock and price rather than a delta, so consumers can apply it idempotently and
+ * drop events whose {@code stockVersion} is not higher than the last one they applied.
+ * {@code stockVersion} is bumped in the same Mongo update as the stock; {@code occurredAt}
+ * comes from the producing node's clock and is informational only, it does not order events.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductStockChangedEvent {
+    private String eventId;
+    private String productId;
+    private String categoryId;
+    private Integer stockQuantity;
+    private BigDecimal price;
+    private boolean available;
+    private long stockVersion;
+    private LocalDateTime occurredAt;
+}